@@ -7,7 +7,9 @@ import com.blazemeter.jmeter.correlation.core.CorrelationEngine;
 import com.blazemeter.jmeter.correlation.core.CorrelationRule;
 import com.blazemeter.jmeter.correlation.core.InvalidRulePartElementException;
 import com.blazemeter.jmeter.correlation.core.RulesGroup;
+import com.blazemeter.jmeter.correlation.core.automatic.Configuration;
 import com.blazemeter.jmeter.correlation.core.automatic.CorrelationHistory;
+import com.blazemeter.jmeter.correlation.core.automatic.IncrementalRecordingAnalysis;
 import com.blazemeter.jmeter.correlation.core.automatic.JMeterElementUtils;
 import com.blazemeter.jmeter.correlation.core.automatic.ResultFileParser;
 import com.blazemeter.jmeter.correlation.core.proxy.ComparableCookie;
@@ -123,6 +125,7 @@ public class CorrelationProxyControl extends ProxyControl implements
   private boolean analysisMode = false;
   private boolean shouldStore = false;
   private Runnable onStopRecordingMethod;
+  private transient IncrementalRecordingAnalysis incrementalAnalysis;
 
   @SuppressWarnings("checkstyle:RedundantModifier")
   public CorrelationProxyControl() {
@@ -202,6 +205,13 @@ public class CorrelationProxyControl extends ProxyControl implements
     correlationEngine.reset();
     pendingProxies.clear();
     samples.clear();
+    Configuration configuration = new Configuration();
+    if (configuration.isIncrementalAnalysis()) {
+      incrementalAnalysis = IncrementalRecordingAnalysis.start(configuration);
+    } else {
+      IncrementalRecordingAnalysis.discard();
+      incrementalAnalysis = null;
+    }
 
     try {
       initKeyStore();
@@ -336,6 +346,9 @@ public class CorrelationProxyControl extends ProxyControl implements
   private void deliverCompletedProxy(PendingProxy proxy) {
     if (proxy.getSampler() != null && filter(proxy.getSampler(), proxy.getResult())) {
       this.samples.add(proxy.getResult());
+      if (incrementalAnalysis != null) {
+        incrementalAnalysis.offer(proxy.getResult());
+      }
       this.target = proxy.getTarget();
       List<TestElement> children = new ArrayList<>(Arrays.asList(proxy.getTestElements()));
       correlationEngine.process(proxy.getSampler(), children, proxy.getResult(),
@@ -873,8 +886,11 @@ public class CorrelationProxyControl extends ProxyControl implements
 
     LOG.info("Samples recorded: {}", getSamples().size());
 
-    history.addOriginalRecordingStep(JMeterElementUtils.saveTestPlanSnapshot(),
-        ResultFileParser.saveToFile(getSamples()));
+    String recordingTrace = ResultFileParser.saveToFile(getSamples());
+    history.addOriginalRecordingStep(JMeterElementUtils.saveTestPlanSnapshot(), recordingTrace);
+    if (incrementalAnalysis != null) {
+      incrementalAnalysis.complete(recordingTrace);
+    }
 
     if (onStopRecordingMethod == null) {
       LOG.warn("No onStopRecordingMethod was set. Skipping correlation suggestions generation.");
@@ -6,7 +6,6 @@ import com.blazemeter.jmeter.correlation.core.automatic.CorrelationSuggestion;
 import com.blazemeter.jmeter.correlation.core.automatic.ExtractionSuggestion;
 import com.blazemeter.jmeter.correlation.core.automatic.ReplacementSuggestion;
 import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
-import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.replacements.CorrelationReplacement;
 import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
 import com.helger.commons.annotation.VisibleForTesting;
@@ -147,7 +146,7 @@ public class AnalysisReporter {
       }
 
       if (part instanceof CorrelationExtractor) {
-        RegexCorrelationExtractor<?> extractor = (RegexCorrelationExtractor<?>) part;
+        CorrelationExtractor<?> extractor = (CorrelationExtractor<?>) part;
         for (ReportEntry entry : report.entries) {
           ExtractionSuggestion extraction = new ExtractionSuggestion(extractor, entry.getSampler());
           extraction.setValue(entry.value);
@@ -212,11 +211,11 @@ public class AnalysisReporter {
     List<CorrelationSuggestion> suggestions = new ArrayList<>();
     for (Report report : reports.values()) {
       CorrelationRulePartTestElement<?> rulePart = report.part;
-      if (!(rulePart instanceof RegexCorrelationExtractor)) {
+      if (!(rulePart instanceof CorrelationExtractor)) {
         continue;
       }
 
-      RegexCorrelationExtractor<?> extractor = (RegexCorrelationExtractor<?>) rulePart;
+      CorrelationExtractor<?> extractor = (CorrelationExtractor<?>) rulePart;
       CorrelationSuggestion suggestion = new CorrelationSuggestion();
       for (ReportEntry entry : report.entries) {
         if (!(entry.affectedElement instanceof HTTPSamplerBase)) {
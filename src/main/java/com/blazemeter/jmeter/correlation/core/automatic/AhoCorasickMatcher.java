@@ -0,0 +1,132 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Multi-pattern string matcher (Aho-Corasick automaton) that finds all the occurrences of a set
+ * of patterns by scanning the text only once, regardless of how many patterns it contains.
+ */
+public class AhoCorasickMatcher {
+  private static final int[] NO_OUTPUTS = new int[0];
+
+  private final List<String> patterns;
+  private final Set<String> patternSet;
+  private final Node root = new Node();
+
+  /**
+   * Builds the automaton for the given patterns. Empty patterns are ignored.
+   *
+   * @param patterns the patterns to look for.
+   */
+  public AhoCorasickMatcher(Collection<String> patterns) {
+    this.patterns = new ArrayList<>(patterns);
+    this.patternSet = new HashSet<>(patterns);
+    for (int i = 0; i < this.patterns.size(); i++) {
+      addPattern(this.patterns.get(i), i);
+    }
+    buildFailureLinks();
+  }
+
+  private void addPattern(String pattern, int index) {
+    if (pattern == null || pattern.isEmpty()) {
+      return;
+    }
+    Node node = root;
+    for (int i = 0; i < pattern.length(); i++) {
+      node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+    }
+    node.outputs = append(node.outputs, index);
+  }
+
+  private void buildFailureLinks() {
+    Deque<Node> queue = new ArrayDeque<>();
+    for (Node child : root.children.values()) {
+      child.failure = root;
+      queue.add(child);
+    }
+
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+        char c = entry.getKey();
+        Node child = entry.getValue();
+        Node failure = node.failure;
+        while (failure != null && !failure.children.containsKey(c)) {
+          failure = failure.failure;
+        }
+        child.failure = failure == null ? root : failure.children.get(c);
+        if (child.failure.outputs.length > 0) {
+          child.outputs = merge(child.outputs, child.failure.outputs);
+        }
+        queue.add(child);
+      }
+    }
+  }
+
+  private static int[] append(int[] array, int value) {
+    int[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = value;
+    return result;
+  }
+
+  private static int[] merge(int[] first, int[] second) {
+    int[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  /**
+   * Scans the text once and returns, for each pattern, the offset of its first occurrence.
+   *
+   * @param text the text to scan.
+   * @return an array, indexed as the patterns provided on construction, with the offset of the
+   *     first occurrence of each pattern, or -1 when the pattern is not in the text.
+   */
+  public int[] findFirstOccurrences(CharSequence text) {
+    int[] firstOccurrences = new int[patterns.size()];
+    Arrays.fill(firstOccurrences, -1);
+    if (text == null) {
+      return firstOccurrences;
+    }
+
+    Node node = root;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      Node next = node.children.get(c);
+      while (next == null && node != root) {
+        node = node.failure;
+        next = node.children.get(c);
+      }
+      node = next == null ? root : next;
+      for (int patternIndex : node.outputs) {
+        if (firstOccurrences[patternIndex] == -1) {
+          firstOccurrences[patternIndex] = i - patterns.get(patternIndex).length() + 1;
+        }
+      }
+    }
+    return firstOccurrences;
+  }
+
+  public List<String> getPatterns() {
+    return patterns;
+  }
+
+  public boolean containsPattern(String pattern) {
+    return patternSet.contains(pattern);
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<>();
+    private Node failure;
+    private int[] outputs = NO_OUTPUTS;
+  }
+}
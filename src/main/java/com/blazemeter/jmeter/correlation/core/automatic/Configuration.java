@@ -21,6 +21,21 @@ public class Configuration {
   private static final int DEFAULT_CONTEXT_LENGTH = 10;
   private static final int MAX_NUMBER_OF_APPEARANCES = 500;
   private static final boolean IGNORE_BOOLEAN_VALUES = true;
+  private static final int DEFAULT_SUGGESTION_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final float DEFAULT_MIN_VALUE_SCORE = 0;
+  private static final boolean DEFAULT_OUT_OF_CORE = false;
+  private static final int DEFAULT_OUT_OF_CORE_RUN_SIZE = 100000;
+  private static final int DEFAULT_OUT_OF_CORE_CACHE_SIZE = 256;
+  private static final boolean DEFAULT_REGEX_EXTRACTORS_ONLY = false;
+  private static final int DEFAULT_EXTRACTOR_BENCHMARK_ITERATIONS = 20;
+  private static final boolean DEFAULT_MERGE_EXTRACTORS = false;
+  private static final boolean DEFAULT_INCREMENTAL_ANALYSIS = false;
+  private static final boolean DEFAULT_SUGGESTIONS_CACHE = true;
+  private static final int DEFAULT_REPLAY_CHECKPOINT_INTERVAL = 0;
+  private static final int DEFAULT_REPLAY_MAX_NEW_DIVERGENCES = 0;
+  private static final float DEFAULT_REPLAY_MIN_BODY_SIMILARITY = 0;
+  private static final boolean DEFAULT_OFFLINE_REPLAY = false;
+  private static final boolean DEFAULT_VALUE_FLOW_GRAPH = false;
   private static final List<String> DEFAULT_IGNORED_DOMAINS = Arrays.asList("mozilla.org",
       "mozilla.net", "mozilla.com",
       "content-signature-2.cdn.mozilla.net", "push.services.mozilla.com",
@@ -59,12 +74,29 @@ public class Configuration {
   private final int contextLength;
   private int maxNumberOfAppearances;
   private boolean ignoreBooleanValues;
+  private int suggestionThreads;
+  private float minValueScore;
+  private boolean outOfCore;
+  private int outOfCoreRunSize;
+  private int outOfCoreCacheSize;
+  private boolean regexExtractorsOnly;
+  private int extractorBenchmarkIterations;
+  private boolean mergeExtractors;
+  private boolean incrementalAnalysis;
+  private boolean suggestionsCache;
+  private int replayCheckpointInterval;
+  private int replayMaxNewDivergences;
+  private float replayMinBodySimilarity;
+  private boolean offlineReplay;
+  private boolean valueFlowGraph;
+  private final List<String> comparedRecordings;
   private final List<String> ignoredDomains;
   private final List<String> ignoredHeaders;
   private List<String> ignoredFiles;
   private List<String> ignoredParameters;
 
   private final List<String> requestedParameters;
+  private volatile FilterPolicy filterPolicy;
 
   public Configuration() {
     this.minLength = JMeterUtils.getPropDefault("correlation.configuration.min_value_length",
@@ -76,6 +108,42 @@ public class Configuration {
     this.ignoreBooleanValues
         = JMeterUtils.getPropDefault("correlation.configuration.ignore_boolean_values",
         IGNORE_BOOLEAN_VALUES);
+    this.suggestionThreads = JMeterUtils.getPropDefault(
+        "correlation.configuration.suggestion_threads", DEFAULT_SUGGESTION_THREADS);
+    this.minValueScore = JMeterUtils.getPropDefault(
+        "correlation.configuration.min_value_score", DEFAULT_MIN_VALUE_SCORE);
+    this.outOfCore = JMeterUtils.getPropDefault("correlation.configuration.out_of_core",
+        DEFAULT_OUT_OF_CORE);
+    this.outOfCoreRunSize = JMeterUtils.getPropDefault(
+        "correlation.configuration.out_of_core_run_size", DEFAULT_OUT_OF_CORE_RUN_SIZE);
+    this.outOfCoreCacheSize = JMeterUtils.getPropDefault(
+        "correlation.configuration.out_of_core_cache_size", DEFAULT_OUT_OF_CORE_CACHE_SIZE);
+    this.regexExtractorsOnly = JMeterUtils.getPropDefault(
+        "correlation.configuration.regex_extractors_only", DEFAULT_REGEX_EXTRACTORS_ONLY);
+    this.extractorBenchmarkIterations = JMeterUtils.getPropDefault(
+        "correlation.configuration.extractor_benchmark_iterations",
+        DEFAULT_EXTRACTOR_BENCHMARK_ITERATIONS);
+    this.mergeExtractors = JMeterUtils.getPropDefault(
+        "correlation.configuration.merge_extractors", DEFAULT_MERGE_EXTRACTORS);
+    this.incrementalAnalysis = JMeterUtils.getPropDefault(
+        "correlation.configuration.incremental_analysis", DEFAULT_INCREMENTAL_ANALYSIS);
+    this.suggestionsCache = JMeterUtils.getPropDefault(
+        "correlation.configuration.suggestions_cache", DEFAULT_SUGGESTIONS_CACHE);
+    this.replayCheckpointInterval = JMeterUtils.getPropDefault(
+        "correlation.configuration.replay_checkpoint_interval",
+        DEFAULT_REPLAY_CHECKPOINT_INTERVAL);
+    this.replayMaxNewDivergences = JMeterUtils.getPropDefault(
+        "correlation.configuration.replay_max_new_divergences",
+        DEFAULT_REPLAY_MAX_NEW_DIVERGENCES);
+    this.replayMinBodySimilarity = JMeterUtils.getPropDefault(
+        "correlation.configuration.replay_min_body_similarity",
+        DEFAULT_REPLAY_MIN_BODY_SIMILARITY);
+    this.offlineReplay = JMeterUtils.getPropDefault("correlation.configuration.offline_replay",
+        DEFAULT_OFFLINE_REPLAY);
+    this.valueFlowGraph = JMeterUtils.getPropDefault(
+        "correlation.configuration.value_flow_graph", DEFAULT_VALUE_FLOW_GRAPH);
+    this.comparedRecordings = getDefaultListValues(
+        "correlation.configuration.compared_recordings", new ArrayList<>());
     this.ignoredDomains = getDefaultListValues("correlation.configuration.ignored_domains",
         DEFAULT_IGNORED_DOMAINS);
     this.ignoredHeaders = getDefaultListValues("correlation.configuration.ignored_headers",
@@ -94,6 +162,22 @@ public class Configuration {
     LOG.trace("Context length: {}", contextLength);
     LOG.trace("Max number of appearances: {}", maxNumberOfAppearances);
     LOG.trace("Ignore boolean values: {}", ignoreBooleanValues);
+    LOG.trace("Suggestion threads: {}", suggestionThreads);
+    LOG.trace("Min value score: {}", minValueScore);
+    LOG.trace("Out of core: {}", outOfCore);
+    LOG.trace("Out of core run size: {}", outOfCoreRunSize);
+    LOG.trace("Out of core cache size: {}", outOfCoreCacheSize);
+    LOG.trace("Regex extractors only: {}", regexExtractorsOnly);
+    LOG.trace("Extractor benchmark iterations: {}", extractorBenchmarkIterations);
+    LOG.trace("Merge extractors: {}", mergeExtractors);
+    LOG.trace("Incremental analysis: {}", incrementalAnalysis);
+    LOG.trace("Suggestions cache: {}", suggestionsCache);
+    LOG.trace("Replay checkpoint interval: {}", replayCheckpointInterval);
+    LOG.trace("Replay max new divergences: {}", replayMaxNewDivergences);
+    LOG.trace("Replay min body similarity: {}", replayMinBodySimilarity);
+    LOG.trace("Offline replay: {}", offlineReplay);
+    LOG.trace("Value flow graph: {}", valueFlowGraph);
+    LOG.trace("Compared recordings: {}", comparedRecordings);
     LOG.trace("Ignored domains: {}", ignoredDomains);
     LOG.trace("Ignored headers: {}", ignoredHeaders);
     LOG.trace("Ignored files: {}", ignoredFiles);
@@ -130,6 +214,239 @@ public class Configuration {
     this.ignoreBooleanValues = ignoreBooleanValues;
   }
 
+  /**
+   * Returns the amount of threads used to generate the suggestions of the dynamic elements in
+   * parallel. Values lower than 2 generate them sequentially.
+   *
+   * @return the amount of threads used to generate suggestions.
+   */
+  public int getSuggestionThreads() {
+    return suggestionThreads;
+  }
+
+  public void setSuggestionThreads(int suggestionThreads) {
+    this.suggestionThreads = suggestionThreads;
+  }
+
+  /**
+   * Returns the minimum score (from 0 to 1) a parameter needs to be considered dynamic. Parameters
+   * with lower scores are discarded before generating suggestions. See {@link ValueScorer}.
+   *
+   * @return the minimum score of the dynamic parameters, or 0 when none is discarded.
+   */
+  public float getMinValueScore() {
+    return minValueScore;
+  }
+
+  public void setMinValueScore(float minValueScore) {
+    this.minValueScore = minValueScore;
+  }
+
+  /**
+   * Returns whether the traces are compared out of core: appearances are sorted on disk and
+   * results are kept in a temporary file and read only when needed, so traces bigger than the
+   * available memory can be analyzed.
+   *
+   * @return true if the traces are compared out of core.
+   */
+  public boolean isOutOfCore() {
+    return outOfCore;
+  }
+
+  public void setOutOfCore(boolean outOfCore) {
+    this.outOfCore = outOfCore;
+  }
+
+  /**
+   * Returns the amount of appearances kept in memory before sorting them and writing them to disk,
+   * when comparing out of core.
+   *
+   * @return the amount of appearances of each sorted run.
+   */
+  public int getOutOfCoreRunSize() {
+    return outOfCoreRunSize;
+  }
+
+  public void setOutOfCoreRunSize(int outOfCoreRunSize) {
+    this.outOfCoreRunSize = outOfCoreRunSize;
+  }
+
+  /**
+   * Returns the amount of results, with their bodies loaded, kept in memory while generating
+   * suggestions out of core.
+   *
+   * @return the maximum amount of results prepared for search kept in memory.
+   */
+  public int getOutOfCoreCacheSize() {
+    return outOfCoreCacheSize;
+  }
+
+  public void setOutOfCoreCacheSize(int outOfCoreCacheSize) {
+    this.outOfCoreCacheSize = outOfCoreCacheSize;
+  }
+
+  /**
+   * Returns whether the suggestions always extract values with regular expressions. Otherwise,
+   * boundary extractors are suggested when the context of the value is plain text, and JSON
+   * extractors when the value is a field of a JSON response, since both are cheaper to evaluate.
+   *
+   * @return true if only regex extractors are suggested.
+   */
+  public boolean isRegexExtractorsOnly() {
+    return regexExtractorsOnly;
+  }
+
+  public void setRegexExtractorsOnly(boolean regexExtractorsOnly) {
+    this.regexExtractorsOnly = regexExtractorsOnly;
+  }
+
+  /**
+   * Returns how many times the extractor chosen as the cheapest one that extracts the value is
+   * evaluated against the recorded response to measure its cost. When it's 0 (or only regex
+   * extractors are suggested), the candidates are not compared and the extractors are chosen by
+   * their type: JSON, then boundary, then regex.
+   *
+   * @return the number of timed evaluations of the chosen extractor.
+   */
+  public int getExtractorBenchmarkIterations() {
+    return extractorBenchmarkIterations;
+  }
+
+  public void setExtractorBenchmarkIterations(int extractorBenchmarkIterations) {
+    this.extractorBenchmarkIterations = extractorBenchmarkIterations;
+  }
+
+  /**
+   * Returns whether the JSON extractors that the suggestions add to the same sampler are merged
+   * into a single JSON Extractor, that parses the response once and sets all the variables,
+   * instead of adding one JSON Extractor for each variable.
+   *
+   * @return true if the JSON extractors of each sampler are merged.
+   */
+  public boolean isMergeExtractors() {
+    return mergeExtractors;
+  }
+
+  public void setMergeExtractors(boolean mergeExtractors) {
+    this.mergeExtractors = mergeExtractors;
+  }
+
+  /**
+   * Returns whether the recorded requests are analyzed while recording, in the background, so the
+   * recording trace doesn't need to be loaded and analyzed again when comparing it with the replay.
+   *
+   * @return true if the recording is analyzed incrementally.
+   */
+  public boolean isIncrementalAnalysis() {
+    return incrementalAnalysis;
+  }
+
+  public void setIncrementalAnalysis(boolean incrementalAnalysis) {
+    this.incrementalAnalysis = incrementalAnalysis;
+  }
+
+  /**
+   * Returns whether the dynamic elements and the suggestions obtained from a recording and a
+   * replay are kept, so analyzing the same traces with the same configuration again reuses them.
+   *
+   * @return true if the results of the analysis are cached.
+   */
+  public boolean isSuggestionsCache() {
+    return suggestionsCache;
+  }
+
+  public void setSuggestionsCache(boolean suggestionsCache) {
+    this.suggestionsCache = suggestionsCache;
+  }
+
+  /**
+   * Returns every how many samplers the replay captures the variables and cookies of the thread,
+   * so the following replays can resume from the last capture before the first modified sampler
+   * instead of replaying the whole test plan. A value of 0 disables the checkpoints.
+   *
+   * @return the number of samplers between checkpoints.
+   */
+  public int getReplayCheckpointInterval() {
+    return replayCheckpointInterval;
+  }
+
+  public void setReplayCheckpointInterval(int replayCheckpointInterval) {
+    this.replayCheckpointInterval = replayCheckpointInterval;
+  }
+
+  /**
+   * Returns after how many new divergences from the recording the replay stops. A divergence is
+   * new when a request that succeeded in the recording fails, gets another response code or a
+   * response body too different (see {@link #getReplayMinBodySimilarity()}) in the replay. A
+   * value of 0 replays the whole test plan.
+   *
+   * @return the number of new divergences that stops the replay.
+   */
+  public int getReplayMaxNewDivergences() {
+    return replayMaxNewDivergences;
+  }
+
+  public void setReplayMaxNewDivergences(int replayMaxNewDivergences) {
+    this.replayMaxNewDivergences = replayMaxNewDivergences;
+  }
+
+  /**
+   * Returns the minimum similarity, between 0 and 1, of the words of a replayed response body
+   * with the recorded one, for the replay to not diverge from the recording. A value of 0 only
+   * compares the response codes.
+   *
+   * @return the minimum similarity of the response bodies.
+   */
+  public float getReplayMinBodySimilarity() {
+    return replayMinBodySimilarity;
+  }
+
+  public void setReplayMinBodySimilarity(float replayMinBodySimilarity) {
+    this.replayMinBodySimilarity = replayMinBodySimilarity;
+  }
+
+  /**
+   * Returns whether the test plan is replayed against a local server that answers with the
+   * responses of the recording (see {@link ReplayStubServer}), instead of the application under
+   * test.
+   *
+   * @return true if the replay doesn't reach the application under test.
+   */
+  public boolean isOfflineReplay() {
+    return offlineReplay;
+  }
+
+  public void setOfflineReplay(boolean offlineReplay) {
+    this.offlineReplay = offlineReplay;
+  }
+
+  /**
+   * Returns whether the comparison of the recording with the replay also builds the graph of where
+   * the values of the dynamic parameters are produced and consumed in the recording (see
+   * {@link ValueFlowGraph}), and saves it along with the history. Building it takes another pass
+   * over the recording.
+   *
+   * @return true if the value flow graph of each analysis is saved.
+   */
+  public boolean isValueFlowGraph() {
+    return valueFlowGraph;
+  }
+
+  public void setValueFlowGraph(boolean valueFlowGraph) {
+    this.valueFlowGraph = valueFlowGraph;
+  }
+
+  /**
+   * Returns the paths of the traces of other recordings of the same flow. When there is any, the
+   * suggestions are generated by comparing the recording of the test plan with them (see
+   * {@link RecordingsComparison}), instead of with the failing replay.
+   *
+   * @return the paths of the JTL files of the other recordings, or an empty list.
+   */
+  public List<String> getComparedRecordings() {
+    return comparedRecordings;
+  }
+
   public List<String> getIgnoredDomains() {
     return ignoredDomains;
   }
@@ -144,6 +461,7 @@ public class Configuration {
 
   public void setIgnoredFiles(List<String> ignoredFiles) {
     this.ignoredFiles = ignoredFiles;
+    filterPolicy = null;
   }
 
   public List<String> getIgnoredParameters() {
@@ -152,10 +470,28 @@ public class Configuration {
 
   public void setIgnoredParameters(List<String> ignoredParameters) {
     this.ignoredParameters = ignoredParameters;
+    filterPolicy = null;
   }
 
   public void addIgnoredParameters(List<String> ignoredParameters) {
     this.ignoredParameters.addAll(ignoredParameters);
+    filterPolicy = null;
+  }
+
+  /**
+   * Returns the ignored domains, headers, files and parameters compiled to be checked efficiently.
+   * The policy is compiled the first time it is requested and every time the ignored lists are
+   * changed through this configuration.
+   *
+   * @return the filter policy of this configuration.
+   */
+  public FilterPolicy getFilterPolicy() {
+    FilterPolicy policy = filterPolicy;
+    if (policy == null) {
+      policy = new FilterPolicy(ignoredDomains, ignoredHeaders, ignoredFiles, ignoredParameters);
+      filterPolicy = policy;
+    }
+    return policy;
   }
 
   public void setMaxNumberOfAppearances(int maxNumberOfAppearances) {
@@ -170,6 +506,56 @@ public class Configuration {
     return requestedParameters;
   }
 
+  /**
+   * Returns the settings that decide which parameters are considered dynamic. Unlike the
+   * {@link #toString()} of the configuration, it doesn't change with the settings that only
+   * affect how the suggestions are generated for those parameters.
+   *
+   * @return a description of the settings used to obtain the dynamic elements.
+   */
+  public String getDynamicElementsDescription() {
+    return "minLength=" + minLength
+        + ", maxNumberOfAppearances=" + maxNumberOfAppearances
+        + ", ignoreBooleanValues=" + ignoreBooleanValues
+        + ", minValueScore=" + minValueScore
+        + ", ignoredDomains=" + ignoredDomains
+        + ", ignoredHeaders=" + ignoredHeaders
+        + ", ignoredFiles=" + ignoredFiles
+        + ", ignoredParameters=" + ignoredParameters
+        + ", requestedParameters=" + requestedParameters;
+  }
+
+  /**
+   * Returns the settings that decide which parameters are extracted from the results of a trace,
+   * and which results are filtered out before. Unlike the {@link #toString()} of the
+   * configuration, it doesn't change with the settings of the comparison, the suggestions or the
+   * replays.
+   *
+   * @return a description of the settings used to extract the parameters of the results.
+   */
+  public String getExtractionDescription() {
+    return "minLength=" + minLength
+        + ", ignoreBooleanValues=" + ignoreBooleanValues
+        + ", ignoredDomains=" + ignoredDomains
+        + ", ignoredHeaders=" + ignoredHeaders
+        + ", ignoredFiles=" + ignoredFiles
+        + ", ignoredParameters=" + ignoredParameters;
+  }
+
+  /**
+   * Returns the settings that decide the suggestions generated for the dynamic elements, besides
+   * the ones of {@link #getDynamicElementsDescription()}. It doesn't change with the settings that
+   * only affect how fast the suggestions are generated, how they are applied or how the replays
+   * run.
+   *
+   * @return a description of the settings used to generate the suggestions.
+   */
+  public String getSuggestionsDescription() {
+    return "contextLength=" + contextLength
+        + ", regexExtractorsOnly=" + regexExtractorsOnly
+        + ", extractorBenchmarkIterations=" + extractorBenchmarkIterations;
+  }
+
   @Override
   public String toString() {
     return "Configuration {"
@@ -177,6 +563,22 @@ public class Configuration {
         + ", contextLength=" + contextLength
         + ", maxNumberOfAppearances=" + maxNumberOfAppearances
         + ", ignoreBooleanValues=" + ignoreBooleanValues
+        + ", suggestionThreads=" + suggestionThreads
+        + ", minValueScore=" + minValueScore
+        + ", outOfCore=" + outOfCore
+        + ", outOfCoreRunSize=" + outOfCoreRunSize
+        + ", outOfCoreCacheSize=" + outOfCoreCacheSize
+        + ", regexExtractorsOnly=" + regexExtractorsOnly
+        + ", extractorBenchmarkIterations=" + extractorBenchmarkIterations
+        + ", mergeExtractors=" + mergeExtractors
+        + ", incrementalAnalysis=" + incrementalAnalysis
+        + ", suggestionsCache=" + suggestionsCache
+        + ", replayCheckpointInterval=" + replayCheckpointInterval
+        + ", replayMaxNewDivergences=" + replayMaxNewDivergences
+        + ", replayMinBodySimilarity=" + replayMinBodySimilarity
+        + ", offlineReplay=" + offlineReplay
+        + ", valueFlowGraph=" + valueFlowGraph
+        + ", comparedRecordings=" + comparedRecordings
         + ", ignoredDomains=" + ignoredDomains
         + ", ignoredHeaders=" + ignoredHeaders
         + ", ignoredFiles=" + ignoredFiles
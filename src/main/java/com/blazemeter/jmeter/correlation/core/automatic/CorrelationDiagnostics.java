@@ -0,0 +1,224 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helger.commons.annotation.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects what happened during the automatic correlation (values filtered, orphan appearances,
+ * replay errors, etc.) so it can be reviewed afterwards, without writing to the console in the
+ * middle of the analysis.
+ *
+ * <p>Every event increments the counter of its type, and the last ones are kept in a bounded ring
+ * buffer (see the "correlation.diagnostics.buffer_size" property), so long analyses don't grow the
+ * memory used. Events are also logged at debug level. When the buffer size is 0 and debug logging
+ * is off, only the counters are kept, and the details of the events are not even built.
+ */
+public class CorrelationDiagnostics {
+  private static final Logger LOG = LoggerFactory.getLogger(CorrelationDiagnostics.class);
+  private static final int DEFAULT_BUFFER_SIZE = 1000;
+  private static CorrelationDiagnostics instance;
+
+  private final Map<EventType, AtomicLong> counters = new EnumMap<>(EventType.class);
+  private final Event[] buffer;
+  private final boolean keepEvents;
+  private int next;
+  private int size;
+
+  @VisibleForTesting
+  CorrelationDiagnostics(int bufferSize) {
+    this.buffer = new Event[Math.max(bufferSize, 1)];
+    this.keepEvents = bufferSize > 0;
+    for (EventType type : EventType.values()) {
+      counters.put(type, new AtomicLong());
+    }
+  }
+
+  public static synchronized CorrelationDiagnostics getInstance() {
+    if (instance == null) {
+      instance = new CorrelationDiagnostics(JMeterUtils.getPropDefault(
+          "correlation.diagnostics.buffer_size", DEFAULT_BUFFER_SIZE));
+    }
+    return instance;
+  }
+
+  /**
+   * Records an event.
+   *
+   * @param type    the type of the event.
+   * @param subject what the event is about (a parameter name, a sample label, etc.).
+   * @param detail  a description of the event.
+   */
+  public void record(EventType type, String subject, String detail) {
+    record(type, subject, () -> detail);
+  }
+
+  /**
+   * Records an event, building its description only when the event is kept or logged, so events
+   * recorded for every value or result don't format descriptions that nobody reads.
+   *
+   * @param type    the type of the event.
+   * @param subject what the event is about (a parameter name, a sample label, etc.).
+   * @param detail  the builder of the description of the event.
+   */
+  public void record(EventType type, String subject, Supplier<String> detail) {
+    counters.get(type).incrementAndGet();
+    if (!isEnabled()) {
+      return;
+    }
+    String description = detail.get();
+    if (keepEvents) {
+      Event event = new Event(type, subject, description, System.currentTimeMillis());
+      synchronized (buffer) {
+        buffer[next] = event;
+        next = (next + 1) % buffer.length;
+        size = Math.min(size + 1, buffer.length);
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("{} '{}': {}", type, subject, description);
+    }
+  }
+
+  /**
+   * Returns whether the events are kept or logged, besides being counted.
+   *
+   * @return true if the details of the events are used.
+   */
+  public boolean isEnabled() {
+    return keepEvents || LOG.isDebugEnabled();
+  }
+
+  public long getCount(EventType type) {
+    return counters.get(type).get();
+  }
+
+  public Map<EventType, Long> getCounters() {
+    Map<EventType, Long> snapshot = new EnumMap<>(EventType.class);
+    counters.forEach((type, counter) -> snapshot.put(type, counter.get()));
+    return snapshot;
+  }
+
+  /**
+   * Returns the events kept in the buffer, from the oldest to the newest.
+   *
+   * @return the last recorded events.
+   */
+  public List<Event> getEvents() {
+    synchronized (buffer) {
+      List<Event> events = new ArrayList<>(size);
+      int first = (next - size + buffer.length) % buffer.length;
+      for (int i = 0; i < size; i++) {
+        events.add(buffer[(first + i) % buffer.length]);
+      }
+      return events;
+    }
+  }
+
+  public List<Event> getEvents(EventType type) {
+    return getEvents().stream()
+        .filter(event -> event.getType() == type)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Discards all the events and resets the counters, so a new analysis starts from scratch.
+   */
+  public void clear() {
+    counters.values().forEach(counter -> counter.set(0));
+    synchronized (buffer) {
+      Arrays.fill(buffer, null);
+      next = 0;
+      size = 0;
+    }
+  }
+
+  /**
+   * Returns the counters and the buffered events as JSON.
+   *
+   * @return the JSON representation of the diagnostics.
+   * @throws IOException if the diagnostics could not be serialized.
+   */
+  public String toJson() throws IOException {
+    return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(snapshot());
+  }
+
+  /**
+   * Saves the counters and the buffered events, as JSON, to a file.
+   *
+   * @param file the file where the diagnostics are saved.
+   * @throws IOException if the file could not be written.
+   */
+  public void exportJson(File file) throws IOException {
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, snapshot());
+    LOG.info("Correlation diagnostics saved to '{}'", file.getAbsolutePath());
+  }
+
+  private Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("counters", getCounters());
+    snapshot.put("events", getEvents());
+    return snapshot;
+  }
+
+  public enum EventType {
+    FILTERED_VALUE,
+    ORPHAN_APPEARANCE,
+    PARAMETRIZED_VALUE,
+    VALUE_ALREADY_USED,
+    ORPHAN_SUGGESTION,
+    REPLAY_RESULT,
+    REPLAY_ERROR,
+    REPLAY_DIVERGENCE,
+    VALUE_CONSUMED_BEFORE_PRODUCED,
+    ERROR
+  }
+
+  public static class Event {
+    private final EventType type;
+    private final String subject;
+    private final String detail;
+    private final long timestamp;
+
+    public Event(EventType type, String subject, String detail, long timestamp) {
+      this.type = type;
+      this.subject = subject;
+      this.detail = detail;
+      this.timestamp = timestamp;
+    }
+
+    public EventType getType() {
+      return type;
+    }
+
+    public String getSubject() {
+      return subject;
+    }
+
+    public String getDetail() {
+      return detail;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    @Override
+    public String toString() {
+      return type + " '" + subject + "': " + detail;
+    }
+  }
+}
@@ -71,6 +71,24 @@ public class CorrelationHistory {
     addStep(step);
   }
 
+  /**
+   * Saves the value flow graph of the last analysis and links it to the last step.
+   *
+   * @param graph the graph of the values of the analyzed trace.
+   */
+  public void addValueFlowGraph(ValueFlowGraph graph) {
+    if (steps.isEmpty()) {
+      LOG.warn("CorrelationHistory has no steps, the value flow graph won't be saved");
+      return;
+    }
+    String graphFilepath = graph.save(FileManagementUtils.getValueFlowGraphFileName());
+    if (graphFilepath.isEmpty()) {
+      return;
+    }
+    steps.get(steps.size() - 1).setValueFlowGraphFilepath(graphFilepath);
+    saveToFile();
+  }
+
   public void saveToFile() {
     String historyFile = new FileManagementUtils().saveCorrelationHistoryFile(this, filepath);
     if (filepath.isEmpty()) {
@@ -146,6 +164,7 @@ public class CorrelationHistory {
     private String testPlanFilepath;
     private String recordingTraceFilepath;
     private String replayTraceFilepath;
+    private String valueFlowGraphFilepath;
 
     @JsonIgnore
     private Supplier<String> saveCurrentTestPlanSupplier = saveCurrentTestPlan();
@@ -189,6 +208,14 @@ public class CorrelationHistory {
       this.replayTraceFilepath = replayTraceFilepath;
     }
 
+    public String getValueFlowGraphFilepath() {
+      return valueFlowGraphFilepath;
+    }
+
+    public void setValueFlowGraphFilepath(String valueFlowGraphFilepath) {
+      this.valueFlowGraphFilepath = valueFlowGraphFilepath;
+    }
+
     public void addCurrentTestPlan() {
       setTestPlanFilepath(saveCurrentTestPlanSupplier.get());
     }
@@ -200,6 +227,7 @@ public class CorrelationHistory {
           ", testPlanFilepath='" + testPlanFilepath + '\'' +
           ", recordingTraceFilepath='" + recordingTraceFilepath + '\'' +
           ", replayTraceFilepath='" + replayTraceFilepath + '\'' +
+          ", valueFlowGraphFilepath='" + valueFlowGraphFilepath + '\'' +
           '}';
     }
   }
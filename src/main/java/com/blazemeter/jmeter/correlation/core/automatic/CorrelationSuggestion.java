@@ -4,8 +4,12 @@ import com.blazemeter.jmeter.correlation.core.CorrelationRule;
 import com.blazemeter.jmeter.correlation.core.templates.Template;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
@@ -18,6 +22,10 @@ public class CorrelationSuggestion {
   private final List<TestElement> usages = new ArrayList<>();
   private final List<ExtractionSuggestion> extractionSuggestions = new ArrayList<>();
   private final List<ReplacementSuggestion> replacementSuggestions = new ArrayList<>();
+  // Indexes of the suggestions by their structural key, to reject repeated ones in constant time
+  private final Map<List<Object>, ExtractionSuggestion> extractionsByKey = new LinkedHashMap<>();
+  private final Map<List<Object>, ReplacementSuggestion> replacementsByKey =
+      new LinkedHashMap<>();
   private String method = "Replay";
 
   private Template source;
@@ -85,10 +93,42 @@ public class CorrelationSuggestion {
 
   public void addExtractionSuggestion(ExtractionSuggestion extractionSuggestion) {
     extractionSuggestions.add(extractionSuggestion);
+    extractionsByKey.putIfAbsent(extractionSuggestion.getKey(), extractionSuggestion);
+  }
+
+  /**
+   * Adds the extraction suggestion, unless an equivalent one (see
+   * {@link ExtractionSuggestion#getKey()}) was already added.
+   *
+   * @param extractionSuggestion the suggestion to add.
+   * @return true if the suggestion was added, false if it was repeated.
+   */
+  public boolean addExtractionSuggestionIfAbsent(ExtractionSuggestion extractionSuggestion) {
+    if (extractionsByKey.containsKey(extractionSuggestion.getKey())) {
+      return false;
+    }
+    addExtractionSuggestion(extractionSuggestion);
+    return true;
   }
 
   public void addReplacementSuggestion(ReplacementSuggestion replacementSuggestion) {
     replacementSuggestions.add(replacementSuggestion);
+    replacementsByKey.putIfAbsent(replacementSuggestion.getKey(), replacementSuggestion);
+  }
+
+  /**
+   * Adds the replacement suggestion, unless an equivalent one (see
+   * {@link ReplacementSuggestion#getKey()}) was already added.
+   *
+   * @param replacementSuggestion the suggestion to add.
+   * @return true if the suggestion was added, false if it was repeated.
+   */
+  public boolean addReplacementSuggestionIfAbsent(ReplacementSuggestion replacementSuggestion) {
+    if (replacementsByKey.containsKey(replacementSuggestion.getKey())) {
+      return false;
+    }
+    addReplacementSuggestion(replacementSuggestion);
+    return true;
   }
 
   public List<ExtractionSuggestion> getExtractionSuggestions() {
@@ -144,6 +184,30 @@ public class CorrelationSuggestion {
     }
   }
 
+  /**
+   * Returns the estimated time that the suggested extractors add to each sample of the load test,
+   * along with the type of those extractors.
+   *
+   * @return the sum of the measured costs, or "N/A" when none of them was measured.
+   */
+  public String getExtractionCostString() {
+    long totalCost = 0;
+    boolean measured = false;
+    Set<String> extractorTypes = new LinkedHashSet<>();
+    for (ExtractionSuggestion extraction : extractionSuggestions) {
+      extractorTypes.add(extraction.getExtractor().getDisplayName());
+      if (extraction.getEstimatedCost() >= 0) {
+        totalCost += extraction.getEstimatedCost();
+        measured = true;
+      }
+    }
+    if (!measured) {
+      return "N/A";
+    }
+    return String.format(Locale.ROOT, "%.1f us/sample (%s)", totalCost / 1000.0,
+        String.join(", ", extractorTypes));
+  }
+
   public String getOriginalValueString() {
     if ("Replay".equals(method)) {
       return originalValue;
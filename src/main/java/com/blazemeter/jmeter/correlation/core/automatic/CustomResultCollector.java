@@ -1,29 +1,43 @@
 package com.blazemeter.jmeter.correlation.core.automatic;
 
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import com.blazemeter.jmeter.correlation.core.automatic.ResultsAlignment.SignatureIds;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.jmeter.reporters.ResultCollector;
-import org.apache.jmeter.reporters.Summariser;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.testelement.TestElement;
-import org.apache.jmeter.visualizers.SummaryReport;
 import org.apache.jmeter.visualizers.ViewResultsFullVisualizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Collector of the results of a replay.
+ *
+ * <p>The results are written to the replay trace by a background thread, so the replay doesn't
+ * wait for them to be serialized, and only a compact description of the errors (see
+ * {@link ReplayError}) is kept in memory. The index of each error is the position of its result
+ * in the trace, where the comparison with the recording reads the results from.
+ */
 public class CustomResultCollector extends ResultCollector {
   private static final Logger LOG = LoggerFactory.getLogger(CustomResultCollector.class);
-  private final CustomSummariser summariser;
+  // Results waiting to be written, before the replay waits for the writer to catch up
+  private static final int WRITE_QUEUE_SIZE = 1000;
+  private final List<ReplayError> errors = new ArrayList<>();
+  private int resultCount;
+  private SignatureIds signatureIds = new SignatureIds();
+  private int[] requestIds = new int[WRITE_QUEUE_SIZE];
+  private ReplayDivergenceMonitor divergenceMonitor;
+  private transient ExecutorService writer;
 
   public CustomResultCollector() {
-    this(new CustomSummariser("Automatic Replay Summariser"));
-  }
-
-  public CustomResultCollector(CustomSummariser summariser) {
-    super(summariser);
-    this.summariser = summariser;
     setProperty(TestElement.NAME, "Result Collector - Custom Made");
     setProperty(TestElement.GUI_CLASS, ViewResultsFullVisualizer.class.getName());
     setProperty(TestElement.TEST_CLASS, ResultCollector.class.getName());
@@ -31,72 +45,170 @@ public class CustomResultCollector extends ResultCollector {
     setSaveConfig(saveConfig);
   }
 
-  public boolean hasErrors() {
-    return !summariser.getErrors().isEmpty();
+  /**
+   * Sets the monitor that compares each result with the recording before it is collected, so
+   * the replay stops at the first divergences.
+   *
+   * @param divergenceMonitor the monitor, or null to collect the results as they are.
+   */
+  public void setDivergenceMonitor(ReplayDivergenceMonitor divergenceMonitor) {
+    this.divergenceMonitor = divergenceMonitor;
   }
 
-  public List<SampleResult> getResults() {
-    return summariser.getResults();
+  @Override
+  public void testStarted(String host) {
+    synchronized (errors) {
+      errors.clear();
+      resultCount = 0;
+      signatureIds = new SignatureIds();
+      requestIds = new int[WRITE_QUEUE_SIZE];
+    }
+    CorrelationDiagnostics.getInstance().clear();
+    writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(WRITE_QUEUE_SIZE),
+        task -> new Thread(task, "Replay trace writer"),
+        (task, executor) -> {
+          try {
+            // Results sampled while the replay ends would never be taken from the queue
+            if (executor.isShutdown()) {
+              runAfterQueuedResults(task, executor);
+              return;
+            }
+            executor.getQueue().put(task);
+            // The writer may have drained the queue and stopped while this one was waiting
+            if (executor.isShutdown() && executor.getQueue().remove(task)) {
+              runAfterQueuedResults(task, executor);
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    super.testStarted(host);
   }
 
-  public List<SampleResult> getErrors() {
-    return summariser.getErrors();
+  // Keeps the results of the trace in the order of their indexes
+  private static void runAfterQueuedResults(Runnable task, ThreadPoolExecutor executor)
+      throws InterruptedException {
+    while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+      LOG.debug("Waiting for the queued results to be written");
+    }
+    task.run();
   }
 
-  public int getErrorsCount() {
-    return summariser.getErrors().size();
+  @Override
+  public void sampleOccurred(SampleEvent event) {
+    if (divergenceMonitor != null) {
+      divergenceMonitor.check(event.getResult());
+    }
+    collect(event);
   }
 
-  private static class CustomSummariser extends Summariser {
-    private final List<SampleResult> results = new ArrayList<>();
-    private final List<SampleResult> errors = new ArrayList<>();
+  /**
+   * Collects a result that a resumed replay restored from a previous replay, instead of sampling
+   * it again (see {@link ReplayCheckpoints}). It is not compared with the recording again.
+   *
+   * @param event the event of the restored result.
+   */
+  public void sampleRestored(SampleEvent event) {
+    if (divergenceMonitor != null) {
+      divergenceMonitor.skip(event.getResult());
+    }
+    collect(event);
+  }
 
-    CustomSummariser(String name) {
-      super(name);
-      setProperty(TestElement.GUI_CLASS, SummaryReport.class.getName());
-      setProperty(TestElement.TEST_CLASS, ResultCollector.class.getName());
+  private void collect(SampleEvent event) {
+    SampleResult result = event.getResult();
+    int index;
+    /*
+     * The result is handed to the writer while holding the lock that gives its index, so the
+     * trace keeps the results in the order of their indexes even when several threads sample.
+     */
+    synchronized (errors) {
+      index = resultCount++;
+      if (index == requestIds.length) {
+        requestIds = Arrays.copyOf(requestIds, index * 2);
+      }
+      requestIds[index] = signatureIds.getId(result);
+      if (!result.isSuccessful()) {
+        errors.add(ReplayError.of(index, result));
+      }
+      ExecutorService currentWriter = writer;
+      if (currentWriter == null) {
+        super.sampleOccurred(event);
+      } else {
+        currentWriter.execute(() -> CustomResultCollector.super.sampleOccurred(event));
+      }
     }
+    EventType eventType = result.isSuccessful() ? EventType.REPLAY_RESULT : EventType.REPLAY_ERROR;
+    CorrelationDiagnostics.getInstance().record(eventType, result.getSampleLabel(),
+        () -> "Result " + (index + 1) + " with response code " + result.getResponseCode());
+    LOG.debug("TestPlan Replay: {}: {}", result.isSuccessful() ? "Success" : "Failed",
+        result.getSampleLabel());
+  }
 
-    public List<SampleResult> getResults() {
-      return results;
+  @Override
+  public void testEnded(String host) {
+    ExecutorService currentWriter = writer;
+    if (currentWriter != null) {
+      currentWriter.shutdown();
+      try {
+        while (!currentWriter.awaitTermination(1, TimeUnit.SECONDS)) {
+          LOG.debug("Waiting for the replay trace to be written");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }
+    // Only once the queued results are written, so the following ones are written after them
+    writer = null;
+    super.testEnded(host);
+  }
 
-    public List<SampleResult> getErrors() {
-      return errors;
+  public boolean hasErrors() {
+    synchronized (errors) {
+      return !errors.isEmpty();
     }
+  }
 
-    @Override
-    public void testStarted(String host) {
-      super.testStarted(host);
-      results.clear();
-      errors.clear();
+  public List<ReplayError> getErrors() {
+    synchronized (errors) {
+      return new ArrayList<>(errors);
     }
+  }
 
-    @Override
-    public void sampleStarted(SampleEvent e) {
-      super.sampleStarted(e);
+  public int getErrorsCount() {
+    synchronized (errors) {
+      return errors.size();
     }
+  }
 
-    @Override
-    public void sampleStopped(SampleEvent e) {
-      super.sampleStopped(e);
+  public int getResultCount() {
+    synchronized (errors) {
+      return resultCount;
     }
+  }
 
-    @Override
-    public void sampleOccurred(SampleEvent e) {
-      super.sampleOccurred(e);
-      SampleResult result = e.getResult();
-      System.out.println(results.size() + " ) "
-          + (result.isSuccessful() ? "(S)" : "(F)")
-          + " - Result: " + result.getSampleLabel());
-      results.add(result);
-      String replayStatus = "Success";
-      if (!result.isSuccessful()) {
-        errors.add(result);
-        replayStatus = "Failed";
-      }
+  /**
+   * Returns the ids of the signatures of the requests of the replay, to align them with the
+   * recording without reading the replay trace (see {@link ResultsAlignment#align(int[])}).
+   *
+   * @return the id of the request of each result, in the order of the trace.
+   */
+  public int[] getRequestIds() {
+    synchronized (errors) {
+      return Arrays.copyOf(requestIds, resultCount);
+    }
+  }
 
-      LOG.info("TestPlan Replay: {}: {}", replayStatus, result.getSampleLabel());
+  /**
+   * Returns the ids given to the signatures of the requests of the replay, which the recording
+   * has to share to be aligned with it (see {@link #getRequestIds()}).
+   *
+   * @return the ids of the signatures.
+   */
+  public SignatureIds getSignatureIds() {
+    synchronized (errors) {
+      return signatureIds;
     }
   }
 }
@@ -4,21 +4,46 @@ import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.indexOfIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import com.blazemeter.jmeter.correlation.core.automatic.ExternalAppearanceSorter.AppearanceRecord;
+import com.blazemeter.jmeter.correlation.core.automatic.ExtractorSelector.Selection;
+import com.blazemeter.jmeter.correlation.core.automatic.IncrementalRecordingAnalysis.RecordingSnapshot;
+import com.blazemeter.jmeter.correlation.core.automatic.ResultsAlignment.SignatureIds;
+import com.blazemeter.jmeter.correlation.core.automatic.SearchableResult.ValueLocation;
+import com.blazemeter.jmeter.correlation.core.automatic.ValueVariants.Encoding;
+import com.blazemeter.jmeter.correlation.core.automatic.ValueVariants.Variant;
+import com.blazemeter.jmeter.correlation.core.extractors.BoundaryCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.JsonCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.ResultField;
 import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
 import com.helger.commons.annotation.VisibleForTesting;
 import java.io.File;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
@@ -49,6 +74,16 @@ public class ElementsComparison {
       = (sampleResult) -> ((HTTPSampleResult) sampleResult).getSampleLabel();
   private Function<SampleResult, String> getResponseContentType
       = SampleResult::getContentType;
+  // Shared by the threads generating suggestions, see generateSuggestions
+  private Map<SampleResult, SearchableResult> searchableResults =
+      buildSearchableResultsCache(Integer.MAX_VALUE);
+  private List<SampleResult> searchedResults = Collections.emptyList();
+  private Map<String, BitSet> resultsByValue = Collections.emptyMap();
+  // First result of each label in the replay, used to check the extractors against it
+  private Function<String, SampleResult> replayResultByLabel = label -> null;
+  private ValueFlowGraph valueFlowGraph;
+  private final Map<String, ValueVariants> valueVariants = new ConcurrentHashMap<>();
+  private volatile boolean cancelled = false;
 
   public ElementsComparison() {
     this.configuration = new Configuration();
@@ -65,6 +100,18 @@ public class ElementsComparison {
     this.getCookies = function;
   }
 
+  /**
+   * Stops the generation of suggestions. Elements already being processed are finished, the
+   * pending ones are discarded and no suggestions are returned.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
   @VisibleForTesting
   public CorrelationSuggestion generateMultivaluedSuggestion(DynamicElement element,
                                                              List<SampleResult> results) {
@@ -72,33 +119,34 @@ public class ElementsComparison {
         appearancesToString(element.getOriginalAppearance()),
         appearancesToString(element.getOtherAppearance()));
 
-    Map<String, String> valueToReferenceName = new HashMap<>();
-    addMultivaluedExtractor(element, suggestion, results, valueToReferenceName);
-    addMultivaluedReplacement(element, suggestion, valueToReferenceName);
+    Map<String, ExtractionSuggestion> valueToExtraction = new HashMap<>();
+    addMultivaluedExtractor(element, suggestion, results, valueToExtraction);
+    addMultivaluedReplacement(element, suggestion, valueToExtraction);
     return suggestion;
   }
 
   private void addMultivaluedReplacement(DynamicElement element,
                                          CorrelationSuggestion suggestion,
-                                         Map<String, String> valueToReferenceName) {
+                                         Map<String, ExtractionSuggestion> valueToExtraction) {
 
     List<Appearances> originalAppearances = element.getOriginalAppearance();
     List<Appearances> otherAppearances = element.getOtherAppearance();
     // We use the original and the other appearances since the element could be generated
     // from a recording (original) or a replay (other)
-    addReplacementSuggestions(suggestion, valueToReferenceName, originalAppearances);
-    addReplacementSuggestions(suggestion, valueToReferenceName, otherAppearances);
+    addReplacementSuggestions(suggestion, valueToExtraction, originalAppearances);
+    addReplacementSuggestions(suggestion, valueToExtraction, otherAppearances);
   }
 
   private void addReplacementSuggestions(CorrelationSuggestion suggestion,
-                                         Map<String, String> valueToReferenceName,
+                                         Map<String, ExtractionSuggestion> valueToExtraction,
                                          List<Appearances> originalAppearances) {
     String name = suggestion.getParamName();
     for (Appearances appearance : originalAppearances) {
-      String referenceName = valueToReferenceName.get(appearance.getValue());
-      if (referenceName == null) {
+      ExtractionSuggestion extraction = valueToExtraction.get(appearance.getValue());
+      if (extraction == null) {
         continue;
       }
+      String referenceName = extraction.getExtractor().getVariableName();
 
       if (appearance.getSource().contains("Response")) {
         continue;
@@ -130,20 +178,18 @@ public class ElementsComparison {
         }
 
         RegexCorrelationReplacement<?> replacementSuggestion
-            = generateReplacementSuggestion(referenceName, regex);
-
-        if (isRepeated(suggestion, replacementSuggestion)) {
-          LOG.debug("Replacement suggestion repeated, excluded:" + name + " "
-              + appearance.getValue() + " " + usage);
-          continue;
-        }
+            = generateReplacementSuggestion(referenceName, regex, extraction.getEncoding());
 
         ReplacementSuggestion replacementSug =
             new ReplacementSuggestion(replacementSuggestion, usage);
         replacementSug.setSource(appearance.getSource());
         replacementSug.setValue(appearance.getValue());
         replacementSug.setName(name);
-        suggestion.addReplacementSuggestion(replacementSug);
+        if (!suggestion.addReplacementSuggestionIfAbsent(replacementSug)) {
+          LOG.debug("Replacement suggestion repeated, excluded:" + name + " "
+              + appearance.getValue() + " " + usage);
+          continue;
+        }
         suggestion.addUsage(usage);
 
         LOG.debug("Add replacement suggestion:" + replacementSug.getName()
@@ -152,55 +198,147 @@ public class ElementsComparison {
     }
   }
 
-  private boolean isRepeated(CorrelationSuggestion suggestion,
-                             RegexCorrelationReplacement<?> replacementSuggestion) {
-    List<ReplacementSuggestion> replacementSuggestions = suggestion.getReplacementSuggestions();
-    boolean repeated = false;
-    for (ReplacementSuggestion existing : replacementSuggestions) {
-      String s = existing.toString();
-      if (s.equals(replacementSuggestion.toString())) {
-        repeated = true;
-        break;
+  private void addMultivaluedExtractor(
+      DynamicElement element, CorrelationSuggestion suggestion, List<SampleResult> results,
+      Map<String, ExtractionSuggestion> valueToExtraction) {
+
+    BitSet candidates = getCandidateResults(element, results);
+    for (int i = candidates.nextSetBit(0); i >= 0 && i < results.size();
+        i = candidates.nextSetBit(i + 1)) {
+      SampleResult result = results.get(i);
+      //We use both the "original" and the "other" appearances since the map can come from either
+      //the original recorder or from the failing replay
+      addExtractorSuggestions(valueToExtraction, suggestion, result,
+          element.getOriginalAppearance());
+      addExtractorSuggestions(valueToExtraction, suggestion, result,
+          element.getOtherAppearance());
+    }
+  }
+
+  /*
+   * When the results were already searched for all the values (see prepareSearch), only the
+   * results containing any of the element values can provide an extractor, so the rest are
+   * skipped.
+   */
+  private BitSet getCandidateResults(DynamicElement element, List<SampleResult> results) {
+    BitSet candidates = new BitSet(results.size());
+    if (results != searchedResults) {
+      candidates.set(0, results.size());
+      return candidates;
+    }
+    for (String value : getSearchValues(element)) {
+      BitSet containing = resultsByValue.get(value);
+      if (containing != null) {
+        candidates.or(containing);
       }
     }
-    return repeated;
+    return candidates;
+  }
+
+  private Set<String> getSearchValues(DynamicElement element) {
+    Set<String> values = new LinkedHashSet<>();
+    addSearchValues(element.getOriginalAppearance(), values);
+    addSearchValues(element.getOtherAppearance(), values);
+    return values;
+  }
+
+  private void addSearchValues(List<Appearances> appearances, Set<String> values) {
+    for (Appearances appearance : appearances) {
+      values.addAll(getValueVariants(appearance.getValue()).getEncodedValues());
+    }
+  }
+
+  private ValueVariants getValueVariants(String value) {
+    return valueVariants.computeIfAbsent(value, ValueVariants::of);
   }
 
-  private boolean isRepeated(CorrelationSuggestion suggestion,
-                             ExtractionSuggestion extractionSuggestion) {
-    boolean repeated = false;
-    for (ExtractionSuggestion existing : suggestion.getExtractionSuggestions()) {
-      if (existing.toString().equals(extractionSuggestion.toString())) {
-        repeated = true;
-        break;
+  /**
+   * Prepares the results to be searched, decoding their bodies and splitting their headers only
+   * once, and locates the values of all the elements in a single pass over each result.
+   *
+   * <p>When comparing out of core, only the results that were used last are kept prepared, and
+   * the rest are prepared again, read from the {@link ResultStore}, when needed.
+   */
+  private void prepareSearch(List<DynamicElement> dynamicElements,
+                             List<SampleResult> results) {
+    clearSearch();
+    if (configuration.isOutOfCore()) {
+      searchableResults = buildSearchableResultsCache(configuration.getOutOfCoreCacheSize());
+    }
+    Set<String> values = new LinkedHashSet<>();
+    for (DynamicElement element : dynamicElements) {
+      values.addAll(getSearchValues(element));
+    }
+    values.remove("");
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(values);
+    Map<String, BitSet> containingResults = new HashMap<>();
+    for (int i = 0; i < results.size(); i++) {
+      SearchableResult searchable = buildSearchableResult(results.get(i), i);
+      for (String value : searchable.locateAll(matcher)) {
+        containingResults.computeIfAbsent(value, v -> new BitSet(results.size())).set(i);
       }
+      searchableResults.put(results.get(i), searchable);
     }
-    return repeated;
+    resultsByValue = containingResults;
+    searchedResults = results;
   }
 
-  private void addMultivaluedExtractor(
-      DynamicElement element, CorrelationSuggestion suggestion, List<SampleResult> results,
-      Map<String, String> valueToReferenceName) {
+  private void clearSearch() {
+    searchableResults = buildSearchableResultsCache(Integer.MAX_VALUE);
+    resultsByValue = Collections.emptyMap();
+    searchedResults = Collections.emptyList();
+    valueVariants.clear();
+  }
 
-    for (SampleResult result : results) {
-      //We use both the "original" and the "other" appearances since the map can come from either
-      //the original recorder or from the failing replay
-      addExtractorSuggestions(valueToReferenceName, suggestion, result,
-          element.getOriginalAppearance());
-      addExtractorSuggestions(valueToReferenceName, suggestion, result,
-          element.getOtherAppearance());
+  // Results are compared by identity, since SampleResult does not override equals
+  private static Map<SampleResult, SearchableResult> buildSearchableResultsCache(int maxSize) {
+    return Collections.synchronizedMap(
+        new LinkedHashMap<SampleResult, SearchableResult>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<SampleResult, SearchableResult> eldest) {
+            return size() > maxSize;
+          }
+        });
+  }
+
+  private SearchableResult buildSearchableResult(SampleResult result, int index) {
+    String body =
+        "bin".equals(result.getDataType()) ? "" : this.getResponseDataAsString.apply(result);
+    return new SearchableResult(result, index, body, this.getResponseHeaders.apply(result));
+  }
+
+  /*
+   * Results evicted from the cache are prepared again outside the lock, so the threads generating
+   * suggestions don't wait for each other while reading bodies.
+   */
+  private SearchableResult getSearchableResult(SampleResult result) {
+    Map<SampleResult, SearchableResult> cache = searchableResults;
+    SearchableResult searchable = cache.get(result);
+    if (searchable == null) {
+      searchable = buildSearchableResult(result, -1);
+      SearchableResult previous = cache.putIfAbsent(result, searchable);
+      if (previous != null) {
+        searchable = previous;
+      }
     }
+    return searchable;
   }
 
-  private String encodeValue(String value) {
-    String encodedValue = URLEncoder.encode(value);
-    if (encodedValue.indexOf(":////") == -1) {
-      encodedValue = encodedValue.replace("+", "%20");
+  /*
+   * Returns the first variant of the value, in the order of the encodings, that appears in the
+   * field of the result.
+   */
+  private Variant findVariant(SearchableResult searchable, ValueVariants variants,
+                              Predicate<ValueLocation> inField) {
+    for (Variant variant : variants.getVariants()) {
+      if (inField.test(searchable.locate(variant.getValue()))) {
+        return variant;
+      }
     }
-    return encodedValue;
+    return null;
   }
 
-  private void addExtractorSuggestions(Map<String, String> valueToReferenceName,
+  private void addExtractorSuggestions(Map<String, ExtractionSuggestion> valueToExtraction,
                                        CorrelationSuggestion suggestion, SampleResult result,
                                        List<Appearances> appearances) {
     for (Appearances appearance : appearances) {
@@ -222,70 +360,64 @@ public class ElementsComparison {
         boolean rawUsed = queryString.contains(appearance.getValue());
         String usage = encodedUsed ? "encoded" : "raw";
         if (encodedUsed || rawUsed) {
-          System.out.println("'" + name + "') Is used on '" + result.getSampleLabel()
-              + "' with a '" + usage + "' value '" + appearance.getValue() + "'");
+          CorrelationDiagnostics.getInstance().record(EventType.VALUE_ALREADY_USED, name,
+              () -> "Used on '" + result.getSampleLabel() + "' with a '" + usage + "' value '"
+                  + appearance.getValue() + "'");
           //If the value is already being used, we don't need to extract it.
           continue;
         }
       }
 
       String value = appearance.getValue();
-      String encodedValue = encodeValue(value);
-
-      String responseDataAsString =
-          result.getDataType().equals("bin") ? "" : this.getResponseDataAsString.apply(result);
-      String responseHeadersRaw = this.getResponseHeaders.apply(result);
-      // Remove Set-Cookie from Response Headers
-      String responseHeaders = responseHeadersRaw.replaceAll(
-          "(?m)^Set-Cookie.*", "");
-      String responseHeadersSetCookies = responseHeadersRaw.replaceAll(
-          "(?m)^(?!Set-Cookie).*", "").replaceAll("(?m)^\\s+$", "");
-
-      // If the value is not in the response, we can't extract it. So we skip it.
-      String source = "";
+      ValueVariants variants = getValueVariants(value);
 
-      boolean isInHeader = responseHeaders.contains(value);
-      boolean isInHeaderEncoded = !isInHeader ? responseHeaders.contains(encodedValue) : false;
-      boolean isInSetCookie = responseHeadersSetCookies.contains(value);
-      boolean isInSetCookieEncoded =
-          !isInSetCookie ? responseHeadersSetCookies.contains(encodedValue) : false;
-      boolean isInBody = responseDataAsString.contains(value);
-      boolean isInBodyEncoded = !isInBody ? responseDataAsString.contains(encodedValue) : false;
-
-      if (!isInBody && !isInBodyEncoded && !isInHeader && !isInHeaderEncoded && !isInSetCookie &&
-          !isInSetCookieEncoded) {
-        continue;
-      }
+      // Body and headers (with and without Set-Cookie) are decoded once per result
+      SearchableResult searchable = getSearchableResult(result);
 
+      // If no variant of the value is in the response, we can't extract it. So we skip it.
+      String source = "";
       String contextString;
-      boolean isEncoded;
+      String jsonPath = "";
+      // Text of the field where the value is extracted from, null when it's not evaluated
+      String fieldText = null;
       ResultField targetField;
-      if (isInHeader || isInHeaderEncoded) {
-        isEncoded = isInHeaderEncoded;
-        contextString = getContextString(responseHeaders, isEncoded ? encodedValue : value);
+      Variant headerVariant = findVariant(searchable, variants, ValueLocation::isInHeaders);
+      Variant bodyVariant = headerVariant == null
+          ? findVariant(searchable, variants, ValueLocation::isInBody) : null;
+      Variant setCookieVariant = headerVariant == null && bodyVariant == null
+          ? findVariant(searchable, variants, ValueLocation::isInSetCookie) : null;
+      Variant variant;
+      if (headerVariant != null) {
+        variant = headerVariant;
+        contextString = getContextString(searchable.getHeaders(), variant.getValue(),
+            searchable.locate(variant.getValue()).getHeadersOffset());
+        fieldText = this.getResponseHeaders.apply(result);
         targetField = ResultField.RESPONSE_HEADERS;
-        source = "Response Header ('" + (!isEncoded ? "Raw" : "Encoded") + "')";
-      } else if (isInBody || isInBodyEncoded) {
-        isEncoded = isInBodyEncoded;
-        if (JMeterElementUtils.isJson(responseDataAsString)) {
-          contextString =
-              getJsonContextString(responseDataAsString, name,
-                  isInHeaderEncoded ? encodedValue : value, source);
+        source = "Response Header ('" + variant.getEncoding().getLabel() + "')";
+      } else if (bodyVariant != null) {
+        variant = bodyVariant;
+        String responseDataAsString = searchable.getBody();
+        int bodyOffset = searchable.locate(variant.getValue()).getBodyOffset();
+        JsonPathIndex jsonIndex = searchable.getJsonIndex();
+        if (jsonIndex.isValid()) {
+          contextString = getJsonContextString(responseDataAsString, jsonIndex, name,
+              variant.getValue(), bodyOffset);
+          if (!configuration.isRegexExtractorsOnly()) {
+            jsonPath = getExtractableJsonPath(jsonIndex, responseDataAsString, variant.getValue());
+          }
         } else {
-          contextString =
-              getContextString(responseDataAsString, isInHeaderEncoded ? encodedValue : value);
+          contextString = getContextString(responseDataAsString, variant.getValue(), bodyOffset);
         }
+        fieldText = responseDataAsString;
         targetField = ResultField.BODY;
-        source = "Response Body ('" + (!isEncoded ? "Raw" : "Encoded") + "')";
-      } else if (isInSetCookie || isInSetCookieEncoded) {
-        isEncoded = isInSetCookieEncoded;
-        contextString = getSetCookieContextString(responseHeadersSetCookies, appearance.getName(),
-            isEncoded ? encodedValue : value, appearance.getSource());
+        source = "Response Body ('" + variant.getEncoding().getLabel() + "')";
+      } else if (setCookieVariant != null) {
+        variant = setCookieVariant;
+        contextString = getSetCookieContextString(searchable.getSetCookieHeaders(),
+            appearance.getName(), variant.getValue(), appearance.getSource());
         targetField = ResultField.RESPONSE_HEADERS;
-        source = "Response Header Set-Cookie ('" + (!isEncoded ? "Raw" : "Encoded") + "')";
+        source = "Response Header Set-Cookie ('" + variant.getEncoding().getLabel() + "')";
       } else {
-        LOG.warn("There was an error while trying to extract the value '{}'. Skipping element '{}'",
-            value, name);
         continue;
       }
       if (isEmpty(contextString)) {
@@ -297,20 +429,26 @@ public class ElementsComparison {
       }
 
       String paramName = suggestion.getExtractionParamName();
-      ExtractionSuggestion extractionSuggestion = new ExtractionSuggestion(
-          generateExtractor(paramName, isEncoded ? encodedValue : value,
-              contextString, targetField), result);
+      Selection selection = fieldText == null ? null : selectExtractor(paramName,
+          variant.getValue(), contextString, targetField, jsonPath, fieldText, result);
+      // Set-Cookie values are extracted from the response headers, where the cookies are sent
+      ExtractionSuggestion extractionSuggestion = new ExtractionSuggestion(selection != null
+          ? selection.getExtractor() : generateSuggestedExtractor(paramName, variant.getValue(),
+          contextString, targetField, jsonPath,
+          fieldText != null ? fieldText : this.getResponseHeaders.apply(result)), result);
+      if (selection != null) {
+        extractionSuggestion.setEstimatedCost(selection.getCostNanos());
+      }
       extractionSuggestion.setSource(source);
       extractionSuggestion.setValue(value);
       extractionSuggestion.setName(name);
+      extractionSuggestion.setEncoding(variant.getEncoding());
 
-      if (isRepeated(suggestion, extractionSuggestion)) {
+      if (!suggestion.addExtractionSuggestionIfAbsent(extractionSuggestion)) {
         continue;
       }
-
-      suggestion.addExtractionSuggestion(extractionSuggestion);
       suggestion.addAppearances(result);
-      valueToReferenceName.putIfAbsent(value, paramName);
+      valueToExtraction.putIfAbsent(value, extractionSuggestion);
     }
   }
 
@@ -330,13 +468,131 @@ public class ElementsComparison {
         .collect(Collectors.joining(", "));
   }
 
+  /*
+   * When the extracted value was encoded in the response, the replacement decodes it back with the
+   * corresponding JMeter function.
+   */
   private RegexCorrelationReplacement<?> generateReplacementSuggestion(String valueName,
-                                                                       String regex) {
-    RegexCorrelationReplacement<?> replacement = new RegexCorrelationReplacement<>(regex);
+                                                                       String regex,
+                                                                       Encoding encoding) {
+    String decodingExpression = encoding.getDecodingExpression(valueName);
+    RegexCorrelationReplacement<?> replacement = decodingExpression.isEmpty()
+        ? new RegexCorrelationReplacement<>(regex)
+        : new RegexCorrelationReplacement<>(regex, decodingExpression, "false");
     replacement.setVariableName(valueName);
     return replacement;
   }
 
+  /*
+   * Regular expressions are only suggested when the value can't be extracted with its JSON path or
+   * with the plain text around it, since they are evaluated on every sample of the load test and
+   * are the most expensive of the three. The boundaries only come from the context of the value,
+   * so the boundary extractor is only suggested when its first match in the field it is
+   * evaluated against is the value.
+   */
+  private CorrelationExtractor<?> generateSuggestedExtractor(String valueName, String value,
+                                                             String contextString,
+                                                             ResultField targetField,
+                                                             String jsonPath, String fieldText) {
+    if (!configuration.isRegexExtractorsOnly()) {
+      if (!jsonPath.isEmpty()) {
+        JsonCorrelationExtractor<?> extractor = new JsonCorrelationExtractor<>(jsonPath);
+        extractor.setVariableName(valueName);
+        return extractor;
+      }
+      BoundaryCorrelationExtractor<?> extractor = generateBoundaryExtractor(valueName, value,
+          contextString, targetField);
+      if (extractor != null && value.equals(extractor.findMatch(fieldText, 1))) {
+        return extractor;
+      }
+    }
+    return generateExtractor(valueName, value, contextString, targetField);
+  }
+
+  /*
+   * Compares the JSON, boundary and regex extractors that can be generated for the value, and keeps
+   * the cheapest one that captures it uniquely from the recorded field and, when the replay is
+   * available, captures from the replay the value that the regex (built from the whole recorded
+   * context) captures there. Returns null when the costs are not measured or no candidate works,
+   * so the extractor is chosen by its type.
+   */
+  private Selection selectExtractor(String valueName, String value, String contextString,
+                                    ResultField targetField, String jsonPath, String fieldText,
+                                    SampleResult result) {
+    int iterations = configuration.getExtractorBenchmarkIterations();
+    if (iterations <= 0 || configuration.isRegexExtractorsOnly()) {
+      return null;
+    }
+    List<CorrelationExtractor<?>> candidates = new ArrayList<>();
+    if (!jsonPath.isEmpty()) {
+      JsonCorrelationExtractor<?> jsonExtractor = new JsonCorrelationExtractor<>(jsonPath);
+      jsonExtractor.setVariableName(valueName);
+      candidates.add(jsonExtractor);
+    }
+    BoundaryCorrelationExtractor<?> boundaryExtractor = generateBoundaryExtractor(valueName,
+        value, contextString, targetField);
+    if (boundaryExtractor != null) {
+      candidates.add(boundaryExtractor);
+    }
+    RegexCorrelationExtractor<?> regexExtractor = generateExtractor(valueName, value,
+        contextString, targetField);
+    candidates.add(regexExtractor);
+
+    SampleResult replayResult = replayResultByLabel.apply(result.getSampleLabel());
+    String replayText = null;
+    String replayValue = null;
+    if (replayResult != null) {
+      replayText = targetField == ResultField.BODY
+          ? this.getResponseDataAsString.apply(replayResult)
+          : this.getResponseHeaders.apply(replayResult);
+      replayValue = ExtractorSelector.findUniqueMatch(regexExtractor, replayText);
+    }
+    return new ExtractorSelector(iterations).select(candidates, fieldText, value, replayText,
+        replayValue);
+  }
+
+  /**
+   * Generates an extractor that uses the text before and after the value, in the context, as
+   * literal boundaries. The boundaries are limited to the line of the value (including the line
+   * break), as done for the regular expressions.
+   *
+   * @param valueName     the name of the variable where the value is extracted.
+   * @param originalValue the value to extract.
+   * @param contextString the text around the value.
+   * @param targetField   where the value was found.
+   * @return the extractor, or null if the context has no text before or after the value, or it
+   *     can't be extracted with plain boundaries.
+   */
+  @VisibleForTesting
+  public BoundaryCorrelationExtractor<?> generateBoundaryExtractor(String valueName,
+                                                                 String originalValue,
+                                                                 String contextString,
+                                                                 ResultField targetField) {
+    int valueIndex = originalValue.isEmpty() ? -1 : contextString.indexOf(originalValue);
+    if (valueIndex == -1 || contextString.contains("_CR_IGNORE_")) {
+      return null;
+    }
+    String left = contextString.substring(0, valueIndex);
+    if (left.contains("\n")) {
+      left = left.substring(left.lastIndexOf('\n'));
+    }
+    String right = contextString.substring(valueIndex + originalValue.length());
+    int nextValueIndex = right.indexOf(originalValue);
+    if (nextValueIndex != -1) {
+      right = right.substring(0, nextValueIndex);
+    }
+    if (right.contains("\n")) {
+      right = right.substring(0, right.indexOf('\n') + 1);
+    }
+    if (left.isEmpty() || right.isEmpty() || originalValue.contains(right)) {
+      return null;
+    }
+    BoundaryCorrelationExtractor<?> extractor = new BoundaryCorrelationExtractor<>(left, right,
+        targetField);
+    extractor.setVariableName(valueName);
+    return extractor;
+  }
+
   @VisibleForTesting
   public RegexCorrelationExtractor<?> generateExtractor(String valueName, String originalValue,
                                                         String contextString,
@@ -346,7 +602,7 @@ public class ElementsComparison {
     String regex = "";
     String simpleRegexCapture = "(.+?)";
     try {
-      String[] boundaries = contextString.split(originalValue);
+      String[] boundaries = contextString.split(Pattern.quote(originalValue));
       boolean isBeggingOfTheLine = false;
       if (boundaries[0].contains("\n")) {
         isBeggingOfTheLine = true;
@@ -383,7 +639,10 @@ public class ElementsComparison {
 
   @VisibleForTesting
   public String getContextString(String response, String value) {
-    int location = response.indexOf(value);
+    return getContextString(response, value, response.indexOf(value));
+  }
+
+  private String getContextString(String response, String value, int location) {
     int contextLength = configuration.getContextLength();
     int indexStart = Math.max(location - contextLength, 0);
     // +2 for the 0-based index and the length of the value
@@ -401,64 +660,18 @@ public class ElementsComparison {
     }
   }
 
-  @VisibleForTesting
-  public static String getJsonPathToValue(List<Pair<String, Object>> parameters, String value,
-                                          boolean useContains) {
-    return getJsonPathToValue(parameters, value, useContains, 0, value.startsWith("["));
-  }
-
-  @VisibleForTesting
-  public static String getJsonPathToValue(List<Pair<String, Object>> parameters, String value,
-                                          boolean useContains, int level, boolean inArray) {
-    String jsonPath = "";
-    for (Pair<String, Object> param : parameters) {
-      Object paramValue = param.getValue();
-      if (paramValue == null) {
-        LOG.debug("Null value for parameter '{}'", param.getKey());
-        continue;
-      }
-      String keyValue = paramValue.toString();
-      boolean isString = (param.getValue() instanceof String);
-      if (JMeterElementUtils.isJson(keyValue)) {
-        inArray = keyValue.startsWith("[");
-        List<Pair<String, Object>> subParameters =
-            JMeterElementUtils.extractDataParametersFromJson(keyValue);
-        String subJsonPath =
-            getJsonPathToValue(subParameters, value, useContains, level + 1, inArray);
-        if (subJsonPath.length() > 0) {
-          if (level == 0) {
-            jsonPath = "$";
-          }
-          jsonPath += "." + param.getKey() + subJsonPath;
-          break;
-        }
-      } else {
-        if ((!useContains && keyValue.equals(value)) || (useContains && keyValue.contains(value))) {
-          if (inArray) {
-            if (isString) {
-              jsonPath += "[?(@." + param.getKey() + " == '" + keyValue + "')]." + param.getKey();
-            } else {
-              jsonPath += "[?(@." + param.getKey() + " == " + keyValue + ")]." + param.getKey();
-            }
-          } else {
-            jsonPath += "." + param.getKey();
-          }
-          break;
-        }
-      }
-    }
-    return jsonPath;
-  }
-
   @VisibleForTesting
   public String getJsonContextString(String response, String name, String value,
                                      String source) {
-    List<Pair<String, Object>> parameters =
-        JMeterElementUtils.extractDataParametersFromJson(response);
+    return getJsonContextString(response, JsonPathIndex.of(response), name, value,
+        response.indexOf(value));
+  }
 
-    String jsonPath = getJsonPathToValue(parameters, value, true);
+  private String getJsonContextString(String response, JsonPathIndex jsonIndex, String name,
+                                      String value, int location) {
+    String jsonPath = jsonIndex.getJsonPath(value, true);
     if (jsonPath.length() > 0) {
-      return getContextString(response, value);
+      return getContextString(response, value, location);
     }
     LOG.debug(
         "getJsonContextString Error getting context string for {} value '{}' in response '{}'",
@@ -466,6 +679,20 @@ public class ElementsComparison {
     return "";
   }
 
+  /*
+   * Values of JSON documents embedded in string fields are indexed too, but JSON extractors can't
+   * reach them, so the path is only used when evaluating it leads back to the value.
+   */
+  private static String getExtractableJsonPath(JsonPathIndex jsonIndex, String response,
+                                               String value) {
+    String jsonPath = jsonIndex.getJsonPath(value, false);
+    if (jsonPath.isEmpty()
+        || !value.equals(new JsonCorrelationExtractor<>(jsonPath).findMatch(response, 1))) {
+      return "";
+    }
+    return jsonPath;
+  }
+
   @VisibleForTesting
   public String getSetCookieContextString(String response, String name, String value,
                                           String source) {
@@ -620,8 +847,12 @@ public class ElementsComparison {
           .collect(Collectors.toList());
 
       if (!originalParametrized.toString().equals(replayParametrized.toString())) {
-        System.out.println(referenceName + ": there are values that are parametrized that might "
-            + "be causing the difference. ");
+        CorrelationDiagnostics.getInstance().record(EventType.PARAMETRIZED_VALUE, referenceName,
+            "There are values that are parametrized that might be causing the difference");
+      }
+
+      if (hasLowScore(referenceName, appearances, otherAppearances)) {
+        return;
       }
 
       if (areEqualsAfterSorting(appearances, otherAppearances)) {
@@ -644,9 +875,16 @@ public class ElementsComparison {
                                       List<DynamicElement> differences,
                                       boolean condition, String source) {
     if (!orphanOriginal.isEmpty()) {
+      orphanOriginal.forEach((key, value) -> CorrelationDiagnostics.getInstance()
+          .record(EventType.ORPHAN_APPEARANCE, key, source + " (" + value.size()
+              + " appearances)"));
       if (condition) {
-        orphanOriginal.forEach((key, value) ->
-            differences.add(new DynamicElement(key, value, new ArrayList<>())));
+        orphanOriginal.forEach((key, value) -> {
+          if (configuration.getRequestedParameters().contains(key)
+              || !hasLowScore(key, value, Collections.emptyList())) {
+            differences.add(new DynamicElement(key, value, new ArrayList<>()));
+          }
+        });
       } else if (!configuration.getRequestedParameters().isEmpty()) {
         orphanOriginal.forEach((key, value) -> {
           if (configuration.getRequestedParameters().contains(key)) {
@@ -657,6 +895,25 @@ public class ElementsComparison {
     }
   }
 
+  /*
+   * Discards, before the costly search of suggestions, the parameters whose values don't look
+   * dynamic (see ValueScorer).
+   */
+  private boolean hasLowScore(String name, List<Appearances> appearances,
+                              List<Appearances> otherAppearances) {
+    float minScore = configuration.getMinValueScore();
+    if (minScore <= 0) {
+      return false;
+    }
+    double score = ValueScorer.score(appearances, otherAppearances);
+    if (score < minScore) {
+      CorrelationDiagnostics.getInstance().record(EventType.FILTERED_VALUE, name,
+          () -> "Score " + score + " is lower than " + minScore);
+      return true;
+    }
+    return false;
+  }
+
   private boolean areEqualsAfterSorting(List<Appearances> originalRecording,
                                         List<Appearances> replayTrace) {
     if (originalRecording.size() != replayTrace.size()) {
@@ -698,9 +955,66 @@ public class ElementsComparison {
     List<DynamicElement> dynamicElements = getDynamicElements(jmxToMap(originalJmxPath),
         jtlToMap(replayJtlPath));
 
-    return dynamicElements.stream()
-        .map(element -> generateMultivaluedSuggestion(element, originalResults))
-        .collect(Collectors.toList());
+    prepareSearch(dynamicElements, originalResults);
+    List<CorrelationSuggestion> suggestions = generateSuggestions(dynamicElements, originalResults);
+    clearSearch();
+    return suggestions;
+  }
+
+  /**
+   * Generates a list of {@link CorrelationSuggestion} by comparing several recordings of the same
+   * flow, without replaying it.
+   * <p>
+   * The parameters whose values differ between the recordings are considered dynamic (see
+   * {@link RecordingsComparison}), and the suggestions to correlate them are generated from the
+   * results of the first recording, which should be the one of the test plan to correlate.
+   * </p>
+   *
+   * @param recordingTraces the paths of the JTL files of the recordings, starting with the one of
+   *                        the test plan.
+   * @return a list of {@link CorrelationSuggestion} with the changes to apply
+   */
+  public List<CorrelationSuggestion> generateSuggestionsFromRecordings(
+      List<String> recordingTraces) {
+    if (recordingTraces.size() < 2) {
+      throw new IllegalArgumentException("At least two recordings are needed to compare them, "
+          + "but " + recordingTraces.size() + " were provided.");
+    }
+    LOG.info("Generating suggestions from {} recordings.", recordingTraces.size());
+    ResultFileParser resultParser = new ResultFileParser(configuration);
+    RecordingsComparison comparison = new RecordingsComparison(configuration);
+    List<SampleResult> recordingResults = null;
+    for (String trace : recordingTraces) {
+      if (cancelled) {
+        return Collections.emptyList();
+      }
+      LOG.info("Comparing the recording's Trace '{}'.", trace);
+      List<SampleResult> results = resultParser.loadFromFile(new File(trace), true);
+      comparison.addRecording(results);
+      if (recordingResults == null) {
+        recordingResults = results;
+      }
+    }
+
+    List<DynamicElement> dynamicElements = new ArrayList<>();
+    for (DynamicElement element : comparison.getDynamicElements()) {
+      List<Appearances> appearances = element.getOriginalAppearance();
+      int maxAppearances = configuration.getMaxNumberOfAppearances();
+      if (!configuration.getRequestedParameters().contains(element.getName())
+          && (appearances.size() > maxAppearances
+          || hasLowScore(element.getName(), appearances, element.getOtherAppearance()))) {
+        continue;
+      }
+      dynamicElements.add(element);
+    }
+    comparison.getAppearanceMap().forEach((name, appearances) -> {
+      if (configuration.getRequestedParameters().contains(name)
+          && comparison.getDifferingRecordings(name).isEmpty()) {
+        dynamicElements.add(new DynamicElement(name, appearances, new ArrayList<>()));
+      }
+    });
+    LOG.info("{} parameters differ between the recordings.", dynamicElements.size());
+    return getSuggestions(dynamicElements, recordingResults);
   }
 
   /**
@@ -721,21 +1035,21 @@ public class ElementsComparison {
     ResultFileParser parser = new ResultFileParser(configuration);
     List<SampleResult> replayResults = parser.loadFromFile(new File(replayTrace), true);
     List<SampleResult> recordingResults = parser.loadFromFile(new File(recordingTrace), true);
+    return failingJtlToMap(replayResults, recordingResults);
+  }
 
-    List<SampleResult> failedRecordingResults = recordingResults.stream()
-        .filter(result -> !result.isSuccessful())
-        .collect(Collectors.toList());
-
-    List<SampleResult> failedReplayResults = replayResults.stream()
-        .filter(result -> !result.isSuccessful())
-        .collect(Collectors.toList());
-
-    List<SampleResult> failedReplayResultsWithoutRecordingFailures = failedReplayResults
-        .stream()
-        .filter(result -> failedRecordingResults.stream()
-            .noneMatch(recordingResult -> recordingResult.getSampleLabel()
-                .equals(result.getSampleLabel())))
-        .collect(Collectors.toList());
+  private Map<String, List<Appearances>> failingJtlToMap(List<SampleResult> replayResults,
+                                                         List<SampleResult> recordingResults) {
+    ResultsAlignment alignment = new ResultsAlignment(recordingResults);
+    int[] alignedResults = alignment.align(replayResults);
+    List<SampleResult> failedReplayResultsWithoutRecordingFailures = new ArrayList<>();
+    for (int i = 0; i < replayResults.size(); i++) {
+      SampleResult result = replayResults.get(i);
+      if (!result.isSuccessful()
+          && alignment.isNewFailure(alignedResults, i, result.getSampleLabel())) {
+        failedReplayResultsWithoutRecordingFailures.add(result);
+      }
+    }
 
     return new ResultsExtraction(configuration)
         .extractAppearanceMap(failedReplayResultsWithoutRecordingFailures);
@@ -748,27 +1062,349 @@ public class ElementsComparison {
     LOG.info("Recording's Trace '{}'.", originalTrace);
     LOG.info("Failing replay's Trace '{}'.", replayTrace);
 
-    Map<String, List<Appearances>> recordingTraceMap = jtlToMap(originalTrace);
-    Map<String, List<Appearances>> replayFailingMap = failingJtlToMap(replayTrace, originalTrace);
+    valueFlowGraph = null;
+    SuggestionsCache cache = configuration.isSuggestionsCache()
+        ? SuggestionsCache.getInstance() : null;
+    String elementsKey = cache == null ? null
+        : cache.getDynamicElementsKey(originalTrace, replayTrace, configuration);
+    String suggestionsKey = elementsKey == null ? null
+        : cache.getSuggestionsKey(elementsKey, configuration);
+    if (suggestionsKey != null) {
+      List<CorrelationSuggestion> cached = cache.getSuggestions(suggestionsKey);
+      ValueFlowGraph cachedGraph = cache.getValueFlowGraph(suggestionsKey);
+      // The graph is not built out of core, otherwise it has to be cached if it is enabled
+      boolean graphCached = cachedGraph != null || !configuration.isValueFlowGraph()
+          || configuration.isOutOfCore();
+      if (cached != null && graphCached) {
+        LOG.info("Using the suggestions generated before for the same traces and configuration.");
+        valueFlowGraph = configuration.isValueFlowGraph() ? cachedGraph : null;
+        return cached;
+      }
+    }
+
+    List<CorrelationSuggestion> suggestions = configuration.isOutOfCore()
+        ? generateSuggestionsOutOfCore(originalTrace, replayTrace)
+        : generateSuggestionsInCore(originalTrace, replayTrace, elementsKey == null ? null : cache,
+        elementsKey);
+    if (suggestionsKey != null && !cancelled) {
+      cache.putSuggestions(suggestionsKey, suggestions, valueFlowGraph);
+    }
+    return suggestions;
+  }
+
+  /*
+   * The dynamic elements only depend on the traces and the filtering settings, so they are reused
+   * from the cache (when given) even if the settings used to generate the suggestions changed.
+   */
+  private List<CorrelationSuggestion> generateSuggestionsInCore(String originalTrace,
+                                                                String replayTrace,
+                                                                SuggestionsCache cache,
+                                                                String elementsKey) {
+    ResultFileParser resultParser = new ResultFileParser(configuration);
+    RecordingSnapshot recording = getIncrementalRecordingAnalysis(originalTrace);
+    List<SampleResult> recordingResults = recording != null ? recording.getResults()
+        : resultParser.loadFromFile(new File(originalTrace), true);
+    List<SampleResult> replayResults = resultParser.loadFromFile(new File(replayTrace), true);
+
+    List<DynamicElement> replayDynamicParams = cache == null ? null
+        : cache.loadDynamicElements(elementsKey);
+    if (replayDynamicParams != null) {
+      LOG.info("Using the dynamic elements obtained before for the same traces and filters.");
+    } else {
+      Map<String, List<Appearances>> recordingTraceMap;
+      if (recording != null) {
+        LOG.info("Using the analysis of the recording made while recording.");
+        recordingTraceMap = recording.getAppearanceMap();
+      } else {
+        recordingTraceMap = new ResultsExtraction(configuration)
+            .extractAppearanceMap(recordingResults);
+      }
+      Map<String, List<Appearances>> replayFailingMap = failingJtlToMap(replayResults,
+          recordingResults);
+
+      setAcceptEqualAppearances(true);
+      replayDynamicParams = getDynamicElements(replayFailingMap, recordingTraceMap);
+      if (cache != null && !cancelled) {
+        cache.storeDynamicElements(elementsKey, replayDynamicParams);
+      }
+    }
+
+    if (configuration.isValueFlowGraph()) {
+      Set<String> values = new LinkedHashSet<>();
+      replayDynamicParams.forEach(element -> {
+        element.getOriginalAppearance().forEach(appearance -> values.add(appearance.getValue()));
+        element.getOtherAppearance().forEach(appearance -> values.add(appearance.getValue()));
+      });
+      valueFlowGraph = ValueFlowGraph.build(recordingResults, values);
+    }
+
+    Map<String, SampleResult> replayByLabel = new HashMap<>();
+    replayResults.forEach(result -> replayByLabel.putIfAbsent(result.getSampleLabel(), result));
+    replayResultByLabel = replayByLabel::get;
+    try {
+      return getSuggestions(replayDynamicParams, recordingResults);
+    } finally {
+      replayResultByLabel = label -> null;
+    }
+  }
+
+  private RecordingSnapshot getIncrementalRecordingAnalysis(String originalTrace) {
+    IncrementalRecordingAnalysis analysis = IncrementalRecordingAnalysis.getInstance();
+    return analysis == null ? null : analysis.getSnapshot(originalTrace, configuration);
+  }
+
+  /*
+   * Same analysis as generateSuggestionsFromFailingReplayTraceOnly, but reading each trace only
+   * once and without keeping their appearance maps nor their results in memory: the appearances
+   * are sorted on disk by parameter name and both traces are joined one parameter at a time, while
+   * the results are moved to a ResultStore and read back, by their position, when their samplers
+   * are rebuilt or they are searched. Only the failed replay results and the first replay result
+   * of each label, which validates the extractors, are stored from the replay. The signature id of
+   * every result is kept to align the traces, as in core, before extracting the appearances of the
+   * new failures.
+   */
+  private List<CorrelationSuggestion> generateSuggestionsOutOfCore(String originalTrace,
+                                                                   String replayTrace) {
+    LOG.info("Comparing traces out of core.");
+    int runSize = configuration.getOutOfCoreRunSize();
+    int cacheSize = configuration.getOutOfCoreCacheSize();
+    SignatureIds signatureIds = new SignatureIds();
+    List<Integer> recordingIds = new ArrayList<>();
+    List<String> recordingLabels = new ArrayList<>();
+    List<IOException> failures = new ArrayList<>();
+    ResultsExtraction extraction = new ResultsExtraction(configuration);
+    try (ResultStore recordingResults = new ResultStore(cacheSize);
+         ResultStore replayResults = new ResultStore(cacheSize);
+         ExternalAppearanceSorter recordingSorter = new ExternalAppearanceSorter(runSize);
+         ExternalAppearanceSorter replaySorter = new ExternalAppearanceSorter(runSize)) {
+      // JMeter logs and skips the exceptions thrown while loading a file, so they are kept apart
+      parser.forEachResult(new File(originalTrace), true, result -> {
+        recordingIds.add(signatureIds.getId(result));
+        recordingLabels.add(result.getSampleLabel());
+        try {
+          Map<String, List<Appearances>> appearanceMap = extraction.extractAppearanceMap(
+              Collections.singletonList(result));
+          sortAppearances(appearanceMap, recordingSorter, recordingResults.store(result));
+        } catch (IOException e) {
+          failures.add(e);
+        }
+      });
+      // As in core, the first replay result of each label validates the extractors
+      Map<String, Integer> replayByLabel = new HashMap<>();
+      List<Integer> replayIds = new ArrayList<>();
+      Map<Integer, Integer> failedReplayResults = new LinkedHashMap<>();
+      parser.forEachResult(new File(replayTrace), true, result -> {
+        int position = replayIds.size();
+        replayIds.add(signatureIds.getId(result));
+        boolean firstOfLabel = !replayByLabel.containsKey(result.getSampleLabel());
+        if (result.isSuccessful() && !firstOfLabel) {
+          return;
+        }
+        try {
+          int index = replayResults.store(result);
+          if (firstOfLabel) {
+            replayByLabel.put(result.getSampleLabel(), index);
+          }
+          if (!result.isSuccessful()) {
+            failedReplayResults.put(position, index);
+          }
+        } catch (IOException e) {
+          failures.add(e);
+        }
+      });
+      if (!failures.isEmpty()) {
+        throw failures.get(0);
+      }
+      ResultsAlignment alignment = new ResultsAlignment(recordingResults, signatureIds,
+          recordingIds.stream().mapToInt(Integer::intValue).toArray(), recordingLabels);
+      int[] alignedResults = alignment.align(
+          replayIds.stream().mapToInt(Integer::intValue).toArray());
+      for (Map.Entry<Integer, Integer> failed : failedReplayResults.entrySet()) {
+        SampleResult result = replayResults.get(failed.getValue());
+        if (alignment.isNewFailure(alignedResults, failed.getKey(), result.getSampleLabel())) {
+          sortAppearances(extraction.extractAppearanceMap(Collections.singletonList(result)),
+              replaySorter, failed.getValue());
+        }
+      }
+      LOG.info("Stored {} recording and {} replay results, sorted appearances in {} recording "
+              + "and {} replay runs.", recordingResults.size(), replayResults.size(),
+          recordingSorter.getRunsCount(), replaySorter.getRunsCount());
+
+      setAcceptEqualAppearances(true);
+      List<DynamicElement> replayDynamicParams = joinAppearances(replaySorter.sortedGroups(),
+          recordingSorter.sortedGroups(), replayResults, recordingResults);
+
+      replayResultByLabel = label -> {
+        Integer index = replayByLabel.get(label);
+        return index == null ? null : replayResults.get(index);
+      };
+      try {
+        return getSuggestions(replayDynamicParams, recordingResults);
+      } finally {
+        replayResultByLabel = label -> null;
+      }
+    } catch (IOException e) {
+      LOG.error("Error while comparing the traces out of core", e);
+      throw new IllegalStateException("Unable to compare the traces out of core", e);
+    }
+  }
 
-    setAcceptEqualAppearances(true);
-    List<DynamicElement> replayDynamicParams =
-        getDynamicElements(replayFailingMap, recordingTraceMap);
+  // The appearances of a single result are all found in the sampler built for it
+  private static void sortAppearances(Map<String, List<Appearances>> appearanceMap,
+                                      ExternalAppearanceSorter sorter, int resultIndex)
+      throws IOException {
+    for (Map.Entry<String, List<Appearances>> entry : appearanceMap.entrySet()) {
+      for (Appearances appearance : entry.getValue()) {
+        for (int i = 0; i < appearance.getList().size(); i++) {
+          sorter.add(entry.getKey(), appearance.getValue(), appearance.getSource(), resultIndex);
+        }
+      }
+    }
+  }
 
-    List<SampleResult> recordingResults = new ResultFileParser(configuration)
-        .loadFromFile(new File(originalTrace), true);
+  /*
+   * Merge join of the sorted appearances of both traces on the parameter name. Each parameter is
+   * compared as getDynamicElements does with the whole maps, since parameters are compared
+   * independently of each other. The samplers are rebuilt from the stored results, and only the
+   * ones of the dynamic elements are kept.
+   */
+  private List<DynamicElement> joinAppearances(Iterator<List<AppearanceRecord>> originalGroups,
+                                               Iterator<List<AppearanceRecord>> replayGroups,
+                                               List<SampleResult> originalResults,
+                                               List<SampleResult> replayResults) {
+    List<DynamicElement> dynamicElements = new ArrayList<>();
+    JMeterElementUtils utils = new JMeterElementUtils(configuration);
+    Function<Integer, TestElement> originalSamplers = buildSamplersCache(originalResults);
+    Function<Integer, TestElement> replaySamplers = buildSamplersCache(replayResults);
+    List<AppearanceRecord> original = originalGroups.hasNext() ? originalGroups.next() : null;
+    List<AppearanceRecord> replay = replayGroups.hasNext() ? replayGroups.next() : null;
+    while (original != null || replay != null) {
+      int comparison;
+      if (original == null) {
+        comparison = 1;
+      } else if (replay == null) {
+        comparison = -1;
+      } else {
+        comparison = original.get(0).getName().compareTo(replay.get(0).getName());
+      }
 
-    return getSuggestions(replayDynamicParams, recordingResults);
+      Map<String, List<Appearances>> originalMap = new HashMap<>();
+      Map<String, List<Appearances>> replayMap = new HashMap<>();
+      if (comparison <= 0) {
+        addToAppearanceMap(original, originalMap, originalResults, originalSamplers, utils);
+        original = originalGroups.hasNext() ? originalGroups.next() : null;
+      }
+      if (comparison >= 0) {
+        addToAppearanceMap(replay, replayMap, replayResults, replaySamplers, utils);
+        replay = replayGroups.hasNext() ? replayGroups.next() : null;
+      }
+      dynamicElements.addAll(getDynamicElements(originalMap, replayMap));
+    }
+    return dynamicElements;
+  }
+
+  /*
+   * The samplers of the last results used are reused, so the appearances of the parameters of a
+   * result share its sampler, as they do in core, as long as the result is used again soon.
+   */
+  private Function<Integer, TestElement> buildSamplersCache(List<SampleResult> results) {
+    int cacheSize = configuration.getOutOfCoreCacheSize();
+    Map<Integer, TestElement> samplers = new LinkedHashMap<Integer, TestElement>(16, 0.75f,
+        true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, TestElement> eldest) {
+        return size() > cacheSize;
+      }
+    };
+    return index -> samplers.computeIfAbsent(index,
+        i -> RequestView.of((HTTPSampleResult) results.get(i)).getSampler());
+  }
+
+  private static void addToAppearanceMap(List<AppearanceRecord> records,
+                                         Map<String, List<Appearances>> appearanceMap,
+                                         List<SampleResult> results,
+                                         Function<Integer, TestElement> samplers,
+                                         JMeterElementUtils utils) {
+    for (AppearanceRecord record : records) {
+      int index = record.getElementIndex();
+      utils.addToMap(appearanceMap, record.getName(), record.getValue(),
+          results.get(index).getSampleLabel(), () -> samplers.apply(index), record.getSource());
+    }
+  }
+
+  /**
+   * Generates the suggestion of each dynamic element, in parallel, using up to the amount of
+   * threads set in the {@link Configuration}.
+   *
+   * <p>Each element is processed independently, and the suggestions are returned in the same order
+   * as the elements, regardless of the order in which they finish. If the generation is cancelled
+   * (or the calling thread interrupted) an empty list is returned.
+   *
+   * @param dynamicElements the elements to generate the suggestions for.
+   * @param results         the results where the values of the elements are searched.
+   * @return the suggestion of each one of the elements.
+   */
+  @VisibleForTesting
+  public List<CorrelationSuggestion> generateSuggestions(List<DynamicElement> dynamicElements,
+                                                         List<SampleResult> results) {
+    int threads = Math.min(configuration.getSuggestionThreads(), dynamicElements.size());
+    if (threads < 2) {
+      List<CorrelationSuggestion> suggestions = new ArrayList<>(dynamicElements.size());
+      for (DynamicElement element : dynamicElements) {
+        if (cancelled) {
+          return Collections.emptyList();
+        }
+        suggestions.add(generateMultivaluedSuggestion(element, results));
+      }
+      return suggestions;
+    }
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable,
+          "correlation-suggestions-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<CorrelationSuggestion>> futures = new ArrayList<>(dynamicElements.size());
+      for (DynamicElement element : dynamicElements) {
+        futures.add(executor.submit(
+            () -> cancelled ? null : generateMultivaluedSuggestion(element, results)));
+      }
+
+      List<CorrelationSuggestion> suggestions = new ArrayList<>(futures.size());
+      for (Future<CorrelationSuggestion> future : futures) {
+        CorrelationSuggestion suggestion = future.get();
+        if (cancelled) {
+          LOG.info("Suggestions generation was cancelled");
+          return Collections.emptyList();
+        }
+        suggestions.add(suggestion);
+      }
+      return suggestions;
+    } catch (InterruptedException e) {
+      LOG.info("Suggestions generation was interrupted");
+      cancelled = true;
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause
+          : new IllegalStateException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   private List<CorrelationSuggestion> getSuggestions(
       List<DynamicElement> dynamicElements,
       List<SampleResult> originalResults) {
+    prepareSearch(dynamicElements, originalResults);
     List<CorrelationSuggestion> suggestions = new ArrayList<>();
     List<CorrelationSuggestion> orphanSuggestions = new ArrayList<>();
-    for (DynamicElement replayCandidate : dynamicElements) {
-      CorrelationSuggestion suggestion =
-          generateMultivaluedSuggestion(replayCandidate, originalResults);
+    for (CorrelationSuggestion suggestion : generateSuggestions(dynamicElements,
+        originalResults)) {
       if (suggestion.getExtractionSuggestions().isEmpty()
           || suggestion.getReplacementSuggestions().isEmpty()) {
         orphanSuggestions.add(suggestion);
@@ -777,23 +1413,24 @@ public class ElementsComparison {
       suggestions.add(suggestion);
     }
 
-    //Left for debug purposes
-    System.out.println("===   ORPHANS REPORT ==");
-    StringBuilder builder = new StringBuilder();
-    builder.append(orphanSuggestions.size()).append("- Orphan Suggestions: \n");
+    CorrelationDiagnostics diagnostics = CorrelationDiagnostics.getInstance();
     for (CorrelationSuggestion orphan : orphanSuggestions) {
-      builder.append(orphan.getParamName()).append(" ")
-          .append("Ext=").append(orphan.getExtractionSuggestions().size()).append(" ")
-          .append("Rep=").append(orphan.getReplacementSuggestions().size()).append("\n");
+      diagnostics.record(EventType.ORPHAN_SUGGESTION, orphan.getParamName(),
+          "Ext=" + orphan.getExtractionSuggestions().size()
+              + " Rep=" + orphan.getReplacementSuggestions().size());
     }
-
-    for (CorrelationSuggestion suggestion : suggestions) {
-      builder.append(suggestion.getParamName()).append(" ")
-          .append("Ext=").append(suggestion.getExtractionSuggestions().size()).append(" ")
-          .append("Rep=").append(suggestion.getReplacementSuggestions().size()).append("\n");
+    if (LOG.isDebugEnabled()) {
+      StringBuilder builder = new StringBuilder();
+      builder.append(orphanSuggestions.size()).append(" orphan suggestions. Suggestions:\n");
+      for (CorrelationSuggestion suggestion : suggestions) {
+        builder.append(suggestion.getParamName()).append(" ")
+            .append("Ext=").append(suggestion.getExtractionSuggestions().size()).append(" ")
+            .append("Rep=").append(suggestion.getReplacementSuggestions().size()).append("\n");
+      }
+      LOG.debug(builder.toString());
     }
-    System.out.println(builder.toString());
 
+    clearSearch();
     return suggestions;
   }
 
@@ -826,6 +1463,17 @@ public class ElementsComparison {
     this.acceptEqualAppearances = acceptEqualAppearances;
   }
 
+  /**
+   * Returns the graph of where the values of the last compared recording are produced and
+   * consumed.
+   *
+   * @return the graph, or null if it is disabled (see {@link Configuration#isValueFlowGraph()}) or
+   * the last comparison didn't load the recording in memory.
+   */
+  public ValueFlowGraph getValueFlowGraph() {
+    return valueFlowGraph;
+  }
+
   public Configuration getConfiguration() {
     return configuration;
   }
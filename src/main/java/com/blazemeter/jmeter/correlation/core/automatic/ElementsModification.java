@@ -3,7 +3,6 @@ package com.blazemeter.jmeter.correlation.core.automatic;
 import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 
 import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
-import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
 import com.helger.commons.annotation.VisibleForTesting;
 import java.util.ArrayList;
@@ -17,12 +16,15 @@ import java.util.stream.Collectors;
 import javax.swing.tree.TreeNode;
 import org.apache.jmeter.JMeter;
 import org.apache.jmeter.exceptions.IllegalUserActionException;
+import org.apache.jmeter.extractor.BoundaryExtractor;
 import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
 import org.apache.jmeter.gui.tree.JMeterTreeModel;
 import org.apache.jmeter.gui.tree.JMeterTreeNode;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
+import org.apache.jmeter.testelement.AbstractScopedTestElement;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
@@ -58,10 +60,31 @@ public class ElementsModification {
   public static ModificationReport applySuggestions(HashTree testPlan,
                                                     List<CorrelationSuggestion> suggestions)
       throws IllegalUserActionException {
+    return applySuggestions(testPlan, suggestions, new Configuration().isMergeExtractors());
+  }
+
+  /**
+   * Applies the suggestions to the test plan.
+   *
+   * @param testPlan        the test plan where the suggestions are applied.
+   * @param suggestions     the suggestions to apply.
+   * @param mergeExtractors whether the JSON extractors added to the same sampler are merged into a
+   *                        single post processor, which parses the response only once.
+   * @return the report with the original and the modified test plans.
+   * @throws IllegalUserActionException if the test plan can't be converted to a tree model.
+   */
+  @VisibleForTesting
+  public static ModificationReport applySuggestions(HashTree testPlan,
+                                                    List<CorrelationSuggestion> suggestions,
+                                                    boolean mergeExtractors)
+      throws IllegalUserActionException {
     ModificationReport report = new ModificationReport();
     JMeterTreeModel model = JMeterElementUtils.convertToTreeModel(testPlan);
     List<JMeterTreeNode> recordedSamplers = model.getNodesOfType(HTTPSamplerBase.class);
     Map<JMeterTreeNode, ModificationResult> modificationResults = new HashMap<>();
+    // JSON extractors added to each sampler, where the following ones are merged
+    Map<JMeterTreeNode, JSONPostProcessor> jsonExtractors = mergeExtractors ? new HashMap<>()
+        : null;
     for (CorrelationSuggestion suggestion : suggestions) {
       for (JMeterTreeNode sampler : recordedSamplers) {
         ModificationResult modificationResult = modificationResults.get(sampler);
@@ -69,7 +92,7 @@ public class ElementsModification {
           modificationResult = new ModificationResult(sampler);
           modificationResults.put(sampler, modificationResult);
         }
-        addSuggestedExtractors(suggestion, sampler, modificationResult, model);
+        addSuggestedExtractors(suggestion, sampler, modificationResult, model, jsonExtractors);
         addSuggestedReplacements(suggestion, sampler, modificationResult, model);
       }
     }
@@ -87,34 +110,98 @@ public class ElementsModification {
    * Adds the suggested extractors to the sampler if the sampler matches the element
    * where the suggestion was made.
    *
-   * @param suggestion  Suggestion to be applied.
-   * @param samplerNode HTTPSamplerProxy where the {@link CorrelationExtractor} will be added.
-   * @param model       JMeterTreeModel of the test plan.
+   * @param suggestion     Suggestion to be applied.
+   * @param samplerNode    HTTPSamplerProxy where the {@link CorrelationExtractor} will be added.
+   * @param model          JMeterTreeModel of the test plan.
+   * @param jsonExtractors JSON extractors already added to each sampler, where the new ones are
+   *                       merged, or null if the extractors are not merged.
    * @see CorrelationSuggestion
    */
   private static void addSuggestedExtractors(CorrelationSuggestion suggestion,
                                              JMeterTreeNode samplerNode,
-                                             ModificationResult result, JMeterTreeModel model) {
+                                             ModificationResult result, JMeterTreeModel model,
+                                             Map<JMeterTreeNode, JSONPostProcessor>
+                                                 jsonExtractors) {
 
     for (ExtractionSuggestion extraction : suggestion.getExtractionSuggestions()) {
       if (JMeterElementUtils.areEquivalent(samplerNode, extraction.getSampleResult())) {
-        RegexCorrelationExtractor<?> extractor = extraction.getExtractor();
+        CorrelationExtractor<?> extractor = extraction.getExtractor();
         String variableName = extractor.getVariableName();
         if (JMeterElementUtils.isExtractorRepeated(samplerNode, variableName)) {
           continue;
         }
 
-        RegexExtractor postProcessor = extractor.createPostProcessor(variableName, 1);
+        AbstractScopedTestElement postProcessor = extractor.createPostProcessor(variableName, 1);
+        if (postProcessor == null) {
+          LOG.warn("The extractor {} can't be added to a sampler. Skipping extraction of '{}'.",
+              extractor.getDisplayName(), variableName);
+          continue;
+        }
+        String description = describeExtraction(postProcessor);
+        if (jsonExtractors != null && postProcessor instanceof JSONPostProcessor) {
+          JSONPostProcessor merged = jsonExtractors.get(samplerNode);
+          if (merged != null && mergeJsonExtractors(merged, (JSONPostProcessor) postProcessor)) {
+            result.addExtraction("- Extractor: Added '" + variableName + "' ('"
+                + extraction.getValue() + "')'. " + description + " (merged into '"
+                + merged.getName() + "')");
+            continue;
+          }
+          if (merged == null || !isMergeable(merged)) {
+            jsonExtractors.put(samplerNode, (JSONPostProcessor) postProcessor);
+          }
+        }
         postProcessor.setName(postProcessor.getName() + " (" + extraction.getSource() + ")");
         postProcessor.setScopeAll();
         JMeterElementUtils.addPostProcessorToNode(samplerNode,
             postProcessor, model);
         result.addExtraction("- Extractor: Added '" + variableName
-            + "' ('" + extraction.getValue() + "')'. Regex: '" + postProcessor.getRegex() + "'");
+            + "' ('" + extraction.getValue() + "')'. " + description);
       }
     }
   }
 
+  /**
+   * Adds the variables extracted by a JSON extractor to another one, so the response is parsed
+   * only once for all of them.
+   *
+   * @param target    the JSON extractor that will extract the variables of both.
+   * @param extractor the JSON extractor whose variables are added to the target.
+   * @return false if the extractors can't be merged, since they have different scopes or use
+   *     expressions containing the ';' that JMeter uses to separate them.
+   */
+  @VisibleForTesting
+  static boolean mergeJsonExtractors(JSONPostProcessor target, JSONPostProcessor extractor) {
+    if (!target.fetchScope().equals(extractor.fetchScope()) || !isMergeable(target)
+        || !isMergeable(extractor)) {
+      return false;
+    }
+    target.setRefNames(target.getRefNames() + ";" + extractor.getRefNames());
+    target.setJsonPathExpressions(target.getJsonPathExpressions() + ";"
+        + extractor.getJsonPathExpressions());
+    target.setMatchNumbers(target.getMatchNumbers() + ";" + extractor.getMatchNumbers());
+    target.setDefaultValues(target.getDefaultValues() + ";" + extractor.getDefaultValues());
+    target.setName("JSON - " + target.getRefNames().replace(";", ", "));
+    return true;
+  }
+
+  private static boolean isMergeable(JSONPostProcessor extractor) {
+    return !extractor.getJsonPathExpressions().contains(";")
+        && !extractor.getDefaultValues().contains(";");
+  }
+
+  private static String describeExtraction(AbstractScopedTestElement postProcessor) {
+    if (postProcessor instanceof BoundaryExtractor) {
+      BoundaryExtractor boundaryExtractor = (BoundaryExtractor) postProcessor;
+      return "Boundaries: '" + boundaryExtractor.getLeftBoundary() + "' and '"
+          + boundaryExtractor.getRightBoundary() + "'";
+    } else if (postProcessor instanceof JSONPostProcessor) {
+      return "JSON Path: '" + ((JSONPostProcessor) postProcessor).getJsonPathExpressions() + "'";
+    } else if (postProcessor instanceof RegexExtractor) {
+      return "Regex: '" + ((RegexExtractor) postProcessor).getRegex() + "'";
+    }
+    return postProcessor.getClass().getSimpleName() + ": '" + postProcessor.getName() + "'";
+  }
+
   /**
    * Adds the suggested replacements to the sampler if the sampler matches the element
    * where the suggestion was made.
@@ -0,0 +1,316 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts appearance records by parameter name using bounded memory.
+ *
+ * <p>Records are buffered until the run size is reached, then the buffer is sorted and written
+ * to a temporary file (a "run"). Once all the records were added, the runs are merged, keeping only
+ * one record per run in memory, so traces with more appearances than the heap can hold can still be
+ * processed in order.
+ *
+ * <p>Records with the same name keep the order in which they were added, which allows rebuilding
+ * the appearances exactly as if they were collected in memory.
+ */
+public class ExternalAppearanceSorter implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalAppearanceSorter.class);
+  private static final Comparator<AppearanceRecord> RECORD_ORDER =
+      Comparator.comparing(AppearanceRecord::getName)
+          .thenComparingLong(AppearanceRecord::getSequence);
+
+  private final int runSize;
+  private final List<AppearanceRecord> buffer = new ArrayList<>();
+  private final List<File> runs = new ArrayList<>();
+  private final List<RunReader> openReaders = new ArrayList<>();
+  private long sequence;
+
+  public ExternalAppearanceSorter(int runSize) {
+    this.runSize = Math.max(runSize, 1);
+  }
+
+  /**
+   * Adds a record to be sorted, spilling the buffered records to disk when the run size is reached.
+   *
+   * @param name         the name of the parameter.
+   * @param value        the value of the parameter.
+   * @param source       where the parameter was found.
+   * @param elementIndex the index of the element where the parameter was found.
+   * @throws IOException if the records could not be written to disk.
+   */
+  public void add(String name, String value, String source, int elementIndex)
+      throws IOException {
+    buffer.add(new AppearanceRecord(name, value, source, elementIndex, sequence++));
+    if (buffer.size() >= runSize) {
+      spill();
+    }
+  }
+
+  private void spill() throws IOException {
+    buffer.sort(RECORD_ORDER);
+    File run = File.createTempFile("correlation-appearances", ".run");
+    run.deleteOnExit();
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(run)))) {
+      for (AppearanceRecord record : buffer) {
+        record.writeTo(out);
+      }
+    }
+    runs.add(run);
+    LOG.debug("Spilled {} appearances to {}", buffer.size(), run);
+    buffer.clear();
+  }
+
+  /**
+   * Returns all the records added, sorted by name. Records with the same name are returned in the
+   * order they were added.
+   *
+   * @return an iterator over the sorted records.
+   * @throws IOException if the spilled runs could not be read.
+   */
+  public Iterator<AppearanceRecord> sortedIterator() throws IOException {
+    if (runs.isEmpty()) {
+      buffer.sort(RECORD_ORDER);
+      return buffer.iterator();
+    }
+    if (!buffer.isEmpty()) {
+      spill();
+    }
+
+    PriorityQueue<RunReader> heads =
+        new PriorityQueue<>(runs.size(), Comparator.comparing(RunReader::peek, RECORD_ORDER));
+    for (File run : runs) {
+      RunReader reader = new RunReader(run);
+      openReaders.add(reader);
+      if (reader.peek() != null) {
+        heads.add(reader);
+      }
+    }
+    return new MergeIterator(heads);
+  }
+
+  /**
+   * Returns all the records added, sorted as in {@link #sortedIterator()}, grouped by name.
+   *
+   * @return an iterator over the records of each name.
+   * @throws IOException if the spilled runs could not be read.
+   */
+  public Iterator<List<AppearanceRecord>> sortedGroups() throws IOException {
+    return new GroupIterator(sortedIterator());
+  }
+
+  public int getRunsCount() {
+    return runs.size();
+  }
+
+  @Override
+  public void close() {
+    for (RunReader reader : openReaders) {
+      reader.close();
+    }
+    openReaders.clear();
+    for (File run : runs) {
+      if (!run.delete()) {
+        LOG.debug("Could not delete temporary file {}", run);
+      }
+    }
+    runs.clear();
+    buffer.clear();
+  }
+
+  /**
+   * An appearance of a parameter, reduced to what is needed to rebuild the {@link Appearances}.
+   */
+  public static class AppearanceRecord {
+    private final String name;
+    private final String value;
+    private final String source;
+    private final int elementIndex;
+    private final long sequence;
+
+    public AppearanceRecord(String name, String value, String source, int elementIndex,
+                            long sequence) {
+      this.name = name;
+      this.value = value;
+      this.source = source;
+      this.elementIndex = elementIndex;
+      this.sequence = sequence;
+    }
+
+    private static AppearanceRecord readFrom(DataInputStream in) throws IOException {
+      String name = readString(in);
+      String value = readString(in);
+      String source = readString(in);
+      int elementIndex = in.readInt();
+      long sequence = in.readLong();
+      return new AppearanceRecord(name, value, source, elementIndex, sequence);
+    }
+
+    // DataOutput.writeUTF is limited to 64KB, and values can be whole bodies
+    private static String readString(DataInputStream in) throws IOException {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeTo(DataOutputStream out) throws IOException {
+      writeString(out, name);
+      writeString(out, value);
+      writeString(out, source);
+      out.writeInt(elementIndex);
+      out.writeLong(sequence);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public int getElementIndex() {
+      return elementIndex;
+    }
+
+    public long getSequence() {
+      return sequence;
+    }
+
+    @Override
+    public String toString() {
+      return "AppearanceRecord{"
+          + "name='" + name + '\''
+          + ", value='" + value + '\''
+          + ", source='" + source + '\''
+          + ", elementIndex=" + elementIndex
+          + '}';
+    }
+  }
+
+  private static class RunReader implements Closeable {
+    private final DataInputStream in;
+    private AppearanceRecord next;
+
+    private RunReader(File run) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+      advance();
+    }
+
+    private AppearanceRecord peek() {
+      return next;
+    }
+
+    private AppearanceRecord poll() {
+      AppearanceRecord current = next;
+      try {
+        advance();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return current;
+    }
+
+    private void advance() throws IOException {
+      try {
+        next = AppearanceRecord.readFrom(in);
+      } catch (EOFException e) {
+        next = null;
+        close();
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        LOG.debug("Error closing appearances run", e);
+      }
+    }
+  }
+
+  private static class MergeIterator implements Iterator<AppearanceRecord> {
+    private final PriorityQueue<RunReader> heads;
+
+    private MergeIterator(PriorityQueue<RunReader> heads) {
+      this.heads = heads;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public AppearanceRecord next() {
+      RunReader reader = heads.poll();
+      if (reader == null) {
+        throw new NoSuchElementException();
+      }
+      AppearanceRecord record = reader.poll();
+      if (reader.peek() != null) {
+        heads.add(reader);
+      }
+      return record;
+    }
+  }
+
+  private static class GroupIterator implements Iterator<List<AppearanceRecord>> {
+    private final Iterator<AppearanceRecord> records;
+    private AppearanceRecord pending;
+
+    private GroupIterator(Iterator<AppearanceRecord> records) {
+      this.records = records;
+      this.pending = records.hasNext() ? records.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return pending != null;
+    }
+
+    @Override
+    public List<AppearanceRecord> next() {
+      if (pending == null) {
+        throw new NoSuchElementException();
+      }
+      String name = pending.getName();
+      List<AppearanceRecord> group = new ArrayList<>();
+      while (pending != null && pending.getName().equals(name)) {
+        group.add(pending);
+        pending = records.hasNext() ? records.next() : null;
+      }
+      return group;
+    }
+  }
+}
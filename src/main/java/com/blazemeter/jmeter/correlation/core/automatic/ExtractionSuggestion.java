@@ -1,11 +1,14 @@
 package com.blazemeter.jmeter.correlation.core.automatic;
 
-import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.automatic.ValueVariants.Encoding;
+import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
 import org.apache.jmeter.samplers.SampleResult;
 
 public class ExtractionSuggestion {
-  private RegexCorrelationExtractor<?> extractor;
+  private CorrelationExtractor<?> extractor;
   private SampleResult sampleResult;
   private String value;
   private String name;
@@ -13,23 +16,27 @@ public class ExtractionSuggestion {
   // This suggestion comes from the analysis of a sample result?
   private boolean comesFromSampleResult = true;
   private HTTPSamplerBase sampler;
+  // How the value was encoded where it was found
+  private Encoding encoding = Encoding.RAW;
+  // Nanoseconds the extractor takes on each sample, -1 when it wasn't measured
+  private long estimatedCost = -1;
 
-  public ExtractionSuggestion(RegexCorrelationExtractor<?> extractor, SampleResult sampleResult) {
+  public ExtractionSuggestion(CorrelationExtractor<?> extractor, SampleResult sampleResult) {
     this.extractor = extractor;
     this.sampleResult = sampleResult;
   }
 
-  public ExtractionSuggestion(RegexCorrelationExtractor<?> extractor, HTTPSamplerBase sampler) {
+  public ExtractionSuggestion(CorrelationExtractor<?> extractor, HTTPSamplerBase sampler) {
     this.extractor = extractor;
     this.sampler = sampler;
     this.comesFromSampleResult = false;
   }
 
-  public RegexCorrelationExtractor<?> getExtractor() {
+  public CorrelationExtractor<?> getExtractor() {
     return extractor;
   }
 
-  public void setExtractor(RegexCorrelationExtractor<?> extractor) {
+  public void setExtractor(CorrelationExtractor<?> extractor) {
     this.extractor = extractor;
   }
 
@@ -65,6 +72,22 @@ public class ExtractionSuggestion {
     this.source = source;
   }
 
+  public Encoding getEncoding() {
+    return encoding;
+  }
+
+  public void setEncoding(Encoding encoding) {
+    this.encoding = encoding;
+  }
+
+  public long getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  public void setEstimatedCost(long estimatedCost) {
+    this.estimatedCost = estimatedCost;
+  }
+
   public boolean comesFromASampleResult() {
     return comesFromSampleResult;
   }
@@ -73,6 +96,17 @@ public class ExtractionSuggestion {
     return sampler;
   }
 
+  /**
+   * Returns the structural key of the suggestion: two suggestions with equal keys extract the same
+   * value, from the same place, with an equivalent extractor.
+   *
+   * @return a key with proper equals and hashCode, to detect repeated suggestions.
+   */
+  public List<Object> getKey() {
+    return Arrays.asList(name, value, source,
+        comesFromSampleResult ? sampleResult.getSampleLabel() : sampler.getName(), extractor);
+  }
+
   @Override
   public String toString() {
     return "ExtractionSuggestion {"
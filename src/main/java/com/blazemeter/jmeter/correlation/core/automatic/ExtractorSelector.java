@@ -0,0 +1,161 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.blazemeter.jmeter.correlation.core.extractors.BoundaryCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.JsonCorrelationExtractor;
+import com.helger.commons.annotation.VisibleForTesting;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses, among several extractors able to capture a value, the one that is cheaper to evaluate
+ * on every sample of the load test.
+ *
+ * <p>Each candidate is first validated: it has to capture the value from the recorded response
+ * uniquely (any other match has to hold the same value) and, when the response of the replay and
+ * the value it holds are known, capture that value from it the same way. The valid ones are then
+ * compared with a fixed cost model, so the same responses always select the same extractor:
+ * boundaries only scan the response up to the value, regular expressions scan the same text but
+ * trying to match on every position, and JSON paths parse the whole response. Candidates with the
+ * same cost keep the order in which they were given, so the preferred ones should go first. The
+ * selected extractor is also timed against the recorded response (after a warm-up evaluation), to
+ * show how long it takes.
+ */
+public class ExtractorSelector {
+  private static final Logger LOG = LoggerFactory.getLogger(ExtractorSelector.class);
+  // Matches compared to tell whether a value is captured uniquely, the rest are assumed equal
+  private static final int MAX_CHECKED_MATCHES = 16;
+  // Relative cost of each character processed by each kind of extractor
+  private static final long BOUNDARY_CHARACTER_COST = 1;
+  private static final long REGEX_CHARACTER_COST = 3;
+  private static final long JSON_CHARACTER_COST = 4;
+  private final int iterations;
+  // Keeps the JIT from discarding the evaluations that are being timed
+  private volatile int blackhole;
+
+  public ExtractorSelector(int iterations) {
+    this.iterations = Math.max(iterations, 1);
+  }
+
+  /**
+   * Selects the cheapest valid extractor.
+   *
+   * @param candidates    the extractors to compare.
+   * @param input         the text of the recorded field where the value appears.
+   * @param expectedValue the value that has to be extracted from the input.
+   * @param replayInput   the text of the same field in the replay, or null if it's not available.
+   * @param replayValue   the value that has to be extracted from the replay input, or null if
+   *                      it's not known.
+   * @return the selected extractor with its cost, or null if no candidate obtains the value.
+   */
+  public Selection select(List<CorrelationExtractor<?>> candidates, String input,
+                          String expectedValue, String replayInput, String replayValue) {
+    CorrelationExtractor<?> selected = null;
+    long selectedCost = Long.MAX_VALUE;
+    for (CorrelationExtractor<?> candidate : candidates) {
+      if (!expectedValue.equals(findUniqueMatch(candidate, input))
+          || (replayInput != null && replayValue != null
+          && !replayValue.equals(findUniqueMatch(candidate, replayInput)))) {
+        continue;
+      }
+      long cost = estimateCost(candidate, input, expectedValue);
+      if (cost < selectedCost) {
+        selected = candidate;
+        selectedCost = cost;
+      }
+    }
+    if (selected == null) {
+      return null;
+    }
+    long costNanos = measureCost(selected, input);
+    LOG.debug("Selected {} for '{}' with a measured cost of {} ns per sample",
+        selected.getDisplayName(), expectedValue, costNanos);
+    return new Selection(selected, costNanos);
+  }
+
+  /**
+   * Returns the value that an extractor captures from an input, only when every match of the
+   * extractor holds the same value. Only the first matches are compared, so a value repeated many
+   * times in the input is still captured.
+   *
+   * @param extractor the extractor to evaluate.
+   * @param input     the text where the extractor is evaluated.
+   * @return the captured value, or null if the extractor finds nothing, finds different values or
+   *     fails.
+   */
+  public static String findUniqueMatch(CorrelationExtractor<?> extractor, String input) {
+    try {
+      String match = extractor.findMatch(input, 1);
+      if (match == null) {
+        return null;
+      }
+      for (int matchNr = 2; matchNr <= MAX_CHECKED_MATCHES; matchNr++) {
+        String other = extractor.findMatch(input, matchNr);
+        if (other == null) {
+          return match;
+        }
+        if (!other.equals(match)) {
+          return null;
+        }
+      }
+      // A value repeated beyond the checked matches, like a token in every form of a page
+      return match;
+    } catch (RuntimeException e) {
+      LOG.debug("Discarding extractor {} that failed while evaluating it", extractor, e);
+      return null;
+    }
+  }
+
+  @VisibleForTesting
+  static long estimateCost(CorrelationExtractor<?> extractor, String input,
+                           String expectedValue) {
+    if (extractor instanceof JsonCorrelationExtractor) {
+      return input.length() * JSON_CHARACTER_COST;
+    }
+    long scanned = input.indexOf(expectedValue) + expectedValue.length();
+    return extractor instanceof BoundaryCorrelationExtractor
+        ? scanned * BOUNDARY_CHARACTER_COST : scanned * REGEX_CHARACTER_COST;
+  }
+
+  /**
+   * Measures the average time, in nanoseconds, that the extractor takes to evaluate the input.
+   *
+   * @param extractor the extractor to measure.
+   * @param input     the text where the extractor is evaluated.
+   * @return the average nanoseconds of each evaluation.
+   */
+  @VisibleForTesting
+  long measureCost(CorrelationExtractor<?> extractor, String input) {
+    int hash = hashOf(extractor.findMatch(input, 1));
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      hash += hashOf(extractor.findMatch(input, 1));
+    }
+    long elapsed = System.nanoTime() - start;
+    blackhole = hash;
+    return elapsed / iterations;
+  }
+
+  private static int hashOf(String match) {
+    return match == null ? 0 : match.hashCode();
+  }
+
+  public static class Selection {
+    private final CorrelationExtractor<?> extractor;
+    private final long costNanos;
+
+    public Selection(CorrelationExtractor<?> extractor, long costNanos) {
+      this.extractor = extractor;
+      this.costNanos = costNanos;
+    }
+
+    public CorrelationExtractor<?> getExtractor() {
+      return extractor;
+    }
+
+    public long getCostNanos() {
+      return costNanos;
+    }
+  }
+}
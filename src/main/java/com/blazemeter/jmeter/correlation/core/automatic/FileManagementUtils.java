@@ -26,9 +26,12 @@ public class FileManagementUtils {
       = "correlation.record.filename.format";
   private static final String HISTORY_FILENAME_PROPERTY_NAME
       = "correlation.history.filename.format";
+  private static final String VALUE_FLOW_FILENAME_PROPERTY_NAME
+      = "correlation.value_flow.filename.format";
   private static final String RECORDING_FOLDER = "Recording";
   private static final String REPLAY_FOLDER = "Replay";
   private static final String HISTORY_FOLDER = "History";
+  private static final String CACHE_FOLDER = "cache";
 
   private transient ObjectMapper mapper;
   private transient ObjectWriter writer;
@@ -86,6 +89,10 @@ public class FileManagementUtils {
     makeFolderAtBin(HISTORY_FOLDER);
   }
 
+  public static File getCacheFolder() {
+    return getPathInBin(HISTORY_FOLDER).resolve(CACHE_FOLDER).toFile();
+  }
+
   public String saveCorrelationHistoryFile(CorrelationHistory history, String filepath) {
     return saveObjectToFile(history, filepath.isEmpty()
         ? getHistoryFilenamePropertyName() : filepath);
@@ -96,6 +103,11 @@ public class FileManagementUtils {
         getPathInBin(HISTORY_FOLDER) + File.separator + "history-%s.json"));
   }
 
+  public static String getValueFlowGraphFileName() {
+    return applyFormat(JMeterUtils.getPropDefault(VALUE_FLOW_FILENAME_PROPERTY_NAME,
+        getPathInBin(HISTORY_FOLDER) + File.separator + "value-flow-%s.json"));
+  }
+
   public String saveObjectToFile(Object object, String filepath) {
     File file = new File(filepath);
     try {
@@ -0,0 +1,255 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ignored domains, headers, files and parameters of a {@link Configuration}, compiled once so
+ * the checks done for every request and parameter don't need to go through the whole lists.
+ *
+ * <ul>
+ *   <li>Parameters and headers are matched ignoring case, with a hash lookup.</li>
+ *   <li>Domains are matched by labels: an ignored domain matches itself and all its subdomains
+ *   (e.g. "mozilla.org" matches "aus5.mozilla.org"), using a trie of the reversed labels.</li>
+ *   <li>Files are matched by the extension of the last segment of the path, or by the subtype of
+ *   the content type (e.g. "png" matches "/img/logo.png" and "image/png").</li>
+ * </ul>
+ *
+ * <p>Entries can opt in to pattern matching: entries starting with {@value #REGEX_PREFIX} are
+ * regular expressions, and entries with {@value #WILDCARD} are wildcards matching any sequence of
+ * characters. Both have to match the whole name, domain or extension, ignoring case.
+ */
+public class FilterPolicy {
+  public static final String REGEX_PREFIX = "regex:";
+  public static final String WILDCARD = "*";
+  private static final Logger LOG = LoggerFactory.getLogger(FilterPolicy.class);
+  private static final Map<String, String> CONTENT_SUBTYPE_EXTENSIONS = buildSubtypeExtensions();
+
+  private final NameMatcher parameters;
+  private final NameMatcher headers;
+  private final NameMatcher files;
+  private final DomainMatcher domains;
+
+  public FilterPolicy(Collection<String> ignoredDomains, Collection<String> ignoredHeaders,
+                      Collection<String> ignoredFiles, Collection<String> ignoredParameters) {
+    this.domains = new DomainMatcher(ignoredDomains);
+    this.headers = new NameMatcher(ignoredHeaders);
+    this.files = new NameMatcher(ignoredFiles);
+    this.parameters = new NameMatcher(ignoredParameters);
+  }
+
+  private static Map<String, String> buildSubtypeExtensions() {
+    Map<String, String> extensions = new HashMap<>();
+    extensions.put("javascript", "js");
+    extensions.put("ecmascript", "js");
+    extensions.put("svg+xml", "svg");
+    extensions.put("vnd.microsoft.icon", "ico");
+    extensions.put("icon", "ico");
+    extensions.put("font-woff", "woff");
+    extensions.put("font-woff2", "woff2");
+    extensions.put("7z-compressed", "7z");
+    extensions.put("vnd.rar", "rar");
+    extensions.put("msdownload", "exe");
+    return Collections.unmodifiableMap(extensions);
+  }
+
+  private static String normalize(String value) {
+    return value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  public boolean isIgnoredParameter(String name) {
+    return name != null && parameters.matches(normalize(name));
+  }
+
+  public boolean isIgnoredHeader(String name) {
+    return name != null && headers.matches(normalize(name));
+  }
+
+  /**
+   * Returns whether the host is one of the ignored domains, or a subdomain of them.
+   *
+   * @param host the host to check.
+   * @return true if the host should be ignored.
+   */
+  public boolean isIgnoredDomain(String host) {
+    return host != null && domains.matches(normalize(host));
+  }
+
+  /**
+   * Returns whether the extension of the last segment of the path is one of the ignored files.
+   *
+   * @param path the path of the request, which might include the query string.
+   * @return true if the path points to an ignored file.
+   */
+  public boolean isIgnoredFile(String path) {
+    if (path == null) {
+      return false;
+    }
+    int end = path.length();
+    int queryIndex = path.indexOf('?');
+    if (queryIndex != -1) {
+      end = queryIndex;
+    }
+    int fragmentIndex = path.indexOf('#');
+    if (fragmentIndex != -1 && fragmentIndex < end) {
+      end = fragmentIndex;
+    }
+    int segmentStart = path.lastIndexOf('/', end - 1) + 1;
+    int extensionStart = path.lastIndexOf('.', end - 1);
+    if (extensionStart < segmentStart || extensionStart == end - 1) {
+      return false;
+    }
+    return files.matches(normalize(path.substring(extensionStart + 1, end)));
+  }
+
+  /**
+   * Returns whether the content type corresponds to one of the ignored files. The subtype (e.g.
+   * "png" in "image/png") is matched against the ignored files, along with the usual extension of
+   * the subtype (e.g. "js" for "application/javascript").
+   *
+   * @param contentType the content type of the response.
+   * @return true if the content type corresponds to an ignored file.
+   */
+  public boolean isIgnoredContentType(String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    String mimeType = contentType;
+    int parametersIndex = mimeType.indexOf(';');
+    if (parametersIndex != -1) {
+      mimeType = mimeType.substring(0, parametersIndex);
+    }
+    String subtype = normalize(mimeType.substring(mimeType.indexOf('/') + 1));
+    if (subtype.isEmpty()) {
+      return false;
+    }
+    String unprefixed = subtype.startsWith("x-") ? subtype.substring(2) : subtype;
+    return files.matches(subtype) || files.matches(unprefixed)
+        || files.matches(CONTENT_SUBTYPE_EXTENSIONS.getOrDefault(unprefixed, unprefixed));
+  }
+
+  private static Pattern compilePattern(String entry) {
+    try {
+      if (entry.startsWith(REGEX_PREFIX)) {
+        return Pattern.compile(entry.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE);
+      }
+      if (entry.contains(WILDCARD)) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : entry.split(Pattern.quote(WILDCARD), -1)) {
+          if (regex.length() > 0) {
+            regex.append(".*");
+          }
+          regex.append(Pattern.quote(part));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+      }
+    } catch (PatternSyntaxException e) {
+      LOG.warn("Invalid ignored pattern '{}'. It will be matched literally.", entry, e);
+    }
+    return null;
+  }
+
+  /*
+   * Plain entries go to a hash set, opt-in patterns are only evaluated when no plain entry matched.
+   */
+  private static class NameMatcher {
+    private final Set<String> names = new HashSet<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private NameMatcher(Collection<String> entries) {
+      for (String entry : entries) {
+        String normalized = normalize(entry);
+        if (normalized.isEmpty()) {
+          continue;
+        }
+        Pattern pattern = compilePattern(entry.trim());
+        if (pattern != null) {
+          patterns.add(pattern);
+        } else {
+          names.add(normalized);
+        }
+      }
+    }
+
+    private boolean matches(String value) {
+      if (names.contains(value)) {
+        return true;
+      }
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(value).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class DomainMatcher {
+    private final DomainNode root = new DomainNode();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private DomainMatcher(Collection<String> domains) {
+      for (String domain : domains) {
+        String normalized = normalize(domain);
+        if (normalized.isEmpty()) {
+          continue;
+        }
+        Pattern pattern = compilePattern(domain.trim());
+        if (pattern != null) {
+          patterns.add(pattern);
+        } else {
+          add(normalized);
+        }
+      }
+    }
+
+    private void add(String domain) {
+      String[] labels = domain.split("\\.");
+      DomainNode node = root;
+      for (int i = labels.length - 1; i >= 0; i--) {
+        if (!labels[i].isEmpty()) {
+          node = node.children.computeIfAbsent(labels[i], label -> new DomainNode());
+        }
+      }
+      node.ignored = node != root;
+    }
+
+    private boolean matches(String host) {
+      DomainNode node = root;
+      int end = host.length();
+      while (end > 0) {
+        int start = host.lastIndexOf('.', end - 1) + 1;
+        node = node.children.get(host.substring(start, end));
+        if (node == null) {
+          break;
+        }
+        if (node.ignored) {
+          return true;
+        }
+        end = start - 1;
+      }
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(host).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class DomainNode {
+    private final Map<String, DomainNode> children = new HashMap<>();
+    private boolean ignored;
+  }
+}
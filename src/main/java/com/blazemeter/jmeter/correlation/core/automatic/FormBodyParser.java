@@ -0,0 +1,193 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+/**
+ * Parses the fields of form request bodies (multipart/form-data, as in RFC 7578, and
+ * application/x-www-form-urlencoded) in a single pass over the body, handing each field to a
+ * consumer as soon as it is found.
+ *
+ * <p>Only the names and values of the fields are copied from the body. The content of the file
+ * parts, and of the parts that are not text, is skipped without being copied or decoded.
+ */
+public class FormBodyParser {
+  private static final String CONTENT_DISPOSITION = "content-disposition:";
+  private static final String CONTENT_TYPE = "content-type:";
+
+  private FormBodyParser() {
+  }
+
+  /**
+   * Parses the text fields of a multipart body. The body may contain text before the first
+   * delimiter (like the request line of a trace), which is ignored.
+   *
+   * <p>Delimiters are only recognized at the start of a line and followed by a line break, the
+   * closing dashes or white space, so the boundary can appear inside the content of the parts.
+   *
+   * @param body     the body of the request.
+   * @param boundary the boundary of the parts, as in the Content-Type header.
+   * @param consumer the consumer of the name and value of each text field.
+   */
+  public static void parseMultipart(String body, String boundary,
+                                    BiConsumer<String, String> consumer) {
+    if (body == null || boundary == null || boundary.isEmpty()) {
+      return;
+    }
+    String delimiter = "--" + boundary;
+    int delimiterStart = findDelimiter(body, delimiter, 0);
+    while (delimiterStart != -1) {
+      int delimiterEnd = delimiterStart + delimiter.length();
+      if (body.startsWith("--", delimiterEnd)) {
+        return;
+      }
+      int headersStart = body.indexOf('\n', delimiterEnd);
+      if (headersStart == -1) {
+        return;
+      }
+      headersStart++;
+      int nextDelimiter = findDelimiter(body, delimiter, headersStart);
+      int partEnd = nextDelimiter == -1 ? body.length() : nextDelimiter;
+      // The line break before the delimiter belongs to the delimiter
+      if (partEnd > headersStart && body.charAt(partEnd - 1) == '\n') {
+        partEnd--;
+        if (partEnd > headersStart && body.charAt(partEnd - 1) == '\r') {
+          partEnd--;
+        }
+      }
+      parsePart(body, headersStart, partEnd, consumer);
+      delimiterStart = nextDelimiter;
+    }
+  }
+
+  private static int findDelimiter(String body, String delimiter, int from) {
+    int index = body.indexOf(delimiter, from);
+    while (index != -1) {
+      boolean lineStart = index == 0 || body.charAt(index - 1) == '\n';
+      int end = index + delimiter.length();
+      if (lineStart && (end == body.length() || body.charAt(end) == '-'
+          || Character.isWhitespace(body.charAt(end)))) {
+        return index;
+      }
+      index = body.indexOf(delimiter, index + 1);
+    }
+    return -1;
+  }
+
+  private static void parsePart(String body, int start, int end,
+                                BiConsumer<String, String> consumer) {
+    String name = null;
+    boolean isFile = false;
+    boolean isText = true;
+    int lineStart = start;
+    int contentStart = -1;
+    while (lineStart < end) {
+      int lineEnd = body.indexOf('\n', lineStart);
+      if (lineEnd == -1 || lineEnd > end) {
+        lineEnd = end;
+      }
+      int textEnd = lineEnd > lineStart && body.charAt(lineEnd - 1) == '\r' ? lineEnd - 1
+          : lineEnd;
+      if (textEnd == lineStart) {
+        contentStart = Math.min(lineEnd + 1, end);
+        break;
+      }
+      if (body.regionMatches(true, lineStart, CONTENT_DISPOSITION, 0,
+          CONTENT_DISPOSITION.length())) {
+        String disposition = body.substring(lineStart + CONTENT_DISPOSITION.length(), textEnd);
+        name = getParameter(disposition, "name");
+        isFile = getParameter(disposition, "filename") != null;
+      } else if (body.regionMatches(true, lineStart, CONTENT_TYPE, 0, CONTENT_TYPE.length())) {
+        isText = isTextType(body.substring(lineStart + CONTENT_TYPE.length(), textEnd));
+      }
+      lineStart = lineEnd + 1;
+    }
+    if (name == null || isFile || !isText || contentStart == -1) {
+      return;
+    }
+    consumer.accept(name, body.substring(contentStart, end));
+  }
+
+  /*
+   * Parameters are separated by ';' (outside quotes) and their values may be quoted, as in
+   * 'form-data; name="field"; filename="a;b.txt"'.
+   */
+  private static String getParameter(String header, String parameter) {
+    int length = header.length();
+    int start = 0;
+    while (start < length) {
+      int end = start;
+      boolean quoted = false;
+      while (end < length && (quoted || header.charAt(end) != ';')) {
+        if (header.charAt(end) == '"') {
+          quoted = !quoted;
+        }
+        end++;
+      }
+      String token = header.substring(start, end).trim();
+      int equals = token.indexOf('=');
+      if (equals > 0 && token.substring(0, equals).trim().equalsIgnoreCase(parameter)) {
+        String value = token.substring(equals + 1).trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+          value = value.substring(1, value.length() - 1);
+        }
+        return value;
+      }
+      start = end + 1;
+    }
+    return null;
+  }
+
+  private static boolean isTextType(String contentType) {
+    String type = contentType.trim().toLowerCase(Locale.ROOT);
+    return type.isEmpty() || type.startsWith("text/") || type.contains("json")
+        || type.contains("xml") || type.contains("x-www-form-urlencoded");
+  }
+
+  /**
+   * Parses the fields of a url-encoded body, decoding their names and values.
+   *
+   * @param body     the body of the request.
+   * @param charset  the charset used to decode the fields.
+   * @param consumer the consumer of the name and value of each field.
+   */
+  public static void parseUrlEncoded(String body, Charset charset,
+                                     BiConsumer<String, String> consumer) {
+    if (body == null) {
+      return;
+    }
+    int length = body.length();
+    int start = 0;
+    while (start < length) {
+      int end = body.indexOf('&', start);
+      if (end == -1) {
+        end = length;
+      }
+      if (end > start) {
+        int equals = body.indexOf('=', start);
+        if (equals == -1 || equals > end) {
+          consumer.accept(decode(body.substring(start, end), charset), "");
+        } else {
+          consumer.accept(decode(body.substring(start, equals), charset),
+              decode(body.substring(equals + 1, end), charset));
+        }
+      }
+      start = end + 1;
+    }
+  }
+
+  // Malformed escapes are kept as they are, since the values are only looked up in responses
+  private static String decode(String value, Charset charset) {
+    if (value.indexOf('%') == -1 && value.indexOf('+') == -1) {
+      return value;
+    }
+    try {
+      return URLDecoder.decode(value, charset.name());
+    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      return value;
+    }
+  }
+}
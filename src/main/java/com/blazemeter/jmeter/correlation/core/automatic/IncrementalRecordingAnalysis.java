@@ -0,0 +1,195 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Analyzes the recording while it happens, so the comparison with the replay doesn't need to load
+ * the recording trace and extract its appearances again once the recording stops.
+ *
+ * <p>Each recorded result is analyzed, in order, by a single low priority thread, which adds its
+ * appearances to the map of the recording. The amount of results waiting to be analyzed is
+ * bounded: if the recording goes faster than the analysis and the limit is reached, the
+ * incremental analysis is abandoned and the recording is analyzed from its trace, as usual.
+ *
+ * <p>The analysis is handed over to the first comparison that takes it (see
+ * {@link #getSnapshot(String, Configuration)}), and then released, so the recorded results are
+ * not kept in memory once they are not needed anymore.
+ */
+public class IncrementalRecordingAnalysis {
+  private static final Logger LOG = LoggerFactory.getLogger(IncrementalRecordingAnalysis.class);
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+  private static IncrementalRecordingAnalysis instance;
+
+  private final String configurationDescription;
+  private final ResultsExtraction extraction;
+  private final JMeterElementUtils utils;
+  private final ThreadPoolExecutor executor;
+  // Only accessed by the analysis thread until it is terminated
+  private final List<SampleResult> results = new ArrayList<>();
+  private final Map<String, List<Appearances>> appearanceMap = new HashMap<>();
+  private volatile boolean abandoned;
+  private volatile String tracePath;
+
+  public IncrementalRecordingAnalysis(Configuration configuration, int queueSize) {
+    this.configurationDescription = configuration.getExtractionDescription();
+    this.extraction = new ResultsExtraction(configuration);
+    this.utils = new JMeterElementUtils(configuration);
+    this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(queueSize, 1)), runnable -> {
+      Thread thread = new Thread(runnable, "correlation-incremental-analysis");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts the analysis of a new recording, discarding the one of the previous recording.
+   *
+   * @param configuration the configuration used to analyze the recording.
+   * @return the analysis of the new recording.
+   */
+  public static synchronized IncrementalRecordingAnalysis start(Configuration configuration) {
+    discard();
+    instance = new IncrementalRecordingAnalysis(configuration, DEFAULT_QUEUE_SIZE);
+    LOG.info("Analyzing the recording incrementally");
+    return instance;
+  }
+
+  public static synchronized IncrementalRecordingAnalysis getInstance() {
+    return instance;
+  }
+
+  /**
+   * Stops and discards the analysis of the last recording, if any.
+   */
+  public static synchronized void discard() {
+    if (instance != null) {
+      instance.abandoned = true;
+      instance.executor.shutdownNow();
+      instance = null;
+    }
+  }
+
+  private static synchronized void release(IncrementalRecordingAnalysis analysis) {
+    if (instance == analysis) {
+      instance = null;
+    }
+  }
+
+  /**
+   * Queues a recorded result to be analyzed. The results have to be offered in the order in which
+   * they are saved in the recording trace.
+   *
+   * @param result the recorded result.
+   */
+  public void offer(SampleResult result) {
+    if (abandoned || tracePath != null) {
+      return;
+    }
+    try {
+      executor.execute(() -> analyze(result));
+    } catch (RejectedExecutionException e) {
+      abandon("the recording is faster than its analysis");
+    }
+  }
+
+  private void analyze(SampleResult result) {
+    // Same results that are saved to the trace and read back from it
+    if (abandoned || ResultFileParser.containsHexNullText(result)) {
+      return;
+    }
+    try {
+      ResultFileParser.acceptResult(result, true, utils, accepted -> {
+        results.add(accepted);
+        extraction.addAppearances(appearanceMap, accepted);
+      });
+    } catch (RuntimeException e) {
+      abandon("the result '" + result.getSampleLabel() + "' couldn't be analyzed");
+      LOG.debug("Error analyzing the result '{}'", result.getSampleLabel(), e);
+    }
+  }
+
+  private void abandon(String reason) {
+    if (!abandoned) {
+      abandoned = true;
+      LOG.warn("Incremental analysis of the recording abandoned since {}. The recording will be "
+          + "analyzed from its trace.", reason);
+    }
+  }
+
+  /**
+   * Marks the end of the recording. No more results are analyzed after it, and the ones waiting
+   * are analyzed in the background.
+   *
+   * @param tracePath the path of the trace where the recording was saved.
+   */
+  public void complete(String tracePath) {
+    this.tracePath = tracePath;
+    executor.shutdown();
+  }
+
+  /**
+   * Waits for the pending results to be analyzed and returns the analysis of the recording. The
+   * analysis is released afterwards, so later comparisons analyze the recording from its trace.
+   *
+   * @param tracePath     the trace of the recording that is going to be compared.
+   * @param configuration the configuration used for the comparison.
+   * @return the results and appearances of the recording, or null if the analysis was abandoned
+   *     or already taken, or it belongs to another trace or was made with other extraction
+   *     settings (see {@link Configuration#getExtractionDescription()}).
+   */
+  public synchronized RecordingSnapshot getSnapshot(String tracePath,
+                                                    Configuration configuration) {
+    if (abandoned || !tracePath.equals(this.tracePath)
+        || !configurationDescription.equals(configuration.getExtractionDescription())) {
+      return null;
+    }
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    if (abandoned) {
+      return null;
+    }
+    RecordingSnapshot snapshot = new RecordingSnapshot(
+        Collections.unmodifiableList(new ArrayList<>(results)), new HashMap<>(appearanceMap));
+    abandoned = true;
+    results.clear();
+    appearanceMap.clear();
+    release(this);
+    return snapshot;
+  }
+
+  public static class RecordingSnapshot {
+    private final List<SampleResult> results;
+    private final Map<String, List<Appearances>> appearanceMap;
+
+    public RecordingSnapshot(List<SampleResult> results,
+                             Map<String, List<Appearances>> appearanceMap) {
+      this.results = results;
+      this.appearanceMap = appearanceMap;
+    }
+
+    public List<SampleResult> getResults() {
+      return results;
+    }
+
+    public Map<String, List<Appearances>> getAppearanceMap() {
+      return appearanceMap;
+    }
+  }
+}
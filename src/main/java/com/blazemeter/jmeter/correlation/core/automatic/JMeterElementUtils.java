@@ -1,6 +1,9 @@
 package com.blazemeter.jmeter.correlation.core.automatic;
 
 import com.blazemeter.jmeter.correlation.CorrelationProxyControl;
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import com.blazemeter.jmeter.correlation.core.automatic.JsonParameterExtractor.ValueType;
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayCheckpoints.PreparedReplay;
 import com.helger.commons.annotation.VisibleForTesting;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -15,8 +18,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +35,6 @@ import javax.swing.JProgressBar;
 import javax.swing.SwingConstants;
 import javax.swing.border.EmptyBorder;
 import javax.swing.tree.TreeNode;
-import net.minidev.json.parser.JSONParser;
-import net.minidev.json.parser.ParseException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.JMeter;
@@ -41,11 +42,12 @@ import org.apache.jmeter.config.Argument;
 import org.apache.jmeter.engine.StandardJMeterEngine;
 import org.apache.jmeter.engine.TreeCloner;
 import org.apache.jmeter.exceptions.IllegalUserActionException;
+import org.apache.jmeter.extractor.BoundaryExtractor;
 import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
 import org.apache.jmeter.gui.GuiPackage;
 import org.apache.jmeter.gui.tree.JMeterTreeModel;
 import org.apache.jmeter.gui.tree.JMeterTreeNode;
-import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
 import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
@@ -60,9 +62,6 @@ import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.ListedHashTree;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -199,192 +198,72 @@ public class JMeterElementUtils {
   }
 
   private boolean isIgnoredParameter(String key) {
-    return configuration.getIgnoredParameters().contains(key.toLowerCase().trim());
+    return configuration.getFilterPolicy().isIgnoredParameter(key);
   }
 
   private boolean isIgnoredHeader(String key) {
-    return configuration.getIgnoredHeaders().stream().anyMatch(key::equalsIgnoreCase);
+    return configuration.getFilterPolicy().isIgnoredHeader(key);
   }
 
   static boolean isJson(String value) {
-    try {
-      new JSONObject(value);
-    } catch (JSONException ex) {
-      try {
-        new JSONArray(value);
-      } catch (JSONException exception) {
-        return false;
-      }
-    }
-    return true;
+    return JsonParameterExtractor.isValidJson(value);
   }
 
   public static boolean isJsonObject(String value) {
-    try {
-      new JSONObject(value);
-    } catch (JSONException ex) {
-      return false;
-    }
-    return true;
+    return value.trim().startsWith("{") && JsonParameterExtractor.isValidJson(value);
   }
 
   public static boolean isJsonArray(String value) {
-    try {
-      new JSONArray(value);
-    } catch (JSONException ex) {
-      return false;
-    }
-    return true;
+    return value.trim().startsWith("[") && JsonParameterExtractor.isValidJson(value);
   }
 
-  public static List<Pair<String, Object>> extractDataParametersFromJson(String body) {
-    List<Pair<String, Object>> parameters = new ArrayList<>();
-    boolean logDebug = false;
-    try {
-      Object o = new JSONParser(JSONParser.DEFAULT_PERMISSIVE_MODE).parse(body);
-      if (o instanceof net.minidev.json.JSONObject) {
-        net.minidev.json.JSONObject jsonObject = (net.minidev.json.JSONObject) o;
-        Iterator<String> keys = jsonObject.keySet().iterator();
-        while (keys.hasNext()) {
-          String key = keys.next();
-          Object objValue = jsonObject.get(key);
-          if (objValue != null) {
-            Object value;
-            if (objValue instanceof String || objValue instanceof net.minidev.json.JSONObject) {
-              value = objValue.toString();
-            } else {
-              value = objValue;
-            }
-            Pair<String, Object> parameter = Pair.of(key, value);
-            parameters.add(parameter);
-          }
-        }
-      } else if (o instanceof net.minidev.json.JSONArray) {
-        net.minidev.json.JSONArray jsonArray = (net.minidev.json.JSONArray) o;
-        int lenght = jsonArray.size();
-        for (int i = 0; i < lenght; i++) {
-          Object sub = jsonArray.get(i);
-          if (sub instanceof net.minidev.json.JSONObject) {
-            net.minidev.json.JSONObject jsonObject = (net.minidev.json.JSONObject) sub;
-            Set<String> keys = jsonObject.keySet();
-            keys.forEach(key -> {
-              Object keyObj = jsonObject.get(key);
-              Object value;
-              if (keyObj instanceof String || keyObj instanceof net.minidev.json.JSONObject) {
-                value = keyObj.toString();
-              } else {
-                value = keyObj;
-              }
-              Pair<String, Object> parameter = Pair.of(key, value);
-              parameters.add(parameter);
-            });
-          } else {
-            logDebug = true;
-          }
-        }
-      }
-    } catch (JSONException | ParseException e) {
-      e.printStackTrace();
-      logDebug = true;
-    }
-    if (logDebug) {
-      LOG.debug("JSON Parsing error: {}", body);
-    }
-    return parameters;
+  /**
+   * Registers all the values of a JSON document in the parameters map, walking the document only
+   * once (nested objects, arrays and JSON documents embedded in strings included).
+   *
+   * @param json           the JSON document.
+   * @param parameterMap   the map where the values will be registered.
+   * @param sampler        the element where the JSON document was found.
+   * @param topLevelSource the source used for the values on the first level of the document.
+   *                       Nested values use "JSON" and array items "JSON Array" as source.
+   * @return false if the document was invalid or partial. The values found before the error
+   *     are registered anyway.
+   */
+  protected boolean extractParametersFromJson(String json,
+                                              Map<String, List<Appearances>> parameterMap,
+                                              TestElement sampler, String topLevelSource) {
+    return extractParametersFromJson(json, parameterMap, sampler.getName(), () -> sampler,
+        topLevelSource);
   }
 
-  //TODO: We need to improve this method to extract the parameters from a JSON
-  protected void extractParametersFromJson(JSONObject json, Map<String,
-      List<Appearances>> parameterMap, TestElement sampler, int level) {
-    Iterator<String> keys = json.keys();
-    while (keys.hasNext()) {
-      String key = keys.next();
-      Object value = json.get(key);
-      if (value instanceof Boolean
-          && configuration.shouldIgnoreBooleanValues()) {
-        continue;
+  /**
+   * Same as {@link #extractParametersFromJson(String, Map, TestElement, String)}, but the element
+   * where the JSON document was found is only obtained if some value is registered.
+   */
+  protected boolean extractParametersFromJson(String json,
+                                              Map<String, List<Appearances>> parameterMap,
+                                              String samplerName,
+                                              Supplier<? extends TestElement> sampler,
+                                              String topLevelSource) {
+    return new JsonParameterExtractor().extract(json, parameter -> {
+      String key = parameter.getKey();
+      String value = parameter.getValue();
+      if (key.isEmpty() || value.isEmpty()) {
+        return;
       }
 
-      if (value instanceof String) {
-        String valueString = (String) value;
-        if (canBeFiltered(key.toLowerCase(), valueString)) {
-          continue;
-        }
-
-        if (isJsonObject(valueString)) {
-          extractParametersFromJson(new JSONObject(valueString), parameterMap, sampler,
-              level + 1);
-          continue;
-        }
-
-        if (isJsonArray(valueString)) {
-          extractParametersFromJsonArray(new JSONArray(valueString), parameterMap, sampler,
-              level + 1, key);
-          continue;
-        }
-
-        addToMap(parameterMap, key, valueString, sampler, "JSON");
-        continue;
+      if (parameter.getType() == ValueType.BOOLEAN && configuration.shouldIgnoreBooleanValues()) {
+        return;
       }
 
-      if (value instanceof JSONObject) {
-        extractParametersFromJson(json.getJSONObject(key), parameterMap, sampler,
-            level + 1);
-      } else if (value instanceof JSONArray) {
-        extractParametersFromJsonArray(json.getJSONArray(key), parameterMap, sampler,
-            level + 1, key);
-      } else {
-        String stringValue = json.getString(key);
-        if (isJson(stringValue)) {
-          // If the value is a JSON, we need to parse it recursively
-          JSONObject jsonObject;
-          try {
-            jsonObject = new JSONObject(stringValue);
-          } catch (JSONException e) {
-            LOG.trace("Error parsing JSON: " + stringValue, e);
-            continue;
-          }
-
-          extractParametersFromJson(jsonObject, parameterMap, sampler, level + 1);
-        } else {
-          addToMap(parameterMap, key, stringValue, sampler, "JSON");
-        }
+      if (canBeFiltered(key.toLowerCase(), value)) {
+        return;
       }
-    }
-  }
-
-  private void extractParametersFromJsonArray(JSONArray array, Map<String,
-      List<Appearances>> parameterMap, TestElement sampler,
-                                              int level, String key) {
-    for (int i = 0; i < array.length(); i++) {
-      Object item = array.get(i);
-      if (item instanceof JSONObject) {
-        extractParametersFromJson((JSONObject) item, parameterMap, sampler, level + 1);
-      } else if (item instanceof JSONArray) {
-        extractParametersFromJsonArray((JSONArray) item, parameterMap, sampler,
-            level + 1, key);
-      } else if (isJson(item.toString())) {
-        extractParametersFromJson(new JSONObject(item.toString()), parameterMap, sampler,
-            level + 1);
-      } else if (item instanceof Boolean) {
-        if (configuration.shouldIgnoreBooleanValues()) {
-          continue;
-        }
-        addToMap(parameterMap, key, item.toString(), sampler, "JSON Array");
-      } else if (item instanceof String) {
-        String value = (String) item;
-        if (value.isEmpty()) {
-          continue;
-        }
 
-        if (configuration.shouldIgnoreBooleanValues()
-            && (Boolean.TRUE.toString().equalsIgnoreCase(value)
-            || Boolean.FALSE.toString().equalsIgnoreCase(value))) {
-          continue;
-        }
-        addToMap(parameterMap, key, item.toString(), sampler, "JSON Array");
-      }
-    }
+      String source = parameter.isInArray() ? "JSON Array"
+          : parameter.getDepth() == 1 ? topLevelSource : "JSON";
+      addToMap(parameterMap, key, value, samplerName, sampler, source);
+    });
   }
 
   /**
@@ -431,11 +310,21 @@ public class JMeterElementUtils {
 
   protected void addToMap(Map<String, List<Appearances>> parametersMap, String key,
                           String value, TestElement sampler, String source) {
+    addToMap(parametersMap, key, value, sampler.getName(), () -> sampler, source);
+  }
+
+  /*
+   * The element where the value was found is only obtained when the value is registered, so
+   * elements without any value worth analyzing don't need to be built (see RequestView).
+   */
+  protected void addToMap(Map<String, List<Appearances>> parametersMap, String key,
+                          String value, String samplerName,
+                          Supplier<? extends TestElement> sampler, String source) {
     // if the value length is smaller than the minimum length, we don't add it to the map
     if (value.length() < configuration.getMinLength()) {
-      System.out.println("Is ignorable parameter '" + key + "' with value '" + value +
-          "'. Reason: value length (" + value.length() + ") is smaller than the minimum length (" +
-          configuration.getMinLength() + "). Source:" + source);
+      CorrelationDiagnostics.getInstance().record(EventType.FILTERED_VALUE, key,
+          () -> "Value '" + value + "' is shorter than the minimum length ("
+              + configuration.getMinLength() + "). Source: " + source);
       return;
     }
 
@@ -443,8 +332,6 @@ public class JMeterElementUtils {
     String cleanedKey = key.trim();
     // Add if we don't have the parameter yet
     List<Appearances> appearancesList = parametersMap.get(cleanedKey);
-    Appearances appearance = new Appearances(value, cleanedKey, sampler);
-    appearance.setSource(source);
     if (appearancesList == null || appearancesList.isEmpty()) {
       appearancesList = new ArrayList<>();
     }
@@ -455,7 +342,7 @@ public class JMeterElementUtils {
         // we need to add it, so we can
         // generate multivalued extractors
         Optional<TestElement> isRepeated = appearances.getList().stream()
-            .filter(app -> app.getName().equals(sampler.getName()))
+            .filter(app -> app.getName().equals(samplerName))
             .findFirst();
 
         if (isRepeated.isPresent()) {
@@ -467,12 +354,14 @@ public class JMeterElementUtils {
 
         // If the value and the source are the same, but the sampler is different, we add it to the
         if (appearances.getSource().equals(source)) {
-          appearances.getList().add(sampler);
+          appearances.getList().add(sampler.get());
           return;
         }
       }
     }
 
+    Appearances appearance = new Appearances(value, cleanedKey, sampler.get());
+    appearance.setSource(source);
     appearancesList.add(appearance);
     parametersMap.put(cleanedKey, appearancesList);
     LOG.debug("Value detected:" + value + " key:" + key + " source:" + source);
@@ -520,7 +409,7 @@ public class JMeterElementUtils {
    * @param postProcessor the PostProcessor to add.
    * @param model         the JMeter's tree model.
    */
-  public static void addPostProcessorToNode(JMeterTreeNode destNode, PostProcessor postProcessor,
+  public static void addPostProcessorToNode(JMeterTreeNode destNode, TestElement postProcessor,
                                             JMeterTreeModel model) {
     JMeterTreeNode postProcessorNode = new JMeterTreeNode();
     postProcessorNode.setUserObject(postProcessor);
@@ -541,11 +430,15 @@ public class JMeterElementUtils {
   public static boolean isExtractorRepeated(JMeterTreeNode node, String name) {
     for (int i = 0; i < node.getChildCount(); i++) {
       JMeterTreeNode childNode = (JMeterTreeNode) node.getChildAt(i);
-      if (childNode.getTestElement() instanceof RegexExtractor) {
-        RegexExtractor extractor = (RegexExtractor) childNode.getTestElement();
-        if (extractor.getRefName().equals(name)) {
-          return true;
-        }
+      TestElement element = childNode.getTestElement();
+      if (element instanceof RegexExtractor
+          && name.equals(((RegexExtractor) element).getRefName())
+          || element instanceof BoundaryExtractor
+          && name.equals(((BoundaryExtractor) element).getRefName())
+          || element instanceof JSONPostProcessor
+          && Arrays.asList(((JSONPostProcessor) element).getRefNames().split(";"))
+          .contains(name)) {
+        return true;
       }
     }
     return false;
@@ -563,7 +456,8 @@ public class JMeterElementUtils {
         hashTree = SaveService.loadTree(file);
       }
     } catch (Exception e) {
-      System.out.println("Error loading the JMX file " + path + " " + e.getMessage());
+      CorrelationDiagnostics.getInstance().record(EventType.ERROR, path,
+          "Error loading the JMX file: " + e.getMessage());
       LOG.error("Error loading the JMX file {}", path, e);
       e.printStackTrace();
       return null;
@@ -666,26 +560,51 @@ public class JMeterElementUtils {
   public ReplayReport getReplayErrors(String originalRecordingFilepath,
                                       String originalTraceFilepath, CorrelationHistory history) {
     ReplayReport report = new ReplayReport();
-    CustomResultCollector collector = replayTestPlan(originalRecordingFilepath);
+    List<SampleResult> originalResults = null;
+    if (configuration.getReplayMaxNewDivergences() > 0 || configuration.isOfflineReplay()) {
+      originalResults = new ResultFileParser(configuration)
+          .loadFromFile(new File(originalTraceFilepath), false);
+    }
+    ReplayDivergenceMonitor divergenceMonitor = configuration.getReplayMaxNewDivergences() > 0
+        ? new ReplayDivergenceMonitor(originalResults, configuration) : null;
+    ReplayStubServer stubServer = null;
+    if (configuration.isOfflineReplay()) {
+      stubServer = ReplayStubServer.fromRecording(originalResults, configuration);
+      try {
+        stubServer.start();
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not start the server for the offline replay", e);
+      }
+    }
+    CustomResultCollector collector;
+    try {
+      collector = replayTestPlan(originalRecordingFilepath, divergenceMonitor, stubServer);
+    } finally {
+      if (stubServer != null) {
+        stubServer.close();
+      }
+    }
     report.setCollector(collector);
+    if (divergenceMonitor != null) {
+      report.setDivergences(divergenceMonitor.getDivergences());
+    }
     if (!collector.hasErrors()) {
       report.setSuccessful(true);
       history.addSuccessfulReplay(originalRecordingFilepath, collector.getFilename(), false);
       return report;
     }
 
-    List<SampleResult> originalResults = new ResultFileParser(configuration)
-        .loadFromFile(new File(originalTraceFilepath), false);
-
-    List<SampleResult> originalErrors = originalResults.stream()
-        .filter(result -> !result.isSuccessful())
-        .collect(Collectors.toList());
+    if (originalResults == null) {
+      originalResults = new ResultFileParser(configuration)
+          .loadFromFile(new File(originalTraceFilepath), false);
+    }
 
-    List<SampleResult> replayErrors = collector.getErrors();
-    List<SampleResult> newErrors = replayErrors.stream()
-        .filter(replayError -> originalErrors.stream()
-            .noneMatch(originalError -> originalError.getSampleLabel()
-                .equals(replayError.getSampleLabel())))
+    ResultsAlignment alignment = new ResultsAlignment(originalResults,
+        collector.getSignatureIds());
+    int[] alignedResults = alignment.align(collector.getRequestIds());
+    List<ReplayError> newErrors = collector.getErrors().stream()
+        .filter(replayError -> alignment.isNewFailure(alignedResults, replayError.getIndex(),
+            replayError.getLabel()))
         .collect(Collectors.toList());
 
     if (newErrors.isEmpty()) {
@@ -710,9 +629,40 @@ public class JMeterElementUtils {
    */
   @VisibleForTesting
   public CustomResultCollector replayTestPlan(String filepath) {
+    return replayTestPlan(filepath, null, null);
+  }
+
+  /**
+   * Replay the test plan from the given filepath, comparing each result with the recording
+   * while replaying, so the replay stops at the first new divergences.
+   *
+   * @param filepath          The filepath of the test plan to replay.
+   * @param divergenceMonitor The monitor that compares the results with the recording, or null
+   *                          to replay the whole test plan.
+   * @param stubServer        The started server that answers with the recorded responses, or
+   *                          null to replay against the application under test. Offline replays
+   *                          are never resumed from checkpoints.
+   * @return The result collector that was used to collect the
+   * results of the replay.
+   */
+  public CustomResultCollector replayTestPlan(String filepath,
+                                              ReplayDivergenceMonitor divergenceMonitor,
+                                              ReplayStubServer stubServer) {
     HashTree testPlan = JMeterElementUtils.getTestPlan(filepath);
     CustomResultCollector collector = buildResultCollector();
+    collector.setDivergenceMonitor(divergenceMonitor);
     HashTree preparedTestPlan = addCollector(collector, testPlan);
+    ReplayCheckpoints checkpoints = ReplayCheckpoints.getInstance();
+    /*
+     * Offline replays don't use checkpoints: the stub server has to see every request to serve
+     * the values issued before a checkpoint, and the state it issued must not be resumed online.
+     */
+    PreparedReplay replay = configuration.getReplayCheckpointInterval() > 0 && stubServer == null
+        ? checkpoints.prepare(preparedTestPlan, collector,
+        configuration.getReplayCheckpointInterval()) : null;
+    if (stubServer != null) {
+      stubServer.redirect(preparedTestPlan);
+    }
     Thread replayingTests = new Thread(() -> runTestPlan(preparedTestPlan));
     replayingTests.start();
     try {
@@ -720,6 +670,9 @@ public class JMeterElementUtils {
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
+    if (replay != null) {
+      checkpoints.complete(replay, collector);
+    }
     return collector;
   }
 
@@ -836,11 +789,11 @@ public class JMeterElementUtils {
       HTTPSamplerProxy sampler = (HTTPSamplerProxy) o;
       return sampler.getPropertyAsString("HTTPSampler.domain") == null
           || ignoredDomain(sampler.getDomain())
-          || ignoredFile(sampler.getPath());
+          || configuration.getFilterPolicy().isIgnoredFile(sampler.getPath());
     } else if (o instanceof HTTPSampleResult) {
       HTTPSampleResult result = (HTTPSampleResult) o;
       return ignoredDomain(result.getURL())
-          || ignoredFile(result.getContentType());
+          || ignoredFile(result);
     } else if (o instanceof HeaderManager) {
       // Question: Do we have to filter headers?
       // What kind of headers are we talking about?
@@ -848,7 +801,7 @@ public class JMeterElementUtils {
     } else if (o instanceof SampleResult) {
       SampleResult result = (SampleResult) o;
       return ignoredDomain(result.getURL())
-          || ignoredFile(result.getContentType());
+          || ignoredFile(result);
     }
     return false;
   }
@@ -883,35 +836,22 @@ public class JMeterElementUtils {
     }
 
     String domainString = samplerDomain.getHost();
-    for (String domain : configuration.getIgnoredDomains()) {
-      if (domainString.contains(domain)) {
-        System.out.println(" Ignoring domain '" + domainString + "'");
-        return true;
-      }
+    if (configuration.getFilterPolicy().isIgnoredDomain(domainString)) {
+      LOG.trace(" Ignoring domain '" + domainString + "'");
+      return true;
     }
     return false;
   }
 
   private boolean ignoredDomain(String samplerDomain) {
-    if (samplerDomain == null) {
-      return true;
-    }
-
-    for (String domain : configuration.getIgnoredDomains()) {
-      if (samplerDomain.contains(domain)) {
-        return true;
-      }
-    }
-    return false;
+    return samplerDomain == null
+        || configuration.getFilterPolicy().isIgnoredDomain(samplerDomain);
   }
 
-  private boolean ignoredFile(String resourcePath) {
-    for (String file : configuration.getIgnoredFiles()) {
-      if (resourcePath.contains(file)) {
-        return true;
-      }
-    }
-    return false;
+  private boolean ignoredFile(SampleResult result) {
+    FilterPolicy policy = configuration.getFilterPolicy();
+    return policy.isIgnoredContentType(result.getContentType())
+        || (result.getURL() != null && policy.isIgnoredFile(result.getURL().getPath()));
   }
 
   protected boolean shouldFilter() {
@@ -937,17 +877,12 @@ public class JMeterElementUtils {
   public static List<SampleResult> getCurrentSampleResults(String path) {
     List<SampleResult> sampleResults = new ResultFileParser(new Configuration())
         .loadFromFile(new File(path), true);
-    List<SampleResult> filteredResults = new ArrayList<>();
-    List<HTTPSamplerProxy> desiredSamplers = JMeterElementUtils.getCurrentSamplerList();
-    for (SampleResult sampleResult : sampleResults) {
-      for (HTTPSamplerProxy samplerProxy : desiredSamplers) {
-        if (sampleResult.getSampleLabel().equals(samplerProxy.getName())) {
-          filteredResults.add(sampleResult);
-        }
-      }
-    }
-
-    return filteredResults;
+    Set<String> desiredLabels = JMeterElementUtils.getCurrentSamplerList().stream()
+        .map(HTTPSamplerProxy::getName)
+        .collect(Collectors.toSet());
+    return sampleResults.stream()
+        .filter(sampleResult -> desiredLabels.contains(sampleResult.getSampleLabel()))
+        .collect(Collectors.toList());
   }
 
   public static String getRecordingResultFileName() {
@@ -955,7 +890,7 @@ public class JMeterElementUtils {
     JMeterTreeModel model = GuiPackage.getInstance().getTreeModel();
     Object root = model.getRoot();
     if (!(root instanceof TreeNode)) {
-      System.out.println("Root is not a TreeNode");
+      LOG.warn("Root is not a TreeNode");
       return "";
     }
 
@@ -0,0 +1,269 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks a JSON document only once, using a streaming parser, and notifies every scalar value found
+ * along with its JSON path and the key that contains it.
+ *
+ * <p>String values that are JSON documents themselves (a common pattern on APIs that double encode
+ * their payloads) are walked as part of the same pass, using the path of the field that contains
+ * them as prefix.
+ *
+ * <p>Invalid or truncated documents are not considered an error: every value found before the
+ * parsing failure is notified and {@link #extract(String, ParameterConsumer)} returns false.
+ */
+public class JsonParameterExtractor {
+  private static final Logger LOG = LoggerFactory.getLogger(JsonParameterExtractor.class);
+  private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+      .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+      .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+      .build();
+  private static final Pattern SIMPLE_FIELD_NAME = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+  private static final String ROOT_PATH = "$";
+  // Avoids walking endlessly documents that embed JSON in strings over and over
+  private static final int MAX_EMBEDDED_DOCUMENTS = 5;
+
+  /**
+   * Cheap check, without parsing, of whether a value could be a JSON object or array.
+   *
+   * @param value the value to check.
+   * @return true if the first non-whitespace character opens an object or an array.
+   */
+  public static boolean looksLikeJson(String value) {
+    if (value == null) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        return c == '{' || c == '[';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the value is a valid JSON object or array, by tokenizing it without building any
+   * intermediate tree.
+   *
+   * @param value the value to check.
+   * @return true if the first root value of the document is a well-formed object or array.
+   */
+  public static boolean isValidJson(String value) {
+    if (!looksLikeJson(value)) {
+      return false;
+    }
+    try (JsonParser parser = JSON_FACTORY.createParser(value)) {
+      parser.nextToken();
+      parser.skipChildren();
+      return parser.currentToken() == JsonToken.END_OBJECT
+          || parser.currentToken() == JsonToken.END_ARRAY;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Notifies every scalar value of the JSON document to the consumer.
+   *
+   * @param json     the JSON document to walk.
+   * @param consumer the consumer that will receive each one of the values found.
+   * @return true if the whole document was walked, false if it was invalid or partial.
+   */
+  public boolean extract(String json, ParameterConsumer consumer) {
+    return extract(json, ROOT_PATH, 0, 0, consumer);
+  }
+
+  private boolean extract(String json, String rootPath, int rootDepth, int embeddedLevel,
+                          ParameterConsumer consumer) {
+    if (!looksLikeJson(json)) {
+      return false;
+    }
+
+    try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+      JsonToken token = parser.nextToken();
+      int depth = 0;
+      while (token != null) {
+        if (token.isStructStart()) {
+          depth++;
+        } else if (token.isStructEnd()) {
+          depth--;
+          if (depth == 0) {
+            return true;
+          }
+        } else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+          notifyValue(parser, token, rootPath, rootDepth + depth, embeddedLevel, consumer);
+        }
+        token = parser.nextToken();
+      }
+      return false;
+    } catch (IOException e) {
+      LOG.debug("JSON document could only be partially parsed: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private void notifyValue(JsonParser parser, JsonToken token, String rootPath, int depth,
+                           int embeddedLevel, ParameterConsumer consumer) throws IOException {
+    JsonStreamContext context = parser.getParsingContext();
+    String path = rootPath + getRelativePath(context);
+    String key = getClosestFieldName(context);
+    boolean inArray = context.inArray();
+    String value = parser.getText();
+
+    if (token == JsonToken.VALUE_STRING && embeddedLevel < MAX_EMBEDDED_DOCUMENTS
+        && looksLikeJson(value)) {
+      EmittedCounter counter = new EmittedCounter(consumer);
+      boolean complete = extract(value, path, depth, embeddedLevel + 1, counter);
+      if (complete || counter.count > 0) {
+        return;
+      }
+    }
+
+    consumer.accept(new JsonParameter(path, key, value, getValueType(token), inArray, depth));
+  }
+
+  private static String getRelativePath(JsonStreamContext context) {
+    Deque<String> segments = new ArrayDeque<>();
+    for (JsonStreamContext current = context; current != null && !current.inRoot();
+         current = current.getParent()) {
+      if (current.inArray()) {
+        segments.push("[" + current.getCurrentIndex() + "]");
+      } else {
+        segments.push(toPathSegment(current.getCurrentName()));
+      }
+    }
+    return String.join("", segments);
+  }
+
+  private static String toPathSegment(String fieldName) {
+    if (fieldName != null && SIMPLE_FIELD_NAME.matcher(fieldName).matches()) {
+      return "." + fieldName;
+    }
+    String name = fieldName == null ? "" : fieldName.replace("'", "\\'");
+    return "['" + name + "']";
+  }
+
+  private static String getClosestFieldName(JsonStreamContext context) {
+    for (JsonStreamContext current = context; current != null && !current.inRoot();
+         current = current.getParent()) {
+      if (current.inObject() && current.getCurrentName() != null) {
+        return current.getCurrentName();
+      }
+    }
+    return "";
+  }
+
+  private static ValueType getValueType(JsonToken token) {
+    switch (token) {
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return ValueType.BOOLEAN;
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return ValueType.NUMBER;
+      default:
+        return ValueType.STRING;
+    }
+  }
+
+  public enum ValueType {
+    STRING, NUMBER, BOOLEAN
+  }
+
+  /**
+   * Receives the values found while walking a JSON document.
+   */
+  @FunctionalInterface
+  public interface ParameterConsumer {
+    void accept(JsonParameter parameter);
+  }
+
+  /**
+   * A scalar value found in a JSON document, along with where it was found.
+   */
+  public static class JsonParameter {
+    private final String path;
+    private final String key;
+    private final String value;
+    private final ValueType type;
+    private final boolean inArray;
+    private final int depth;
+
+    public JsonParameter(String path, String key, String value, ValueType type, boolean inArray,
+                         int depth) {
+      this.path = path;
+      this.key = key;
+      this.value = value;
+      this.type = type;
+      this.inArray = inArray;
+      this.depth = depth;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public ValueType getType() {
+      return type;
+    }
+
+    public boolean isInArray() {
+      return inArray;
+    }
+
+    /**
+     * Returns how many objects and arrays contain the value. Values from the first level of the
+     * document have a depth of 1.
+     *
+     * @return the depth of the value in the document.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    @Override
+    public String toString() {
+      return "JsonParameter{"
+          + "path='" + path + '\''
+          + ", key='" + key + '\''
+          + ", value='" + value + '\''
+          + ", type=" + type
+          + '}';
+    }
+  }
+
+  private static class EmittedCounter implements ParameterConsumer {
+    private final ParameterConsumer delegate;
+    private int count;
+
+    EmittedCounter(ParameterConsumer delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(JsonParameter parameter) {
+      count++;
+      delegate.accept(parameter);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.blazemeter.jmeter.correlation.core.automatic.JsonParameterExtractor.JsonParameter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index of the scalar values of a JSON response, built by walking the response only once.
+ *
+ * <p>It allows to know, in constant time, the JSON paths where a value appears (and the path of
+ * the object or array that encloses it), so all the dynamic values searched on the same response
+ * can share it, instead of parsing the response again for each one of them.
+ */
+public class JsonPathIndex {
+  private static final JsonPathIndex EMPTY = new JsonPathIndex(false);
+
+  private final Map<String, List<JsonParameter>> valueToParameters = new HashMap<>();
+  private final List<JsonParameter> parameters = new ArrayList<>();
+  private boolean valid;
+
+  private JsonPathIndex(boolean valid) {
+    this.valid = valid;
+  }
+
+  /**
+   * Builds the index of a JSON document. If the document is not a JSON, an empty index is returned.
+   * Partial documents are indexed up to the point where they became invalid.
+   *
+   * @param json the JSON document to index.
+   * @return the index of the JSON document.
+   */
+  public static JsonPathIndex of(String json) {
+    if (!JsonParameterExtractor.looksLikeJson(json)) {
+      return EMPTY;
+    }
+
+    JsonPathIndex index = new JsonPathIndex(false);
+    index.valid = new JsonParameterExtractor().extract(json, index::add);
+    return index;
+  }
+
+  private void add(JsonParameter parameter) {
+    parameters.add(parameter);
+    valueToParameters.computeIfAbsent(parameter.getValue(), v -> new ArrayList<>(1))
+        .add(parameter);
+  }
+
+  /**
+   * Whether the indexed document was a well-formed JSON.
+   *
+   * @return true if the whole document could be parsed.
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * Returns all the places, in document order, where the value appears exactly.
+   *
+   * @param value the value to look for.
+   * @return the parameters holding the value, or an empty list if it is not present.
+   */
+  public List<JsonParameter> find(String value) {
+    return valueToParameters.getOrDefault(value, Collections.emptyList());
+  }
+
+  /**
+   * Returns the first place where the value appears. When useContains is set and the value is not
+   * the whole content of any field, fields containing the value are also considered.
+   *
+   * @param value       the value to look for.
+   * @param useContains whether to consider fields containing the value.
+   * @return the first parameter holding the value, if any.
+   */
+  public Optional<JsonParameter> findFirst(String value, boolean useContains) {
+    List<JsonParameter> exactMatches = find(value);
+    if (!exactMatches.isEmpty()) {
+      return Optional.of(exactMatches.get(0));
+    }
+
+    if (!useContains) {
+      return Optional.empty();
+    }
+
+    return parameters.stream()
+        .filter(parameter -> parameter.getValue().contains(value))
+        .findFirst();
+  }
+
+  /**
+   * Returns the JSON path of the first place where the value appears.
+   *
+   * @param value       the value to look for.
+   * @param useContains whether to consider fields containing the value.
+   * @return the JSON path to the value, or an empty string if it is not present.
+   */
+  public String getJsonPath(String value, boolean useContains) {
+    return findFirst(value, useContains)
+        .map(JsonParameter::getPath)
+        .orElse("");
+  }
+
+  /**
+   * Returns the JSON path of the object, or array, that encloses the first appearance of the value.
+   *
+   * @param value the value to look for.
+   * @return the JSON path of the enclosing element, or an empty string if the value is not present.
+   */
+  public String getEnclosingPath(String value) {
+    return findFirst(value, false)
+        .map(parameter -> getParentPath(parameter.getPath()))
+        .orElse("");
+  }
+
+  private static String getParentPath(String path) {
+    int lastSegment = path.endsWith("]") ? path.lastIndexOf('[') : path.lastIndexOf('.');
+    return lastSegment > 0 ? path.substring(0, lastSegment) : "$";
+  }
+
+  public int size() {
+    return parameters.size();
+  }
+}
@@ -0,0 +1,97 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+/**
+ * Bloom filter over the fixed-length n-grams of some texts, to tell, without scanning them,
+ * when a value is definitely not contained in any of them.
+ *
+ * <p>A value contained in the texts has all its n-grams in the filter, so if any of them is
+ * missing, the value is not in the texts. The opposite is not guaranteed: the value might still
+ * be missing, and has to be verified by scanning the texts. Values shorter than the n-grams
+ * can't be discarded.
+ */
+public class NgramBloomFilter {
+  public static final int NGRAM_LENGTH = 4;
+  private static final int BITS_PER_NGRAM = 8;
+  private static final int HASH_FUNCTIONS = 3;
+  private static final int MIN_BITS = 64;
+
+  private final long[] bits;
+  private final int bitCount;
+
+  private NgramBloomFilter(int expectedNgrams) {
+    long requested = Math.max((long) expectedNgrams * BITS_PER_NGRAM, MIN_BITS);
+    int words = (int) Math.min((requested + 63) / 64, Integer.MAX_VALUE / 64);
+    this.bits = new long[words];
+    this.bitCount = words * 64;
+  }
+
+  /**
+   * Builds the filter with the n-grams of the texts. N-grams spanning two texts are not added.
+   *
+   * @param texts the texts to add.
+   * @return the filter of the n-grams of the texts.
+   */
+  public static NgramBloomFilter of(String... texts) {
+    int ngrams = 0;
+    for (String text : texts) {
+      ngrams += Math.max(text.length() - NGRAM_LENGTH + 1, 0);
+    }
+    NgramBloomFilter filter = new NgramBloomFilter(ngrams);
+    for (String text : texts) {
+      for (int i = 0; i + NGRAM_LENGTH <= text.length(); i++) {
+        filter.add(hashNgram(text, i));
+      }
+    }
+    return filter;
+  }
+
+  /**
+   * Returns whether the value might be contained in the texts of the filter.
+   *
+   * @param value the value to check.
+   * @return false if the value is definitely not in the texts, true otherwise.
+   */
+  public boolean mightContain(String value) {
+    for (int i = 0; i + NGRAM_LENGTH <= value.length(); i++) {
+      if (!contains(hashNgram(value, i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void add(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < HASH_FUNCTIONS; i++) {
+      int bit = Math.floorMod(h1 + i * h2, bitCount);
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  private boolean contains(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < HASH_FUNCTIONS; i++) {
+      int bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The chars of the n-gram fit in a long, which is mixed (MurmurHash3 finalizer) to spread them
+  private static long hashNgram(String text, int start) {
+    long hash = 0;
+    for (int i = start; i < start + NGRAM_LENGTH; i++) {
+      hash = (hash << 16) | text.charAt(i);
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
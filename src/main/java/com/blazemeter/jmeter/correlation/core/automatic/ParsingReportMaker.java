@@ -35,7 +35,6 @@ public class ParsingReportMaker {
     ParsingReportMaker.source = sourceFilepath;
     File file = new File(sourceFilepath);
     LOG.info("Debug file created at: " + file.getAbsolutePath());
-    System.out.println("Debug file created at: " + file.getAbsolutePath());
 
     try {
       // If file doesn't exist, create it, else clear it
@@ -4,7 +4,6 @@ import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
@@ -16,8 +15,10 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.protocol.http.control.Header;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
@@ -26,8 +27,6 @@ import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jorphan.collections.HashTree;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,46 +93,64 @@ public class RecordingExtraction implements AppearancesExtraction {
   public void extractParametersFromArguments(HTTPSamplerBase sampler) {
     for (JMeterProperty property : sampler.getArguments()) {
       HTTPArgument argument = JMeterElementUtils.getHttpArgument(property);
-      String key = argument.getName();
-      String value = argument.getValue();
-      if (utils.canBeFiltered(key, value)) {
-        LOG.trace("Filtered: '" + key + "' '" + value + "'");
-        continue;
-      }
+      extractParametersFromArgument(argument.getName(), argument.getValue(),
+          sampler.getPostBodyRaw(), sampler.getName(), () -> sampler);
+    }
+  }
 
-      if (JMeterElementUtils.isJson(value)) {
-        try {
-          if (JMeterElementUtils.isJsonArray(value)) {
-            LOG.warn("JSON Arrays as Arguments on HTTP requests is not supported yet. "
-                + "Skipping value: '{}'='{}'", key, value);
-            continue;
-          }
+  /**
+   * Extracts the parameters of a request parsed from a result, without building its sampler
+   * unless some parameter is registered.
+   *
+   * @param request the request to extract the parameters from.
+   */
+  public void extractParametersFromRequest(RequestView request) {
+    for (Pair<String, String> argument : request.getArguments()) {
+      extractParametersFromArgument(argument.getKey(), argument.getValue(), request.isRawBody(),
+          request.getLabel(), request::getSampler);
+    }
+    // Requests parsed from results have no content encoding, so the default charset is used
+    extractParametersFromPath(request.getPath(), JMeterElementUtils.getCharset(""),
+        request.getLabel(), request::getSampler);
+  }
 
-          JSONObject jsonObject = new JSONObject(value);
-          utils.extractParametersFromJson(jsonObject, appearanceMap, sampler, 2);
-        } catch (JSONException e) {
-          LOG.trace("There was an error while extracting JSON values for {}. ", value, e);
-        }
-      } else if (utils.isParameterized(value)) {
-        LOG.warn("Parameterized value: '" + key + "'='" + value + "'");
-      } else if (sampler.getPostBodyRaw()) {
-        utils.addToMap(appearanceMap, key, value, sampler, "Body Data (JSON)");
-      } else {
-        utils.addToMap(appearanceMap, key, value, sampler, "HTTP arguments");
+  private void extractParametersFromArgument(String key, String value, boolean rawBody,
+                                             String samplerName,
+                                             Supplier<? extends TestElement> sampler) {
+    if (utils.canBeFiltered(key, value)) {
+      LOG.trace("Filtered: '" + key + "' '" + value + "'");
+      return;
+    }
+
+    if (JsonParameterExtractor.looksLikeJson(value)) {
+      String source = rawBody ? "Body Data (JSON)" : "JSON";
+      if (!utils.extractParametersFromJson(value, appearanceMap, samplerName, sampler, source)) {
+        LOG.trace("The JSON value of '{}' could only be partially extracted: {}", key, value);
       }
+    } else if (utils.isParameterized(value)) {
+      LOG.warn("Parameterized value: '" + key + "'='" + value + "'");
+    } else if (rawBody) {
+      utils.addToMap(appearanceMap, key, value, samplerName, sampler, "Body Data (JSON)");
+    } else {
+      utils.addToMap(appearanceMap, key, value, samplerName, sampler, "HTTP arguments");
     }
   }
 
   public Map<String, List<String>> splitQuery(URL url, String contentEncoding) {
-    if (StringUtils.isEmpty(url.getQuery())) {
+    return splitQuery(url.getQuery(), contentEncoding, url.toString());
+  }
+
+  private Map<String, List<String>> splitQuery(String query, String contentEncoding,
+                                               String url) {
+    if (StringUtils.isEmpty(query)) {
       return Collections.emptyMap();
     }
-    return Arrays.stream(url.getQuery().split("&"))
+    return Arrays.stream(query.split("&"))
         .map(value -> {
           try {
             return splitQueryParameter(value, contentEncoding);
           } catch (UnsupportedEncodingException e) {
-            LOG.error("Error processing value + value" + value + " from url " + url.toString(), e);
+            LOG.error("Error processing value + value" + value + " from url " + url, e);
           }
           return null;
         })
@@ -154,42 +171,38 @@ public class RecordingExtraction implements AppearancesExtraction {
   }
 
   private void extractParametersFromURLPath(HTTPSamplerBase sampler) {
-    String contentEncoding = sampler.getContentEncoding();
-    Charset charset = JMeterElementUtils.getCharset(contentEncoding);
-    try {
-      // Path in Rest format (/key/value)
-      String urlPath = sampler.getPath();
-      int intPort = sampler.getPortIfSpecified();
-      String basePath = urlPath;
-      if (urlPath.contains("?")) { // If query data exist, remove to get the base path
-        basePath = basePath.split("\\?")[0];
+    Charset charset = JMeterElementUtils.getCharset(sampler.getContentEncoding());
+    extractParametersFromPath(sampler.getPath(), charset, sampler.getName(), () -> sampler);
+  }
+
+  private void extractParametersFromPath(String urlPath, Charset charset, String samplerName,
+                                         Supplier<? extends TestElement> sampler) {
+    // Path in Rest format (/key/value)
+    String basePath = urlPath;
+    if (urlPath.contains("?")) { // If query data exist, remove to get the base path
+      basePath = basePath.split("\\?")[0];
+    }
+    String[] pathValues = basePath.split("/");
+    int pathLen = pathValues.length;
+    if (pathLen > 1) {
+      String keyPathValue = pathValues[pathLen - 2];
+      String keyValue = pathValues[pathLen - 1];
+      // Only when the key is a word and the value is a number
+      if ((!StringUtils.isNumeric(keyPathValue) && StringUtils.isNumeric(keyValue)) &&
+          (!utils.canBeFiltered(keyPathValue, keyValue))) {
+        utils.addToMap(appearanceMap, keyPathValue, keyValue, samplerName, sampler,
+            "Request Path");
       }
-      String[] pathValues = basePath.split("/");
-      int pathLen = pathValues.length;
-      if (pathLen > 1) {
-        String keyPathValue = pathValues[pathLen - 2];
-        String keyValue = pathValues[pathLen - 1];
-        // Only when the key is a word and the value is a number
-        if ((!StringUtils.isNumeric(keyPathValue) && StringUtils.isNumeric(keyValue)) &&
-            (!utils.canBeFiltered(keyPathValue, keyValue))) {
-          utils.addToMap(appearanceMap, keyPathValue, keyValue, sampler,
-              "Request Path");
+    }
+    if (urlPath.contains("?")) { // Extract query values
+      String query = urlPath.split("\\?")[1];
+      Map<String, List<String>> params = splitQuery(query, charset.toString(), urlPath);
+      params.forEach((key, values) -> {
+        String value = values.size() > 0 ? values.get(0) : "";
+        if (!utils.canBeFiltered(key, value)) {
+          utils.addToMap(appearanceMap, key, value, samplerName, sampler, "Request Query");
         }
-      }
-      if (urlPath.contains("?")) { // Extract query values
-        String baseUrl = sampler.getUrl().toString();
-        String query = urlPath.split("\\?")[1];
-        String url = baseUrl.split("\\?")[0] + "?" + query;
-        Map<String, List<String>> params = splitQuery(new URL(url), charset.toString());
-        params.forEach((key, values) -> {
-          String value = values.size() > 0 ? values.get(0) : "";
-          if (!utils.canBeFiltered(key, value)) {
-            utils.addToMap(appearanceMap, key, value, sampler, "Request Query");
-          }
-        });
-      }
-    } catch (MalformedURLException e) {
-      LOG.error("Unexpected error", e);
+      });
     }
   }
 
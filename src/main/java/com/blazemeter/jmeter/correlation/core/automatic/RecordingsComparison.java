@@ -0,0 +1,180 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestElement;
+
+/**
+ * Finds the dynamic parameters of a flow by comparing several recordings of it, without
+ * replaying it.
+ *
+ * <p>The requests of each recording are aligned with the ones of the first recording by their
+ * signature: the method, host and path of the request (with the segments that look like
+ * identifiers normalized), and the number of times the same signature was requested before. A
+ * parameter is dynamic when, in some recording, it has different values than in the aligned
+ * request of the first recording. The recordings where that happens are kept in a bitset for each
+ * parameter.
+ *
+ * <p>Each recording is analyzed once, as it is added, and only the appearances of the first
+ * recording and the differing ones of the others are kept, so the comparison takes linear time
+ * in the number of recordings.
+ */
+public class RecordingsComparison {
+  private static final Pattern IDENTIFIER_SEGMENT = Pattern.compile(
+      "\\d+|[0-9a-fA-F]{16,}|[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}");
+  private static final String NORMALIZED_SEGMENT = "{id}";
+
+  private final ResultsExtraction extraction;
+  private final JMeterElementUtils utils;
+  private final Map<String, List<Appearances>> appearanceMap = new HashMap<>();
+  private final Map<String, List<Appearances>> differingAppearanceMap = new HashMap<>();
+  // Values of each parameter (by name) in each request (by signature) of the first recording
+  private final Map<String, Map<String, String>> firstRecordingValues = new HashMap<>();
+  private final Map<String, BitSet> differingRecordings = new LinkedHashMap<>();
+  private int recordings;
+
+  public RecordingsComparison(Configuration configuration) {
+    this.extraction = new ResultsExtraction(configuration);
+    this.utils = new JMeterElementUtils(configuration);
+  }
+
+  /**
+   * Compares the results of a recording with the ones of the first recording. The first recording
+   * added is the one the others are compared with.
+   *
+   * @param results the results of the recording, in the order they were recorded.
+   */
+  public void addRecording(List<SampleResult> results) {
+    int recording = recordings++;
+    Map<String, Integer> signatureCount = new HashMap<>();
+    for (SampleResult result : results) {
+      String signature = getRequestSignature(result);
+      int count = signatureCount.merge(signature, 1, Integer::sum);
+      String alignedSignature = signature + "#" + count;
+
+      Map<String, List<Appearances>> resultMap = new HashMap<>();
+      extraction.addAppearances(resultMap, result);
+      resultMap.forEach((name, appearances) -> {
+        String values = getSortedValues(appearances);
+        if (recording == 0) {
+          firstRecordingValues.computeIfAbsent(name, n -> new HashMap<>())
+              .put(alignedSignature, values);
+          mergeAppearances(appearanceMap, name, appearances);
+          differingRecordings.putIfAbsent(name, new BitSet());
+          return;
+        }
+        Map<String, String> firstValues = firstRecordingValues.get(name);
+        String firstValue = firstValues == null ? null : firstValues.get(alignedSignature);
+        // Parameters not present in the aligned request can't be compared
+        if (firstValue != null && !firstValue.equals(values)) {
+          differingRecordings.get(name).set(recording);
+          mergeAppearances(differingAppearanceMap, name, appearances);
+        }
+      });
+    }
+  }
+
+  private static String getSortedValues(List<Appearances> appearances) {
+    return appearances.stream()
+        .map(Appearances::getValue)
+        .sorted()
+        .collect(Collectors.joining("\n"));
+  }
+
+  // Merged the same way the appearances of a single trace are (see JMeterElementUtils#addToMap)
+  private void mergeAppearances(Map<String, List<Appearances>> map, String name,
+                                List<Appearances> appearances) {
+    for (Appearances appearance : appearances) {
+      for (TestElement element : appearance.getList()) {
+        utils.addToMap(map, name, appearance.getValue(), element, appearance.getSource());
+      }
+    }
+  }
+
+  /**
+   * Returns the signature used to align the requests of the recordings.
+   *
+   * @param result the result of the request.
+   * @return the method, host and normalized path of HTTP requests, or the label of other samples.
+   */
+  public static String getRequestSignature(SampleResult result) {
+    if (!(result instanceof HTTPSampleResult) || result.getURL() == null) {
+      return result.getSampleLabel();
+    }
+    URL url = result.getURL();
+    return getRequestSignature(((HTTPSampleResult) result).getHTTPMethod(), url.getHost(),
+        url.getPath());
+  }
+
+  /**
+   * Returns the signature of an HTTP request, as {@link #getRequestSignature(SampleResult)} does.
+   *
+   * @param method the method of the request.
+   * @param host   the host the request is sent to.
+   * @param path   the path of the request, without the query string.
+   * @return the method, host and normalized path of the request.
+   */
+  public static String getRequestSignature(String method, String host, String path) {
+    StringBuilder signature = new StringBuilder()
+        .append(method).append(' ')
+        .append(host);
+    for (String segment : path.split("/")) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      signature.append('/').append(IDENTIFIER_SEGMENT.matcher(segment).matches()
+          ? NORMALIZED_SEGMENT : segment);
+    }
+    return signature.toString();
+  }
+
+  public int getRecordingsCount() {
+    return recordings;
+  }
+
+  /**
+   * Returns the appearances of the parameters in the first recording.
+   *
+   * @return the appearances of each parameter, by name.
+   */
+  public Map<String, List<Appearances>> getAppearanceMap() {
+    return appearanceMap;
+  }
+
+  /**
+   * Returns the recordings where the values of a parameter differ from the first recording.
+   *
+   * @param name the name of the parameter.
+   * @return the indexes of the recordings, in the order they were added.
+   */
+  public BitSet getDifferingRecordings(String name) {
+    BitSet differing = differingRecordings.get(name);
+    return differing == null ? new BitSet() : (BitSet) differing.clone();
+  }
+
+  /**
+   * Returns the parameters of the first recording whose values differ in other recordings.
+   *
+   * @return the dynamic parameters, with the appearances of the first recording as the original
+   *     ones and the differing appearances of the other recordings as the other ones.
+   */
+  public List<DynamicElement> getDynamicElements() {
+    List<DynamicElement> dynamicElements = new ArrayList<>();
+    differingRecordings.forEach((name, differing) -> {
+      if (!differing.isEmpty()) {
+        dynamicElements.add(new DynamicElement(name, appearanceMap.get(name),
+            differingAppearanceMap.get(name)));
+      }
+    });
+    return dynamicElements;
+  }
+}
@@ -1,6 +1,8 @@
 package com.blazemeter.jmeter.correlation.core.automatic;
 
 import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.jmeter.testelement.TestElement;
 
 public class ReplacementSuggestion {
@@ -48,6 +50,16 @@ public class ReplacementSuggestion {
     this.name = name;
   }
 
+  /**
+   * Returns the structural key of the suggestion: two suggestions with equal keys replace the same
+   * value, in the same element, with the same regex and replacement expression.
+   *
+   * @return a key with proper equals and hashCode, to detect repeated suggestions.
+   */
+  public List<Object> getKey() {
+    return Arrays.asList(name, value, source, usage, replacementSuggestion.getParams());
+  }
+
   @Override
   public String toString() {
     return "ReplacementSuggestion{" +
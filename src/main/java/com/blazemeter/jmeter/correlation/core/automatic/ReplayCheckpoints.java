@@ -0,0 +1,507 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.helger.commons.annotation.VisibleForTesting;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.processor.PreProcessor;
+import org.apache.jmeter.protocol.http.control.Cookie;
+import org.apache.jmeter.protocol.http.control.CookieManager;
+import org.apache.jmeter.protocol.http.control.RecordingController;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.MultiProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.collections.HashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the state of the thread at some samplers of the last replay, so the next replay can
+ * resume from the last of those checkpoints before the first sampler that changed, instead of
+ * replaying the whole test plan again.
+ *
+ * <p>Every sampler of the replayed test plan is identified by the hash of its subtree (the
+ * sampler and its children, like the extractors added by the suggestions), and the rest of the
+ * test plan by a single hash. When only samplers changed, the samplers before the checkpoint are
+ * removed from the replayed test plan, and the first sampler replayed restores the variables and
+ * the cookies captured at the checkpoint, and sends the results of the skipped samplers to the
+ * result collector, so the replay trace is complete.
+ *
+ * <p>Only test plans with a single thread group with a single thread are resumed, and the
+ * checkpoints are only captured after samplers that are not inside logic controllers (other than
+ * simple and recording controllers), since those may change which samplers are executed.
+ */
+public class ReplayCheckpoints {
+  private static final Logger LOG = LoggerFactory.getLogger(ReplayCheckpoints.class);
+  private static final String SAMPLER_INDEX = "ReplayCheckpoints.samplerIndex";
+  private static ReplayCheckpoints instance;
+
+  private ReplayState lastReplay;
+
+  @VisibleForTesting
+  ReplayCheckpoints() {
+  }
+
+  public static synchronized ReplayCheckpoints getInstance() {
+    if (instance == null) {
+      instance = new ReplayCheckpoints();
+    }
+    return instance;
+  }
+
+  /**
+   * Prepares a test plan to be replayed, resuming it from the last checkpoint of the previous
+   * replay before its first modified sampler, and capturing new checkpoints while it runs.
+   *
+   * @param testPlan  the cloned test plan to replay, which is modified in place.
+   * @param collector the collector of the results of the replay.
+   * @param interval  every how many samplers a checkpoint is captured.
+   * @return the replay to pass to {@link #complete(PreparedReplay, CustomResultCollector)} once
+   * it finishes.
+   */
+  public synchronized PreparedReplay prepare(HashTree testPlan, CustomResultCollector collector,
+                                             int interval) {
+    TestPlanAnalysis analysis = new TestPlanAnalysis();
+    analyze(testPlan, true, analysis);
+    PreparedReplay replay = new PreparedReplay(analysis);
+    if (!analysis.isSupported()) {
+      LOG.debug("The test plan doesn't have a single thread group with a single thread, it will "
+          + "be replayed without checkpoints");
+      return replay;
+    }
+
+    Checkpoint resumeCheckpoint = null;
+    if (lastReplay != null && lastReplay.globalSignature.equals(analysis.getGlobalSignature())) {
+      // At least one sampler is replayed, since it is the one sending the skipped results
+      int firstModified = Math.min(findFirstModifiedSampler(lastReplay.samplerSignatures,
+          analysis.samplerSignatures), analysis.samplerSignatures.size() - 1);
+      resumeCheckpoint = findCheckpoint(lastReplay.checkpoints, firstModified);
+    }
+    List<SampleResult> skippedResults = null;
+    if (resumeCheckpoint != null) {
+      skippedResults = loadResults(lastReplay.traceFilepath, resumeCheckpoint.getResultCount());
+      if (skippedResults.size() < resumeCheckpoint.getResultCount()) {
+        LOG.warn("The trace of the previous replay '{}' doesn't have the results to resume from, "
+            + "the test plan will be replayed from the start", lastReplay.traceFilepath);
+        resumeCheckpoint = null;
+      }
+    }
+
+    int prefixResults = 0;
+    if (resumeCheckpoint != null) {
+      int resumeIndex = resumeCheckpoint.getResumeIndex();
+      LOG.info("Resuming the replay from the checkpoint before the sampler {}", resumeIndex);
+      removeSamplersBefore(analysis.threadGroupTree, resumeIndex);
+      prefixResults = resumeCheckpoint.getResultCount();
+      analysis.threadGroupTree.add(new Restorer(resumeCheckpoint, skippedResults, collector));
+      for (Checkpoint checkpoint : lastReplay.checkpoints) {
+        if (checkpoint.getResumeIndex() <= resumeIndex) {
+          replay.checkpoints.add(checkpoint);
+        }
+      }
+      replay.resumeIndex = resumeIndex;
+    }
+    replay.recorder = new Recorder(interval, analysis.checkpointable, prefixResults,
+        replay.resumeIndex - 1);
+    analysis.threadGroupTree.add(replay.recorder);
+    return replay;
+  }
+
+  /**
+   * Keeps the checkpoints of a replay that finished, and the path of its trace, to resume the
+   * next replay.
+   *
+   * @param replay    the replay returned by {@link #prepare(HashTree, CustomResultCollector,
+   *                  int)}.
+   * @param collector the collector of the results of the replay.
+   */
+  public synchronized void complete(PreparedReplay replay, CustomResultCollector collector) {
+    if (replay.recorder == null || !replay.recorder.isConsistent()) {
+      lastReplay = null;
+      return;
+    }
+    List<Checkpoint> checkpoints = new ArrayList<>(replay.checkpoints);
+    checkpoints.addAll(replay.recorder.getCheckpoints());
+    lastReplay = new ReplayState(replay.analysis.getGlobalSignature(),
+        replay.analysis.samplerSignatures, checkpoints, collector.getFilename());
+  }
+
+  /*
+   * The results of the previous replay are read from its trace only when resuming, instead of
+   * being kept in memory between replays.
+   */
+  @VisibleForTesting
+  List<SampleResult> loadResults(String traceFilepath, int count) {
+    try {
+      return new ResultFileParser().loadFromFile(new File(traceFilepath), index -> index < count);
+    } catch (IllegalArgumentException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Returns the index of the first sampler that differs between two replays.
+   *
+   * @param previous the signatures of the samplers of the previous replay.
+   * @param current  the signatures of the samplers of the current replay.
+   * @return the index of the first different sampler, or the number of samplers of the current
+   * replay if it has the same samplers as the previous one.
+   */
+  @VisibleForTesting
+  static int findFirstModifiedSampler(List<String> previous, List<String> current) {
+    int common = Math.min(previous.size(), current.size());
+    for (int i = 0; i < common; i++) {
+      if (!previous.get(i).equals(current.get(i))) {
+        return i;
+      }
+    }
+    return common;
+  }
+
+  /**
+   * Returns the last checkpoint that resumes the replay at or before a sampler.
+   *
+   * @param checkpoints   the checkpoints, sorted by the sampler they resume from.
+   * @param samplerIndex  the index of the first sampler that has to be replayed.
+   * @return the checkpoint, or null if there is no checkpoint before the sampler.
+   */
+  @VisibleForTesting
+  static Checkpoint findCheckpoint(List<Checkpoint> checkpoints, int samplerIndex) {
+    Checkpoint found = null;
+    for (Checkpoint checkpoint : checkpoints) {
+      if (checkpoint.getResumeIndex() > samplerIndex) {
+        break;
+      }
+      found = checkpoint;
+    }
+    return found;
+  }
+
+  /*
+   * Describes the elements of the tree, hashing the subtree of each sampler and adding the rest
+   * to the global description, and marks each sampler with its index in the test plan.
+   */
+  private static void analyze(HashTree tree, boolean checkpointable, TestPlanAnalysis analysis) {
+    for (Object key : tree.list()) {
+      if (!(key instanceof TestElement) || key instanceof ResultCollector) {
+        continue;
+      }
+      TestElement element = (TestElement) key;
+      HashTree subtree = tree.getTree(key);
+      if (element instanceof Sampler) {
+        StringBuilder description = new StringBuilder();
+        describeTree(element, subtree, description);
+        element.setProperty(SAMPLER_INDEX, analysis.samplerSignatures.size());
+        analysis.samplerSignatures.add(SuggestionsCache.hash(description.toString()));
+        analysis.checkpointable.add(checkpointable);
+        continue;
+      }
+      describeElement(element, analysis.globalDescription);
+      analysis.globalDescription.append('{');
+      boolean childrenCheckpointable = checkpointable;
+      if (element instanceof AbstractThreadGroup) {
+        analysis.threadGroups++;
+        analysis.threadCount = ((AbstractThreadGroup) element).getNumThreads();
+        analysis.threadGroupTree = subtree;
+      } else if (element instanceof Controller) {
+        childrenCheckpointable = checkpointable && (element instanceof RecordingController
+            || element.getClass() == GenericController.class);
+      }
+      analyze(subtree, childrenCheckpointable, analysis);
+      analysis.globalDescription.append('}');
+    }
+  }
+
+  private static void describeTree(TestElement element, HashTree tree, StringBuilder builder) {
+    describeElement(element, builder);
+    builder.append('{');
+    for (Object child : tree.list()) {
+      if (child instanceof TestElement) {
+        describeTree((TestElement) child, tree.getTree(child), builder);
+      }
+    }
+    builder.append('}');
+  }
+
+  private static void describeElement(TestElement element, StringBuilder builder) {
+    builder.append(element.getClass().getName()).append('(');
+    PropertyIterator properties = element.propertyIterator();
+    while (properties.hasNext()) {
+      describeProperty(properties.next(), builder);
+    }
+    builder.append(')');
+  }
+
+  private static void describeProperty(JMeterProperty property, StringBuilder builder) {
+    builder.append(property.getName()).append('=');
+    if (property instanceof MultiProperty) {
+      builder.append('[');
+      PropertyIterator nested = ((MultiProperty) property).iterator();
+      while (nested.hasNext()) {
+        describeProperty(nested.next(), builder);
+      }
+      builder.append(']');
+    } else {
+      builder.append(property.getStringValue());
+    }
+    builder.append(';');
+  }
+
+  /*
+   * Removes the samplers before the index, and the controllers left without samplers, returning
+   * the highest index of the samplers of the tree.
+   */
+  private static int removeSamplersBefore(HashTree tree, int resumeIndex) {
+    int maxIndex = -1;
+    for (Object key : new ArrayList<>(tree.list())) {
+      if (key instanceof Sampler) {
+        int index = ((TestElement) key).getPropertyAsInt(SAMPLER_INDEX, -1);
+        if (index >= 0 && index < resumeIndex) {
+          tree.remove(key);
+        }
+        maxIndex = Math.max(maxIndex, index);
+      } else {
+        int subtreeMaxIndex = removeSamplersBefore(tree.getTree(key), resumeIndex);
+        if (key instanceof Controller && subtreeMaxIndex >= 0 && subtreeMaxIndex < resumeIndex) {
+          tree.remove(key);
+        }
+        maxIndex = Math.max(maxIndex, subtreeMaxIndex);
+      }
+    }
+    return maxIndex;
+  }
+
+  private static int getCurrentSamplerIndex(JMeterContext context) {
+    Sampler sampler = context.getCurrentSampler();
+    return sampler == null ? -1 : sampler.getPropertyAsInt(SAMPLER_INDEX, -1);
+  }
+
+  private static CookieManager getCurrentCookieManager(JMeterContext context) {
+    Sampler sampler = context.getCurrentSampler();
+    return sampler instanceof HTTPSamplerBase ? ((HTTPSamplerBase) sampler).getCookieManager()
+        : null;
+  }
+
+  /**
+   * State of the thread after a sampler, from where a replay can be resumed.
+   */
+  public static class Checkpoint {
+    private final int resumeIndex;
+    private final Map<String, Object> variables;
+    private final List<Cookie> cookies;
+    private final int resultCount;
+
+    public Checkpoint(int resumeIndex, Map<String, Object> variables, List<Cookie> cookies,
+                      int resultCount) {
+      this.resumeIndex = resumeIndex;
+      this.variables = variables;
+      this.cookies = cookies;
+      this.resultCount = resultCount;
+    }
+
+    public int getResumeIndex() {
+      return resumeIndex;
+    }
+
+    public Map<String, Object> getVariables() {
+      return variables;
+    }
+
+    public List<Cookie> getCookies() {
+      return cookies;
+    }
+
+    public int getResultCount() {
+      return resultCount;
+    }
+  }
+
+  /**
+   * A test plan prepared to be replayed, with the checkpoints it keeps from previous replays.
+   */
+  public static class PreparedReplay {
+    private final TestPlanAnalysis analysis;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private int resumeIndex;
+    private Recorder recorder;
+
+    private PreparedReplay(TestPlanAnalysis analysis) {
+      this.analysis = analysis;
+    }
+
+    public int getResumeIndex() {
+      return resumeIndex;
+    }
+  }
+
+  private static class TestPlanAnalysis {
+    private final List<String> samplerSignatures = new ArrayList<>();
+    private final List<Boolean> checkpointable = new ArrayList<>();
+    private final StringBuilder globalDescription = new StringBuilder();
+    private int threadGroups;
+    private int threadCount;
+    private HashTree threadGroupTree;
+
+    private boolean isSupported() {
+      return threadGroups == 1 && threadCount == 1;
+    }
+
+    private String getGlobalSignature() {
+      return SuggestionsCache.hash(globalDescription.toString());
+    }
+  }
+
+  private static class ReplayState {
+    private final String globalSignature;
+    private final List<String> samplerSignatures;
+    private final List<Checkpoint> checkpoints;
+    private final String traceFilepath;
+
+    private ReplayState(String globalSignature, List<String> samplerSignatures,
+                        List<Checkpoint> checkpoints, String traceFilepath) {
+      this.globalSignature = globalSignature;
+      this.samplerSignatures = samplerSignatures;
+      this.checkpoints = checkpoints;
+      this.traceFilepath = traceFilepath;
+    }
+  }
+
+  /**
+   * Listener that captures the checkpoints while the test plan is replayed. It is not cloned for
+   * the thread, so the checkpoints are available once the replay finishes.
+   */
+  public static class Recorder extends AbstractTestElement implements SampleListener,
+      NoThreadClone {
+    private final int interval;
+    private final List<Boolean> checkpointable;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private int resultCount;
+    private int lastIndex;
+    private boolean consistent = true;
+
+    public Recorder() {
+      this(0, Collections.emptyList(), 0, -1);
+    }
+
+    private Recorder(int interval, List<Boolean> checkpointable, int resultCount, int lastIndex) {
+      this.interval = interval;
+      this.checkpointable = checkpointable;
+      this.resultCount = resultCount;
+      this.lastIndex = lastIndex;
+      setName("Replay Checkpoints Recorder");
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent event) {
+      resultCount++;
+      JMeterContext context = JMeterContextService.getContext();
+      int index = getCurrentSamplerIndex(context);
+      if (index < 0 || !consistent) {
+        return;
+      }
+      // Samplers executed more than once, or out of order, can't be skipped
+      if (index <= lastIndex) {
+        consistent = false;
+        checkpoints.clear();
+        return;
+      }
+      lastIndex = index;
+      if (interval <= 0 || (index + 1) % interval != 0 || !checkpointable.get(index)) {
+        return;
+      }
+      Map<String, Object> variables = new HashMap<>();
+      JMeterVariables vars = context.getVariables();
+      if (vars != null) {
+        vars.entrySet().forEach(entry -> variables.put(entry.getKey(), entry.getValue()));
+      }
+      List<Cookie> cookies = new ArrayList<>();
+      CookieManager cookieManager = getCurrentCookieManager(context);
+      if (cookieManager != null) {
+        for (int i = 0; i < cookieManager.getCookieCount(); i++) {
+          cookies.add((Cookie) cookieManager.get(i).clone());
+        }
+      }
+      checkpoints.add(new Checkpoint(index + 1, variables, cookies, resultCount));
+    }
+
+    @Override
+    public void sampleStarted(SampleEvent event) {
+    }
+
+    @Override
+    public void sampleStopped(SampleEvent event) {
+    }
+
+    private boolean isConsistent() {
+      return consistent;
+    }
+
+    private List<Checkpoint> getCheckpoints() {
+      return checkpoints;
+    }
+  }
+
+  /**
+   * Pre processor that, before the first sampler replayed, restores the state of the thread at
+   * the checkpoint and sends the results of the skipped samplers to the result collector.
+   */
+  public static class Restorer extends AbstractTestElement implements PreProcessor,
+      NoThreadClone {
+    private final Checkpoint checkpoint;
+    private final List<SampleResult> skippedResults;
+    private final CustomResultCollector collector;
+    private boolean restored;
+
+    public Restorer() {
+      this(null, Collections.emptyList(), null);
+    }
+
+    private Restorer(Checkpoint checkpoint, List<SampleResult> skippedResults,
+                     CustomResultCollector collector) {
+      this.checkpoint = checkpoint;
+      this.skippedResults = skippedResults;
+      this.collector = collector;
+      setName("Replay Checkpoints Restorer");
+    }
+
+    @Override
+    public void process() {
+      if (restored || checkpoint == null) {
+        return;
+      }
+      restored = true;
+      JMeterContext context = JMeterContextService.getContext();
+      JMeterVariables vars = context.getVariables();
+      checkpoint.getVariables().forEach(vars::putObject);
+      CookieManager cookieManager = getCurrentCookieManager(context);
+      if (cookieManager != null) {
+        for (Cookie cookie : checkpoint.getCookies()) {
+          cookieManager.add((Cookie) cookie.clone());
+        }
+      }
+      String threadGroupName = context.getThreadGroup() != null
+          ? context.getThreadGroup().getName() : "";
+      for (SampleResult result : skippedResults) {
+        collector.sampleRestored(new SampleEvent(result, threadGroupName));
+      }
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import com.helger.commons.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares each result of a replay, as soon as it is sampled, with the result of the same request
+ * in the recording, and stops the replay once it finds a number of new divergences.
+ *
+ * <p>A divergence is new when the recorded request was successful and the replayed one failed,
+ * got a different response code, or got a response body too different from the recorded one. The
+ * replayed results that diverge without failing are marked as failed, with an assertion
+ * describing the divergence, so the comparison with the recording focuses on them. Since every
+ * request after a broken session usually fails as well, stopping at the first divergences keeps
+ * the replay short and its errors precise.
+ *
+ * <p>Since each result is checked as soon as it is sampled, before the rest of the replay is
+ * known, it is compared with the recorded result of the same label and occurrence of that label,
+ * and not aligned by its signature as {@link ResultsAlignment#align(List)} does with the whole
+ * replay. So when the replay sends a request with a repeated label that the recording didn't (or
+ * the other way around), the following results with that label are compared with the wrong
+ * recorded ones, which may report divergences that the final comparison doesn't consider new.
+ */
+public class ReplayDivergenceMonitor {
+  private static final Logger LOG = LoggerFactory.getLogger(ReplayDivergenceMonitor.class);
+  private static final String ASSERTION_NAME = "Replay divergence";
+
+  private final ResultsAlignment recording;
+  private final Map<String, Integer> occurrences = new HashMap<>();
+  private final int maxNewDivergences;
+  private final float minBodySimilarity;
+  private final List<Divergence> divergences = new ArrayList<>();
+  private int resultCount;
+
+  public ReplayDivergenceMonitor(List<SampleResult> recordingResults,
+                                 Configuration configuration) {
+    this(recordingResults, configuration.getReplayMaxNewDivergences(),
+        configuration.getReplayMinBodySimilarity());
+  }
+
+  @VisibleForTesting
+  ReplayDivergenceMonitor(List<SampleResult> recordingResults, int maxNewDivergences,
+                          float minBodySimilarity) {
+    this.maxNewDivergences = maxNewDivergences;
+    this.minBodySimilarity = minBodySimilarity;
+    this.recording = new ResultsAlignment(recordingResults);
+  }
+
+  /**
+   * Compares a result of the replay with the recording, and asks the replay to stop if the
+   * maximum number of new divergences was reached.
+   *
+   * @param result the result of the replay, in the order it was sampled.
+   * @return true if the result diverges from the recording.
+   */
+  public synchronized boolean check(SampleResult result) {
+    int index = resultCount++;
+    String label = result.getSampleLabel();
+    int occurrence = occurrences.merge(label, 1, Integer::sum) - 1;
+    SampleResult recordedResult = recording.getResult(label, occurrence);
+
+    String reason = getDivergence(recordedResult, result);
+    if (reason != null && result.isSuccessful()) {
+      AssertionResult assertion = new AssertionResult(ASSERTION_NAME);
+      assertion.setFailure(true);
+      assertion.setFailureMessage(reason);
+      result.addAssertionResult(assertion);
+      result.setSuccessful(false);
+    }
+    if (reason == null) {
+      if (isStopped()) {
+        result.setStopTest(true);
+      }
+      return false;
+    }
+
+    divergences.add(new Divergence(index, label, reason));
+    CorrelationDiagnostics.getInstance().record(EventType.REPLAY_DIVERGENCE, label,
+        () -> "Result " + (index + 1) + ": " + reason);
+    if (isStopped()) {
+      LOG.info("Stopping the replay after {} new divergences from the recording",
+          divergences.size());
+      result.setStopTest(true);
+    }
+    return true;
+  }
+
+  /**
+   * Registers a result that a resumed replay restored from a previous replay (see
+   * {@link ReplayCheckpoints}), so the following results are compared with the right recorded
+   * ones. Restored results are not compared again, and their divergences, if any, were found by
+   * the previous replay, so they don't count as new.
+   *
+   * @param result the restored result, in the order it was sampled.
+   */
+  public synchronized void skip(SampleResult result) {
+    resultCount++;
+    occurrences.merge(result.getSampleLabel(), 1, Integer::sum);
+  }
+
+  private String getDivergence(SampleResult recorded, SampleResult replayed) {
+    if (recorded == null || !recorded.isSuccessful()) {
+      return null;
+    }
+    if (!replayed.isSuccessful()) {
+      return "Failed with response code " + replayed.getResponseCode()
+          + " while the recording got " + recorded.getResponseCode();
+    }
+    if (!recorded.getResponseCode().equals(replayed.getResponseCode())) {
+      return "Response code " + replayed.getResponseCode() + " differs from the recorded "
+          + recorded.getResponseCode();
+    }
+    if (minBodySimilarity > 0 && !SampleResult.BINARY.equals(recorded.getDataType())
+        && !SampleResult.BINARY.equals(replayed.getDataType())) {
+      double similarity = getBodySimilarity(recorded.getResponseDataAsString(),
+          replayed.getResponseDataAsString());
+      if (similarity < minBodySimilarity) {
+        return String.format("Response body is %.0f%% similar to the recorded one",
+            similarity * 100);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the similarity of two bodies, as the Jaccard index of the sets of words in them, so
+   * the dynamic values in the bodies barely change it, but a different page does.
+   *
+   * @param recorded the recorded body.
+   * @param replayed the replayed body.
+   * @return a value between 0 (no words in common) and 1 (the same words).
+   */
+  @VisibleForTesting
+  static double getBodySimilarity(String recorded, String replayed) {
+    Set<String> recordedWords = getWords(recorded);
+    Set<String> replayedWords = getWords(replayed);
+    if (recordedWords.isEmpty() && replayedWords.isEmpty()) {
+      return 1;
+    }
+    int common = 0;
+    for (String word : replayedWords) {
+      if (recordedWords.contains(word)) {
+        common++;
+      }
+    }
+    return (double) common / (recordedWords.size() + replayedWords.size() - common);
+  }
+
+  private static Set<String> getWords(String body) {
+    Set<String> words = new HashSet<>();
+    if (body == null) {
+      return words;
+    }
+    for (String word : body.split("\\W+")) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+
+  public synchronized boolean isStopped() {
+    return maxNewDivergences > 0 && divergences.size() >= maxNewDivergences;
+  }
+
+  public synchronized List<Divergence> getDivergences() {
+    return new ArrayList<>(divergences);
+  }
+
+  /**
+   * A result of the replay that diverges from the recording.
+   */
+  public static class Divergence {
+    private final int resultIndex;
+    private final String label;
+    private final String reason;
+
+    public Divergence(int resultIndex, String label, String reason) {
+      this.resultIndex = resultIndex;
+      this.label = label;
+      this.reason = reason;
+    }
+
+    public int getResultIndex() {
+      return resultIndex;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return "Divergence{"
+          + "resultIndex=" + resultIndex
+          + ", label='" + label + '\''
+          + ", reason='" + reason + '\''
+          + '}';
+    }
+  }
+}
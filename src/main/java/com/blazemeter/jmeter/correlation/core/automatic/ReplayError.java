@@ -0,0 +1,91 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Compact description of a failed result of a replay, kept instead of the result itself, so the
+ * memory used by a replay depends on its errors and not on the size of its responses.
+ *
+ * <p>The result, with its body, can be read back from the replay trace by its index, which is the
+ * position of the result in the trace.
+ */
+public class ReplayError {
+  private final int index;
+  private final String label;
+  private final String responseCode;
+  private final String responseMessage;
+  private final String bodyDigest;
+
+  public ReplayError(int index, String label, String responseCode, String responseMessage,
+                     String bodyDigest) {
+    this.index = index;
+    this.label = label;
+    this.responseCode = responseCode;
+    this.responseMessage = responseMessage;
+    this.bodyDigest = bodyDigest;
+  }
+
+  /**
+   * Describes a failed result.
+   *
+   * @param index  the position of the result in the replay trace.
+   * @param result the failed result.
+   * @return the description of the error.
+   */
+  public static ReplayError of(int index, SampleResult result) {
+    return new ReplayError(index, result.getSampleLabel(), result.getResponseCode(),
+        result.getResponseMessage(), digest(result.getResponseData()));
+  }
+
+  private static String digest(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+      StringBuilder builder = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getResponseCode() {
+    return responseCode;
+  }
+
+  public String getResponseMessage() {
+    return responseMessage;
+  }
+
+  /**
+   * Returns the SHA-256 of the response body, to tell whether two errors got the same response
+   * without keeping the responses.
+   *
+   * @return the hex encoded digest of the body.
+   */
+  public String getBodyDigest() {
+    return bodyDigest;
+  }
+
+  @Override
+  public String toString() {
+    return "ReplayError{"
+        + "index=" + index
+        + ", label='" + label + '\''
+        + ", responseCode='" + responseCode + '\''
+        + ", responseMessage='" + responseMessage + '\''
+        + '}';
+  }
+}
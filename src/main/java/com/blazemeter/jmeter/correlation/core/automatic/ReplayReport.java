@@ -1,8 +1,8 @@
 package com.blazemeter.jmeter.correlation.core.automatic;
 
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayDivergenceMonitor.Divergence;
 import java.util.ArrayList;
 import java.util.List;
-import org.apache.jmeter.samplers.SampleResult;
 
 /**
  * This class is used to store the results of a replay of a Test Plan,
@@ -12,7 +12,8 @@ import org.apache.jmeter.samplers.SampleResult;
 public class ReplayReport {
   private CustomResultCollector collector;
   private boolean successful;
-  private List<SampleResult> replayNewErrors = new ArrayList<>();
+  private List<ReplayError> replayNewErrors = new ArrayList<>();
+  private List<Divergence> divergences = new ArrayList<>();
 
   public ReplayReport() {
   }
@@ -33,20 +34,43 @@ public class ReplayReport {
     return successful;
   }
 
-  public void setReplayNewErrors(List<SampleResult> replayNewErrors) {
+  public void setReplayNewErrors(List<ReplayError> replayNewErrors) {
     this.replayNewErrors = replayNewErrors;
   }
 
+  public List<ReplayError> getReplayNewErrors() {
+    return replayNewErrors;
+  }
+
   public int getTotalNewErrors() {
     return replayNewErrors.size();
   }
 
+  public void setDivergences(List<Divergence> divergences) {
+    this.divergences = divergences;
+  }
+
+  public List<Divergence> getDivergences() {
+    return divergences;
+  }
+
+  /**
+   * Returns where the replay first diverged from the recording, when it was compared with the
+   * recording while replaying (see {@link ReplayDivergenceMonitor}).
+   *
+   * @return the first divergence, or null if there was none.
+   */
+  public Divergence getFirstDivergence() {
+    return divergences.isEmpty() ? null : divergences.get(0);
+  }
+
   @Override
   public String toString() {
     return "ReplayReport{" +
         "collector=" + collector +
         ", successful=" + successful +
         ", replayNewErrors=" + replayNewErrors +
+        ", divergences=" + divergences +
         '}';
   }
 }
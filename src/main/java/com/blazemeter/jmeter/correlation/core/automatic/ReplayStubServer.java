@@ -0,0 +1,335 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.helger.commons.annotation.VisibleForTesting;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local HTTP server that answers the requests of a replay with the responses of the recording,
+ * so the correlations can be developed and checked without the application under test.
+ *
+ * <p>The requests are matched with the recorded ones by their signature (see
+ * {@link RecordingsComparison#getRequestSignature(String, String, String)}) and, when the same
+ * signature was recorded several times, by their order. The values the recorded responses
+ * issued and later requests sent back (see {@link ValueFlowGraph}) are served replaced by new
+ * ones, with the same length and kind of characters. A request that sends the recorded value
+ * instead of the issued one, as a request that isn't correlated does, gets a
+ * {@value #MISMATCH_RESPONSE_CODE} response describing the value, so the missing correlations
+ * fail the same way on every replay.
+ *
+ * <p>The replayed samplers reach the server through their proxy settings (see
+ * {@link #redirect(HashTree)}), over plain HTTP, so the requests keep the host of the recording.
+ */
+public class ReplayStubServer implements Closeable {
+  public static final int MISMATCH_RESPONSE_CODE = 409;
+  private static final Logger LOG = LoggerFactory.getLogger(ReplayStubServer.class);
+  private static final int NO_MATCH_RESPONSE_CODE = 404;
+  // Headers that describe the recorded transfer, which don't apply to the served body
+  private static final Set<String> SKIPPED_HEADERS = new HashSet<>(Arrays.asList(
+      "content-length", "content-encoding", "transfer-encoding", "connection", "keep-alive"));
+
+  private final List<SampleResult> results;
+  private final Map<String, List<Integer>> samplesBySignature = new HashMap<>();
+  private final Map<String, Integer> servedBySignature = new HashMap<>();
+  private final Set<Integer> servedSamples = new HashSet<>();
+  // Issued value of each dynamic value, the longest values first so they are replaced first
+  private final Map<String, String> issuedValues = new LinkedHashMap<>();
+  private final Map<String, Integer> producerSamples = new HashMap<>();
+  private final Map<Integer, List<String>> consumedValues = new HashMap<>();
+  private HttpServer server;
+
+  @VisibleForTesting
+  ReplayStubServer(List<SampleResult> results, Collection<String> candidateValues) {
+    this.results = results;
+    for (int sample = 0; sample < results.size(); sample++) {
+      samplesBySignature.computeIfAbsent(
+          RecordingsComparison.getRequestSignature(results.get(sample)),
+          signature -> new ArrayList<>()).add(sample);
+    }
+    ValueFlowGraph graph = ValueFlowGraph.build(results, candidateValues);
+    List<String> values = new ArrayList<>(graph.getValues());
+    values.sort((first, second) -> second.length() - first.length());
+    for (String value : values) {
+      int producer = graph.getFirstProducer(value);
+      if (producer == -1) {
+        continue;
+      }
+      int[] consumers = graph.getConsumers(producer);
+      String issued = getIssuedValue(value);
+      if (consumers.length == 0 || issued.equals(value)) {
+        continue;
+      }
+      issuedValues.put(value, issued);
+      producerSamples.put(value, graph.getSample(producer));
+      for (int consumer : consumers) {
+        consumedValues.computeIfAbsent(graph.getSample(consumer), sample -> new ArrayList<>())
+            .add(value);
+      }
+    }
+  }
+
+  /**
+   * Builds the server for the results of a recording, following the values of the parameters
+   * found in them.
+   *
+   * @param results       the results of the recording, without filtering them.
+   * @param configuration the configuration used to find the parameters.
+   * @return the server, not started yet.
+   */
+  public static ReplayStubServer fromRecording(List<SampleResult> results,
+                                               Configuration configuration) {
+    Set<String> values = new LinkedHashSet<>();
+    new ResultsExtraction(configuration).extractAppearanceMap(results).values()
+        .forEach(appearances -> appearances.forEach(appearance -> values.add(
+            appearance.getValue())));
+    return new ReplayStubServer(results, values);
+  }
+
+  /*
+   * Each letter and digit is shifted by an amount that depends on the value and its position, so
+   * the issued value keeps the format of the recorded one, and is the same on every replay.
+   */
+  @VisibleForTesting
+  static String getIssuedValue(String value) {
+    StringBuilder issued = new StringBuilder(value.length());
+    int seed = value.hashCode();
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      int shift = 1 + Math.floorMod(seed * 31 + i * 17, 9);
+      if (c >= '0' && c <= '9') {
+        issued.append((char) ('0' + (c - '0' + shift) % 10));
+      } else if (c >= 'a' && c <= 'z') {
+        issued.append((char) ('a' + (c - 'a' + shift) % 26));
+      } else if (c >= 'A' && c <= 'Z') {
+        issued.append((char) ('A' + (c - 'A' + shift) % 26));
+      } else {
+        issued.append(c);
+      }
+    }
+    return issued.toString();
+  }
+
+  /**
+   * Starts the server in a free port of the loopback interface.
+   *
+   * @throws IOException if the server can't be started.
+   */
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+    LOG.info("Serving the {} recorded responses from port {}", results.size(), getPort());
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Sends the requests of the HTTP samplers of a test plan to the server, as their proxy, over
+   * plain HTTP.
+   *
+   * @param testPlan the cloned test plan to replay, which is modified in place.
+   */
+  public void redirect(HashTree testPlan) {
+    SearchByClass<HTTPSamplerBase> samplers = new SearchByClass<>(HTTPSamplerBase.class);
+    testPlan.traverse(samplers);
+    for (HTTPSamplerBase sampler : samplers.getSearchResults()) {
+      sampler.setProtocol("http");
+      sampler.setProperty(HTTPSamplerBase.PROXYHOST, server.getAddress().getHostString());
+      sampler.setProperty(HTTPSamplerBase.PROXYPORT, getPort());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+  }
+
+  private synchronized void handle(HttpExchange exchange) throws IOException {
+    try {
+      byte[] requestBody = readAll(exchange.getRequestBody());
+      URI uri = exchange.getRequestURI();
+      String host = uri.getHost() != null ? uri.getHost() : getHost(exchange.getRequestHeaders());
+      String path = uri.getPath() != null ? uri.getPath() : "";
+      // Paths carrying issued values have to match the recorded ones
+      for (Map.Entry<String, String> issued : issuedValues.entrySet()) {
+        path = path.replace(issued.getValue(), issued.getKey());
+      }
+      String signature = RecordingsComparison.getRequestSignature(exchange.getRequestMethod(),
+          host, path);
+      Integer sample = nextSample(signature);
+      if (sample == null) {
+        respond(exchange, NO_MATCH_RESPONSE_CODE, "No recorded request matches " + signature);
+        return;
+      }
+      String mismatch = findMismatch(sample, uri + "\n" + exchange.getRequestHeaders() + "\n"
+          + new String(requestBody, StandardCharsets.UTF_8));
+      if (mismatch != null) {
+        LOG.info("Request to {} rejected: {}", signature, mismatch);
+        respond(exchange, MISMATCH_RESPONSE_CODE, mismatch);
+        return;
+      }
+      servedSamples.add(sample);
+      serve(exchange, results.get(sample));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static String getHost(Headers headers) {
+    String host = headers.getFirst("Host");
+    if (host == null) {
+      return "";
+    }
+    int port = host.lastIndexOf(':');
+    return port > host.lastIndexOf(']') ? host.substring(0, port) : host;
+  }
+
+  /*
+   * Requests recorded several times with the same signature are answered in the recorded order,
+   * repeating the last one when the replay sends more of them.
+   */
+  private Integer nextSample(String signature) {
+    List<Integer> samples = samplesBySignature.get(signature);
+    if (samples == null) {
+      return null;
+    }
+    int served = servedBySignature.merge(signature, 1, Integer::sum) - 1;
+    return samples.get(Math.min(served, samples.size() - 1));
+  }
+
+  private String findMismatch(int sample, String request) {
+    String decodedRequest = decode(request);
+    for (String value : consumedValues.getOrDefault(sample, Collections.emptyList())) {
+      // Only the values the replay already got from the server can be expected
+      if (!servedSamples.contains(producerSamples.get(value))) {
+        continue;
+      }
+      String issued = issuedValues.get(value);
+      boolean sentIssued = request.contains(issued) || decodedRequest.contains(issued);
+      boolean sentRecorded = request.contains(value) || decodedRequest.contains(value);
+      if (sentRecorded && !sentIssued) {
+        return "The request sent the recorded value '" + value + "' instead of the value '"
+            + issued + "' issued by the sample " + (producerSamples.get(value) + 1);
+      }
+    }
+    return null;
+  }
+
+  private static String decode(String text) {
+    try {
+      return URLDecoder.decode(text, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      return text;
+    }
+  }
+
+  private void serve(HttpExchange exchange, SampleResult recorded) throws IOException {
+    Headers headers = exchange.getResponseHeaders();
+    String recordedHeaders = recorded.getResponseHeaders();
+    for (String line : recordedHeaders == null ? new String[0] : recordedHeaders.split("\r?\n")) {
+      int separator = line.indexOf(':');
+      if (separator <= 0 || line.startsWith("HTTP/")) {
+        continue;
+      }
+      String name = line.substring(0, separator).trim();
+      String lowerCaseName = name.toLowerCase(Locale.ROOT);
+      if (SKIPPED_HEADERS.contains(lowerCaseName)) {
+        continue;
+      }
+      String value = replaceValues(line.substring(separator + 1).trim());
+      if ("set-cookie".equals(lowerCaseName)) {
+        // The server is reached through plain HTTP, where secure cookies aren't sent back
+        value = value.replaceAll("(?i);\\s*secure(?=;|$)", "");
+      } else if ("location".equals(lowerCaseName) && value.startsWith("https://")) {
+        value = "http://" + value.substring("https://".length());
+      }
+      headers.add(name, value);
+    }
+    byte[] body = SampleResult.BINARY.equals(recorded.getDataType())
+        ? recorded.getResponseData()
+        : replaceValues(recorded.getResponseDataAsString())
+        .getBytes(recorded.getDataEncodingWithDefault());
+    int code = getResponseCode(recorded);
+    boolean withoutBody = body.length == 0 || code == 204 || code == 304
+        || "HEAD".equals(exchange.getRequestMethod());
+    exchange.sendResponseHeaders(code, withoutBody ? -1 : body.length);
+    if (!withoutBody) {
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+  }
+
+  private static int getResponseCode(SampleResult recorded) {
+    try {
+      return Integer.parseInt(recorded.getResponseCode());
+    } catch (NumberFormatException e) {
+      // Non HTTP response codes, like connection errors, are answered as a bad gateway
+      return recorded instanceof HTTPSampleResult ? 502 : 200;
+    }
+  }
+
+  private String replaceValues(String text) {
+    String replaced = text;
+    for (Map.Entry<String, String> issued : issuedValues.entrySet()) {
+      replaced = replaced.replace(issued.getKey(), issued.getValue());
+    }
+    return replaced;
+  }
+
+  private static void respond(HttpExchange exchange, int code, String message)
+      throws IOException {
+    byte[] body = message.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+
+  private static byte[] readAll(InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,252 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.entity.ContentType;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable view of the request of a {@link HTTPSampleResult}, with its parameters already
+ * parsed, to extract the values of the request without building a {@link HTTPSamplerProxy} for
+ * it.
+ *
+ * <p>The equivalent sampler, which is the element the extracted values are associated with, is
+ * only built the first time it is requested (see {@link #getSampler()}), so the requests without
+ * any value worth analyzing don't build it at all.
+ */
+public class RequestView {
+  private static final Logger LOG = LoggerFactory.getLogger(RequestView.class);
+
+  private final String label;
+  private final URL url;
+  private final String method;
+  private final String path;
+  private final boolean keepAlive;
+  private final boolean multipart;
+  private final boolean rawBody;
+  // Decoded name and value of the arguments, in the same order the sampler has them
+  private final List<Pair<String, String>> arguments;
+  private HTTPSamplerProxy sampler;
+
+  private RequestView(String label, URL url, String method, String path, boolean keepAlive,
+                      boolean multipart, boolean rawBody, List<Pair<String, String>> arguments) {
+    this.label = label;
+    this.url = url;
+    this.method = method;
+    this.path = path;
+    this.keepAlive = keepAlive;
+    this.multipart = multipart;
+    this.rawBody = rawBody;
+    this.arguments = arguments;
+  }
+
+  /**
+   * Parses the request of a result.
+   *
+   * @param httpResult the result of the request.
+   * @return the view of the request.
+   */
+  public static RequestView of(HTTPSampleResult httpResult) {
+    URL url = httpResult.getURL();
+    LinkedHashMap<String, String> headers = JMeterUtils.parseHeaders(
+        httpResult.getRequestHeaders());
+    String connection = headers.get("Connection");
+    boolean keepAlive = connection == null || !"close".equalsIgnoreCase(connection);
+
+    ContentType contentType = getRequestContentType(headers);
+    String type = contentType.getMimeType();
+    String path = url.getPath();
+    boolean multipart = false;
+    boolean rawBody = false;
+    List<Pair<String, String>> parameters;
+    if (type.equals(ContentType.MULTIPART_FORM_DATA.getMimeType())) {
+      parameters = getParameterListFromMultiPartBody(httpResult, contentType);
+      multipart = true;
+    } else if (type.equals(ContentType.APPLICATION_FORM_URLENCODED.getMimeType())) {
+      parameters = getParametersFromFormUrlEncodedBody(httpResult, contentType);
+    } else if (type.equals(ContentType.APPLICATION_JSON.getMimeType())) {
+      rawBody = true;
+      // The body is kept raw, as the recorder does, so its values are extracted in a single pass
+      String body = httpResult.getQueryString();
+      parameters = Collections.singletonList(Pair.of("", body != null ? body : ""));
+      // When Body is in Raw, the path need to use also the query string
+      if (!isEmpty(url.getQuery())) {
+        path = url.getPath() + "?" + url.getQuery();
+      }
+    } else {
+      parameters = getParameterListFromQuery(httpResult);
+    }
+
+    return new RequestView(httpResult.getSampleLabel(), url, httpResult.getHTTPMethod(), path,
+        keepAlive, multipart, rawBody, rawBody ? parameters
+        : decodeArguments(parameters, httpResult.getSampleLabel()));
+  }
+
+  /*
+   * Values that look encoded are decoded, as the sampler does with the encoded arguments, and
+   * the arguments that can't be decoded are discarded.
+   */
+  private static List<Pair<String, String>> decodeArguments(List<Pair<String, String>> parameters,
+                                                            String label) {
+    List<Pair<String, String>> arguments = new ArrayList<>(parameters.size());
+    for (Pair<String, String> param : parameters) {
+      String value = param.getValue();
+      if (value.equals(JMeterElementUtils.decode(value))) {
+        arguments.add(param);
+        continue;
+      }
+      try {
+        arguments.add(Pair.of(URLDecoder.decode(param.getKey(), StandardCharsets.UTF_8.name()),
+            URLDecoder.decode(value, StandardCharsets.UTF_8.name())));
+      } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+        LOG.warn("Error adding argument to the sampler,  {}", label, e);
+      }
+    }
+    return arguments;
+  }
+
+  private static List<Pair<String, String>> getParameterListFromMultiPartBody(
+      HTTPSampleResult httpResult, ContentType contentType) {
+    List<Pair<String, String>> parameters = new ArrayList<>();
+    FormBodyParser.parseMultipart(httpResult.getSamplerData(), contentType.getParameter("boundary"),
+        (name, value) -> parameters.add(Pair.of(name, value)));
+    return parameters;
+  }
+
+  private static List<Pair<String, String>> getParametersFromFormUrlEncodedBody(
+      HTTPSampleResult httpResult, ContentType contentType) {
+    String body = httpResult.getQueryString();
+    if (body == null || body.isEmpty()) {
+      body = httpResult.getURL().getQuery();
+    }
+    Charset charset = contentType.getCharset();
+    List<Pair<String, String>> parameters = new ArrayList<>();
+    FormBodyParser.parseUrlEncoded(body, charset != null ? charset : StandardCharsets.UTF_8,
+        (name, value) -> parameters.add(Pair.of(name, value)));
+    return parameters;
+  }
+
+  private static List<Pair<String, String>> getParameterListFromQuery(HTTPSampleResult httpResult) {
+    String queryString = httpResult.getQueryString();
+    URL url = httpResult.getURL();
+    String query = url.getQuery() != null ? url.getQuery() : "";
+
+    List<Pair<String, String>> parameterList = new ArrayList<>();
+    String[] parameters = new String[0];
+    if (query != null && !query.isEmpty()) {
+      parameters = query.split(JMeterElementUtils.URL_PARAM_SEPARATOR);
+    }
+
+    if (queryString != null && !queryString.isEmpty()) {
+      String[] queryStringParameters = queryString.split(JMeterElementUtils.URL_PARAM_SEPARATOR);
+      if (queryStringParameters.length > 0) {
+        // Add the queryStringParameters to the parameters
+        parameters = ArrayUtils.addAll(parameters, queryStringParameters);
+      }
+    }
+
+    for (String parameter : parameters) {
+      String[] parameterParts = parameter.split(JMeterElementUtils.URL_PARAM_VALUE_SEPARATOR, 0);
+      if (parameterParts.length == 2) {
+        parameterList.add(Pair.of(parameterParts[0], parameterParts[1]));
+      }
+    }
+    return parameterList;
+  }
+
+  private static ContentType getRequestContentType(LinkedHashMap<String, String> headers) {
+    String contentType = headers.get("Content-Type");
+    //Some servers are not case-sensitive when parsing the content-type
+    String contentTypeLowerCased = headers.get("content-type");
+    if (contentType != null) {
+      return ContentType.parse(contentType);
+    }
+
+    if (contentTypeLowerCased != null) {
+      return ContentType.parse(contentTypeLowerCased);
+    }
+
+    return ContentType.DEFAULT_TEXT;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  /**
+   * Returns the path of the request, as the sampler has it: with the query string only when the
+   * body is raw.
+   *
+   * @return the path of the request.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  public boolean isRawBody() {
+    return rawBody;
+  }
+
+  public List<Pair<String, String>> getArguments() {
+    return arguments;
+  }
+
+  /**
+   * Returns the sampler equivalent to the request, building it the first time it is requested.
+   *
+   * @return the sampler of the request.
+   */
+  public HTTPSamplerProxy getSampler() {
+    if (sampler == null) {
+      sampler = buildSampler();
+    }
+    return sampler;
+  }
+
+  private HTTPSamplerProxy buildSampler() {
+    HTTPSamplerProxy built = new HTTPSamplerProxy();
+    built.setName(label);
+    built.setDomain(url.getHost());
+    built.setPort(url.getPort());
+    built.setPath(path);
+    built.setMethod(method);
+    built.setProtocol(url.getProtocol());
+    built.setFollowRedirects(true);
+    built.setUseKeepAlive(keepAlive);
+    built.setDoMultipartPost(multipart);
+    built.setMonitor(false);
+    built.setEmbeddedUrlRE("");
+    built.setConnectTimeout("");
+    built.setResponseTimeout("");
+    for (Pair<String, String> argument : arguments) {
+      if (rawBody) {
+        built.addNonEncodedArgument(argument.getKey(), argument.getValue(), "");
+      } else {
+        built.addArgument(argument.getKey(), argument.getValue());
+      }
+    }
+    if (rawBody) {
+      built.setPostBodyRaw(true);
+    }
+    return built;
+  }
+}
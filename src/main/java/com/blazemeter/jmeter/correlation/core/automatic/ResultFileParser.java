@@ -2,8 +2,9 @@ package com.blazemeter.jmeter.correlation.core.automatic;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleEvent;
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 public class ResultFileParser {
   private static final Logger LOG = LoggerFactory.getLogger(ResultFileParser.class);
+  private static final String NULL_HEX_TEXT = "&#x0";
   private Configuration configuration = new Configuration();
 
   public ResultFileParser() {
@@ -33,27 +35,51 @@ public class ResultFileParser {
    * @return the results loaded from the file
    */
   public List<SampleResult> loadFromFile(File file, boolean shouldFilter) {
+    List<SampleResult> results = new ArrayList<>();
+    forEachResult(file, shouldFilter, results::add);
+    return results;
+  }
+
+  /**
+   * Loads the SampleResults in some positions of a jtl file, as they were saved: without filtering
+   * them and without replacing them by their sub results, so the positions are the ones the
+   * results had when they were collected.
+   *
+   * @param file     the file to load the results from
+   * @param selected whether the result in each position, starting from 0, has to be loaded
+   * @return the selected results, in the order of the file
+   */
+  public List<SampleResult> loadFromFile(File file, IntPredicate selected) {
+    List<SampleResult> results = new ArrayList<>();
+    int[] index = new int[1];
+    readFile(file, sample -> {
+      if (selected.test(index[0]++)) {
+        results.add(sample);
+      }
+    });
+    return results;
+  }
+
+  /**
+   * Reads the SampleResults of a jtl file one at a time, without keeping them in memory. If
+   * shouldFilter is true, the results will be filtered using the provided configuration.
+   *
+   * @param file         the file to read the results from
+   * @param shouldFilter whether the results should be filtered or not
+   * @param consumer     the consumer that receives each result, in the order of the file
+   */
+  public void forEachResult(File file, boolean shouldFilter, Consumer<SampleResult> consumer) {
+    JMeterElementUtils utils = new JMeterElementUtils(configuration);
+    readFile(file, sample -> acceptResult(sample, shouldFilter, utils, consumer));
+  }
+
+  private static void readFile(File file, Consumer<SampleResult> consumer) {
     try {
-      Collection<SampleResult> results = new ArrayList<>();
       ResultCollector collector = new ResultCollector();
       collector.setFilename(file.getAbsolutePath());
-      JMeterElementUtils utils = new JMeterElementUtils(configuration);
       collector.setListener(new Visualizer() {
         public void add(SampleResult sample) {
-          if (shouldFilter && utils.canBeFiltered(() -> sample)) {
-            return;
-          }
-
-          HTTPSampleResult httpSampleResult = (HTTPSampleResult) sample;
-          SampleResult[] subResults = httpSampleResult.getSubResults();
-          if (subResults.length > 0) {
-            for (SampleResult subResult : subResults) {
-              results.add(subResult);
-            }
-            return;
-          }
-
-          results.add(sample);
+          consumer.accept(sample);
         }
 
         public boolean isStats() {
@@ -61,7 +87,6 @@ public class ResultFileParser {
         }
       });
       collector.loadExistingFile();
-      return new ArrayList<>(results);
     } catch (Exception e) {
       LOG.error("Error while loading the result from the file {} ", file.getAbsolutePath(), e);
       e.printStackTrace();
@@ -69,6 +94,28 @@ public class ResultFileParser {
     }
   }
 
+  /*
+   * Filtered results are skipped, and the sub results of a result are delivered instead of it.
+   * Also used with the results being recorded, so they are analyzed as if read from their trace.
+   */
+  static void acceptResult(SampleResult sample, boolean shouldFilter, JMeterElementUtils utils,
+                           Consumer<SampleResult> consumer) {
+    if (shouldFilter && utils.canBeFiltered(() -> sample)) {
+      return;
+    }
+
+    HTTPSampleResult httpSampleResult = (HTTPSampleResult) sample;
+    SampleResult[] subResults = httpSampleResult.getSubResults();
+    if (subResults.length > 0) {
+      for (SampleResult subResult : subResults) {
+        consumer.accept(subResult);
+      }
+      return;
+    }
+
+    consumer.accept(sample);
+  }
+
   /**
    * Saves a list of SampleResults to a jtl file.
    * It is important to mention that, if the results contain invalid characters (such as
@@ -83,7 +130,11 @@ public class ResultFileParser {
     collector.setSaveConfig(new SampleSaveConfiguration(true));
     collector.testStarted();
     samples.forEach(result -> {
-      if (!containsHexNullText(result)) {
+      if (containsHexNullText(result)) {
+        LOG.warn("The SampleResult '{}' contains the character '{}' "
+                + "(Hex for NULL). It will be skipped to prevent errors upon loading. ",
+            result.getSampleLabel(), NULL_HEX_TEXT);
+      } else {
         collector.sampleOccurred(new SampleEvent(result, "Automatic Correlation"));
       }
     });
@@ -95,15 +146,7 @@ public class ResultFileParser {
 
   // JMeter has troubles loading SampleResult's responses that contains the hex value of null,
   // we skip those to avoid exceptions while loading them.
-  private static boolean containsHexNullText(SampleResult result) {
-    String text = result.getResponseDataAsString();
-    String nullHexString = "&#x0";
-    boolean hasInvalidNullText = text.contains(nullHexString);
-    if (hasInvalidNullText) {
-      LOG.warn("The SampleResult '{}' contains the character '{}' "
-              + "(Hex for NULL). It will be skipped to prevent errors upon loading. ",
-          result.getSampleLabel(), nullHexString);
-    }
-    return hasInvalidNullText;
+  static boolean containsHexNullText(SampleResult result) {
+    return result.getResponseDataAsString().contains(NULL_HEX_TEXT);
   }
 }
@@ -0,0 +1,152 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps {@link SampleResult}s, with their bodies, in a temporary file, so only their offsets stay
+ * in memory, and reads them back by their position when they are needed.
+ *
+ * <p>The results are written with Java serialization, as JMeter sends them to remote listeners,
+ * and only JMeter and JDK classes are read back. The last results read are kept in memory, so the
+ * same instance is returned while it is being used. Results can be read concurrently once all
+ * of them were stored.
+ */
+public class ResultStore extends AbstractList<SampleResult> implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(ResultStore.class);
+
+  private final File file;
+  private final RandomAccessFile data;
+  // The result in each position is stored between its offset and the offset of the next one
+  private long[] offsets = new long[17];
+  private int size;
+  private final Map<Integer, SampleResult> recentResults;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param cacheSize the amount of results read from the file that are kept in memory.
+   * @throws IOException if the temporary file could not be created.
+   */
+  public ResultStore(int cacheSize) throws IOException {
+    file = File.createTempFile("correlation-results", ".bin");
+    file.deleteOnExit();
+    data = new RandomAccessFile(file, "rw");
+    recentResults = Collections.synchronizedMap(
+        new LinkedHashMap<Integer, SampleResult>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, SampleResult> eldest) {
+            return size() > cacheSize;
+          }
+        });
+  }
+
+  /**
+   * Writes the result at the end of the store.
+   *
+   * @param result the result to store.
+   * @return the position of the result in the store.
+   * @throws IOException if the result could not be written.
+   */
+  public synchronized int store(SampleResult result) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(result);
+    }
+    data.seek(offsets[size]);
+    data.write(bytes.toByteArray());
+    if (size + 1 == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    offsets[size + 1] = offsets[size] + bytes.size();
+    return size++;
+  }
+
+  /*
+   * Results evicted from memory are deserialized outside the lock, so the threads generating
+   * suggestions don't wait for each other while reading them.
+   */
+  @Override
+  public SampleResult get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    SampleResult result = recentResults.get(index);
+    if (result != null) {
+      return result;
+    }
+    byte[] bytes;
+    synchronized (this) {
+      bytes = new byte[(int) (offsets[index + 1] - offsets[index])];
+      try {
+        data.seek(offsets[index]);
+        data.readFully(bytes);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    try (ObjectInputStream in = new StoredResultInputStream(new ByteArrayInputStream(bytes))) {
+      result = (SampleResult) in.readObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Unable to read the result " + index, e);
+    }
+    SampleResult previous = recentResults.putIfAbsent(index, result);
+    return previous != null ? previous : result;
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized void close() {
+    recentResults.clear();
+    try {
+      data.close();
+    } catch (IOException e) {
+      LOG.debug("Error closing the results store", e);
+    }
+    if (!file.delete()) {
+      LOG.debug("Could not delete temporary file {}", file);
+    }
+  }
+
+  private static class StoredResultInputStream extends ObjectInputStream {
+
+    private StoredResultInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      String name = desc.getName().replaceFirst("^\\[+L?", "");
+      if (!name.startsWith("java.") && !name.startsWith("org.apache.jmeter.")
+          && name.length() > 1) {
+        throw new InvalidClassException(desc.getName(), "Not a class of a stored result");
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.helger.commons.annotation.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Aligns the results of a replay with the results of the recording, so each replayed request is
+ * compared with the recorded request it corresponds to, even when several requests share the
+ * same label, or the replay sends requests the recording didn't (or the other way around).
+ *
+ * <p>The requests are identified by their signature (see
+ * {@link RecordingsComparison#getRequestSignature(SampleResult)}), replaced by sequential ids
+ * that both traces share (see {@link SignatureIds}), so different requests never get the same
+ * id, and the sequences of both traces are aligned by their longest common subsequence. The
+ * common prefix and suffix of the sequences are aligned directly, and the rest with Myers'
+ * difference algorithm, which takes time proportional to the length of the traces times the
+ * number of differences between them. When the traces differ too much, the remaining requests
+ * are aligned by the order of their occurrences instead. The recorded results are also indexed
+ * by label, to look up the occurrences of a label without scanning the recording.
+ */
+public class ResultsAlignment {
+  public static final int NOT_ALIGNED = -1;
+  // Bounds the memory used to find the differences, which grows with their square
+  private static final int MAX_DIFFERENCES = 1000;
+
+  private final List<SampleResult> recordingResults;
+  private final SignatureIds signatureIds;
+  private final int[] recordingIds;
+  private final Map<String, List<Integer>> positionsByLabel = new HashMap<>();
+
+  public ResultsAlignment(List<SampleResult> recordingResults) {
+    this(recordingResults, new SignatureIds());
+  }
+
+  /**
+   * Creates the alignment of the recording with the ids that the requests of a replay already got
+   * while it was collected, so it can be aligned by those ids (see {@link #align(int[])}).
+   *
+   * @param recordingResults the results of the recording, in the order they were recorded.
+   * @param signatureIds     the ids of the signatures of the replay.
+   */
+  public ResultsAlignment(List<SampleResult> recordingResults, SignatureIds signatureIds) {
+    this(recordingResults, signatureIds,
+        recordingResults.stream().mapToInt(signatureIds::getId).toArray(),
+        recordingResults.stream().map(SampleResult::getSampleLabel).collect(Collectors.toList()));
+  }
+
+  /**
+   * Creates the alignment of a recording whose requests already got their ids while it was read,
+   * so the recorded results are only read again to check the failures of the replay (see
+   * {@link #isNewFailure(int[], int, String)}).
+   *
+   * @param recordingResults the results of the recording, in the order they were recorded.
+   * @param signatureIds     the ids of the signatures of the recording and the replay.
+   * @param recordingIds     the id of the request of each recorded result.
+   * @param recordingLabels  the label of each recorded result.
+   */
+  public ResultsAlignment(List<SampleResult> recordingResults, SignatureIds signatureIds,
+                          int[] recordingIds, List<String> recordingLabels) {
+    this.recordingResults = recordingResults;
+    this.signatureIds = signatureIds;
+    this.recordingIds = recordingIds;
+    for (int i = 0; i < recordingLabels.size(); i++) {
+      positionsByLabel.computeIfAbsent(recordingLabels.get(i), label -> new ArrayList<>()).add(i);
+    }
+  }
+
+  /**
+   * Returns the recorded result of an occurrence of a label.
+   *
+   * @param label      the label of the result.
+   * @param occurrence the occurrence of the label, starting from 0, in the order of the recording.
+   * @return the recorded result, or null if the recording has fewer occurrences of the label.
+   */
+  public SampleResult getResult(String label, int occurrence) {
+    List<Integer> positions = positionsByLabel.getOrDefault(label, Collections.emptyList());
+    return occurrence < positions.size() ? recordingResults.get(positions.get(occurrence)) : null;
+  }
+
+  /**
+   * Aligns the results of a replay with the recording.
+   *
+   * @param replayResults the results of the replay, in the order they were sampled.
+   * @return the position in the recording of the result aligned with each replay result, or
+   * {@link #NOT_ALIGNED}.
+   */
+  public int[] align(List<SampleResult> replayResults) {
+    return align(replayResults.stream().mapToInt(signatureIds::getId).toArray());
+  }
+
+  /**
+   * Aligns the requests of a replay, identified by the ids of their signatures, with the
+   * recording.
+   *
+   * @param replayIds the ids, from the {@link SignatureIds} of this alignment, of the requests of
+   *                  the replay, in the order they were sampled.
+   * @return the position in the recording of the result aligned with each replay result, or
+   * {@link #NOT_ALIGNED}.
+   */
+  public int[] align(int[] replayIds) {
+    return align(recordingIds, replayIds);
+  }
+
+  /**
+   * Returns whether a failed result of the replay is a new failure: its aligned recorded result
+   * succeeded or, when it is not aligned with any, no recorded result with the same label failed.
+   *
+   * @param alignment   the alignment of the replay, as returned by {@link #align(int[])}.
+   * @param replayIndex the position of the failed result in the replay.
+   * @param label       the label of the failed result.
+   * @return true if the recording didn't fail the same way.
+   */
+  public boolean isNewFailure(int[] alignment, int replayIndex, String label) {
+    int aligned = replayIndex < alignment.length ? alignment[replayIndex] : NOT_ALIGNED;
+    if (aligned != NOT_ALIGNED) {
+      return recordingResults.get(aligned).isSuccessful();
+    }
+    for (int position : positionsByLabel.getOrDefault(label, Collections.emptyList())) {
+      if (!recordingResults.get(position).isSuccessful()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @VisibleForTesting
+  static int[] align(int[] recording, int[] replay) {
+    int[] alignment = new int[replay.length];
+    Arrays.fill(alignment, NOT_ALIGNED);
+    int prefix = 0;
+    while (prefix < recording.length && prefix < replay.length
+        && recording[prefix] == replay[prefix]) {
+      alignment[prefix] = prefix;
+      prefix++;
+    }
+    int recordingEnd = recording.length;
+    int replayEnd = replay.length;
+    while (recordingEnd > prefix && replayEnd > prefix
+        && recording[recordingEnd - 1] == replay[replayEnd - 1]) {
+      recordingEnd--;
+      replayEnd--;
+      alignment[replayEnd] = recordingEnd;
+    }
+    if (!alignDifferences(recording, prefix, recordingEnd, replay, prefix, replayEnd,
+        alignment)) {
+      alignOccurrences(recording, prefix, recordingEnd, replay, prefix, replayEnd, alignment);
+    }
+    return alignment;
+  }
+
+  /*
+   * Myers' algorithm: for each number of differences d, the furthest position reached in the
+   * recording on each diagonal k (recording position - replay position) is kept, and the ones of
+   * every d are saved to walk the path back once both ends are reached.
+   */
+  private static boolean alignDifferences(int[] recording, int recordingStart, int recordingEnd,
+                                          int[] replay, int replayStart, int replayEnd,
+                                          int[] alignment) {
+    int n = recordingEnd - recordingStart;
+    int m = replayEnd - replayStart;
+    int maxDifferences = Math.min(n + m, MAX_DIFFERENCES);
+    int offset = maxDifferences + 1;
+    int[] furthest = new int[2 * maxDifferences + 3];
+    List<int[]> trace = new ArrayList<>();
+    for (int d = 0; d <= maxDifferences; d++) {
+      trace.add(Arrays.copyOfRange(furthest, offset - d, offset + d + 1));
+      for (int k = -d; k <= d; k += 2) {
+        int x = k == -d || (k != d && furthest[offset + k - 1] < furthest[offset + k + 1])
+            ? furthest[offset + k + 1] : furthest[offset + k - 1] + 1;
+        int y = x - k;
+        while (x < n && y < m && recording[recordingStart + x] == replay[replayStart + y]) {
+          x++;
+          y++;
+        }
+        furthest[offset + k] = x;
+        if (x >= n && y >= m) {
+          walkBack(trace, d, n, m, recordingStart, replayStart, alignment);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void walkBack(List<int[]> trace, int differences, int n, int m,
+                               int recordingStart, int replayStart, int[] alignment) {
+    int x = n;
+    int y = m;
+    for (int d = differences; d > 0; d--) {
+      // Furthest positions after d - 1 differences, indexed by k + d
+      int[] previous = trace.get(d);
+      int k = x - y;
+      int previousK = k == -d || (k != d && previous[k - 1 + d] < previous[k + 1 + d])
+          ? k + 1 : k - 1;
+      int previousX = previous[previousK + d];
+      int previousY = previousX - previousK;
+      while (x > previousX && y > previousY) {
+        x--;
+        y--;
+        alignment[replayStart + y] = recordingStart + x;
+      }
+      x = previousX;
+      y = previousY;
+    }
+    while (x > 0 && y > 0) {
+      x--;
+      y--;
+      alignment[replayStart + y] = recordingStart + x;
+    }
+  }
+
+  // Each occurrence of a request in the replay is aligned with the same occurrence in the recording
+  private static void alignOccurrences(int[] recording, int recordingStart, int recordingEnd,
+                                       int[] replay, int replayStart, int replayEnd,
+                                       int[] alignment) {
+    Map<Integer, ArrayDeque<Integer>> positionsById = new HashMap<>();
+    for (int i = recordingStart; i < recordingEnd; i++) {
+      positionsById.computeIfAbsent(recording[i], id -> new ArrayDeque<>()).add(i);
+    }
+    for (int i = replayStart; i < replayEnd; i++) {
+      ArrayDeque<Integer> positions = positionsById.get(replay[i]);
+      if (positions != null && !positions.isEmpty()) {
+        alignment[i] = positions.poll();
+      }
+    }
+  }
+
+  /**
+   * Sequential ids of the signatures of the requests, assigned in the order the signatures are
+   * first seen. The ids of the requests of two traces can only be compared when they come from
+   * the same instance.
+   */
+  public static class SignatureIds {
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Returns the id of the signature of the request of a result.
+     *
+     * @param result the result of the request.
+     * @return the id of the signature, starting from 0.
+     */
+    public synchronized int getId(SampleResult result) {
+      String signature = RecordingsComparison.getRequestSignature(result);
+      Integer id = ids.get(signature);
+      if (id == null) {
+        id = ids.size();
+        ids.put(signature, id);
+      }
+      return id;
+    }
+  }
+}
@@ -2,33 +2,22 @@ package com.blazemeter.jmeter.correlation.core.automatic;
 
 import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
-import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.io.File;
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.tuple.Pair;
-import org.apache.http.entity.ContentType;
 import org.apache.jmeter.protocol.http.control.Cookie;
 import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
-import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.samplers.SampleResult;
-import org.apache.jmeter.util.JMeterUtils;
-import org.json.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,186 +76,6 @@ public class ResultsExtraction implements AppearancesExtraction {
     return cookies;
   }
 
-  private static HTTPSamplerProxy parseToHttpSampler(HTTPSampleResult httpResult) {
-    HTTPSamplerProxy sampler = new HTTPSamplerProxy();
-    sampler.setName(httpResult.getSampleLabel());
-    URL url = httpResult.getURL();
-    sampler.setDomain(url.getHost());
-    sampler.setPort(url.getPort());
-    sampler.setPath(url.getPath());
-    sampler.setMethod(httpResult.getHTTPMethod());
-    sampler.setProtocol(url.getProtocol());
-    sampler.setFollowRedirects(true);
-    sampler.setUseKeepAlive(true);
-    sampler.setDoMultipartPost(false);
-    sampler.setMonitor(false);
-    sampler.setEmbeddedUrlRE("");
-    sampler.setConnectTimeout("");
-    sampler.setResponseTimeout("");
-
-    LinkedHashMap<String, String> headers = JMeterUtils.parseHeaders(
-        httpResult.getRequestHeaders());
-    String connection = headers.get("Connection");
-    if (connection != null) {
-      sampler.setUseKeepAlive(!"close".equalsIgnoreCase(connection));
-    }
-
-    boolean isJson = false;
-    List<Pair<String, String>> parameters;
-    ContentType contentType = getRequestContentType(headers);
-    String type = contentType.getMimeType();
-    if (type.equals(ContentType.MULTIPART_FORM_DATA.getMimeType())) {
-      parameters = getParameterListFromMultiPartBody(httpResult, contentType);
-      sampler.setDoMultipartPost(true);
-    } else if (type.equals(ContentType.APPLICATION_FORM_URLENCODED.getMimeType())) {
-      parameters = getParametersFromFormUrlEncodedBody(httpResult, contentType);
-    } else if (type.equals(ContentType.APPLICATION_JSON.getMimeType())) {
-      isJson = true;
-      parameters = getParametersFromJsonBody(httpResult, contentType);
-    } else {
-      parameters = getParameterListFromQuery(httpResult);
-    }
-
-    for (Pair<String, String> param : parameters) {
-      String value = param.getValue();
-      String decode = JMeterElementUtils.decode(value);
-      if (!value.equals(decode)) {
-        try {
-          sampler.addEncodedArgument(param.getKey(), value);
-        } catch (IllegalArgumentException e) {
-          LOG.warn("Error adding argument to the sampler,  {}", httpResult.getSampleLabel(), e);
-          e.printStackTrace();
-        }
-        continue;
-      }
-      sampler.addArgument(param.getKey(), value);
-    }
-
-    if (isJson) {
-      sampler.setPostBodyRaw(true);
-      // When Body is in Raw, the path need to use also the query string
-      String query = httpResult.getURL().getQuery();
-      if (!isEmpty(query)) {
-        sampler.setPath(url.getPath() + "?" + query);
-      }
-    }
-
-    return sampler;
-  }
-
-  private static List<Pair<String, String>> getParametersFromJsonBody(HTTPSampleResult httpResult,
-                                                                      ContentType contentType) {
-    String body = httpResult.getQueryString();
-
-    List<Pair<String, Object>> list = JMeterElementUtils.extractDataParametersFromJson(body);
-    List<Pair<String, String>> parameters = new ArrayList<>();
-    for (Pair<String, Object> pair : list) {
-      if (!(pair.getValue() instanceof JSONArray)) {
-        parameters.add(Pair.of(pair.getKey(), pair.getValue().toString()));
-      }
-    }
-    return parameters;
-  }
-
-  private static List<Pair<String, String>> getParameterListFromMultiPartBody(
-      HTTPSampleResult httpResult, ContentType contentType) {
-    List<Pair<String, String>> parameters = new ArrayList<>();
-    String body = httpResult.getSamplerData();
-    String[] parts = body.split("--" + contentType.getParameter("boundary"));
-    for (String part : parts) {
-      if (!part.contains("Content-Disposition: form-data;")) {
-        continue;
-      }
-
-      String name = "";
-      String value = "";
-      for (String line : part.split("\\r?\\n")) {
-        if (line.contains("Content-Disposition: form-data;")) {
-          name = line.split("name=\"")[1].split("\"")[0];
-        } else if (!line.isEmpty()) {
-          value = line;
-        }
-      }
-      Pair<String, String> parameter = Pair.of(name, value);
-      parameters.add(parameter);
-    }
-    return parameters;
-  }
-
-  private static List<Pair<String, String>> getParametersFromFormUrlEncodedBody(
-      HTTPSampleResult httpResult, ContentType contentType) {
-    String line = httpResult.getQueryString();
-    if (line == null || line.isEmpty()) {
-      URL url = httpResult.getURL();
-      line = url.getQuery() != null ? url.getQuery() : "";
-      if (line.isEmpty()) {
-        return new ArrayList<>();
-      }
-    }
-    String[] pairs = line.split("\\&");
-    List<Pair<String, String>> parameters = new ArrayList<>();
-    for (int i = 0; i < pairs.length; i++) {
-      String[] fields = pairs[i].split("=");
-      try {
-        Charset charset = contentType.getCharset();
-        if (charset == null) {
-          charset = StandardCharsets.UTF_8;
-        }
-
-        String name = URLDecoder.decode(fields[0], charset.name());
-        String value = fields.length > 1 ? URLDecoder.decode(fields[1], charset.name()) : "";
-        parameters.add(Pair.of(name, value));
-      } catch (UnsupportedEncodingException | ArrayIndexOutOfBoundsException e) {
-        // I need to check each field and corroborate if it is Decoded before split by "="
-        e.printStackTrace();
-      }
-    }
-    return parameters;
-  }
-
-  private static List<Pair<String, String>> getParameterListFromQuery(HTTPSampleResult httpResult) {
-    String queryString = httpResult.getQueryString();
-    URL url = httpResult.getURL();
-    String query = url.getQuery() != null ? url.getQuery() : "";
-
-    List<Pair<String, String>> parameterList = new ArrayList<>();
-    String[] parameters = new String[0];
-    if (query != null && !query.isEmpty()) {
-      parameters = query.split(JMeterElementUtils.URL_PARAM_SEPARATOR);
-    }
-
-    if (queryString != null && !queryString.isEmpty()) {
-      String[] queryStringParameters = queryString.split(JMeterElementUtils.URL_PARAM_SEPARATOR);
-      if (queryStringParameters.length > 0) {
-        // Add the queryStringParameters to the parameters
-        parameters = ArrayUtils.addAll(parameters, queryStringParameters);
-      }
-    }
-
-    for (String parameter : parameters) {
-      String[] parameterParts = parameter.split(JMeterElementUtils.URL_PARAM_VALUE_SEPARATOR, 0);
-      if (parameterParts.length == 2) {
-        parameterList.add(Pair.of(parameterParts[0], parameterParts[1]));
-      }
-    }
-    return parameterList;
-  }
-
-  private static ContentType getRequestContentType(LinkedHashMap<String, String> headers) {
-    String contentType = headers.get("Content-Type");
-    //Some servers are not case-sensitive when parsing the content-type
-    String contentTypeLowerCased = headers.get("content-type");
-    if (contentType != null) {
-      return ContentType.parse(contentType);
-    }
-
-    if (contentTypeLowerCased != null) {
-      return ContentType.parse(contentTypeLowerCased);
-    }
-
-    return ContentType.DEFAULT_TEXT;
-  }
-
   @Override
   public Map<String, List<Appearances>> extractAppearanceMap(String filepath) {
     appearanceMap = new HashMap<>();
@@ -283,13 +92,26 @@ public class ResultsExtraction implements AppearancesExtraction {
     return appearanceMap;
   }
 
+  /**
+   * Adds the appearances of a result to a map with the appearances of the previous results, which
+   * allows building the map while the results are being recorded. Adding the results one by one
+   * builds the same map as {@link #extractAppearanceMap(List)} does with all of them.
+   *
+   * @param map    the appearances of the previous results, where the new ones are added.
+   * @param result the result to extract the appearances from.
+   */
+  public void addAppearances(Map<String, List<Appearances>> map, SampleResult result) {
+    appearanceMap = map;
+    extractAppearancesFromResults(Collections.singletonList(result));
+  }
+
   private void extractAppearancesFromResults(List<SampleResult> results) {
     RecordingExtraction samplersExtractor = new RecordingExtraction(configuration, appearanceMap);
     for (SampleResult result : results) {
       if (result instanceof HTTPSampleResult) {
         HTTPSampleResult httpSampleResult = (HTTPSampleResult) result;
-        HTTPSamplerProxy sourceRequest = parseToHttpSampler(httpSampleResult);
-        samplersExtractor.extractParametersFromHttpSampler(sourceRequest);
+        RequestView sourceRequest = RequestView.of(httpSampleResult);
+        samplersExtractor.extractParametersFromRequest(sourceRequest);
         extractParametersFromHeaderStrings(result.getResponseHeaders(), sourceRequest, "Response");
         extractParametersFromHeaderStrings(httpSampleResult.getRequestHeaders(), sourceRequest,
             "Request");
@@ -298,7 +120,7 @@ public class ResultsExtraction implements AppearancesExtraction {
   }
 
   private void extractParametersFromHeaderStrings(String headerString,
-                                                  HTTPSamplerProxy sourceRequest,
+                                                  RequestView sourceRequest,
                                                   String headerSource) {
     String[] headerLines = headerString.split("\\n", 0);
     for (String headerLine : headerLines) {
@@ -316,12 +138,12 @@ public class ResultsExtraction implements AppearancesExtraction {
           continue;
         } else if (equalsIgnoreCase(headerName, HTTPConstants.HEADER_AUTHORIZATION)) {
           String token = headerValue.trim().split(" ")[1];
-          utils.addToMap(appearanceMap, headerName, token, sourceRequest,
-              "Header " + headerSource + " (Fields)");
+          utils.addToMap(appearanceMap, headerName, token, sourceRequest.getLabel(),
+              sourceRequest::getSampler, "Header " + headerSource + " (Fields)");
           continue;
         }
-        utils.addToMap(appearanceMap, headerName, headerValue, sourceRequest,
-            "Header " + headerSource + " (Fields)");
+        utils.addToMap(appearanceMap, headerName, headerValue, sourceRequest.getLabel(),
+            sourceRequest::getSampler, "Header " + headerSource + " (Fields)");
       }
     }
   }
@@ -332,7 +154,7 @@ public class ResultsExtraction implements AppearancesExtraction {
     return headerValue.contains(";") && headerValue.contains("=");
   }
 
-  private void registerHeaderCookie(String headerValue, HTTPSamplerProxy sourceRequest,
+  private void registerHeaderCookie(String headerValue, RequestView sourceRequest,
                                     String headerSource) {
     String[] fields = headerValue.split(";");
 
@@ -367,25 +189,27 @@ public class ResultsExtraction implements AppearancesExtraction {
     String source = "Header " + headerSource + " (Set-Cookie)";
     // The value is saved decoded because the source is a header value
     String decodedValue = JMeterElementUtils.decode(value);
-    utils.addToMap(appearanceMap, name, decodedValue, sourceRequest, source);
+    utils.addToMap(appearanceMap, name, decodedValue, sourceRequest.getLabel(),
+        sourceRequest::getSampler, source);
 
     // And also encoded but with a post_fix
-    utils.addToMap(appearanceMap, name + "_encoded", value, sourceRequest, source);
+    utils.addToMap(appearanceMap, name + "_encoded", value, sourceRequest.getLabel(),
+        sourceRequest::getSampler, source);
 
     if (containsIgnoreCase(name, "Authorization") && containsIgnoreCase(value, "OAuth")) {
       // Register the value of the authorization
       String authValue = decodedValue.replaceAll("(?i)\"OAuth\"", "").trim();
-      utils.addToMap(appearanceMap, name + "_auth", authValue,
-          sourceRequest, source);
+      utils.addToMap(appearanceMap, name + "_auth", authValue, sourceRequest.getLabel(),
+          sourceRequest::getSampler, source);
       String authValueEncoded = value.replaceAll("(?i)\"OAuth\"", "").trim();
       utils.addToMap(appearanceMap, name + "_auth" + "_encoded", authValueEncoded,
-          sourceRequest, source);
+          sourceRequest.getLabel(), sourceRequest::getSampler, source);
     }
 
   }
 
   private void registerHeaderSubParameters(String headerName, String headerValue,
-                                           HTTPSamplerProxy sourceRequest, String headerSource) {
+                                           RequestView sourceRequest, String headerSource) {
     String[] fields = headerValue.split(";");
     for (int i = 0; i < fields.length; i++) {
       String field = fields[i];
@@ -402,8 +226,8 @@ public class ResultsExtraction implements AppearancesExtraction {
         continue;
       }
 
-      utils.addToMap(appearanceMap, name, value, sourceRequest,
-          "Header " + headerSource + " (Sub-Parameters)");
+      utils.addToMap(appearanceMap, name, value, sourceRequest.getLabel(),
+          sourceRequest::getSampler, "Header " + headerSource + " (Sub-Parameters)");
     }
   }
 }
@@ -0,0 +1,266 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Representation of a {@link SampleResult} prepared to look for values in it.
+ *
+ * <p>The response body is decoded and the response headers are split in regular headers and
+ * Set-Cookie headers only once, and the location of every value looked up is remembered, so
+ * searching many dynamic values over the same result does not decode or scan it over and over.
+ * It can be safely shared by the threads generating suggestions.
+ */
+public class SearchableResult {
+  private static final String SET_COOKIE = "Set-Cookie";
+  // Values scanned for one by one before building the n-gram filter of the result
+  private static final int SCANS_BEFORE_NGRAM_FILTER = 4;
+  // Bounds the values scanned for one by one whose location is remembered
+  private static final int MAX_SCANNED_LOCATIONS = 1024;
+
+  private final SampleResult result;
+  private final int index;
+  private final String body;
+  private final String headers;
+  private final String setCookieHeaders;
+  private final Map<String, ValueLocation> locations = new ConcurrentHashMap<>();
+  private volatile AhoCorasickMatcher scannedWith;
+  private volatile JsonPathIndex jsonIndex;
+  private volatile NgramBloomFilter ngramFilter;
+  private final AtomicInteger scans = new AtomicInteger();
+  private final AtomicInteger scannedLocations = new AtomicInteger();
+
+  public SearchableResult(SampleResult result, int index, String body, String rawHeaders) {
+    this.result = result;
+    this.index = index;
+    this.body = body == null ? "" : body;
+    StringBuilder headersBuilder = new StringBuilder();
+    StringBuilder setCookiesBuilder = new StringBuilder();
+    splitHeaders(rawHeaders == null ? "" : rawHeaders, headersBuilder, setCookiesBuilder);
+    this.headers = headersBuilder.toString();
+    this.setCookieHeaders = setCookiesBuilder.toString();
+  }
+
+  /*
+   * Set-Cookie lines are blanked in the headers (keeping the line breaks) and collected, one per
+   * line, in the Set-Cookie headers.
+   */
+  private static void splitHeaders(String rawHeaders, StringBuilder headers,
+                                   StringBuilder setCookies) {
+    int lineStart = 0;
+    while (lineStart <= rawHeaders.length()) {
+      int lineEnd = rawHeaders.indexOf('\n', lineStart);
+      boolean lastLine = lineEnd == -1;
+      String line = rawHeaders.substring(lineStart, lastLine ? rawHeaders.length() : lineEnd);
+      if (line.startsWith(SET_COOKIE)) {
+        setCookies.append(line).append('\n');
+      } else {
+        headers.append(line);
+      }
+      if (lastLine) {
+        break;
+      }
+      headers.append('\n');
+      lineStart = lineEnd + 1;
+    }
+  }
+
+  /**
+   * Looks for all the patterns of the matcher in the body, headers and Set-Cookie headers of the
+   * result, scanning each one of them only once, regardless of the amount of patterns.
+   *
+   * <p>Only the locations of the patterns found are kept, so preparing many results for many
+   * values does not need memory for every combination of them.
+   *
+   * @param matcher the matcher with the values to look for.
+   * @return the values found in the result.
+   */
+  public List<String> locateAll(AhoCorasickMatcher matcher) {
+    List<String> patterns = matcher.getPatterns();
+    int[] bodyOffsets = matcher.findFirstOccurrences(body);
+    int[] headersOffsets = matcher.findFirstOccurrences(headers);
+    int[] setCookieOffsets = matcher.findFirstOccurrences(setCookieHeaders);
+    List<String> found = new ArrayList<>();
+    for (int i = 0; i < patterns.size(); i++) {
+      ValueLocation location = new ValueLocation(result, index, bodyOffsets[i],
+          headersOffsets[i], setCookieOffsets[i]);
+      if (location.isFound()) {
+        locations.put(patterns.get(i), location);
+        found.add(patterns.get(i));
+      }
+    }
+    scannedWith = matcher;
+    return Collections.unmodifiableList(found);
+  }
+
+  /**
+   * Returns where the value is located in this result. Values that were not already located by
+   * {@link #locateAll(AhoCorasickMatcher)} are scanned for, and the locations of the first ones
+   * found are remembered. Once the result was scanned a few times, the scan is skipped when the
+   * n-grams of the result show the value is not in it (see {@link NgramBloomFilter}).
+   *
+   * @param value the value to look for.
+   * @return the location of the value.
+   */
+  public ValueLocation locate(String value) {
+    ValueLocation location = locations.get(value);
+    if (location != null) {
+      return location;
+    }
+    AhoCorasickMatcher matcher = scannedWith;
+    if (matcher != null && matcher.containsPattern(value)) {
+      return new ValueLocation(result, index, -1, -1, -1);
+    }
+    location = scan(value);
+    if (location.isFound() && scannedLocations.get() < MAX_SCANNED_LOCATIONS
+        && locations.putIfAbsent(value, location) == null) {
+      scannedLocations.incrementAndGet();
+    }
+    return location;
+  }
+
+  private ValueLocation scan(String value) {
+    if (scans.incrementAndGet() > SCANS_BEFORE_NGRAM_FILTER
+        && !getNgramFilter().mightContain(value)) {
+      return new ValueLocation(result, index, -1, -1, -1);
+    }
+    return new ValueLocation(result, index, body.indexOf(value), headers.indexOf(value),
+        setCookieHeaders.indexOf(value));
+  }
+
+  /*
+   * Building the filter takes as long as scanning the result for a value, so it is only built for
+   * the results that are scanned for values over and over, since results searched with a matcher
+   * (see locateAll) rarely need it.
+   */
+  private NgramBloomFilter getNgramFilter() {
+    NgramBloomFilter filter = ngramFilter;
+    if (filter == null) {
+      synchronized (this) {
+        filter = ngramFilter;
+        if (filter == null) {
+          filter = NgramBloomFilter.of(body, headers, setCookieHeaders);
+          ngramFilter = filter;
+        }
+      }
+    }
+    return filter;
+  }
+
+  /**
+   * Returns the index of the JSON values of the body, building it only the first time it is
+   * requested, so all the dynamic values looked up in the body share the same parsing.
+   *
+   * @return the index of the JSON values of the body.
+   */
+  public JsonPathIndex getJsonIndex() {
+    JsonPathIndex index = jsonIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = jsonIndex;
+        if (index == null) {
+          index = JsonPathIndex.of(body);
+          jsonIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  public SampleResult getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the position of the result in the list it was prepared from.
+   *
+   * @return the position of the result, or -1 if it was prepared on its own.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public String getHeaders() {
+    return headers;
+  }
+
+  public String getSetCookieHeaders() {
+    return setCookieHeaders;
+  }
+
+  /**
+   * Offsets where a value appears in the body, headers and Set-Cookie headers of a result (-1 when
+   * it does not appear in them).
+   */
+  public static class ValueLocation {
+    private final SampleResult result;
+    private final int resultIndex;
+    private final int bodyOffset;
+    private final int headersOffset;
+    private final int setCookieOffset;
+
+    public ValueLocation(SampleResult result, int resultIndex, int bodyOffset,
+                         int headersOffset, int setCookieOffset) {
+      this.result = result;
+      this.resultIndex = resultIndex;
+      this.bodyOffset = bodyOffset;
+      this.headersOffset = headersOffset;
+      this.setCookieOffset = setCookieOffset;
+    }
+
+    public SampleResult getResult() {
+      return result;
+    }
+
+    public int getResultIndex() {
+      return resultIndex;
+    }
+
+    public int getBodyOffset() {
+      return bodyOffset;
+    }
+
+    public int getHeadersOffset() {
+      return headersOffset;
+    }
+
+    public int getSetCookieOffset() {
+      return setCookieOffset;
+    }
+
+    public boolean isInBody() {
+      return bodyOffset != -1;
+    }
+
+    public boolean isInHeaders() {
+      return headersOffset != -1;
+    }
+
+    public boolean isInSetCookie() {
+      return setCookieOffset != -1;
+    }
+
+    public boolean isFound() {
+      return isInBody() || isInHeaders() || isInSetCookie();
+    }
+
+    @Override
+    public String toString() {
+      return "ValueLocation{"
+          + "resultIndex=" + resultIndex
+          + ", bodyOffset=" + bodyOffset
+          + ", headersOffset=" + headersOffset
+          + ", setCookieOffset=" + setCookieOffset
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,436 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helger.commons.annotation.VisibleForTesting;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.protocol.http.util.HTTPArgument;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the results of the analysis of a recording and a replay, so analyzing the same traces
+ * again, with the same configuration, doesn't need to compute them from scratch.
+ *
+ * <p>The results are identified by the hash of the content of both traces, of the settings they
+ * depend on and of the version of the format of the cache, which has to be increased whenever the
+ * extraction of the parameters changes, so results of a previous version are not reused:
+ * <ul>
+ *   <li>The dynamic elements only depend on the settings that filter the parameters, and are
+ *   saved as gzipped JSON in the "cache" folder of the history files, so they are kept between
+ *   sessions. The requests where their values appear are saved with their properties and
+ *   arguments, and rebuilt when they are loaded.</li>
+ *   <li>The suggestions also depend on the settings that choose their extractors, and are kept in
+ *   memory, along with the value flow graph built with them (if any), since they refer to the
+ *   loaded results and test elements.</li>
+ * </ul>
+ * Both caches are bounded: the least recently used entries are discarded first.
+ */
+public class SuggestionsCache {
+  @VisibleForTesting
+  static final int FORMAT_VERSION = 2;
+  private static final Logger LOG = LoggerFactory.getLogger(SuggestionsCache.class);
+  private static final String FILE_EXTENSION = ".json.gz";
+  private static final int DEFAULT_MEMORY_ENTRIES = 4;
+  private static final int DEFAULT_FILE_ENTRIES = 20;
+  private static SuggestionsCache instance;
+
+  private final File folder;
+  private final int maxFileEntries;
+  private final Map<String, CachedSuggestions> suggestions;
+  private final ObjectMapper mapper = new ObjectMapper()
+      .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+      .setVisibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.NONE)
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  @VisibleForTesting
+  SuggestionsCache(File folder, int maxMemoryEntries, int maxFileEntries) {
+    this.folder = folder;
+    this.maxFileEntries = maxFileEntries;
+    this.suggestions = new LinkedHashMap<String, CachedSuggestions>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedSuggestions> eldest) {
+        return size() > maxMemoryEntries;
+      }
+    };
+  }
+
+  public static synchronized SuggestionsCache getInstance() {
+    if (instance == null) {
+      instance = new SuggestionsCache(FileManagementUtils.getCacheFolder(),
+          DEFAULT_MEMORY_ENTRIES, DEFAULT_FILE_ENTRIES);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the key of the dynamic elements obtained from the comparison of two traces.
+   *
+   * @param recordingTrace the path of the recording trace.
+   * @param replayTrace    the path of the replay trace.
+   * @param configuration  the configuration used for the comparison.
+   * @return the key of the dynamic elements, or null if the traces couldn't be read.
+   */
+  public String getDynamicElementsKey(String recordingTrace, String replayTrace,
+                                      Configuration configuration) {
+    try {
+      return hash("dynamic-elements", getVersion(), hashFile(new File(recordingTrace)),
+          hashFile(new File(replayTrace)), configuration.getDynamicElementsDescription());
+    } catch (IOException e) {
+      LOG.warn("Could not read the traces to identify their analysis. It won't be cached.", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the key of the suggestions generated for some dynamic elements.
+   *
+   * @param dynamicElementsKey the key of the dynamic elements.
+   * @param configuration      the configuration used to generate the suggestions.
+   * @return the key of the suggestions.
+   */
+  public String getSuggestionsKey(String dynamicElementsKey, Configuration configuration) {
+    return hash("suggestions", dynamicElementsKey, configuration.getSuggestionsDescription());
+  }
+
+  // The version of the plugin is only known when it is packaged
+  private static String getVersion() {
+    String pluginVersion = SuggestionsCache.class.getPackage().getImplementationVersion();
+    return FORMAT_VERSION + "/" + (pluginVersion == null ? "" : pluginVersion);
+  }
+
+  public synchronized List<CorrelationSuggestion> getSuggestions(String key) {
+    CachedSuggestions cached = suggestions.get(key);
+    return cached == null ? null : new ArrayList<>(cached.suggestions);
+  }
+
+  /**
+   * Returns the value flow graph built along with the suggestions saved with the key.
+   *
+   * @param key the key of the suggestions.
+   * @return the graph, or null if there are no suggestions saved with the key or no graph was
+   *     built with them.
+   */
+  public synchronized ValueFlowGraph getValueFlowGraph(String key) {
+    CachedSuggestions cached = suggestions.get(key);
+    return cached == null ? null : cached.valueFlowGraph;
+  }
+
+  /**
+   * Saves the suggestions generated for some dynamic elements.
+   *
+   * @param key            the key of the suggestions.
+   * @param generated      the generated suggestions.
+   * @param valueFlowGraph the value flow graph built along with them, or null if none was built.
+   */
+  public synchronized void putSuggestions(String key, List<CorrelationSuggestion> generated,
+                                          ValueFlowGraph valueFlowGraph) {
+    suggestions.put(key, new CachedSuggestions(new ArrayList<>(generated), valueFlowGraph));
+  }
+
+  /**
+   * Loads the dynamic elements saved with the key.
+   *
+   * @param key the key of the dynamic elements.
+   * @return the dynamic elements, or null if there are none saved with the key or they can't be
+   *     read.
+   */
+  public List<DynamicElement> loadDynamicElements(String key) {
+    File file = new File(folder, key + FILE_EXTENSION);
+    if (!file.exists()) {
+      return null;
+    }
+    try (Reader input = new InputStreamReader(new GZIPInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath()))), StandardCharsets.UTF_8)) {
+      CachedDynamicElements cached = mapper.readValue(input, CachedDynamicElements.class);
+      if (cached.version != FORMAT_VERSION) {
+        throw new IOException("Unsupported cache format version " + cached.version);
+      }
+      if (!file.setLastModified(System.currentTimeMillis())) {
+        LOG.debug("Could not update the last use of {}", file);
+      }
+      return cached.toDynamicElements();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Discarding the cached dynamic elements {} that couldn't be read", file, e);
+      deleteFile(file);
+      return null;
+    }
+  }
+
+  /**
+   * Saves the dynamic elements with the key, discarding the least recently used ones when there
+   * are too many saved. Elements found in something else than HTTP requests are not saved.
+   *
+   * @param key      the key of the dynamic elements.
+   * @param elements the dynamic elements to save.
+   */
+  public void storeDynamicElements(String key, List<DynamicElement> elements) {
+    CachedDynamicElements cached = CachedDynamicElements.of(elements);
+    if (cached == null) {
+      LOG.debug("Not caching dynamic elements found in requests that are not HTTP samplers");
+      return;
+    }
+    if (!folder.exists() && !folder.mkdirs()) {
+      LOG.warn("Could not create the cache folder {}", folder);
+      return;
+    }
+    File file = new File(folder, key + FILE_EXTENSION);
+    File temporaryFile = new File(folder, key + ".tmp");
+    try (Writer output = new OutputStreamWriter(new GZIPOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile.toPath()))),
+        StandardCharsets.UTF_8)) {
+      mapper.writeValue(output, cached);
+    } catch (IOException e) {
+      LOG.warn("Could not cache the dynamic elements in {}", file, e);
+      deleteFile(temporaryFile);
+      return;
+    }
+    try {
+      Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.warn("Could not cache the dynamic elements in {}", file, e);
+      deleteFile(temporaryFile);
+      return;
+    }
+    discardLeastRecentlyUsed();
+  }
+
+  private void discardLeastRecentlyUsed() {
+    File[] files = folder.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+    if (files == null || files.length <= maxFileEntries) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < files.length - maxFileEntries; i++) {
+      deleteFile(files[i]);
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (file.exists() && !file.delete()) {
+      LOG.debug("Could not delete {}", file);
+    }
+  }
+
+  private static String hashFile(File file) throws IOException {
+    MessageDigest digest = newDigest();
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  @VisibleForTesting
+  static String hash(String... parts) {
+    MessageDigest digest = newDigest();
+    for (String part : parts) {
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+      // Separator, so moving text between parts changes the hash
+      digest.update((byte) 0);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+  private static class CachedSuggestions {
+    private final List<CorrelationSuggestion> suggestions;
+    private final ValueFlowGraph valueFlowGraph;
+
+    private CachedSuggestions(List<CorrelationSuggestion> suggestions,
+                              ValueFlowGraph valueFlowGraph) {
+      this.suggestions = suggestions;
+      this.valueFlowGraph = valueFlowGraph;
+    }
+  }
+
+  /*
+   * Saved form of the dynamic elements. The requests are saved once, even when several
+   * appearances refer to them, and the appearances refer to them by their position.
+   */
+  private static class CachedDynamicElements {
+    private int version;
+    private List<CachedRequest> requests = new ArrayList<>();
+    private List<CachedElement> elements = new ArrayList<>();
+
+    private static CachedDynamicElements of(List<DynamicElement> dynamicElements) {
+      CachedDynamicElements cached = new CachedDynamicElements();
+      cached.version = FORMAT_VERSION;
+      Map<TestElement, Integer> requestIndexes = new IdentityHashMap<>();
+      for (DynamicElement element : dynamicElements) {
+        CachedElement cachedElement = new CachedElement();
+        cachedElement.name = element.getName();
+        cachedElement.original = cached.toCachedAppearances(element.getOriginalAppearance(),
+            requestIndexes);
+        cachedElement.other = cached.toCachedAppearances(element.getOtherAppearance(),
+            requestIndexes);
+        if (cachedElement.original == null || cachedElement.other == null) {
+          return null;
+        }
+        cached.elements.add(cachedElement);
+      }
+      return cached;
+    }
+
+    private List<CachedAppearance> toCachedAppearances(List<Appearances> appearances,
+                                                       Map<TestElement, Integer> requestIndexes) {
+      List<CachedAppearance> cachedAppearances = new ArrayList<>();
+      for (Appearances appearance : appearances) {
+        CachedAppearance cachedAppearance = new CachedAppearance();
+        cachedAppearance.value = appearance.getValue();
+        cachedAppearance.name = appearance.getName();
+        cachedAppearance.source = appearance.getSource();
+        for (TestElement request : appearance.getList()) {
+          if (!(request instanceof HTTPSamplerBase)) {
+            return null;
+          }
+          Integer index = requestIndexes.get(request);
+          if (index == null) {
+            index = requests.size();
+            requests.add(CachedRequest.of((HTTPSamplerBase) request));
+            requestIndexes.put(request, index);
+          }
+          cachedAppearance.requests.add(index);
+        }
+        cachedAppearances.add(cachedAppearance);
+      }
+      return cachedAppearances;
+    }
+
+    private List<DynamicElement> toDynamicElements() {
+      List<HTTPSamplerProxy> samplers = new ArrayList<>(requests.size());
+      requests.forEach(request -> samplers.add(request.toSampler()));
+      List<DynamicElement> dynamicElements = new ArrayList<>(elements.size());
+      for (CachedElement element : elements) {
+        dynamicElements.add(new DynamicElement(element.name,
+            toAppearances(element.original, samplers), toAppearances(element.other, samplers)));
+      }
+      return dynamicElements;
+    }
+
+    private static List<Appearances> toAppearances(List<CachedAppearance> cachedAppearances,
+                                                   List<HTTPSamplerProxy> samplers) {
+      List<Appearances> appearances = new ArrayList<>(cachedAppearances.size());
+      for (CachedAppearance cachedAppearance : cachedAppearances) {
+        Appearances appearance = new Appearances(cachedAppearance.value, cachedAppearance.name,
+            samplers.get(cachedAppearance.requests.get(0)));
+        appearance.setSource(cachedAppearance.source);
+        for (int i = 1; i < cachedAppearance.requests.size(); i++) {
+          appearance.getList().add(samplers.get(cachedAppearance.requests.get(i)));
+        }
+        appearances.add(appearance);
+      }
+      return appearances;
+    }
+  }
+
+  private static class CachedElement {
+    private String name;
+    private List<CachedAppearance> original;
+    private List<CachedAppearance> other;
+  }
+
+  private static class CachedAppearance {
+    private String value;
+    private String name;
+    private String source;
+    private List<Integer> requests = new ArrayList<>();
+  }
+
+  /*
+   * The simple properties of the sampler are saved as text, which is how JMeter reads them back
+   * regardless of their type, and the arguments with whether they are encoded or not.
+   */
+  private static class CachedRequest {
+    private Map<String, String> properties = new LinkedHashMap<>();
+    private List<CachedArgument> arguments = new ArrayList<>();
+
+    private static CachedRequest of(HTTPSamplerBase sampler) {
+      CachedRequest cached = new CachedRequest();
+      PropertyIterator iterator = sampler.propertyIterator();
+      while (iterator.hasNext()) {
+        JMeterProperty property = iterator.next();
+        if (!(property instanceof TestElementProperty)) {
+          cached.properties.put(property.getName(), property.getStringValue());
+        }
+      }
+      for (JMeterProperty property : sampler.getArguments()) {
+        HTTPArgument argument = JMeterElementUtils.getHttpArgument(property);
+        CachedArgument cachedArgument = new CachedArgument();
+        cachedArgument.name = argument.getName();
+        cachedArgument.value = argument.getValue();
+        cachedArgument.encoded = argument.isAlwaysEncoded();
+        cached.arguments.add(cachedArgument);
+      }
+      return cached;
+    }
+
+    private HTTPSamplerProxy toSampler() {
+      HTTPSamplerProxy sampler = new HTTPSamplerProxy();
+      properties.forEach(sampler::setProperty);
+      for (CachedArgument argument : arguments) {
+        if (argument.encoded) {
+          sampler.addArgument(argument.name, argument.value);
+        } else {
+          sampler.addNonEncodedArgument(argument.name, argument.value, "");
+        }
+      }
+      return sampler;
+    }
+  }
+
+  private static class CachedArgument {
+    private String name;
+    private String value;
+    private boolean encoded;
+  }
+}
@@ -0,0 +1,330 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Graph of where the values of a trace are produced and where they are consumed.
+ *
+ * <p>Each node is the first location of a value in a field of a sample: the request fields
+ * consume values and the response fields produce them. Each node consuming a value has an edge
+ * from the node where the value was first produced, by an earlier sample. All the values are
+ * located in a single pass over the trace (see {@link AhoCorasickMatcher}), and the graph is kept
+ * in int arrays indexed by the id of the nodes, so it is cheap to keep and to save along with the
+ * history, and its queries take time proportional to the edges of the node queried.
+ */
+public class ValueFlowGraph {
+  private static final int NONE = -1;
+
+  private List<String> values = new ArrayList<>();
+  private int nodeCount;
+  private int[] nodeSamples = new int[16];
+  private int[] nodeFields = new int[16];
+  private int[] nodeOffsets = new int[16];
+  private int[] nodeValues = new int[16];
+  private int edgeCount;
+  private int[] edgeSources = new int[16];
+  private int[] edgeTargets = new int[16];
+  private int[] firstProducers = new int[0];
+  private List<String> consumedBeforeProduced = new ArrayList<>();
+  // Indexes of the edges by node and of the nodes by value, built when first queried
+  private transient volatile Adjacency adjacency;
+
+  public enum Field {
+    REQUEST_URL(false),
+    REQUEST_HEADERS(false),
+    REQUEST_BODY(false),
+    RESPONSE_HEADERS(true),
+    RESPONSE_BODY(true);
+
+    private final boolean producer;
+
+    Field(boolean producer) {
+      this.producer = producer;
+    }
+
+    public boolean isProducer() {
+      return producer;
+    }
+  }
+
+  // Used when loading the graph from a file
+  private ValueFlowGraph() {
+  }
+
+  /**
+   * Builds the graph of the values in the results of a trace.
+   *
+   * @param results the results of the trace, in the order they were sampled.
+   * @param values  the values to follow.
+   * @return the graph of the values.
+   */
+  public static ValueFlowGraph build(List<SampleResult> results, Collection<String> values) {
+    ValueFlowGraph graph = new ValueFlowGraph();
+    LinkedHashSet<String> uniqueValues = new LinkedHashSet<>(values);
+    uniqueValues.remove("");
+    graph.values = new ArrayList<>(uniqueValues);
+    graph.firstProducers = new int[graph.values.size()];
+    Arrays.fill(graph.firstProducers, NONE);
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(graph.values);
+    boolean[] consumedBeforeProduced = new boolean[graph.values.size()];
+    for (int sample = 0; sample < results.size(); sample++) {
+      SampleResult result = results.get(sample);
+      // Requests are added first, since they can't consume what their own response produces
+      graph.addNodes(matcher, sample, Field.REQUEST_URL, result.getUrlAsString(),
+          consumedBeforeProduced);
+      if (result instanceof HTTPSampleResult) {
+        HTTPSampleResult httpResult = (HTTPSampleResult) result;
+        graph.addNodes(matcher, sample, Field.REQUEST_HEADERS, httpResult.getRequestHeaders(),
+            consumedBeforeProduced);
+        graph.addNodes(matcher, sample, Field.REQUEST_BODY, httpResult.getQueryString(),
+            consumedBeforeProduced);
+      }
+      graph.addNodes(matcher, sample, Field.RESPONSE_HEADERS, result.getResponseHeaders(),
+          consumedBeforeProduced);
+      if (!"bin".equals(result.getDataType())) {
+        graph.addNodes(matcher, sample, Field.RESPONSE_BODY, result.getResponseDataAsString(),
+            consumedBeforeProduced);
+      }
+    }
+    for (int value = 0; value < consumedBeforeProduced.length; value++) {
+      if (consumedBeforeProduced[value] && graph.firstProducers[value] != NONE) {
+        graph.consumedBeforeProduced.add(graph.values.get(value));
+        int producer = graph.firstProducers[value];
+        CorrelationDiagnostics.getInstance().record(EventType.VALUE_CONSUMED_BEFORE_PRODUCED,
+            graph.values.get(value), () -> "First produced by the sample "
+                + graph.getSample(producer));
+      }
+    }
+    graph.trim();
+    return graph;
+  }
+
+  private void addNodes(AhoCorasickMatcher matcher, int sample, Field field, String text,
+                        boolean[] consumedBeforeProduced) {
+    if (text == null || text.isEmpty()) {
+      return;
+    }
+    int[] offsets = matcher.findFirstOccurrences(text);
+    for (int value = 0; value < offsets.length; value++) {
+      if (offsets[value] == -1) {
+        continue;
+      }
+      int node = addNode(sample, field, offsets[value], value);
+      if (field.isProducer()) {
+        if (firstProducers[value] == NONE) {
+          firstProducers[value] = node;
+        }
+      } else if (firstProducers[value] == NONE) {
+        consumedBeforeProduced[value] = true;
+      } else {
+        addEdge(firstProducers[value], node);
+      }
+    }
+  }
+
+  private int addNode(int sample, Field field, int offset, int value) {
+    if (nodeCount == nodeSamples.length) {
+      int capacity = nodeCount * 2;
+      nodeSamples = Arrays.copyOf(nodeSamples, capacity);
+      nodeFields = Arrays.copyOf(nodeFields, capacity);
+      nodeOffsets = Arrays.copyOf(nodeOffsets, capacity);
+      nodeValues = Arrays.copyOf(nodeValues, capacity);
+    }
+    nodeSamples[nodeCount] = sample;
+    nodeFields[nodeCount] = field.ordinal();
+    nodeOffsets[nodeCount] = offset;
+    nodeValues[nodeCount] = value;
+    return nodeCount++;
+  }
+
+  private void addEdge(int source, int target) {
+    if (edgeCount == edgeSources.length) {
+      edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+      edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+    }
+    edgeSources[edgeCount] = source;
+    edgeTargets[edgeCount] = target;
+    edgeCount++;
+  }
+
+  private void trim() {
+    nodeSamples = Arrays.copyOf(nodeSamples, nodeCount);
+    nodeFields = Arrays.copyOf(nodeFields, nodeCount);
+    nodeOffsets = Arrays.copyOf(nodeOffsets, nodeCount);
+    nodeValues = Arrays.copyOf(nodeValues, nodeCount);
+    edgeSources = Arrays.copyOf(edgeSources, edgeCount);
+    edgeTargets = Arrays.copyOf(edgeTargets, edgeCount);
+  }
+
+  /**
+   * Loads a graph saved with {@link #save(String)}.
+   *
+   * @param filepath the path of the file.
+   * @return the graph, or null if it couldn't be loaded.
+   */
+  public static ValueFlowGraph load(String filepath) {
+    return new FileManagementUtils().loadObjectFromFile(filepath, ValueFlowGraph.class);
+  }
+
+  /**
+   * Saves the graph in a JSON file.
+   *
+   * @param filepath the path of the file.
+   * @return the path of the file, or an empty string if it couldn't be saved.
+   */
+  public String save(String filepath) {
+    return new FileManagementUtils().saveObjectToFile(this, filepath);
+  }
+
+  public List<String> getValues() {
+    return Collections.unmodifiableList(values);
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  public int getSample(int node) {
+    return nodeSamples[node];
+  }
+
+  public Field getField(int node) {
+    return Field.values()[nodeFields[node]];
+  }
+
+  public int getOffset(int node) {
+    return nodeOffsets[node];
+  }
+
+  public String getValue(int node) {
+    return values.get(nodeValues[node]);
+  }
+
+  /**
+   * Returns the node where the value was produced for the first time.
+   *
+   * @param value the value.
+   * @return the id of the node, or -1 if the value is not produced by the trace.
+   */
+  public int getFirstProducer(String value) {
+    Integer id = getAdjacency().valueIds.get(value);
+    return id == null ? NONE : firstProducers[id];
+  }
+
+  /**
+   * Returns the nodes consuming the value produced by a node.
+   *
+   * @param node the id of the producer node.
+   * @return the ids of the consumer nodes, in the order of the trace.
+   */
+  public int[] getConsumers(int node) {
+    Adjacency index = getAdjacency();
+    return Arrays.copyOfRange(index.targets, index.targetOffsets[node],
+        index.targetOffsets[node + 1]);
+  }
+
+  /**
+   * Returns the node that produced the value consumed by a node.
+   *
+   * @param node the id of the consumer node.
+   * @return the id of the producer node, or -1 if the value was not produced by an earlier sample.
+   */
+  public int getProducer(int node) {
+    return getAdjacency().sources[node];
+  }
+
+  /**
+   * Returns all the nodes where the value is located.
+   *
+   * @param value the value.
+   * @return the ids of the nodes, in the order of the trace.
+   */
+  public int[] getNodes(String value) {
+    Adjacency index = getAdjacency();
+    Integer id = index.valueIds.get(value);
+    return id == null ? new int[0] : Arrays.copyOfRange(index.valueNodes,
+        index.valueNodeOffsets[id], index.valueNodeOffsets[id + 1]);
+  }
+
+  /**
+   * Returns the values that are used by some request before any response produces them, which
+   * usually means that they are not generated by the server, or are cached by the client.
+   *
+   * @return the values consumed before they are produced.
+   */
+  public List<String> getValuesConsumedBeforeProduced() {
+    return Collections.unmodifiableList(consumedBeforeProduced);
+  }
+
+  private Adjacency getAdjacency() {
+    Adjacency index = adjacency;
+    if (index == null) {
+      synchronized (this) {
+        index = adjacency;
+        if (index == null) {
+          index = new Adjacency(this);
+          adjacency = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  // Edges grouped by source node and nodes grouped by value, as offsets in shared arrays
+  private static class Adjacency {
+    private final Map<String, Integer> valueIds = new HashMap<>();
+    private final int[] targetOffsets;
+    private final int[] targets;
+    private final int[] sources;
+    private final int[] valueNodeOffsets;
+    private final int[] valueNodes;
+
+    private Adjacency(ValueFlowGraph graph) {
+      for (int i = 0; i < graph.values.size(); i++) {
+        valueIds.put(graph.values.get(i), i);
+      }
+      sources = new int[graph.nodeCount];
+      Arrays.fill(sources, NONE);
+      targetOffsets = new int[graph.nodeCount + 1];
+      for (int edge = 0; edge < graph.edgeCount; edge++) {
+        targetOffsets[graph.edgeSources[edge] + 1]++;
+        sources[graph.edgeTargets[edge]] = graph.edgeSources[edge];
+      }
+      for (int node = 0; node < graph.nodeCount; node++) {
+        targetOffsets[node + 1] += targetOffsets[node];
+      }
+      targets = new int[graph.edgeCount];
+      int[] next = Arrays.copyOf(targetOffsets, graph.nodeCount);
+      for (int edge = 0; edge < graph.edgeCount; edge++) {
+        targets[next[graph.edgeSources[edge]]++] = graph.edgeTargets[edge];
+      }
+
+      valueNodeOffsets = new int[graph.values.size() + 1];
+      for (int node = 0; node < graph.nodeCount; node++) {
+        valueNodeOffsets[graph.nodeValues[node] + 1]++;
+      }
+      for (int value = 0; value < graph.values.size(); value++) {
+        valueNodeOffsets[value + 1] += valueNodeOffsets[value];
+      }
+      valueNodes = new int[graph.nodeCount];
+      int[] nextNode = Arrays.copyOf(valueNodeOffsets, graph.values.size());
+      for (int node = 0; node < graph.nodeCount; node++) {
+        valueNodes[nextNode[graph.nodeValues[node]]++] = node;
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Scores how likely a parameter is to hold a dynamic value (session ids, tokens, nonces, etc.),
+ * so the parameters that are very unlikely to need correlation can be discarded before the costly
+ * search of suggestions.
+ *
+ * <p>The score goes from 0 to 1 and combines the shape of each value (Shannon entropy, mix of
+ * character classes and length) with how the parameter behaves across the traces: parameters with
+ * few different values repeated many times look like enums, and parameters whose values changed
+ * between the recording and the replay are more likely to be dynamic.
+ *
+ * <p>Values with well known non-dynamic shapes (small integers, dates, times and decimal numbers)
+ * score 0.
+ */
+public class ValueScorer {
+  private static final Pattern SMALL_INTEGER = Pattern.compile("-?\\d{1,4}");
+  private static final Pattern DECIMAL = Pattern.compile("-?\\d+[.,]\\d+");
+  private static final Pattern DATE = Pattern.compile(
+      "\\d{4}[-/.]\\d{1,2}[-/.]\\d{1,2}"
+          + "([ T]\\d{1,2}:\\d{2}(:\\d{2}([.,]\\d+)?)?)?(Z|[+-]\\d{2}:?\\d{2})?"
+          + "|\\d{1,2}[-/.]\\d{1,2}[-/.]\\d{2,4}");
+  private static final Pattern TIME = Pattern.compile("\\d{1,2}:\\d{2}(:\\d{2})?");
+  // Bits per character from which a value is considered completely random
+  private static final double MAX_ENTROPY = 4.0;
+  private static final int MAX_CHARACTER_CLASSES = 4;
+  // Length from which the length of a value doesn't make it more likely to be dynamic
+  private static final int LONG_VALUE_LENGTH = 16;
+  private static final double ENTROPY_WEIGHT = 0.4;
+  private static final double CHARACTER_CLASSES_WEIGHT = 0.2;
+  private static final double LENGTH_WEIGHT = 0.2;
+  private static final double CHANGE_WEIGHT = 0.2;
+
+  private ValueScorer() {
+  }
+
+  /**
+   * Scores a parameter from its appearances in the recording and in the replay.
+   *
+   * @param originalAppearances the appearances of the parameter in one of the traces.
+   * @param otherAppearances    the appearances of the parameter in the other trace. Could be empty.
+   * @return the score of the parameter, from 0 (not dynamic) to 1 (very likely dynamic).
+   */
+  public static double score(List<Appearances> originalAppearances,
+                             List<Appearances> otherAppearances) {
+    Set<String> originalValues = getValues(originalAppearances);
+    Set<String> otherValues = getValues(otherAppearances);
+    double valueScore = 0;
+    for (String value : originalValues) {
+      valueScore = Math.max(valueScore, scoreValue(value));
+    }
+    for (String value : otherValues) {
+      valueScore = Math.max(valueScore, scoreValue(value));
+    }
+    if (valueScore == 0) {
+      return 0;
+    }
+
+    double changeScore = otherValues.isEmpty() || !originalValues.equals(otherValues) ? 1 : 0;
+    double score = valueScore * (1 - CHANGE_WEIGHT) + changeScore * CHANGE_WEIGHT;
+    Set<String> distinctValues = new HashSet<>(originalValues);
+    distinctValues.addAll(otherValues);
+    return score * getCardinalityFactor(getUsages(originalAppearances)
+        + getUsages(otherAppearances), distinctValues.size());
+  }
+
+  /*
+   * Each appearance groups all the samplers where its value is used from the same source (see
+   * JMeterElementUtils.addToMap), so the usages are the samplers and not the appearances.
+   */
+  private static int getUsages(List<Appearances> appearances) {
+    int usages = 0;
+    for (Appearances appearance : appearances) {
+      usages += appearance.getList().size();
+    }
+    return usages;
+  }
+
+  /**
+   * Scores a single value only by its shape, regardless of where it appears.
+   *
+   * @param value the value to score.
+   * @return the score of the value, from 0 (not dynamic) to 1 (very likely dynamic).
+   */
+  public static double scoreValue(String value) {
+    if (value == null || value.isEmpty() || hasStaticShape(value)) {
+      return 0;
+    }
+    double entropyScore = Math.min(1, getShannonEntropy(value) / MAX_ENTROPY);
+    double classesScore = (double) getCharacterClasses(value) / MAX_CHARACTER_CLASSES;
+    double lengthScore = Math.min(1, (double) value.length() / LONG_VALUE_LENGTH);
+    return (entropyScore * ENTROPY_WEIGHT + classesScore * CHARACTER_CLASSES_WEIGHT
+        + lengthScore * LENGTH_WEIGHT) / (1 - CHANGE_WEIGHT);
+  }
+
+  private static boolean hasStaticShape(String value) {
+    return SMALL_INTEGER.matcher(value).matches() || DECIMAL.matcher(value).matches()
+        || DATE.matcher(value).matches() || TIME.matcher(value).matches();
+  }
+
+  /**
+   * Calculates the Shannon entropy of the characters of a value.
+   *
+   * @param value the value to calculate the entropy for.
+   * @return the entropy of the value, in bits per character.
+   */
+  public static double getShannonEntropy(String value) {
+    Map<Character, Integer> frequencies = new HashMap<>();
+    for (int i = 0; i < value.length(); i++) {
+      frequencies.merge(value.charAt(i), 1, Integer::sum);
+    }
+    double entropy = 0;
+    for (int frequency : frequencies.values()) {
+      double probability = (double) frequency / value.length();
+      entropy -= probability * Math.log(probability) / Math.log(2);
+    }
+    return entropy;
+  }
+
+  private static int getCharacterClasses(String value) {
+    boolean lower = false;
+    boolean upper = false;
+    boolean digit = false;
+    boolean symbol = false;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (Character.isLowerCase(c)) {
+        lower = true;
+      } else if (Character.isUpperCase(c)) {
+        upper = true;
+      } else if (Character.isDigit(c)) {
+        digit = true;
+      } else {
+        symbol = true;
+      }
+    }
+    return (lower ? 1 : 0) + (upper ? 1 : 0) + (digit ? 1 : 0) + (symbol ? 1 : 0);
+  }
+
+  /*
+   * Few different values used many times (e.g. "asc"/"desc" in every request) look like an enum,
+   * so the score is lowered proportionally to how much the values are repeated.
+   */
+  private static double getCardinalityFactor(int usages, int distinctValues) {
+    if (usages <= 2 || distinctValues == 0) {
+      return 1;
+    }
+    double repetition = (double) usages / distinctValues;
+    return Math.min(1, 0.5 + 1 / repetition);
+  }
+
+  private static Set<String> getValues(List<Appearances> appearances) {
+    Set<String> values = new HashSet<>();
+    for (Appearances appearance : appearances) {
+      values.add(appearance.getValue());
+    }
+    return values;
+  }
+}
@@ -0,0 +1,262 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The different ways in which a dynamic value can be written in a response.
+ *
+ * <p>Applications don't always return a value the same way it is later sent: it can come
+ * URL-encoded, escaped inside a JSON string or an HTML attribute, wrapped in base64, etc. All the
+ * variants of a value are computed once, so they can be searched together, and the one that
+ * matched tells which function has to be used to get back the original value.
+ */
+public class ValueVariants {
+  private static final Pattern PERCENT_ESCAPE = Pattern.compile("%[0-9A-F]{2}");
+  // Base64 of short values is too likely to be found by chance in unrelated content
+  private static final int MIN_BASE64_VALUE_LENGTH = 8;
+
+  private final String value;
+  private final List<Variant> variants;
+
+  private ValueVariants(String value, List<Variant> variants) {
+    this.value = value;
+    this.variants = variants;
+  }
+
+  /**
+   * Computes all the variants of a value. Variants that end up being equal to a previous one
+   * (e.g. the URL-encoded version of an alphanumeric value) are only kept once, in the order of
+   * {@link Encoding}. Encodings that don't apply to the value produce no variant.
+   *
+   * @param value the value to compute the variants for.
+   * @return the variants of the value, where the first one is always the raw value.
+   */
+  public static ValueVariants of(String value) {
+    List<Variant> variants = new ArrayList<>();
+    Set<String> seen = new LinkedHashSet<>();
+    for (Encoding encoding : Encoding.values()) {
+      String encoded = encoding.encode(value);
+      if (!encoded.isEmpty() && seen.add(encoded)) {
+        variants.add(new Variant(encoding, encoded));
+      }
+    }
+    return new ValueVariants(value, Collections.unmodifiableList(variants));
+  }
+
+  /**
+   * URL-encodes the value the way browsers encode spaces in paths and query strings (%20).
+   *
+   * @param value the value to encode.
+   * @return the URL-encoded value.
+   */
+  public static String urlEncode(String value) {
+    String encodedValue = URLEncoder.encode(value);
+    if (encodedValue.indexOf(":////") == -1) {
+      encodedValue = encodedValue.replace("+", "%20");
+    }
+    return encodedValue;
+  }
+
+  private static String toLowerCasePercentEscapes(String encodedValue) {
+    Matcher matcher = PERCENT_ESCAPE.matcher(encodedValue);
+    StringBuffer result = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(result, matcher.group().toLowerCase());
+    }
+    matcher.appendTail(result);
+    return result.toString();
+  }
+
+  private static String jsonEscape(String value) {
+    StringBuilder builder = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '/':
+          builder.append("\\/");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String htmlEscape(String value) {
+    StringBuilder builder = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          builder.append("&amp;");
+          break;
+        case '<':
+          builder.append("&lt;");
+          break;
+        case '>':
+          builder.append("&gt;");
+          break;
+        case '"':
+          builder.append("&quot;");
+          break;
+        case '\'':
+          builder.append("&#39;");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public List<Variant> getVariants() {
+    return variants;
+  }
+
+  /**
+   * Returns the variants as plain strings, so they can be searched all at once.
+   *
+   * @return the different strings in which the value could appear.
+   */
+  public List<String> getEncodedValues() {
+    List<String> values = new ArrayList<>(variants.size());
+    for (Variant variant : variants) {
+      values.add(variant.getValue());
+    }
+    return values;
+  }
+
+  /**
+   * Ways in which a value can be encoded in a response, along with the JMeter function that
+   * decodes a variable holding the encoded value.
+   */
+  public enum Encoding {
+    RAW("Raw", null) {
+      @Override
+      public String encode(String value) {
+        return value;
+      }
+    },
+    URL_ENCODED("Encoded", "${__urldecode(${%s})}") {
+      @Override
+      public String encode(String value) {
+        return urlEncode(value);
+      }
+    },
+    URL_ENCODED_LOWERCASE("Encoded Lowercase", "${__urldecode(${%s})}") {
+      @Override
+      public String encode(String value) {
+        return toLowerCasePercentEscapes(urlEncode(value));
+      }
+    },
+    DOUBLE_URL_ENCODED("Double Encoded", "${__urldecode(${__urldecode(${%s})})}") {
+      @Override
+      public String encode(String value) {
+        return urlEncode(urlEncode(value));
+      }
+    },
+    JSON_ESCAPED("JSON Escaped", "${__unescape(${%s})}") {
+      @Override
+      public String encode(String value) {
+        return jsonEscape(value);
+      }
+    },
+    HTML_ESCAPED("HTML Escaped", "${__unescapeHtml(${%s})}") {
+      @Override
+      public String encode(String value) {
+        return htmlEscape(value);
+      }
+    },
+    BASE64("Base64",
+        "${__groovy(new String(vars.get('%s').decodeBase64()\\, 'UTF-8'))}") {
+      @Override
+      public String encode(String value) {
+        return value.length() < MIN_BASE64_VALUE_LENGTH ? ""
+            : Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+      }
+    };
+
+    private final String label;
+    private final String decodingTemplate;
+
+    Encoding(String label, String decodingTemplate) {
+      this.label = label;
+      this.decodingTemplate = decodingTemplate;
+    }
+
+    public abstract String encode(String value);
+
+    public String getLabel() {
+      return label;
+    }
+
+    /**
+     * Returns the expression that gets the original value back from a variable holding the
+     * encoded one.
+     *
+     * @param variableName the name of the variable holding the encoded value.
+     * @return the decoding expression, or an empty string when no decoding is needed.
+     */
+    public String getDecodingExpression(String variableName) {
+      return decodingTemplate == null ? "" : String.format(decodingTemplate, variableName);
+    }
+  }
+
+  /**
+   * One of the encoded versions of a value.
+   */
+  public static class Variant {
+    private final Encoding encoding;
+    private final String value;
+
+    public Variant(Encoding encoding, String value) {
+      this.encoding = encoding;
+      this.value = value;
+    }
+
+    public Encoding getEncoding() {
+      return encoding;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return encoding.getLabel() + "='" + value + "'";
+    }
+  }
+}
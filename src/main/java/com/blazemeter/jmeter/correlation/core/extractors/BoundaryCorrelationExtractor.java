@@ -0,0 +1,266 @@
+package com.blazemeter.jmeter.correlation.core.extractors;
+
+import com.blazemeter.jmeter.correlation.core.BaseCorrelationContext;
+import com.blazemeter.jmeter.correlation.core.CorrelationContext;
+import com.blazemeter.jmeter.correlation.core.ParameterDefinition;
+import com.blazemeter.jmeter.correlation.core.ParameterDefinition.ComboParameterDefinition;
+import com.blazemeter.jmeter.correlation.core.ParameterDefinition.TextParameterDefinition;
+import com.blazemeter.jmeter.correlation.core.analysis.AnalysisReporter;
+import com.blazemeter.jmeter.correlation.gui.CorrelationRuleTestElement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.apache.jmeter.extractor.BoundaryExtractor;
+import org.apache.jmeter.extractor.gui.BoundaryExtractorGui;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Correlation Extractor that obtains values from the responses using the literal text found right
+ * before and after them.
+ *
+ * <p>Since no regular expression is involved, the {@link BoundaryExtractor} it adds to the samplers
+ * is considerably cheaper to evaluate, during the replay, than an equivalent Regex Extractor.
+ *
+ * @param <T> correlation context that can be used to store values during replay
+ */
+public class BoundaryCorrelationExtractor<T extends BaseCorrelationContext> extends
+    CorrelationExtractor<T> {
+
+  protected static final String LEFT_BOUNDARY_NAME = EXTRACTOR_PREFIX + "leftBoundary";
+  protected static final String LEFT_BOUNDARY_DESCRIPTION = "Left boundary";
+  protected static final String RIGHT_BOUNDARY_NAME = EXTRACTOR_PREFIX + "rightBoundary";
+  protected static final String RIGHT_BOUNDARY_DESCRIPTION = "Right boundary";
+  protected static final String MATCH_NUMBER_NAME = EXTRACTOR_PREFIX + "matchNr";
+  protected static final String MATCH_NUMBER_DESCRIPTION = "Match number";
+  protected static final String DEFAULT_LEFT_BOUNDARY = "param=\"";
+  protected static final String DEFAULT_RIGHT_BOUNDARY = "\"";
+  private static final Logger LOG = LoggerFactory.getLogger(BoundaryCorrelationExtractor.class);
+  private static final String BOUNDARY_EXTRACTOR_GUI_CLASS = BoundaryExtractorGui.class.getName();
+  private static final String DEFAULT_MATCH_NUMBER_NAME = "match number";
+  private static final int DEFAULT_MATCH_NUMBER = 1;
+  private static final String DEFAULT_BOUNDARY_EXTRACTOR_SUFFIX = "_NOT_FOUND";
+  protected String leftBoundary;
+  protected String rightBoundary;
+  protected int matchNr;
+
+  /**
+   * Default constructor added in order to satisfy the JSON conversion.
+   */
+  public BoundaryCorrelationExtractor() {
+    leftBoundary = DEFAULT_LEFT_BOUNDARY;
+    rightBoundary = DEFAULT_RIGHT_BOUNDARY;
+    matchNr = DEFAULT_MATCH_NUMBER;
+    target = ResultField.BODY;
+  }
+
+  public BoundaryCorrelationExtractor(String leftBoundary, String rightBoundary,
+                                      ResultField target) {
+    this(leftBoundary, rightBoundary, String.valueOf(DEFAULT_MATCH_NUMBER), target.name());
+  }
+
+  /**
+   * Constructor that receives all the fields from the GUI, as strings, and handles the parsing of
+   * them.
+   *
+   * @param leftBoundary      text that is right before the value in the response
+   * @param rightBoundary     text that is right after the value in the response
+   * @param matchNr           number of the matched appearance that needs to be considered for
+   *                          extracting the value
+   * @param targetDescription name of the target where the Correlation Extractor will be applied
+   */
+  public BoundaryCorrelationExtractor(String leftBoundary, String rightBoundary, String matchNr,
+                                      String targetDescription) {
+    super(ResultField.valueOf(targetDescription));
+    this.leftBoundary = leftBoundary;
+    this.rightBoundary = rightBoundary;
+    this.matchNr = parseInteger(matchNr, DEFAULT_MATCH_NUMBER_NAME, DEFAULT_MATCH_NUMBER);
+  }
+
+  /**
+   * Returns the text between the boundaries, looking for them in the same way the
+   * {@link BoundaryExtractor} does: after each match, the search continues after its right
+   * boundary. An empty right boundary takes the rest of the input.
+   *
+   * @param input   the text where the value is searched.
+   * @param matchNr the number of the match to return, starting from 1.
+   * @return the value of the requested match, or null if there are less matches.
+   */
+  @Override
+  public String findMatch(String input, int matchNr) {
+    if (input == null || matchNr < 1) {
+      return null;
+    }
+    int from = 0;
+    int matchCount = 0;
+    while (from <= input.length()) {
+      int leftIndex = input.indexOf(leftBoundary, from);
+      if (leftIndex == -1) {
+        return null;
+      }
+      int valueStart = leftIndex + leftBoundary.length();
+      int valueEnd = rightBoundary.isEmpty() ? input.length()
+          : input.indexOf(rightBoundary, valueStart);
+      if (valueEnd == -1) {
+        return null;
+      }
+      if (++matchCount == matchNr) {
+        return input.substring(valueStart, valueEnd);
+      }
+      from = Math.max(valueEnd + rightBoundary.length(), leftIndex + 1);
+    }
+    return null;
+  }
+
+  @Override
+  public List<String> getParams() {
+    return Arrays.asList(leftBoundary, rightBoundary, Integer.toString(matchNr), target.name());
+  }
+
+  @Override
+  public void setParams(List<String> params) {
+    leftBoundary = params.size() > 0 ? params.get(0) : DEFAULT_LEFT_BOUNDARY;
+    rightBoundary = params.size() > 1 ? params.get(1) : DEFAULT_RIGHT_BOUNDARY;
+    matchNr = params.size() > 2 ? parseInteger(params.get(2), DEFAULT_MATCH_NUMBER_NAME,
+        DEFAULT_MATCH_NUMBER) : DEFAULT_MATCH_NUMBER;
+    target = params.size() > 3 && !params.get(3).isEmpty() ? ResultField.valueOf(params.get(3))
+        : ResultField.BODY;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Boundary";
+  }
+
+  @Override
+  public List<ParameterDefinition> getParamsDefinition() {
+    return Arrays.asList(new TextParameterDefinition(LEFT_BOUNDARY_NAME,
+            LEFT_BOUNDARY_DESCRIPTION, DEFAULT_LEFT_BOUNDARY),
+        new TextParameterDefinition(RIGHT_BOUNDARY_NAME, RIGHT_BOUNDARY_DESCRIPTION,
+            DEFAULT_RIGHT_BOUNDARY),
+        new TextParameterDefinition(MATCH_NUMBER_NAME, MATCH_NUMBER_DESCRIPTION,
+            String.valueOf(DEFAULT_MATCH_NUMBER), true),
+        new ComboParameterDefinition(TARGET_FIELD_NAME, TARGET_FIELD_DESCRIPTION,
+            ResultField.BODY.name(), ResultField.getNamesToCodesMapping(), true));
+  }
+
+  @Override
+  public void updateTestElem(CorrelationRuleTestElement testElem) {
+    super.updateTestElem(testElem);
+    testElem.setProperty(LEFT_BOUNDARY_NAME, leftBoundary);
+    testElem.setProperty(RIGHT_BOUNDARY_NAME, rightBoundary);
+    testElem.setProperty(MATCH_NUMBER_NAME, String.valueOf(matchNr));
+  }
+
+  @Override
+  public void update(CorrelationRuleTestElement testElem) {
+    super.update(testElem);
+    leftBoundary = testElem.getPropertyAsString(LEFT_BOUNDARY_NAME);
+    rightBoundary = testElem.getPropertyAsString(RIGHT_BOUNDARY_NAME);
+    matchNr = parseInteger(testElem.getPropertyAsString(MATCH_NUMBER_NAME),
+        DEFAULT_MATCH_NUMBER_NAME, DEFAULT_MATCH_NUMBER);
+  }
+
+  /**
+   * Used to process the response after a request is made to extract values from it.
+   *
+   * <p>In case the boundaries are found, a {@link BoundaryExtractor} Post Processor will be added
+   * to the children list for JMeter to extract the value and store it in the
+   * <code>variableName</code>. During the recording, the matched value will be stored in the
+   * JMeterVariables to be considered for future Correlation Extractors/Replacements
+   *
+   * @param sampler  recorded sampler containing the information of the request
+   * @param children list of children added to the sampler (if the boundaries are found, a Boundary
+   *                 Extractor will be added to it)
+   * @param result   result containing information about request and associated response from server
+   * @param vars     stored variables shared between requests during recording
+   */
+  @Override
+  public void process(HTTPSamplerBase sampler, List<TestElement> children, SampleResult result,
+                      JMeterVariables vars) {
+    if (leftBoundary.isEmpty() && rightBoundary.isEmpty()) {
+      return;
+    }
+    if (matchNr < 1) {
+      LOG.warn("Only positive match numbers are supported by boundaries. Ignoring match number {}.",
+          matchNr);
+      return;
+    }
+    String match = findMatch(target.getField(result), matchNr);
+    if (match != null && !match.equals(vars.get(variableName))) {
+      AnalysisReporter.report(this, match, sampler, variableName, target.name());
+      if (AnalysisReporter.canCorrelate()) {
+        children.add(createPostProcessor(variableName, matchNr));
+      }
+      vars.put(variableName, match);
+    }
+  }
+
+  /**
+   * Creates a {@link BoundaryExtractor} Post Processor with the boundaries and the match number, to
+   * extract and store the matched value, during the replay, in the <code>variableName</code>.
+   *
+   * @return the created BoundaryExtractor Post Processor
+   */
+  @Override
+  public BoundaryExtractor createPostProcessor(String varName, int matchNr) {
+    BoundaryExtractor boundaryExtractor = new BoundaryExtractor();
+    boundaryExtractor.setProperty(TestElement.GUI_CLASS, BOUNDARY_EXTRACTOR_GUI_CLASS);
+    boundaryExtractor.setName("Boundary - " + varName);
+    boundaryExtractor.setRefName(varName);
+    boundaryExtractor.setLeftBoundary(leftBoundary);
+    boundaryExtractor.setRightBoundary(rightBoundary);
+    boundaryExtractor.setMatchNumber(matchNr);
+    boundaryExtractor.setDefaultValue(varName + DEFAULT_BOUNDARY_EXTRACTOR_SUFFIX);
+    boundaryExtractor.setUseField(target.getCode());
+    boundaryExtractor.setScopeAll();
+    return boundaryExtractor;
+  }
+
+  public String getLeftBoundary() {
+    return leftBoundary;
+  }
+
+  public String getRightBoundary() {
+    return rightBoundary;
+  }
+
+  @Override
+  public String toString() {
+    return "BoundaryCorrelationExtractor{"
+        + "leftBoundary='" + leftBoundary + '\''
+        + ", rightBoundary='" + rightBoundary + '\''
+        + ", matchNr=" + matchNr
+        + ", target=" + target
+        + '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BoundaryCorrelationExtractor<?> that = (BoundaryCorrelationExtractor<?>) o;
+    return matchNr == that.matchNr
+        && Objects.equals(leftBoundary, that.leftBoundary)
+        && Objects.equals(rightBoundary, that.rightBoundary)
+        && target == that.target;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(leftBoundary, rightBoundary, matchNr, target);
+  }
+
+  @Override
+  public Class<? extends CorrelationContext> getSupportedContext() {
+    return BaseCorrelationContext.class;
+  }
+}
@@ -10,8 +10,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
 import java.util.List;
+import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.AbstractScopedTestElement;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
@@ -126,6 +128,38 @@ public abstract class CorrelationExtractor<T extends CorrelationContext> extends
   public abstract void process(HTTPSamplerBase sampler, List<TestElement> children,
                                SampleResult result, JMeterVariables vars);
 
+  /**
+   * Creates the {@link PostProcessor} that extracts the value, during the replay, and stores it in
+   * the <code>varName</code>. Used to add the extraction directly to a sampler of the Test Plan,
+   * as when applying correlation suggestions.
+   *
+   * <p>Correlation Extractors that can't be represented by a single Post Processor don't need to
+   * overwrite this method, which returns null.
+   *
+   * @param varName name of the variable where the extracted value will be stored
+   * @param matchNr number of the matched appearance that needs to be extracted
+   * @return the created Post Processor, or null if the extractor doesn't support it
+   */
+  public AbstractScopedTestElement createPostProcessor(String varName, int matchNr) {
+    return null;
+  }
+
+  /**
+   * Looks for the value that the Post Processor created by this extractor would extract from the
+   * text of the target field. Used to validate and compare extractors without running them in
+   * JMeter.
+   *
+   * <p>Correlation Extractors that don't support it don't need to overwrite this method, which
+   * returns null.
+   *
+   * @param input   the text of the target field
+   * @param matchNr number of the matched appearance that needs to be extracted
+   * @return the extracted value, or null if it isn't found or the extractor doesn't support it
+   */
+  public String findMatch(String input, int matchNr) {
+    return null;
+  }
+
   public ResultField getTarget() {
     return target;
   }
@@ -0,0 +1,223 @@
+package com.blazemeter.jmeter.correlation.core.extractors;
+
+import com.blazemeter.jmeter.correlation.core.BaseCorrelationContext;
+import com.blazemeter.jmeter.correlation.core.CorrelationContext;
+import com.blazemeter.jmeter.correlation.core.ParameterDefinition;
+import com.blazemeter.jmeter.correlation.core.ParameterDefinition.TextParameterDefinition;
+import com.blazemeter.jmeter.correlation.core.analysis.AnalysisReporter;
+import com.blazemeter.jmeter.correlation.gui.CorrelationRuleTestElement;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
+import org.apache.jmeter.extractor.json.jsonpath.gui.JSONPostProcessorGui;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Correlation Extractor that obtains values from JSON responses using JSON paths.
+ *
+ * <p>The {@link JSONPostProcessor} it adds to the samplers doesn't need to scan the response with
+ * a regular expression, and keeps working when the fields of the response change their order or
+ * formatting.
+ *
+ * @param <T> correlation context that can be used to store values during replay
+ */
+public class JsonCorrelationExtractor<T extends BaseCorrelationContext> extends
+    CorrelationExtractor<T> {
+
+  protected static final String JSON_PATH_NAME = EXTRACTOR_PREFIX + "jsonPath";
+  protected static final String JSON_PATH_DESCRIPTION = "JSON path expression";
+  protected static final String MATCH_NUMBER_NAME = EXTRACTOR_PREFIX + "matchNr";
+  protected static final String MATCH_NUMBER_DESCRIPTION = "Match number";
+  protected static final String DEFAULT_JSON_PATH = "$.param";
+  private static final Logger LOG = LoggerFactory.getLogger(JsonCorrelationExtractor.class);
+  private static final String JSON_EXTRACTOR_GUI_CLASS = JSONPostProcessorGui.class.getName();
+  private static final String DEFAULT_MATCH_NUMBER_NAME = "match number";
+  private static final int DEFAULT_MATCH_NUMBER = 1;
+  private static final String DEFAULT_JSON_EXTRACTOR_SUFFIX = "_NOT_FOUND";
+  protected String jsonPath;
+  protected int matchNr;
+
+  /**
+   * Default constructor added in order to satisfy the JSON conversion.
+   */
+  public JsonCorrelationExtractor() {
+    this(DEFAULT_JSON_PATH);
+  }
+
+  public JsonCorrelationExtractor(String jsonPath) {
+    this(jsonPath, String.valueOf(DEFAULT_MATCH_NUMBER));
+  }
+
+  /**
+   * Constructor that receives all the fields from the GUI, as strings, and handles the parsing of
+   * them.
+   *
+   * @param jsonPath JSON path expression used to obtain the values from the responses
+   * @param matchNr  number of the matched appearance that needs to be considered for extracting
+   *                 the value
+   */
+  public JsonCorrelationExtractor(String jsonPath, String matchNr) {
+    super(ResultField.BODY);
+    this.jsonPath = jsonPath;
+    this.matchNr = parseInteger(matchNr, DEFAULT_MATCH_NUMBER_NAME, DEFAULT_MATCH_NUMBER);
+  }
+
+  /**
+   * Evaluates the JSON path on a JSON document.
+   *
+   * @param json    the JSON document where the value is searched.
+   * @param matchNr the number of the match to return, starting from 1.
+   * @return the value of the requested match, or null if the document is not a JSON or there are
+   *     less matches.
+   */
+  @Override
+  public String findMatch(String json, int matchNr) {
+    if (json == null || json.isEmpty() || matchNr < 1) {
+      return null;
+    }
+    Object found;
+    try {
+      found = JsonPath.read(json, jsonPath);
+    } catch (JsonPathException | IllegalArgumentException e) {
+      LOG.debug("Could not evaluate JSON path '{}'", jsonPath, e);
+      return null;
+    }
+    if (found instanceof List) {
+      List<?> matches = (List<?>) found;
+      found = matches.size() >= matchNr ? matches.get(matchNr - 1) : null;
+    } else if (matchNr > 1) {
+      return null;
+    }
+    return found == null ? null : String.valueOf(found);
+  }
+
+  @Override
+  public List<String> getParams() {
+    return Arrays.asList(jsonPath, Integer.toString(matchNr));
+  }
+
+  @Override
+  public void setParams(List<String> params) {
+    jsonPath = params.size() > 0 ? params.get(0) : DEFAULT_JSON_PATH;
+    matchNr = params.size() > 1 ? parseInteger(params.get(1), DEFAULT_MATCH_NUMBER_NAME,
+        DEFAULT_MATCH_NUMBER) : DEFAULT_MATCH_NUMBER;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "JSON";
+  }
+
+  @Override
+  public List<ParameterDefinition> getParamsDefinition() {
+    return Arrays.asList(new TextParameterDefinition(JSON_PATH_NAME, JSON_PATH_DESCRIPTION,
+            DEFAULT_JSON_PATH),
+        new TextParameterDefinition(MATCH_NUMBER_NAME, MATCH_NUMBER_DESCRIPTION,
+            String.valueOf(DEFAULT_MATCH_NUMBER), true));
+  }
+
+  @Override
+  public void updateTestElem(CorrelationRuleTestElement testElem) {
+    super.updateTestElem(testElem);
+    testElem.setProperty(JSON_PATH_NAME, jsonPath);
+    testElem.setProperty(MATCH_NUMBER_NAME, String.valueOf(matchNr));
+  }
+
+  @Override
+  public void update(CorrelationRuleTestElement testElem) {
+    jsonPath = testElem.getPropertyAsString(JSON_PATH_NAME);
+    matchNr = parseInteger(testElem.getPropertyAsString(MATCH_NUMBER_NAME),
+        DEFAULT_MATCH_NUMBER_NAME, DEFAULT_MATCH_NUMBER);
+  }
+
+  /**
+   * Used to process the response after a request is made to extract values from it.
+   *
+   * <p>In case the JSON path matches, a {@link JSONPostProcessor} will be added to the children
+   * list for JMeter to extract the value and store it in the <code>variableName</code>. During the
+   * recording, the matched value will be stored in the JMeterVariables to be considered for
+   * future Correlation Extractors/Replacements
+   *
+   * @param sampler  recorded sampler containing the information of the request
+   * @param children list of children added to the sampler (if the JSON path matches, a JSON
+   *                 Extractor will be added to it)
+   * @param result   result containing information about request and associated response from server
+   * @param vars     stored variables shared between requests during recording
+   */
+  @Override
+  public void process(HTTPSamplerBase sampler, List<TestElement> children, SampleResult result,
+                      JMeterVariables vars) {
+    if (jsonPath.isEmpty()) {
+      return;
+    }
+    String match = findMatch(result.getResponseDataAsString(), matchNr);
+    if (match != null && !match.equals(vars.get(variableName))) {
+      AnalysisReporter.report(this, match, sampler, variableName, target.name());
+      if (AnalysisReporter.canCorrelate()) {
+        children.add(createPostProcessor(variableName, matchNr));
+      }
+      vars.put(variableName, match);
+    }
+  }
+
+  /**
+   * Creates a {@link JSONPostProcessor} with the JSON path and the match number, to extract and
+   * store the matched value, during the replay, in the <code>variableName</code>.
+   *
+   * @return the created JSON Extractor Post Processor
+   */
+  @Override
+  public JSONPostProcessor createPostProcessor(String varName, int matchNr) {
+    JSONPostProcessor jsonExtractor = new JSONPostProcessor();
+    jsonExtractor.setProperty(TestElement.GUI_CLASS, JSON_EXTRACTOR_GUI_CLASS);
+    jsonExtractor.setName("JSON - " + varName);
+    jsonExtractor.setRefNames(varName);
+    jsonExtractor.setJsonPathExpressions(jsonPath);
+    jsonExtractor.setMatchNumbers(String.valueOf(matchNr));
+    jsonExtractor.setDefaultValues(varName + DEFAULT_JSON_EXTRACTOR_SUFFIX);
+    jsonExtractor.setScopeAll();
+    return jsonExtractor;
+  }
+
+  public String getJsonPath() {
+    return jsonPath;
+  }
+
+  @Override
+  public String toString() {
+    return "JsonCorrelationExtractor{"
+        + "jsonPath='" + jsonPath + '\''
+        + ", matchNr=" + matchNr
+        + '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    JsonCorrelationExtractor<?> that = (JsonCorrelationExtractor<?>) o;
+    return matchNr == that.matchNr && Objects.equals(jsonPath, that.jsonPath);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(jsonPath, matchNr);
+  }
+
+  @Override
+  public Class<? extends CorrelationContext> getSupportedContext() {
+    return BaseCorrelationContext.class;
+  }
+}
@@ -245,6 +245,14 @@ public class RegexCorrelationExtractor<T extends BaseCorrelationContext> extends
 
   }
 
+  @Override
+  public String findMatch(String input, int matchNr) {
+    if (input == null || regex.isEmpty() || matchNr < 1) {
+      return null;
+    }
+    return new RegexMatcher(regex, groupNr).findMatch(input, matchNr);
+  }
+
   private void clearJMeterVariables(JMeterVariables vars) {
     Set<Entry<String, Object>> entries = new HashSet<>(vars.entrySet());
     entries.forEach(e -> {
@@ -274,6 +282,7 @@ public class RegexCorrelationExtractor<T extends BaseCorrelationContext> extends
    * @return the created RegexExtractor Post Processor
    * @see <a href="https://jmeter.apache.org/api/org/apache/jmeter/extractor/RegexExtractor.html">RegexExtractor</a>
    */
+  @Override
   public RegexExtractor createPostProcessor(String varName, int matchNr) {
     RegexExtractor regexExtractor = new RegexExtractor();
     regexExtractor.setProperty(TestElement.GUI_CLASS, REGEX_EXTRACTOR_GUI_CLASS);
@@ -2,10 +2,13 @@ package com.blazemeter.jmeter.correlation.gui.automatic;
 
 import com.blazemeter.jmeter.commons.SwingUtils;
 import com.blazemeter.jmeter.correlation.core.CorrelationRule;
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics;
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationHistory;
 import com.blazemeter.jmeter.correlation.core.automatic.CorrelationSuggestion;
 import com.blazemeter.jmeter.correlation.core.automatic.ElementsComparison;
 import com.blazemeter.jmeter.correlation.core.automatic.ElementsModification;
 import com.blazemeter.jmeter.correlation.core.automatic.ModificationResult;
+import com.blazemeter.jmeter.correlation.core.automatic.ValueFlowGraph;
 import com.blazemeter.jmeter.correlation.core.templates.Template;
 import com.blazemeter.jmeter.correlation.core.templates.TemplateVersion;
 import com.blazemeter.jmeter.correlation.core.templates.repository.Properties;
@@ -19,6 +22,8 @@ import java.awt.Font;
 import java.awt.Label;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -29,6 +34,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import javax.swing.GroupLayout;
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
@@ -60,6 +66,7 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
   private static final String MANUAL_REPLAY = "replay";
   private static final String CLEAR_SUGGESTIONS = "clear";
   private static final String EXPORT_AS_RULES = "export";
+  private static final String EXPORT_DIAGNOSTICS = "diagnostics";
   private final String iconSize = JMeterUtils.getPropDefault(
       JMeterToolBar.TOOLBAR_ICON_SIZE, JMeterToolBar.DEFAULT_TOOLBAR_ICON_SIZE);
   private final String toolbarPath = "toolbar/" + iconSize + "/";
@@ -68,6 +75,7 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
   private JList<String> reportList = new JList<>();
   private Runnable autoCorrelateMethod;
   private Runnable replaySelectionMethod;
+  private volatile ElementsComparison suggestionsGenerator;
   private final boolean isExtraDebuggingEnabled = JMeterUtils.getPropDefault(
       "correlation.debug.extra_debugging", false);
 
@@ -176,6 +184,15 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
         .withToolTip("Save the correlation rules associated to the suggestions")
         .build());
 
+    if (isExtraDebuggingEnabled) {
+      buttonsPanel.add(builder.withAction(EXPORT_DIAGNOSTICS)
+          .withName("exportDiagnostics")
+          .withText("Export diagnostics")
+          .withToolTip("Save the events of the last analysis (filtered values, orphans, "
+              + "replay errors, etc.) as JSON")
+          .build());
+    }
+
     JPanel displaySuggestionsPanel = new JPanel();
     BorderLayout layout = new BorderLayout(15, 15);
     displaySuggestionsPanel.setLayout(layout);
@@ -274,6 +291,9 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
       case EXPORT_AS_RULES:
         SwingUtilities.invokeLater(this::exportSuggestions);
         return;
+      case EXPORT_DIAGNOSTICS:
+        SwingUtilities.invokeLater(this::exportDiagnostics);
+        return;
       default:
         LOG.warn("Action {} not supported", action);
     }
@@ -402,6 +422,29 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
         JOptionPane.INFORMATION_MESSAGE);
   }
 
+  private void exportDiagnostics() {
+    JFileChooser fileChooser = new JFileChooser();
+    fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+    fileChooser.setSelectedFile(new File("correlation-diagnostics.json"));
+    if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+      return;
+    }
+
+    CorrelationDiagnostics diagnostics = CorrelationDiagnostics.getInstance();
+    try {
+      diagnostics.exportJson(fileChooser.getSelectedFile());
+      JOptionPane.showMessageDialog(this, "Diagnostics saved. Events count:\n"
+              + diagnostics.getCounters().entrySet().stream()
+              .map(entry -> entry.getKey() + ": " + entry.getValue())
+              .collect(Collectors.joining("\n")),
+          "Exporting diagnostics", JOptionPane.INFORMATION_MESSAGE);
+    } catch (IOException e) {
+      LOG.error("Error exporting the correlation diagnostics", e);
+      JOptionPane.showMessageDialog(this, "Error exporting the diagnostics: " + e.getMessage(),
+          "Exporting diagnostics", JOptionPane.ERROR_MESSAGE);
+    }
+  }
+
   public void displayAppliedResults() {
     tabbedPane.setSelectedIndex(1);
   }
@@ -411,21 +454,53 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
   }
 
   public void triggerSuggestionsGeneration(int totalErrors) {
-    if (totalErrors == 0) {
+    ElementsComparison generator = new ElementsComparison();
+    List<String> comparedRecordings = generator.getConfiguration().getComparedRecordings();
+    // Comparing other recordings finds the dynamic values even when the replay didn't fail
+    if (totalErrors == 0 && comparedRecordings.isEmpty()) {
       LOG.warn("No errors were found in the replay report, cannot generate suggestions");
       return;
     }
 
-    List<CorrelationSuggestion> suggestions =
-        new ElementsComparison().generateSuggestionsFromFailingReplayTraceOnly(
-            getRecordingTraceSupplier.get(),
-            getReplayTraceSupplier.get());
+    suggestionsGenerator = generator;
+    List<CorrelationSuggestion> suggestions;
+    if (comparedRecordings.isEmpty()) {
+      suggestions = generator.generateSuggestionsFromFailingReplayTraceOnly(
+          getRecordingTraceSupplier.get(),
+          getReplayTraceSupplier.get());
+    } else {
+      List<String> recordingTraces = new ArrayList<>();
+      recordingTraces.add(getRecordingTraceSupplier.get());
+      recordingTraces.addAll(comparedRecordings);
+      suggestions = generator.generateSuggestionsFromRecordings(recordingTraces);
+    }
+    suggestionsGenerator = null;
+    if (generator.isCancelled()) {
+      LOG.info("Suggestions generation cancelled by the user");
+      return;
+    }
+    saveValueFlowGraph(generator.getValueFlowGraph());
 
     loadSuggestions(suggestions);
     toggleWizardVisibility();
     showColumn(3, 0);
   }
 
+  private void saveValueFlowGraph(ValueFlowGraph graph) {
+    CorrelationHistory history = getCorrelationHistorySupplier == null ? null
+        : getCorrelationHistorySupplier.get();
+    if (graph != null && history != null) {
+      history.addValueFlowGraph(graph);
+    }
+  }
+
+  public void cancelSuggestionsGeneration() {
+    ElementsComparison generator = suggestionsGenerator;
+    if (generator != null) {
+      generator.cancel();
+    }
+  }
+
   public void loadSuggestionsMap(Map<Template, List<CorrelationSuggestion>> suggestions) {
     SuggestionsTableModel model = (SuggestionsTableModel) table.getModel();
     model.loadSuggestionsMap(suggestions);
@@ -435,7 +510,7 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
     //Extended table will also show "New Value" column
     private boolean extended = false;
     private final List<String> columns = Arrays.asList("Select", "Source", "Name",
-        "Value", "Used on", "Obtained from");
+        "Value", "Used on", "Obtained from", "Extraction cost");
     private final List<SuggestionItem> suggestionList = new ArrayList<>();
     private final Map<Template, List<CorrelationSuggestion>> suggestionsMap =
         new HashMap<>();
@@ -483,6 +558,8 @@ public class CorrelationSuggestionsPanel extends WizardStepPanel implements Acti
           return suggestion.getUsedOnString();
         case 5:
           return suggestion.getObtainedFromString();
+        case 6:
+          return suggestion.getExtractionCostString();
         default:
           return "N/A";
       }
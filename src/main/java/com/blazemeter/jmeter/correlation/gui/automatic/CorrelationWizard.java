@@ -16,6 +16,8 @@ import com.blazemeter.jmeter.correlation.gui.analysis.CorrelationTemplatesSelect
 import com.helger.commons.annotation.VisibleForTesting;
 import java.awt.Component;
 import java.awt.GridLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -241,9 +243,20 @@ public class CorrelationWizard extends JDialog {
         @Override
         protected void done() {
           disposeWaitingDialog();
+          if (isCancelled()) {
+            return;
+          }
           displaySuggestions();
         }
       };
+      // Closing the waiting dialog cancels the generation of the suggestions
+      runDialog.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          suggestionsPanel.cancelSuggestionsGeneration();
+          swSuggestionsGeneration.cancel(true);
+        }
+      });
       swSuggestionsGeneration.execute();
     } else {
       LOG.warn("Replay report is null, cannot generate suggestions.");
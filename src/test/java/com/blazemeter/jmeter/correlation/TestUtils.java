@@ -3,6 +3,7 @@ package com.blazemeter.jmeter.correlation;
 import com.google.common.io.Resources;
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
@@ -11,6 +12,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.PropertyIterator;
@@ -52,4 +55,31 @@ public class TestUtils {
     return new File(resource.getFile());
   }
 
+  /**
+   * Builds the result of a successful GET request with a text response and no headers, so tests
+   * only need to change what they check.
+   *
+   * @param label the label of the result.
+   * @param url   the URL of the request.
+   * @param body  the body of the response.
+   * @return the result.
+   */
+  public static HTTPSampleResult buildHttpResult(String label, String url, String body) {
+    HTTPSampleResult result = new HTTPSampleResult();
+    result.setSampleLabel(label);
+    try {
+      result.setURL(new URL(url));
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("Invalid URL " + url, e);
+    }
+    result.setHTTPMethod("GET");
+    result.setRequestHeaders("");
+    result.setResponseCode("200");
+    result.setSuccessful(true);
+    result.setResponseHeaders("");
+    result.setDataType(SampleResult.TEXT);
+    result.setResponseData(body, "UTF-8");
+    return result;
+  }
+
 }
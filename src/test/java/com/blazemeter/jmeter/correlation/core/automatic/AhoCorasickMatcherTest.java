@@ -0,0 +1,24 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class AhoCorasickMatcherTest {
+
+  @Test
+  public void shouldFindFirstOccurrenceOfOverlappingPatterns() {
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("he", "she", "hers", "his",
+        "missing"));
+
+    assertThat(matcher.findFirstOccurrences("ushers his")).containsExactly(2, 1, 2, 7, -1);
+  }
+
+  @Test
+  public void shouldIgnoreEmptyPatterns() {
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("", "abc"));
+
+    assertThat(matcher.findFirstOccurrences("xabc")).containsExactly(-1, 1);
+  }
+}
@@ -0,0 +1,57 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.Event;
+import com.blazemeter.jmeter.correlation.core.automatic.CorrelationDiagnostics.EventType;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class CorrelationDiagnosticsTest {
+
+  @Test
+  public void shouldKeepOnlyLastEventsWhileCountingAllOfThem() {
+    CorrelationDiagnostics diagnostics = new CorrelationDiagnostics(2);
+    diagnostics.record(EventType.FILTERED_VALUE, "first", "");
+    diagnostics.record(EventType.REPLAY_ERROR, "second", "");
+    diagnostics.record(EventType.FILTERED_VALUE, "third", "");
+
+    assertThat(diagnostics.getEvents().stream().map(Event::getSubject)
+        .collect(Collectors.toList())).containsExactly("second", "third");
+    assertThat(diagnostics.getCount(EventType.FILTERED_VALUE)).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldExportCountersAndEventsAsJson() throws IOException {
+    CorrelationDiagnostics diagnostics = new CorrelationDiagnostics(10);
+    diagnostics.record(EventType.ORPHAN_SUGGESTION, "token", "Ext=0 Rep=1");
+
+    assertThat(diagnostics.toJson()).contains("\"ORPHAN_SUGGESTION\" : 1", "\"token\"");
+  }
+
+  @Test
+  public void shouldDiscardEventsAndCountersWhenCleared() {
+    CorrelationDiagnostics diagnostics = new CorrelationDiagnostics(10);
+    diagnostics.record(EventType.REPLAY_ERROR, "login", "");
+
+    diagnostics.clear();
+
+    assertThat(diagnostics.getEvents()).isEmpty();
+    assertThat(diagnostics.getCount(EventType.REPLAY_ERROR)).isZero();
+  }
+
+  @Test
+  public void shouldCountEventsWithoutBuildingTheirDetailsWhenNotKeepingThem() {
+    CorrelationDiagnostics diagnostics = new CorrelationDiagnostics(0);
+    AtomicInteger builtDetails = new AtomicInteger();
+
+    diagnostics.record(EventType.FILTERED_VALUE, "token",
+        () -> "Detail " + builtDetails.incrementAndGet());
+
+    assertThat(diagnostics.getCount(EventType.FILTERED_VALUE)).isEqualTo(1);
+    assertThat(diagnostics.getEvents()).isEmpty();
+    assertThat(builtDetails.get()).isEqualTo(diagnostics.isEnabled() ? 1 : 0);
+  }
+}
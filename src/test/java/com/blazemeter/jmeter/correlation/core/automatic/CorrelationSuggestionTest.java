@@ -0,0 +1,60 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
+import java.util.Arrays;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class CorrelationSuggestionTest {
+  private static final String NAME = "token";
+  private static final String VALUE = "abc123";
+
+  private final CorrelationSuggestion suggestion = new CorrelationSuggestion(NAME, VALUE);
+
+  @Test
+  public void shouldRejectEquivalentExtractionSuggestion() {
+    SampleResult result = new SampleResult();
+    result.setSampleLabel("login");
+
+    assertThat(suggestion.addExtractionSuggestionIfAbsent(buildExtraction(result, "token#0")))
+        .isTrue();
+    assertThat(suggestion.addExtractionSuggestionIfAbsent(buildExtraction(result, "token#1")))
+        .isFalse();
+    assertThat(suggestion.getExtractionSuggestions()).hasSize(1);
+  }
+
+  @Test
+  public void shouldAcceptSameReplacementOnDifferentUsages() {
+    HTTPSamplerProxy usage = new HTTPSamplerProxy();
+
+    assertThat(suggestion.addReplacementSuggestionIfAbsent(buildReplacement(usage))).isTrue();
+    assertThat(suggestion.addReplacementSuggestionIfAbsent(buildReplacement(usage))).isFalse();
+    assertThat(suggestion.addReplacementSuggestionIfAbsent(
+        buildReplacement(new HTTPSamplerProxy()))).isTrue();
+    assertThat(suggestion.getReplacementSuggestions()).hasSize(2);
+  }
+
+  private static ExtractionSuggestion buildExtraction(SampleResult result, String variableName) {
+    RegexCorrelationExtractor<?> extractor = new RegexCorrelationExtractor<>();
+    extractor.setVariableName(variableName);
+    extractor.setParams(Arrays.asList("token=(.+?);", "1", "1", "BODY", "true"));
+    ExtractionSuggestion extraction = new ExtractionSuggestion(extractor, result);
+    extraction.setName(NAME);
+    extraction.setValue(VALUE);
+    extraction.setSource("Response Body ('Raw')");
+    return extraction;
+  }
+
+  private static ReplacementSuggestion buildReplacement(HTTPSamplerProxy usage) {
+    ReplacementSuggestion replacement = new ReplacementSuggestion(
+        new RegexCorrelationReplacement<>(NAME + "=([^&]+)"), usage);
+    replacement.setName(NAME);
+    replacement.setValue(VALUE);
+    replacement.setSource("HTTP arguments");
+    return replacement;
+  }
+}
@@ -0,0 +1,111 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.JMeterTestUtils;
+import com.blazemeter.jmeter.correlation.TestUtils;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CustomResultCollectorTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupClass() {
+    JMeterTestUtils.setupJmeterEnv();
+  }
+
+  private static SampleEvent buildEvent(String label, String code, boolean successful) {
+    HTTPSampleResult result = TestUtils.buildHttpResult(label, "http://example.com/" + label,
+        "Response of " + label);
+    result.setResponseCode(code);
+    result.setSuccessful(successful);
+    return new SampleEvent(result, "Thread Group");
+  }
+
+  @Test
+  public void shouldKeepOnlyErrorsAndLoadTheirResultsFromTrace() {
+    CustomResultCollector collector = new CustomResultCollector();
+    File trace = new File(tempFolder.getRoot(), "replay.jtl");
+    collector.setFilename(trace.getAbsolutePath());
+    collector.testStarted();
+    collector.sampleOccurred(buildEvent("login", "200", true));
+    collector.sampleOccurred(buildEvent("account", "403", false));
+    collector.sampleOccurred(buildEvent("logout", "200", true));
+    collector.testEnded();
+
+    List<ReplayError> errors = collector.getErrors();
+    assertThat(collector.getResultCount()).isEqualTo(3);
+    assertThat(errors.stream().map(ReplayError::getIndex).collect(Collectors.toList()))
+        .containsExactly(1);
+    assertThat(new ResultFileParser().loadFromFile(trace, i -> i == errors.get(0).getIndex())
+        .stream().map(SampleResult::getResponseDataAsString).collect(Collectors.toList()))
+        .containsExactly("Response of account");
+  }
+
+  @Test
+  public void shouldNotCountDivergencesOfRestoredResultsWhenReplayIsResumed() {
+    ReplayDivergenceMonitor monitor = new ReplayDivergenceMonitor(Arrays.asList(
+        buildEvent("step", "200", true).getResult(), buildEvent("step", "200", true).getResult()),
+        1, 0);
+    CustomResultCollector collector = new CustomResultCollector();
+    collector.setFilename(new File(tempFolder.getRoot(), "replay.jtl").getAbsolutePath());
+    collector.setDivergenceMonitor(monitor);
+    collector.testStarted();
+    collector.sampleRestored(buildEvent("step", "500", false));
+    SampleEvent replayed = buildEvent("step", "200", true);
+    collector.sampleOccurred(replayed);
+    collector.testEnded();
+
+    assertThat(monitor.getDivergences()).isEmpty();
+    assertThat(replayed.getResult().isStopTest()).isFalse();
+    assertThat(collector.getErrorsCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldWriteResultsInTheOrderOfTheirIdsWhenSampledByManyThreads()
+      throws InterruptedException {
+    CustomResultCollector collector = new CustomResultCollector();
+    File trace = new File(tempFolder.getRoot(), "replay.jtl");
+    collector.setFilename(trace.getAbsolutePath());
+    collector.testStarted();
+    List<Thread> threads = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      String prefix = "thread" + thread + "-";
+      threads.add(new Thread(() -> IntStream.range(0, 200).forEach(
+          i -> collector.sampleOccurred(buildEvent(prefix + i, "200", i % 7 != 0)))));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    collector.testEnded();
+
+    List<SampleResult> written = new ResultFileParser().loadFromFile(trace, i -> true);
+    assertThat(written.stream()
+        .map(result -> collector.getSignatureIds().getId(buildEvent(result.getSampleLabel(),
+            "200", true).getResult()))
+        .mapToInt(Integer::intValue).toArray())
+        .isEqualTo(collector.getRequestIds());
+    assertThat(collector.getErrors().stream()
+        .map(error -> written.get(error.getIndex()).getSampleLabel())
+        .collect(Collectors.toList()))
+        .isEqualTo(collector.getErrors().stream().map(ReplayError::getLabel)
+            .collect(Collectors.toList()));
+  }
+}
@@ -2,14 +2,20 @@ package com.blazemeter.jmeter.correlation.core.automatic;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import com.blazemeter.jmeter.correlation.TestUtils;
+import com.blazemeter.jmeter.correlation.core.extractors.BoundaryCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.ResultField;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.functions.InvalidVariableException;
 import org.apache.jmeter.functions.RegexFunction;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
@@ -80,4 +86,80 @@ public class ElementsComparisonTest {
     String matchedString = getMatchedString(getRegex(correlationExtractor), rawHeader);
     assertThat(matchedString).isEqualTo(value);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void shouldGenerateBoundaryExtractorEndingAtTheLineBreak() {
+    String rawHeader = "Cache-Control: no-cache, must-revalidate, max-age=0\n" +
+        "X-WP-Nonce: e617becc44\n" +
+        "Allow: GET, POST, PUT, PATCH\n";
+    String value = "e617becc44";
+
+    BoundaryCorrelationExtractor<?> extractor = elementsComparison.generateBoundaryExtractor(
+        "X-WP-Nonce", value, elementsComparison.getContextString(rawHeader, value),
+        ResultField.RESPONSE_HEADERS);
+
+    assertThat(extractor.getLeftBoundary()).isEqualTo("WP-Nonce: ");
+    assertThat(extractor.getRightBoundary()).isEqualTo("\n");
+    assertThat(extractor.findMatch(rawHeader, 1)).isEqualTo(value);
+  }
+
+  @Test
+  public void shouldNotGenerateBoundaryExtractorWhenValueEndsTheContext() {
+    String body = "token=459581b016d5b6bed071a02";
+    String value = "459581b016d5b6bed071a02";
+
+    assertThat(elementsComparison.generateBoundaryExtractor("token", value,
+        elementsComparison.getContextString(body, value), ResultField.BODY)).isNull();
+  }
+
+  @Test
+  public void shouldSuggestRegexExtractorWhenBoundariesMatchAnotherValueFirst() {
+    Configuration configuration = new Configuration();
+    configuration.setExtractorBenchmarkIterations(0);
+    String value = "459581b016d5";
+    String body = "nonce\nid=1\nid=" + value + "\n";
+
+    List<CorrelationSuggestion> suggestions = new ElementsComparison(configuration)
+        .generateSuggestions(Collections.singletonList(buildDynamicElement("id", value)),
+            Collections.singletonList(buildResult(body)));
+
+    assertThat(suggestions.get(0).getExtractionSuggestions())
+        .extracting(ExtractionSuggestion::getExtractor)
+        .allMatch(RegexCorrelationExtractor.class::isInstance)
+        .isNotEmpty();
+  }
+
+  @Test
+  public void shouldKeepElementsOrderWhenGeneratingSuggestionsInParallel() {
+    Configuration configuration = new Configuration();
+    configuration.setSuggestionThreads(4);
+    List<DynamicElement> elements = IntStream.range(0, 20)
+        .mapToObj(i -> buildDynamicElement("param" + i, "value-" + i))
+        .collect(Collectors.toList());
+    String body = elements.stream()
+        .map(e -> e.getName() + "=" + e.getOriginalAppearance().get(0).getValue() + ";")
+        .collect(Collectors.joining("\n"));
+
+    List<CorrelationSuggestion> suggestions = new ElementsComparison(configuration)
+        .generateSuggestions(elements, Collections.singletonList(buildResult(body)));
+
+    assertThat(suggestions)
+        .extracting(CorrelationSuggestion::getParamName)
+        .containsExactlyElementsOf(elements.stream()
+            .map(DynamicElement::getName)
+            .collect(Collectors.toList()));
+  }
+
+  private static DynamicElement buildDynamicElement(String name, String value) {
+    HTTPSamplerProxy usage = new HTTPSamplerProxy();
+    usage.setName("next");
+    Appearances appearance = new Appearances(value, name, usage);
+    appearance.setSource("HTTP arguments");
+    return new DynamicElement(name, Collections.singletonList(appearance),
+        Collections.emptyList());
+  }
+
+  private static SampleResult buildResult(String body) {
+    return TestUtils.buildHttpResult("login", "http://example.com/login", body);
+  }
+}
@@ -0,0 +1,35 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.extractors.JsonCorrelationExtractor;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
+import org.junit.Test;
+
+public class ElementsModificationTest {
+
+  private static JSONPostProcessor buildJsonExtractor(String variableName, String jsonPath) {
+    return new JsonCorrelationExtractor<>(jsonPath).createPostProcessor(variableName, 1);
+  }
+
+  @Test
+  public void shouldExtractAllVariablesWhenMergingJsonExtractors() {
+    JSONPostProcessor target = buildJsonExtractor("token", "$.token");
+
+    assertThat(ElementsModification.mergeJsonExtractors(target,
+        buildJsonExtractor("userId", "$.user.id"))).isTrue();
+    assertThat(target.getRefNames()).isEqualTo("token;userId");
+    assertThat(target.getJsonPathExpressions()).isEqualTo("$.token;$.user.id");
+    assertThat(target.getMatchNumbers()).isEqualTo("1;1");
+    assertThat(target.getDefaultValues()).isEqualTo("token_NOT_FOUND;userId_NOT_FOUND");
+  }
+
+  @Test
+  public void shouldNotMergeJsonExtractorsWhenPathContainsSeparator() {
+    JSONPostProcessor target = buildJsonExtractor("token", "$.token");
+
+    assertThat(ElementsModification.mergeJsonExtractors(target,
+        buildJsonExtractor("item", "$['a;b']"))).isFalse();
+    assertThat(target.getRefNames()).isEqualTo("token");
+  }
+}
@@ -0,0 +1,48 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.ExternalAppearanceSorter.AppearanceRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class ExternalAppearanceSorterTest {
+  private static final String SOURCE = "HTTP arguments";
+
+  @Test
+  public void shouldGroupRecordsByNameKeepingTheirOrderWhenSpilledToDisk() throws IOException {
+    try (ExternalAppearanceSorter sorter = new ExternalAppearanceSorter(2)) {
+      String[] names = {"token", "id", "token", "session", "id"};
+      for (int i = 0; i < names.length; i++) {
+        sorter.add(names[i], "value" + i, SOURCE, i);
+      }
+
+      assertThat(sorter.getRunsCount()).isEqualTo(2);
+      assertThat(getGroupsValues(sorter.sortedGroups())).containsExactly(
+          "id=value1,value4", "session=value3", "token=value0,value2");
+    }
+  }
+
+  @Test
+  public void shouldSortInMemoryWhenRunSizeIsNotReached() throws IOException {
+    try (ExternalAppearanceSorter sorter = new ExternalAppearanceSorter(10)) {
+      sorter.add("token", "value0", SOURCE, 0);
+      sorter.add("id", "value1", SOURCE, 1);
+
+      assertThat(sorter.getRunsCount()).isZero();
+      assertThat(getGroupsValues(sorter.sortedGroups()))
+          .containsExactly("id=value1", "token=value0");
+    }
+  }
+
+  private static List<String> getGroupsValues(Iterator<List<AppearanceRecord>> groups) {
+    List<String> values = new ArrayList<>();
+    groups.forEachRemaining(group -> values.add(group.get(0).getName() + "="
+        + group.stream().map(AppearanceRecord::getValue).collect(Collectors.joining(","))));
+    return values;
+  }
+}
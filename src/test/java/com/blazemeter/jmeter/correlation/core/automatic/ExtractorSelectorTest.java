@@ -0,0 +1,100 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.ExtractorSelector.Selection;
+import com.blazemeter.jmeter.correlation.core.extractors.BoundaryCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.JsonCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.ResultField;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class ExtractorSelectorTest {
+
+  private final ExtractorSelector selector = new ExtractorSelector(5);
+
+  @Test
+  public void shouldSelectExtractorThatObtainsTheExpectedValue() {
+    CorrelationExtractor<?> otherValue = new BoundaryCorrelationExtractor<>("id=", "&",
+        ResultField.BODY);
+    CorrelationExtractor<?> expectedValue = new BoundaryCorrelationExtractor<>("token=", "&",
+        ResultField.BODY);
+
+    Selection selection = selector.select(Arrays.asList(otherValue, expectedValue),
+        "id=1&token=abc&page=2", "abc", null, null);
+
+    assertThat(selection.getExtractor()).isEqualTo(expectedValue);
+    assertThat(selection.getCostNanos()).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  public void shouldDiscardExtractorThatFindsNothingInTheReplay() {
+    CorrelationExtractor<?> boundary = new BoundaryCorrelationExtractor<>("\"token\":\"", "\"",
+        ResultField.BODY);
+    CorrelationExtractor<?> json = new JsonCorrelationExtractor<>("$.token");
+
+    Selection selection = selector.select(Arrays.asList(boundary, json), "{\"token\":\"abc\"}",
+        "abc", "{\"token\": \"xyz\"}", "xyz");
+
+    assertThat(selection.getExtractor()).isEqualTo(json);
+  }
+
+  @Test
+  public void shouldReturnNullWhenNoCandidateObtainsTheValue() {
+    assertThat(selector.select(Collections.singletonList(new JsonCorrelationExtractor<>("$.id")),
+        "{\"token\":\"abc\"}", "abc", null, null)).isNull();
+  }
+
+  @Test
+  public void shouldDiscardExtractorThatCapturesDifferentValues() {
+    CorrelationExtractor<?> ambiguous = new BoundaryCorrelationExtractor<>("=", "&",
+        ResultField.BODY);
+    CorrelationExtractor<?> unique = new BoundaryCorrelationExtractor<>("token=", "&",
+        ResultField.BODY);
+
+    Selection selection = selector.select(Arrays.asList(ambiguous, unique),
+        "token=abc&page=2&", "abc", null, null);
+
+    assertThat(selection.getExtractor()).isEqualTo(unique);
+  }
+
+  @Test
+  public void shouldDiscardExtractorThatCapturesAnotherValueInTheReplay() {
+    CorrelationExtractor<?> first = new BoundaryCorrelationExtractor<>("token=", "&",
+        ResultField.BODY);
+    CorrelationExtractor<?> json = new JsonCorrelationExtractor<>("$.token");
+
+    assertThat(selector.select(Arrays.asList(first, json), "token=abc&", "abc",
+        "token=xyz&token=zzz&", "xyz")).isNull();
+  }
+
+  @Test
+  public void shouldPreferCheaperExtractorRegardlessOfOrder() {
+    CorrelationExtractor<?> regex = new RegexCorrelationExtractor<>("token=(.+?)&");
+    CorrelationExtractor<?> boundary = new BoundaryCorrelationExtractor<>("token=", "&",
+        ResultField.BODY);
+
+    Selection selection = selector.select(Arrays.asList(regex, boundary), "token=abc&", "abc",
+        null, null);
+
+    assertThat(selection.getExtractor()).isEqualTo(boundary);
+  }
+
+  @Test
+  public void shouldSelectExtractorThatCapturesTheSameValueMoreTimesThanTheCheckedMatches() {
+    CorrelationExtractor<?> boundary = new BoundaryCorrelationExtractor<>("csrf=", "&",
+        ResultField.BODY);
+    String replayInput = IntStream.range(0, 20).mapToObj(i -> "form" + i + "&csrf=xyz&")
+        .collect(Collectors.joining());
+
+    Selection selection = selector.select(Collections.singletonList(boundary),
+        "form&csrf=abc&", "abc", replayInput, "xyz");
+
+    assertThat(selection.getExtractor()).isEqualTo(boundary);
+  }
+}
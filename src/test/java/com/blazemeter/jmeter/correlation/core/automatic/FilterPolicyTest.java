@@ -0,0 +1,67 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class FilterPolicyTest {
+
+  private static FilterPolicy buildPolicy() {
+    return new FilterPolicy(Arrays.asList("mozilla.org", "*.tracker.net"),
+        Collections.singletonList("User-Agent"), Arrays.asList("js", "png", "regex:woff2?"),
+        Arrays.asList("password", "ver"));
+  }
+
+  @Test
+  public void shouldIgnoreDomainAndItsSubdomains() {
+    FilterPolicy policy = buildPolicy();
+
+    assertThat(policy.isIgnoredDomain("mozilla.org")).isTrue();
+    assertThat(policy.isIgnoredDomain("aus5.Mozilla.org")).isTrue();
+    assertThat(policy.isIgnoredDomain("notmozilla.org")).isFalse();
+    assertThat(policy.isIgnoredDomain("mozilla.org.example.com")).isFalse();
+  }
+
+  @Test
+  public void shouldIgnoreDomainWhenMatchesWildcard() {
+    assertThat(buildPolicy().isIgnoredDomain("eu.tracker.net")).isTrue();
+  }
+
+  @Test
+  public void shouldIgnoreFilesByExtensionOfLastSegment() {
+    FilterPolicy policy = buildPolicy();
+
+    assertThat(policy.isIgnoredFile("/static/app.JS?v=3")).isTrue();
+    assertThat(policy.isIgnoredFile("/fonts/icons.woff2")).isTrue();
+    assertThat(policy.isIgnoredFile("/api/json/users")).isFalse();
+    assertThat(policy.isIgnoredFile("/assets.png/index")).isFalse();
+  }
+
+  @Test
+  public void shouldIgnoreContentTypesOfIgnoredFiles() {
+    FilterPolicy policy = buildPolicy();
+
+    assertThat(policy.isIgnoredContentType("image/png")).isTrue();
+    assertThat(policy.isIgnoredContentType("application/x-javascript; charset=UTF-8")).isTrue();
+    assertThat(policy.isIgnoredContentType("application/json")).isFalse();
+  }
+
+  @Test
+  public void shouldNotIgnorePlainTextResponsesWithDefaultConfiguration() {
+    FilterPolicy policy = new Configuration().getFilterPolicy();
+
+    assertThat(policy.isIgnoredContentType("text/plain; charset=UTF-8")).isFalse();
+    assertThat(policy.isIgnoredFile("/notes.txt")).isTrue();
+  }
+
+  @Test
+  public void shouldIgnoreNamesIgnoringCase() {
+    FilterPolicy policy = buildPolicy();
+
+    assertThat(policy.isIgnoredHeader("user-agent")).isTrue();
+    assertThat(policy.isIgnoredParameter(" Password ")).isTrue();
+    assertThat(policy.isIgnoredParameter("version")).isFalse();
+  }
+}
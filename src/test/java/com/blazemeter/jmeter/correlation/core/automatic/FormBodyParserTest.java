@@ -0,0 +1,64 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+public class FormBodyParserTest {
+
+  private static final String BOUNDARY = "XyZ123";
+
+  private static List<Pair<String, String>> parseMultipart(String body) {
+    List<Pair<String, String>> fields = new ArrayList<>();
+    FormBodyParser.parseMultipart(body, BOUNDARY,
+        (name, value) -> fields.add(Pair.of(name, value)));
+    return fields;
+  }
+
+  @Test
+  public void shouldParseTextFieldsOfMultipartBody() {
+    String body = "POST http://example.com/upload\r\n\r\n"
+        + "--XyZ123\r\n"
+        + "Content-Disposition: form-data; name=\"token\"\r\n\r\n"
+        + "a1b2c3\r\n"
+        + "--XyZ123\r\n"
+        + "Content-Disposition: form-data; name=\"comment\"\r\n\r\n"
+        + "first line\r\nsecond --XyZ123 line\r\n"
+        + "--XyZ123--\r\n";
+
+    assertThat(parseMultipart(body)).containsExactly(Pair.of("token", "a1b2c3"),
+        Pair.of("comment", "first line\r\nsecond --XyZ123 line"));
+  }
+
+  @Test
+  public void shouldSkipFileAndBinaryParts() {
+    String body = "--XyZ123\n"
+        + "Content-Disposition: form-data; name=\"file\"; filename=\"a;b.pdf\"\n"
+        + "Content-Type: application/pdf\n\n"
+        + "%PDF-1.4 binary\n"
+        + "--XyZ123\n"
+        + "Content-Disposition: form-data; name=\"image\"\n"
+        + "Content-Type: image/png\n\n"
+        + "PNG\n"
+        + "--XyZ123\n"
+        + "Content-Disposition: form-data; name=\"id\"\n\n"
+        + "42\n"
+        + "--XyZ123--";
+
+    assertThat(parseMultipart(body)).containsExactly(Pair.of("id", "42"));
+  }
+
+  @Test
+  public void shouldParseUrlEncodedFields() {
+    List<Pair<String, String>> fields = new ArrayList<>();
+    FormBodyParser.parseUrlEncoded("user=john%40doe&empty&data=a=b&bad=%zz", StandardCharsets.UTF_8,
+        (name, value) -> fields.add(Pair.of(name, value)));
+
+    assertThat(fields).containsExactly(Pair.of("user", "john@doe"), Pair.of("empty", ""),
+        Pair.of("data", "a=b"), Pair.of("bad", "%zz"));
+  }
+}
@@ -0,0 +1,117 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.JMeterTestUtils;
+import com.blazemeter.jmeter.correlation.TestUtils;
+import com.blazemeter.jmeter.correlation.core.automatic.IncrementalRecordingAnalysis.RecordingSnapshot;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IncrementalRecordingAnalysisTest {
+
+  private static final String TRACE_PATH = "recording.jtl";
+
+  @BeforeClass
+  public static void setupClass() {
+    JMeterTestUtils.setupJmeterEnv();
+  }
+
+  private static HTTPSampleResult buildResult(String url, String responseHeaders) {
+    HTTPSampleResult result = TestUtils.buildHttpResult(url, url, "");
+    result.setResponseHeaders(responseHeaders);
+    return result;
+  }
+
+  // Appearances don't implement equals, so they are compared by what they hold
+  private static Map<String, List<String>> describe(Map<String, List<Appearances>> map) {
+    Map<String, List<String>> described = new TreeMap<>();
+    map.forEach((name, appearances) -> described.put(name, appearances.stream()
+        .map(appearance -> appearance.getValue() + " from " + appearance.getSource() + " in "
+            + appearance.getList().stream().map(element -> element.getName())
+            .collect(Collectors.toList()))
+        .collect(Collectors.toList())));
+    return described;
+  }
+
+  @Test
+  public void shouldBuildSameAppearancesAsAnalyzingAllResultsTogether() {
+    Configuration configuration = new Configuration();
+    List<SampleResult> results = Arrays.asList(
+        buildResult("http://example.com/login",
+            "HTTP/1.1 200 OK\nSet-Cookie: session=f3a9c2e1b7d84a6f; Path=/"),
+        buildResult("http://example.com/account?session=f3a9c2e1b7d84a6f&page=summary", ""),
+        buildResult("http://example.com/orders?session=f3a9c2e1b7d84a6f&page=summary", ""));
+    IncrementalRecordingAnalysis analysis = new IncrementalRecordingAnalysis(configuration, 10);
+    results.forEach(analysis::offer);
+    analysis.complete(TRACE_PATH);
+
+    RecordingSnapshot snapshot = analysis.getSnapshot(TRACE_PATH, configuration);
+
+    assertThat(snapshot.getResults()).containsExactlyElementsOf(results);
+    assertThat(describe(snapshot.getAppearanceMap()))
+        .isNotEmpty()
+        .isEqualTo(describe(new ResultsExtraction(configuration).extractAppearanceMap(results)));
+  }
+
+  @Test
+  public void shouldReleaseAnalysisOnceSnapshotIsTaken() {
+    Configuration configuration = new Configuration();
+    IncrementalRecordingAnalysis analysis = IncrementalRecordingAnalysis.start(configuration);
+    analysis.complete(TRACE_PATH);
+
+    assertThat(analysis.getSnapshot(TRACE_PATH, configuration)).isNotNull();
+    assertThat(analysis.getSnapshot(TRACE_PATH, configuration)).isNull();
+    assertThat(IncrementalRecordingAnalysis.getInstance()).isNull();
+  }
+
+  @Test
+  public void shouldProvideSnapshotWhenRecordingIsComplete() {
+    Configuration configuration = new Configuration();
+    IncrementalRecordingAnalysis analysis = new IncrementalRecordingAnalysis(configuration, 10);
+    analysis.complete(TRACE_PATH);
+
+    RecordingSnapshot snapshot = analysis.getSnapshot(TRACE_PATH, configuration);
+
+    assertThat(snapshot.getResults()).isEmpty();
+    assertThat(snapshot.getAppearanceMap()).isEmpty();
+  }
+
+  @Test
+  public void shouldNotProvideSnapshotOfAnotherTrace() {
+    Configuration configuration = new Configuration();
+    IncrementalRecordingAnalysis analysis = new IncrementalRecordingAnalysis(configuration, 10);
+    analysis.complete(TRACE_PATH);
+
+    assertThat(analysis.getSnapshot("other.jtl", configuration)).isNull();
+  }
+
+  @Test
+  public void shouldNotProvideSnapshotWhenConfigurationChanged() {
+    Configuration configuration = new Configuration();
+    IncrementalRecordingAnalysis analysis = new IncrementalRecordingAnalysis(configuration, 10);
+    analysis.complete(TRACE_PATH);
+    configuration.setMinLength(configuration.getMinLength() + 1);
+
+    assertThat(analysis.getSnapshot(TRACE_PATH, configuration)).isNull();
+  }
+
+  @Test
+  public void shouldProvideSnapshotWhenSettingsUnrelatedToExtractionChanged() {
+    Configuration configuration = new Configuration();
+    IncrementalRecordingAnalysis analysis = new IncrementalRecordingAnalysis(configuration, 10);
+    analysis.complete(TRACE_PATH);
+    configuration.setSuggestionThreads(configuration.getSuggestionThreads() + 1);
+    configuration.setSuggestionsCache(!configuration.isSuggestionsCache());
+    configuration.setOfflineReplay(!configuration.isOfflineReplay());
+
+    assertThat(analysis.getSnapshot(TRACE_PATH, configuration)).isNotNull();
+  }
+}
@@ -0,0 +1,52 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.JsonParameterExtractor.JsonParameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class JsonParameterExtractorTest {
+  private final JsonParameterExtractor extractor = new JsonParameterExtractor();
+
+  @Test
+  public void shouldExtractNestedValuesWithTheirPaths() {
+    List<JsonParameter> parameters = new ArrayList<>();
+    boolean complete = extractor.extract("{\"token\":\"abc123\",\"user\":{\"ids\":[10,"
+        + "{\"session\":\"s-1\"}]}}", parameters::add);
+
+    assertThat(complete).isTrue();
+    assertThat(toStrings(parameters)).containsExactly("$.token|token|abc123",
+        "$.user.ids[0]|ids|10", "$.user.ids[1].session|session|s-1");
+  }
+
+  @Test
+  public void shouldExtractJsonEmbeddedInStrings() {
+    List<JsonParameter> parameters = new ArrayList<>();
+    extractor.extract("{\"data\":\"{\\\"nonce\\\":\\\"n-42\\\"}\"}", parameters::add);
+
+    assertThat(toStrings(parameters)).containsExactly("$.data.nonce|nonce|n-42");
+  }
+
+  @Test
+  public void shouldKeepValuesFoundBeforeAnInvalidEnding() {
+    List<JsonParameter> parameters = new ArrayList<>();
+    boolean complete = extractor.extract("{\"token\":\"abc123\",\"other\":", parameters::add);
+
+    assertThat(complete).isFalse();
+    assertThat(toStrings(parameters)).containsExactly("$.token|token|abc123");
+  }
+
+  @Test
+  public void shouldNotConsiderPlainTextAsValidJson() {
+    assertThat(JsonParameterExtractor.isValidJson("token=abc123")).isFalse();
+  }
+
+  private static List<String> toStrings(List<JsonParameter> parameters) {
+    return parameters.stream()
+        .map(p -> p.getPath() + "|" + p.getKey() + "|" + p.getValue())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,35 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class JsonPathIndexTest {
+  private final JsonPathIndex index = JsonPathIndex.of("{\"auth\":{\"token\":\"abc123\"},"
+      + "\"items\":[{\"id\":\"it-1\"},{\"id\":\"it-2\",\"url\":\"/a?csrf=xyz789\"}]}");
+
+  @Test
+  public void shouldFindPathOfExactValue() {
+    assertThat(index.getJsonPath("it-2", false)).isEqualTo("$.items[1].id");
+  }
+
+  @Test
+  public void shouldFindPathOfContainedValueWhenRequested() {
+    assertThat(index.getJsonPath("xyz789", true)).isEqualTo("$.items[1].url");
+  }
+
+  @Test
+  public void shouldNotFindContainedValueWhenNotRequested() {
+    assertThat(index.getJsonPath("xyz789", false)).isEmpty();
+  }
+
+  @Test
+  public void shouldFindEnclosingPathOfValue() {
+    assertThat(index.getEnclosingPath("abc123")).isEqualTo("$.auth");
+  }
+
+  @Test
+  public void shouldBeInvalidWhenResponseIsNotJson() {
+    assertThat(JsonPathIndex.of("<html></html>").isValid()).isFalse();
+  }
+}
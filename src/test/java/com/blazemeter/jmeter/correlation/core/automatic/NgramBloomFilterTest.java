@@ -0,0 +1,28 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class NgramBloomFilterTest {
+
+  @Test
+  public void shouldMightContainValuesOfTheTexts() {
+    NgramBloomFilter filter = NgramBloomFilter.of("{\"token\":\"a1b2c3d4\"}", "Location: /home");
+
+    assertThat(filter.mightContain("a1b2c3d4")).isTrue();
+    assertThat(filter.mightContain("/home")).isTrue();
+  }
+
+  @Test
+  public void shouldNotContainValuesWithMissingNgrams() {
+    NgramBloomFilter filter = NgramBloomFilter.of("{\"token\":\"a1b2c3d4\"}");
+
+    assertThat(filter.mightContain("z9y8x7w6")).isFalse();
+  }
+
+  @Test
+  public void shouldNotDiscardValuesShorterThanNgrams() {
+    assertThat(NgramBloomFilter.of("").mightContain("abc")).isTrue();
+  }
+}
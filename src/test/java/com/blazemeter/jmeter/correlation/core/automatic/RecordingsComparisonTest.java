@@ -0,0 +1,40 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.junit.Test;
+
+public class RecordingsComparisonTest {
+
+  private static HTTPSampleResult buildResult(String label, String url) {
+    return TestUtils.buildHttpResult(label, url, "");
+  }
+
+  @Test
+  public void shouldNormalizeIdentifiersInRequestSignature() {
+    assertThat(RecordingsComparison.getRequestSignature(buildResult("orders",
+        "http://example.com/users/1234/orders/5f2b9c1e8d7a6b5c4d3e?page=2")))
+        .isEqualTo("GET example.com/users/{id}/orders/{id}");
+  }
+
+  @Test
+  public void shouldMarkRecordingsWhereParameterValueDiffers() {
+    RecordingsComparison comparison = new RecordingsComparison(new Configuration());
+    comparison.addRecording(Collections.singletonList(buildResult("search",
+        "http://example.com/search?token=abcdef123&lang=english")));
+    comparison.addRecording(Collections.singletonList(buildResult("search",
+        "http://example.com/search?token=zyxwvu987&lang=english")));
+    comparison.addRecording(Collections.singletonList(buildResult("search",
+        "http://example.com/search?token=abcdef123&lang=english")));
+
+    assertThat(comparison.getDifferingRecordings("token").stream().boxed()
+        .collect(Collectors.toList())).containsExactly(1);
+    assertThat(comparison.getDifferingRecordings("lang").isEmpty()).isTrue();
+    assertThat(comparison.getDynamicElements().stream().map(DynamicElement::getName)
+        .collect(Collectors.toList())).containsExactly("token");
+  }
+}
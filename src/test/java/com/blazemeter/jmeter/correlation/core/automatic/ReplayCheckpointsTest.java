@@ -0,0 +1,109 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayCheckpoints.Checkpoint;
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayCheckpoints.PreparedReplay;
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayCheckpoints.Recorder;
+import com.blazemeter.jmeter.correlation.core.automatic.ReplayCheckpoints.Restorer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestPlan;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.junit.Test;
+
+public class ReplayCheckpointsTest {
+
+  private static Checkpoint buildCheckpoint(int resumeIndex) {
+    return new Checkpoint(resumeIndex, Collections.emptyMap(), Collections.emptyList(),
+        resumeIndex);
+  }
+
+  private static HashTree buildTestPlan(String... paths) {
+    ThreadGroup threadGroup = new ThreadGroup();
+    threadGroup.setNumThreads(1);
+    HashTree testPlan = new ListedHashTree();
+    HashTree threadGroupTree = testPlan.add(new TestPlan()).add(threadGroup);
+    for (String path : paths) {
+      HTTPSamplerProxy sampler = new HTTPSamplerProxy();
+      sampler.setName(path);
+      sampler.setPath(path);
+      threadGroupTree.add(sampler);
+    }
+    return testPlan;
+  }
+
+  private static HashTree getThreadGroupTree(HashTree testPlan) {
+    HashTree testPlanTree = testPlan.getTree(testPlan.getArray()[0]);
+    return testPlanTree.getTree(testPlanTree.getArray()[0]);
+  }
+
+  private static void replay(HashTree testPlan, List<SampleResult> results) {
+    HashTree threadGroupTree = getThreadGroupTree(testPlan);
+    Recorder recorder = (Recorder) threadGroupTree.list().stream()
+        .filter(element -> element instanceof Recorder)
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+    for (Object element : threadGroupTree.list()) {
+      if (element instanceof HTTPSamplerProxy) {
+        HTTPSamplerProxy sampler = (HTTPSamplerProxy) element;
+        JMeterContextService.getContext().setCurrentSampler(sampler);
+        SampleResult result = new SampleResult();
+        result.setSampleLabel(sampler.getName());
+        results.add(result);
+        recorder.sampleOccurred(new SampleEvent(result, "Thread Group"));
+      }
+    }
+  }
+
+  @Test
+  public void shouldFindFirstModifiedSampler() {
+    assertThat(ReplayCheckpoints.findFirstModifiedSampler(Arrays.asList("a", "b", "c"),
+        Arrays.asList("a", "x", "c"))).isEqualTo(1);
+    assertThat(ReplayCheckpoints.findFirstModifiedSampler(Arrays.asList("a", "b"),
+        Arrays.asList("a", "b", "c"))).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldFindLastCheckpointBeforeSampler() {
+    List<Checkpoint> checkpoints = Arrays.asList(buildCheckpoint(2), buildCheckpoint(4),
+        buildCheckpoint(6));
+    assertThat(ReplayCheckpoints.findCheckpoint(checkpoints, 5).getResumeIndex()).isEqualTo(4);
+    assertThat(ReplayCheckpoints.findCheckpoint(checkpoints, 1)).isNull();
+  }
+
+  @Test
+  public void shouldResumeFromCheckpointBeforeModifiedSampler() {
+    List<SampleResult> results = new ArrayList<>();
+    ReplayCheckpoints checkpoints = new ReplayCheckpoints() {
+      @Override
+      List<SampleResult> loadResults(String traceFilepath, int count) {
+        return results.subList(0, Math.min(count, results.size()));
+      }
+    };
+    CustomResultCollector collector = new CustomResultCollector();
+    HashTree firstTestPlan = buildTestPlan("/login", "/home", "/cart", "/checkout");
+    PreparedReplay firstReplay = checkpoints.prepare(firstTestPlan, collector, 2);
+    replay(firstTestPlan, results);
+    checkpoints.complete(firstReplay, collector);
+
+    HashTree secondTestPlan = buildTestPlan("/login", "/home", "/cart", "/checkout/2");
+    PreparedReplay secondReplay = checkpoints.prepare(secondTestPlan, collector, 2);
+
+    assertThat(secondReplay.getResumeIndex()).isEqualTo(2);
+    assertThat(getThreadGroupTree(secondTestPlan).list().stream()
+        .map(element -> element instanceof Restorer ? "restorer"
+            : element instanceof Recorder ? "recorder" : ((HTTPSamplerProxy) element).getPath())
+        .collect(Collectors.toList()))
+        .containsExactly("/cart", "/checkout/2", "restorer", "recorder");
+  }
+}
@@ -0,0 +1,56 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class ReplayDivergenceMonitorTest {
+
+  private static SampleResult buildResult(String label, String code, String body) {
+    SampleResult result = TestUtils.buildHttpResult(label, "http://example.com/" + label, body);
+    result.setResponseCode(code);
+    result.setSuccessful(code.startsWith("2") || code.startsWith("3"));
+    return result;
+  }
+
+  @Test
+  public void shouldStopAfterMaxNewDivergences() {
+    ReplayDivergenceMonitor monitor = new ReplayDivergenceMonitor(Arrays.asList(
+        buildResult("login", "200", ""), buildResult("home", "200", ""),
+        buildResult("cart", "500", ""), buildResult("checkout", "200", "")), 2, 0);
+
+    SampleResult login = buildResult("login", "200", "");
+    SampleResult home = buildResult("home", "302", "");
+    SampleResult cart = buildResult("cart", "500", "");
+    SampleResult checkout = buildResult("checkout", "403", "");
+
+    assertThat(monitor.check(login)).isFalse();
+    assertThat(monitor.check(home)).isTrue();
+    assertThat(monitor.check(cart)).isFalse();
+    assertThat(monitor.check(checkout)).isTrue();
+    assertThat(monitor.getDivergences().stream().map(d -> d.getResultIndex())
+        .collect(Collectors.toList())).containsExactly(1, 3);
+    assertThat(home.isSuccessful()).isFalse();
+    assertThat(checkout.isStopTest()).isTrue();
+  }
+
+  @Test
+  public void shouldDivergeWhenBodyIsTooDifferent() {
+    ReplayDivergenceMonitor monitor = new ReplayDivergenceMonitor(Arrays.asList(
+        buildResult("account", "200", "<h1>Your account</h1><p>Balance: 1234</p>")), 1, 0.5f);
+
+    assertThat(monitor.check(buildResult("account", "200",
+        "<h1>Sign in</h1><form>User Password</form>"))).isTrue();
+  }
+
+  @Test
+  public void shouldGetHighSimilarityWhenOnlyDynamicValuesChange() {
+    assertThat(ReplayDivergenceMonitor.getBodySimilarity(
+        "{\"status\":\"ok\",\"user\":\"john\",\"token\":\"abc123\"}",
+        "{\"status\":\"ok\",\"user\":\"john\",\"token\":\"xyz789\"}")).isGreaterThan(0.7);
+  }
+}
@@ -0,0 +1,82 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.IOUtils;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayStubServerTest {
+
+  private static final String TOKEN = "abc123xyz";
+  private ReplayStubServer server;
+
+  private static HTTPSampleResult buildResult(String url, String body) {
+    HTTPSampleResult result = TestUtils.buildHttpResult(url, url, body);
+    result.setResponseHeaders("HTTP/1.1 200 OK\nContent-Type: text/plain");
+    return result;
+  }
+
+  @Before
+  public void setup() throws IOException {
+    server = new ReplayStubServer(Arrays.asList(
+        buildResult("http://example.com/login", "token=" + TOKEN),
+        buildResult("http://example.com/account?token=" + TOKEN, "Welcome")),
+        Collections.singletonList(TOKEN));
+    server.start();
+  }
+
+  @After
+  public void teardown() {
+    server.close();
+  }
+
+  private HttpURLConnection send(String url) throws IOException {
+    Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("localhost",
+        server.getPort()));
+    return (HttpURLConnection) new URL(url).openConnection(proxy);
+  }
+
+  private String sendAndGetBody(String url) throws IOException {
+    try (InputStream body = send(url).getInputStream()) {
+      return IOUtils.toString(body, StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void shouldServeRecordedResponseWithIssuedValue() throws IOException {
+    assertThat(sendAndGetBody("http://example.com/login"))
+        .isEqualTo("token=" + ReplayStubServer.getIssuedValue(TOKEN));
+  }
+
+  @Test
+  public void shouldAcceptRequestSendingIssuedValue() throws IOException {
+    String issued = sendAndGetBody("http://example.com/login").substring("token=".length());
+    assertThat(sendAndGetBody("http://example.com/account?token=" + issued))
+        .isEqualTo("Welcome");
+  }
+
+  @Test
+  public void shouldRejectRequestSendingRecordedValue() throws IOException {
+    sendAndGetBody("http://example.com/login");
+    assertThat(send("http://example.com/account?token=" + TOKEN).getResponseCode())
+        .isEqualTo(ReplayStubServer.MISMATCH_RESPONSE_CODE);
+  }
+
+  @Test
+  public void shouldNotMatchRequestsThatWereNotRecorded() throws IOException {
+    assertThat(send("http://example.com/logout").getResponseCode()).isEqualTo(404);
+  }
+}
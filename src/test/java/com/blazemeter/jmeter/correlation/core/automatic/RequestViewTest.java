@@ -0,0 +1,57 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.junit.Test;
+
+public class RequestViewTest {
+
+  private static HTTPSampleResult buildResult(String url, String contentType, String body)
+      throws MalformedURLException {
+    HTTPSampleResult result = new HTTPSampleResult();
+    result.setSampleLabel("login");
+    result.setURL(new URL(url));
+    result.setHTTPMethod("POST");
+    result.setRequestHeaders("Content-Type: " + contentType + "\n");
+    result.setQueryString(body);
+    return result;
+  }
+
+  @Test
+  public void shouldParseDecodedArgumentsFromQuery() throws MalformedURLException {
+    RequestView request = RequestView.of(buildResult("http://example.com/login?user=john%40doe",
+        "text/plain", null));
+
+    assertThat(request.getArguments()).containsExactly(Pair.of("user", "john@doe"));
+    assertThat(request.getPath()).isEqualTo("/login");
+    assertThat(request.isRawBody()).isFalse();
+  }
+
+  @Test
+  public void shouldKeepJsonBodyRawWithQueryInPath() throws MalformedURLException {
+    RequestView request = RequestView.of(buildResult("http://example.com/login?lang=en",
+        "application/json", "{\"user\":\"john\"}"));
+
+    assertThat(request.getArguments()).containsExactly(Pair.of("", "{\"user\":\"john\"}"));
+    assertThat(request.getPath()).isEqualTo("/login?lang=en");
+    assertThat(request.isRawBody()).isTrue();
+  }
+
+  @Test
+  public void shouldBuildSamplerOnlyOnce() throws MalformedURLException {
+    RequestView request = RequestView.of(buildResult("http://example.com/login?user=john",
+        "text/plain", null));
+
+    HTTPSamplerProxy sampler = request.getSampler();
+
+    assertThat(sampler.getName()).isEqualTo("login");
+    assertThat(sampler.getMethod()).isEqualTo("POST");
+    assertThat(sampler.getArguments().getArgumentCount()).isEqualTo(1);
+    assertThat(request.getSampler()).isSameAs(sampler);
+  }
+}
@@ -0,0 +1,52 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import java.io.IOException;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class ResultStoreTest {
+
+  private static HTTPSampleResult buildResult(int number) {
+    HTTPSampleResult result = TestUtils.buildHttpResult("request " + number,
+        "http://example.com/request/" + number, "body " + number);
+    result.setHTTPMethod("POST");
+    result.setQueryString("id=" + number);
+    result.setResponseHeaders("Content-Type: text/plain");
+    return result;
+  }
+
+  @Test
+  public void shouldReadStoredResultsByTheirPosition() throws IOException {
+    try (ResultStore store = new ResultStore(1)) {
+      for (int i = 0; i < 3; i++) {
+        assertThat(store.store(buildResult(i))).isEqualTo(i);
+      }
+
+      assertThat(store).hasSize(3);
+      for (int i = 2; i >= 0; i--) {
+        HTTPSampleResult result = (HTTPSampleResult) store.get(i);
+        assertThat(result.getSampleLabel()).isEqualTo("request " + i);
+        assertThat(result.getUrlAsString()).isEqualTo("http://example.com/request/" + i);
+        assertThat(result.getQueryString()).isEqualTo("id=" + i);
+        assertThat(result.getResponseDataAsString()).isEqualTo("body " + i);
+      }
+    }
+  }
+
+  @Test
+  public void shouldReturnSameInstanceWhileResultIsKeptInMemory() throws IOException {
+    try (ResultStore store = new ResultStore(1)) {
+      store.store(buildResult(0));
+      store.store(buildResult(1));
+
+      SampleResult result = store.get(0);
+      assertThat(store.get(0)).isSameAs(result);
+      store.get(1);
+      assertThat(store.get(0)).isNotSameAs(result);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import com.blazemeter.jmeter.correlation.core.automatic.ResultsAlignment.SignatureIds;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class ResultsAlignmentTest {
+
+  private static final int NOT_ALIGNED = ResultsAlignment.NOT_ALIGNED;
+
+  private static SampleResult buildResult(String label, String path, boolean successful) {
+    SampleResult result = TestUtils.buildHttpResult(label, "http://example.com" + path, "");
+    result.setSuccessful(successful);
+    return result;
+  }
+
+  @Test
+  public void shouldAlignRequestsWhenReplayAddsAndSkipsRequests() {
+    assertThat(ResultsAlignment.align(new int[] {1, 2, 3, 4, 5}, new int[] {1, 2, 9, 3, 5}))
+        .containsExactly(0, 1, NOT_ALIGNED, 2, 4);
+  }
+
+  @Test
+  public void shouldAlignRepeatedRequestsByTheirOrder() {
+    assertThat(ResultsAlignment.align(new int[] {1, 2, 1, 2, 3}, new int[] {1, 2, 3, 1, 2, 3}))
+        .containsExactly(0, 1, NOT_ALIGNED, 2, 3, 4);
+  }
+
+  @Test
+  public void shouldDetectNewFailureOfRequestWithRepeatedLabel() {
+    ResultsAlignment alignment = new ResultsAlignment(Arrays.asList(
+        buildResult("home", "/home", true),
+        buildResult("step", "/step/1", false),
+        buildResult("step", "/step/2", true)));
+    int[] alignedResults = alignment.align(Arrays.asList(
+        buildResult("home", "/home", true),
+        buildResult("step", "/step/1", false),
+        buildResult("step", "/step/2", false)));
+
+    assertThat(alignment.isNewFailure(alignedResults, 1, "step")).isFalse();
+    assertThat(alignment.isNewFailure(alignedResults, 2, "step")).isTrue();
+  }
+
+  @Test
+  public void shouldNotDetectNewFailureOfUnalignedRequestWhenLabelFailedInRecording() {
+    ResultsAlignment alignment = new ResultsAlignment(Arrays.asList(
+        buildResult("home", "/home", true),
+        buildResult("search", "/search/old", false)));
+    int[] alignedResults = alignment.align(Arrays.asList(
+        buildResult("home", "/home", true),
+        buildResult("search", "/search/new", false)));
+
+    assertThat(alignment.isNewFailure(alignedResults, 1, "search")).isFalse();
+  }
+
+  @Test
+  public void shouldAlignReplayByIdsGivenToItsSignaturesBeforeLoadingRecording() {
+    SignatureIds signatureIds = new SignatureIds();
+    int[] replayIds = Arrays.asList(
+        buildResult("search", "/search/1", true),
+        buildResult("home", "/home", true),
+        buildResult("search", "/search/2", true)).stream()
+        .mapToInt(signatureIds::getId)
+        .toArray();
+    ResultsAlignment alignment = new ResultsAlignment(Arrays.asList(
+        buildResult("home", "/home", true),
+        buildResult("search", "/search/1", true)), signatureIds);
+
+    assertThat(replayIds).containsExactly(0, 1, 0);
+    assertThat(alignment.align(replayIds)).containsExactly(NOT_ALIGNED, 0, 1);
+  }
+
+  @Test
+  public void shouldDetectNewFailureWithIdsGivenWhileReadingRecording() {
+    SignatureIds signatureIds = new SignatureIds();
+    List<SampleResult> recording = Arrays.asList(
+        buildResult("step", "/step/1", false),
+        buildResult("step", "/step/2", true));
+    ResultsAlignment alignment = new ResultsAlignment(recording, signatureIds,
+        recording.stream().mapToInt(signatureIds::getId).toArray(),
+        Arrays.asList("step", "step"));
+    int[] alignedResults = alignment.align(Arrays.asList(
+        buildResult("step", "/step/1", false),
+        buildResult("step", "/step/2", false)));
+
+    assertThat(alignment.isNewFailure(alignedResults, 0, "step")).isFalse();
+    assertThat(alignment.isNewFailure(alignedResults, 1, "step")).isTrue();
+  }
+}
@@ -0,0 +1,51 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.SearchableResult.ValueLocation;
+import java.util.Arrays;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class SearchableResultTest {
+  private static final String HEADERS = "HTTP/1.1 200 OK\nSet-Cookie: session=abc123\n"
+      + "X-Token: tok-1\n";
+
+  @Test
+  public void shouldSplitSetCookieHeadersFromTheOtherHeaders() {
+    SearchableResult result = new SearchableResult(new SampleResult(), 0, "", HEADERS);
+
+    assertThat(result.getHeaders()).isEqualTo("HTTP/1.1 200 OK\n\nX-Token: tok-1\n");
+    assertThat(result.getSetCookieHeaders()).isEqualTo("Set-Cookie: session=abc123\n");
+  }
+
+  @Test
+  public void shouldLocateAllValuesInEveryField() {
+    SearchableResult result = new SearchableResult(new SampleResult(), 0, "{\"id\":\"abc123\"}",
+        HEADERS);
+
+    AhoCorasickMatcher matcher =
+        new AhoCorasickMatcher(Arrays.asList("abc123", "tok-1", "missing"));
+
+    assertThat(result.locateAll(matcher)).containsExactly("abc123", "tok-1");
+    ValueLocation location = result.locate("abc123");
+    assertThat(location.getBodyOffset()).isEqualTo(7);
+    assertThat(location.getSetCookieOffset()).isEqualTo(20);
+    assertThat(location.isInHeaders()).isFalse();
+    assertThat(result.locate("tok-1").isInHeaders()).isTrue();
+    assertThat(result.locate("missing").isFound()).isFalse();
+  }
+
+  @Test
+  public void shouldLocateValuesScannedOneByOneBeforeAndAfterBuildingNgramFilter() {
+    SearchableResult result = new SearchableResult(new SampleResult(), 0,
+        "{\"ids\":[\"id-0\",\"id-1\",\"id-2\",\"id-3\",\"id-4\",\"id-5\"]}", HEADERS);
+
+    for (int i = 0; i < 6; i++) {
+      assertThat(result.locate("id-" + i).isInBody()).isTrue();
+      assertThat(result.locate("other-" + i).isFound()).isFalse();
+    }
+    assertThat(result.locate("tok-1").isInHeaders()).isTrue();
+    assertThat(result.locate("id-0").getBodyOffset()).isEqualTo(9);
+  }
+}
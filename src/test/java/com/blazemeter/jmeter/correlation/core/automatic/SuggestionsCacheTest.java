@@ -0,0 +1,123 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SuggestionsCacheTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+  private File folder;
+  private SuggestionsCache cache;
+
+  @Before
+  public void setup() {
+    folder = new File(tempFolder.getRoot(), "cache");
+    cache = new SuggestionsCache(folder, 1, 2);
+  }
+
+  private static List<DynamicElement> buildDynamicElements(String value) {
+    HTTPSamplerProxy sampler = new HTTPSamplerProxy();
+    sampler.setName("login");
+    sampler.setPath("/login");
+    sampler.addArgument("token", value);
+    return Collections.singletonList(new DynamicElement("token",
+        Collections.singletonList(new Appearances(value, "token", sampler)),
+        Collections.singletonList(new Appearances(value + "-replay", "token", sampler))));
+  }
+
+  @Test
+  public void shouldLoadStoredDynamicElements() {
+    cache.storeDynamicElements("key", buildDynamicElements("abc"));
+
+    List<DynamicElement> loaded = cache.loadDynamicElements("key");
+
+    assertThat(loaded).hasSize(1);
+    assertThat(loaded.get(0).getName()).isEqualTo("token");
+    assertThat(loaded.get(0).getOriginalAppearance().get(0).getValue()).isEqualTo("abc");
+    assertThat(loaded.get(0).getOriginalAppearance().get(0).getList().get(0).getName())
+        .isEqualTo("login");
+  }
+
+  @Test
+  public void shouldRestoreRequestsOfStoredDynamicElements() {
+    cache.storeDynamicElements("key", buildDynamicElements("abc"));
+
+    HTTPSamplerProxy sampler = (HTTPSamplerProxy) cache.loadDynamicElements("key").get(0)
+        .getOtherAppearance().get(0).getList().get(0);
+
+    assertThat(sampler.getPath()).isEqualTo("/login");
+    assertThat(sampler.getArguments().getArgumentsAsMap()).containsEntry("token", "abc");
+  }
+
+  @Test
+  public void shouldDiscardDynamicElementsStoredWithAnotherFormatVersion() throws IOException {
+    folder.mkdirs();
+    File file = new File(folder, "old.json.gz");
+    try (Writer output = new OutputStreamWriter(new GZIPOutputStream(
+        new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+      output.write("{\"version\":" + (SuggestionsCache.FORMAT_VERSION - 1)
+          + ",\"requests\":[],\"elements\":[]}");
+    }
+
+    assertThat(cache.loadDynamicElements("old")).isNull();
+    assertThat(file).doesNotExist();
+  }
+
+  @Test
+  public void shouldReturnNullWhenDynamicElementsWereNotStored() {
+    assertThat(cache.loadDynamicElements("missing")).isNull();
+  }
+
+  @Test
+  public void shouldDiscardLeastRecentlyUsedDynamicElements() {
+    cache.storeDynamicElements("first", buildDynamicElements("1"));
+    assertThat(new File(folder, "first.json.gz").setLastModified(1000)).isTrue();
+    cache.storeDynamicElements("second", buildDynamicElements("2"));
+    cache.storeDynamicElements("third", buildDynamicElements("3"));
+
+    assertThat(cache.loadDynamicElements("first")).isNull();
+    assertThat(cache.loadDynamicElements("third")).hasSize(1);
+  }
+
+  @Test
+  public void shouldDiscardLeastRecentlyUsedSuggestions() {
+    cache.putSuggestions("first", Collections.emptyList(), null);
+    cache.putSuggestions("second", Collections.emptyList(), null);
+
+    assertThat(cache.getSuggestions("first")).isNull();
+    assertThat(cache.getSuggestions("second")).isEmpty();
+  }
+
+  @Test
+  public void shouldKeepSuggestionsKeyWhenSettingsUnrelatedToSuggestionsChange() {
+    Configuration configuration = new Configuration();
+    String key = cache.getSuggestionsKey("elements", configuration);
+    configuration.setSuggestionThreads(configuration.getSuggestionThreads() + 1);
+    configuration.setOfflineReplay(!configuration.isOfflineReplay());
+    configuration.setReplayCheckpointInterval(configuration.getReplayCheckpointInterval() + 1);
+
+    assertThat(cache.getSuggestionsKey("elements", configuration)).isEqualTo(key);
+    configuration.setRegexExtractorsOnly(!configuration.isRegexExtractorsOnly());
+    assertThat(cache.getSuggestionsKey("elements", configuration)).isNotEqualTo(key);
+  }
+
+  @Test
+  public void shouldGenerateDifferentHashWhenTextMovesBetweenParts() {
+    assertThat(SuggestionsCache.hash("ab", "c")).isNotEqualTo(SuggestionsCache.hash("a", "bc"));
+  }
+}
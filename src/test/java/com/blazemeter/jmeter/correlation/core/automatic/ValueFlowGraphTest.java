@@ -0,0 +1,74 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.TestUtils;
+import com.blazemeter.jmeter.correlation.core.automatic.ValueFlowGraph.Field;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ValueFlowGraphTest {
+
+  private static final String TOKEN = "a1b2c3d4";
+  private static final String CLIENT_ID = "z9y8x7w6";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static ValueFlowGraph buildGraph() {
+    return ValueFlowGraph.build(Arrays.asList(
+        TestUtils.buildHttpResult("login", "http://example.com/login?client=" + CLIENT_ID,
+            "{\"token\":\"" + TOKEN + "\"}"),
+        TestUtils.buildHttpResult("data", "http://example.com/data?token=" + TOKEN,
+            "{\"client\":\"" + CLIENT_ID + "\"}")), Arrays.asList(TOKEN, CLIENT_ID));
+  }
+
+  @Test
+  public void shouldLinkFirstProducerWithConsumers() {
+    ValueFlowGraph graph = buildGraph();
+
+    int producer = graph.getFirstProducer(TOKEN);
+    assertThat(graph.getSample(producer)).isEqualTo(0);
+    assertThat(graph.getField(producer)).isEqualTo(Field.RESPONSE_BODY);
+    int[] consumers = graph.getConsumers(producer);
+    assertThat(consumers).hasSize(1);
+    assertThat(graph.getSample(consumers[0])).isEqualTo(1);
+    assertThat(graph.getField(consumers[0])).isEqualTo(Field.REQUEST_URL);
+    assertThat(graph.getProducer(consumers[0])).isEqualTo(producer);
+  }
+
+  @Test
+  public void shouldDetectValuesConsumedBeforeProduced() {
+    ValueFlowGraph graph = buildGraph();
+
+    assertThat(graph.getValuesConsumedBeforeProduced()).containsExactly(CLIENT_ID);
+    assertThat(graph.getProducer(graph.getNodes(CLIENT_ID)[0])).isEqualTo(-1);
+  }
+
+  @Test
+  public void shouldKeepNodesAndEdgesWhenSavedAndLoaded() throws IOException {
+    ValueFlowGraph graph = buildGraph();
+    String filepath = new File(tempFolder.getRoot(), "value-flow.json").getPath();
+
+    ValueFlowGraph loaded = ValueFlowGraph.load(graph.save(filepath));
+
+    assertThat(loaded.getValues()).isEqualTo(graph.getValues());
+    assertThat(loaded.getNodeCount()).isEqualTo(graph.getNodeCount());
+    assertThat(loaded.getEdgeCount()).isEqualTo(graph.getEdgeCount());
+    for (int node = 0; node < graph.getNodeCount(); node++) {
+      assertThat(loaded.getSample(node)).isEqualTo(graph.getSample(node));
+      assertThat(loaded.getField(node)).isEqualTo(graph.getField(node));
+      assertThat(loaded.getOffset(node)).isEqualTo(graph.getOffset(node));
+      assertThat(loaded.getValue(node)).isEqualTo(graph.getValue(node));
+      assertThat(loaded.getProducer(node)).isEqualTo(graph.getProducer(node));
+      assertThat(loaded.getConsumers(node)).isEqualTo(graph.getConsumers(node));
+    }
+    assertThat(loaded.getFirstProducer(TOKEN)).isEqualTo(graph.getFirstProducer(TOKEN));
+    assertThat(loaded.getValuesConsumedBeforeProduced())
+        .isEqualTo(graph.getValuesConsumedBeforeProduced());
+  }
+}
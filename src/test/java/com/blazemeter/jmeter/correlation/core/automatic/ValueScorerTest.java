@@ -0,0 +1,57 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.junit.Test;
+
+public class ValueScorerTest {
+  private static final String TOKEN = "f3a9c2e1b7d84a6f";
+
+  @Test
+  public void shouldScoreZeroWhenValueHasStaticShape() {
+    assertThat(ValueScorer.scoreValue("1234")).isZero();
+    assertThat(ValueScorer.scoreValue("2024-01-02T10:15:30Z")).isZero();
+    assertThat(ValueScorer.scoreValue("10:15")).isZero();
+  }
+
+  @Test
+  public void shouldScoreRandomValuesHigherThanWords() {
+    assertThat(ValueScorer.scoreValue(TOKEN)).isGreaterThan(ValueScorer.scoreValue("admin"));
+  }
+
+  @Test
+  public void shouldScoreLowerWhenSameValueIsRepeatedAcrossTraces() {
+    List<Appearances> repeated = buildAppearances("asc", 10);
+    List<Appearances> single = buildAppearances("asc", 1);
+
+    assertThat(ValueScorer.score(repeated, repeated))
+        .isLessThan(ValueScorer.score(single, single));
+  }
+
+  @Test
+  public void shouldScoreHigherWhenValueChangesBetweenTraces() {
+    List<Appearances> original = buildAppearances(TOKEN, 1);
+
+    assertThat(ValueScorer.score(original, buildAppearances("0b8e4d7c1a2f3e9d", 1)))
+        .isGreaterThan(ValueScorer.score(original, original));
+  }
+
+  // Like JMeterElementUtils.addToMap, every sampler using the value is merged in one appearance
+  private static List<Appearances> buildAppearances(String value, int samplers) {
+    Appearances appearances = new Appearances(value, "param", buildSampler(0));
+    appearances.setSource("Request Body");
+    IntStream.range(1, samplers)
+        .forEach(i -> appearances.getList().add(buildSampler(i)));
+    return Collections.singletonList(appearances);
+  }
+
+  private static HTTPSamplerProxy buildSampler(int index) {
+    HTTPSamplerProxy sampler = new HTTPSamplerProxy();
+    sampler.setName("sampler " + index);
+    return sampler;
+  }
+}
@@ -0,0 +1,28 @@
+package com.blazemeter.jmeter.correlation.core.automatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.blazemeter.jmeter.correlation.core.automatic.ValueVariants.Encoding;
+import org.junit.Test;
+
+public class ValueVariantsTest {
+
+  @Test
+  public void shouldOnlyKeepDistinctVariants() {
+    assertThat(ValueVariants.of("abc123").getEncodedValues()).containsExactly("abc123");
+  }
+
+  @Test
+  public void shouldComputeEncodedVariants() {
+    assertThat(ValueVariants.of("a/b \"c\"").getEncodedValues()).containsExactly(
+        "a/b \"c\"", "a%2Fb%20%22c%22", "a%2fb%20%22c%22", "a%252Fb%2520%2522c%2522",
+        "a\\/b \\\"c\\\"", "a/b &quot;c&quot;");
+  }
+
+  @Test
+  public void shouldProvideDecodingExpressionForEncodedVariants() {
+    assertThat(Encoding.URL_ENCODED.getDecodingExpression("token#1"))
+        .isEqualTo("${__urldecode(${token#1})}");
+    assertThat(Encoding.RAW.getDecodingExpression("token#1")).isEmpty();
+  }
+}
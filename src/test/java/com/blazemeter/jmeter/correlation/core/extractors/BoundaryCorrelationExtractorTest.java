@@ -0,0 +1,36 @@
+package com.blazemeter.jmeter.correlation.core.extractors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.jmeter.extractor.BoundaryExtractor;
+import org.junit.Test;
+
+public class BoundaryCorrelationExtractorTest {
+
+  private static final String RESPONSE = "<input name=\"token\" value=\"abc123\"/>"
+      + "<input name=\"token\" value=\"def456\"/>";
+  private static final String REFERENCE_NAME = "token";
+
+  private static BoundaryCorrelationExtractor<?> buildExtractor() {
+    return new BoundaryCorrelationExtractor<>("value=\"", "\"", ResultField.BODY);
+  }
+
+  @Test
+  public void shouldFindRequestedMatchWhenBoundariesAppearSeveralTimes() {
+    BoundaryCorrelationExtractor<?> extractor = buildExtractor();
+
+    assertThat(extractor.findMatch(RESPONSE, 1)).isEqualTo("abc123");
+    assertThat(extractor.findMatch(RESPONSE, 2)).isEqualTo("def456");
+    assertThat(extractor.findMatch(RESPONSE, 3)).isNull();
+  }
+
+  @Test
+  public void shouldCreateBoundaryExtractorWithBoundariesAndMatchNumber() {
+    BoundaryExtractor postProcessor = buildExtractor().createPostProcessor(REFERENCE_NAME, 2);
+
+    assertThat(postProcessor.getRefName()).isEqualTo(REFERENCE_NAME);
+    assertThat(postProcessor.getLeftBoundary()).isEqualTo("value=\"");
+    assertThat(postProcessor.getRightBoundary()).isEqualTo("\"");
+    assertThat(postProcessor.getMatchNumber()).isEqualTo(2);
+  }
+}
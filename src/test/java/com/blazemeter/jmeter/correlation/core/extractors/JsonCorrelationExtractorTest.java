@@ -0,0 +1,30 @@
+package com.blazemeter.jmeter.correlation.core.extractors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class JsonCorrelationExtractorTest {
+
+  private static final String RESPONSE = "{\"session\":{\"id\":\"f3a9c2e1\",\"ttl\":300},"
+      + "\"items\":[{\"id\":\"a1\"},{\"id\":\"b2\"}]}";
+
+  @Test
+  public void shouldFindValueWhenPathPointsToSingleField() {
+    assertThat(new JsonCorrelationExtractor<>("$.session.id").findMatch(RESPONSE, 1))
+        .isEqualTo("f3a9c2e1");
+  }
+
+  @Test
+  public void shouldFindRequestedMatchWhenPathMatchesSeveralFields() {
+    JsonCorrelationExtractor<?> extractor = new JsonCorrelationExtractor<>("$.items[*].id");
+
+    assertThat(extractor.findMatch(RESPONSE, 2)).isEqualTo("b2");
+    assertThat(extractor.findMatch(RESPONSE, 3)).isNull();
+  }
+
+  @Test
+  public void shouldNotFindValueWhenResponseIsNotJson() {
+    assertThat(new JsonCorrelationExtractor<>("$.session.id").findMatch("<html/>", 1)).isNull();
+  }
+}
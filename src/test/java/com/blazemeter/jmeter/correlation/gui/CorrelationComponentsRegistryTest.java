@@ -3,7 +3,9 @@ package com.blazemeter.jmeter.correlation.gui;
 import static org.assertj.core.api.Assertions.assertThat;
 import com.blazemeter.jmeter.correlation.core.CorrelationRulePartTestElement;
 import com.blazemeter.jmeter.correlation.core.InvalidRulePartElementException;
+import com.blazemeter.jmeter.correlation.core.extractors.BoundaryCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.CorrelationExtractor;
+import com.blazemeter.jmeter.correlation.core.extractors.JsonCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.extractors.RegexCorrelationExtractor;
 import com.blazemeter.jmeter.correlation.core.replacements.CorrelationReplacement;
 import com.blazemeter.jmeter.correlation.core.replacements.RegexCorrelationReplacement;
@@ -153,8 +155,8 @@ public class CorrelationComponentsRegistryTest {
   public void shouldGetDefaultAllowedExtractorsWhenGetAllowedExtractors() {
     List<CorrelationRulePartTestElement<?>> expectedDefaultAllowedExtractors =
         Arrays.asList(CorrelationComponentsRegistry.NONE_EXTRACTOR,
-            new RegexCorrelationExtractor<>(),
-            CorrelationComponentsRegistry.MORE_EXTRACTOR);
+            new RegexCorrelationExtractor<>(), new BoundaryCorrelationExtractor<>(),
+            new JsonCorrelationExtractor<>(), CorrelationComponentsRegistry.MORE_EXTRACTOR);
     assertThat(expectedDefaultAllowedExtractors).isEqualTo(registry.buildActiveExtractorRulePart());
   }
 